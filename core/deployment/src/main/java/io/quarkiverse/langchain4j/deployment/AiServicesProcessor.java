@@ -87,6 +87,7 @@ import io.quarkiverse.langchain4j.runtime.aiservice.MetricsCountedWrapper;
 import io.quarkiverse.langchain4j.runtime.aiservice.MetricsTimedWrapper;
 import io.quarkiverse.langchain4j.runtime.aiservice.QuarkusAiServiceContext;
 import io.quarkiverse.langchain4j.runtime.aiservice.SpanWrapper;
+import io.quarkiverse.langchain4j.runtime.config.LangChain4jConfig;
 import io.quarkiverse.langchain4j.spi.DefaultMemoryIdProvider;
 import io.quarkus.arc.Arc;
 import io.quarkus.arc.ArcContainer;
@@ -378,6 +379,9 @@ public class AiServicesProcessor {
 
             String imageModelName = chatModelName; // TODO: should we have a separate setting for this?
 
+            AnnotationValue parallelToolExecutionValue = instance.value("parallelToolExecution");
+            boolean parallelToolExecution = parallelToolExecutionValue != null && parallelToolExecutionValue.asBoolean();
+
             declarativeAiServiceProducer.produce(
                     new DeclarativeAiServiceBuildItem(
                             declarativeAiServiceClassInfo,
@@ -396,7 +400,8 @@ public class AiServicesProcessor {
                             chatModelName,
                             moderationModelName,
                             imageModelName,
-                            toolProviderClassName));
+                            toolProviderClassName,
+                            parallelToolExecution));
         }
         toolProviderProducer.produce(new ToolProviderMetaBuildItem(toolProviderInfos));
 
@@ -466,9 +471,13 @@ public class AiServicesProcessor {
     public void handleDeclarativeServices(AiServicesRecorder recorder,
             List<DeclarativeAiServiceBuildItem> declarativeAiServiceItems,
             List<SelectedChatModelProviderBuildItem> selectedChatModelProvider,
+            Optional<MetricsCapabilityBuildItem> metricsCapability,
             BuildProducer<SyntheticBeanBuildItem> syntheticBeanProducer,
             BuildProducer<UnremovableBeanBuildItem> unremoveableProducer) {
 
+        boolean metricsEnabled = metricsCapability.isPresent()
+                && metricsCapability.get().metricsSupported(MetricsFactory.MICROMETER);
+
         boolean needsChatModelBean = false;
         boolean needsStreamingChatModelBean = false;
         boolean needsChatMemoryProviderBean = false;
@@ -595,7 +604,9 @@ public class AiServicesProcessor {
                                     bi.getImageModelName(),
                                     injectStreamingChatModelBean,
                                     injectModerationModelBean,
-                                    injectImageModel)))
+                                    injectImageModel,
+                                    bi.isParallelToolExecution(),
+                                    metricsEnabled)))
                     .setRuntimeInit()
                     .addQualifier()
                     .annotation(LangChain4jDotNames.QUARKUS_AI_SERVICE_CONTEXT_QUALIFIER).addValue("value", serviceClassName)
@@ -760,6 +771,27 @@ public class AiServicesProcessor {
         }
     }
 
+    @BuildStep
+    public void markResponseCacheBeansUnremovable(List<AiServicesMethodBuildItem> methods,
+            BuildProducer<UnremovableBeanBuildItem> unremovableProducer) {
+        boolean needsResponseCacheStoreBean = false;
+        boolean needsEmbeddingModelBean = false;
+        for (AiServicesMethodBuildItem method : methods) {
+            if (method.getResponseCacheInfo().isPresent()) {
+                needsResponseCacheStoreBean = true;
+                needsEmbeddingModelBean |= method.getResponseCacheInfo().get().semantic();
+            }
+        }
+        if (needsResponseCacheStoreBean) {
+            unremovableProducer.produce(UnremovableBeanBuildItem.beanTypes(LangChain4jDotNames.AI_RESPONSE_CACHE_STORE));
+            // the configuration of the cache is looked up when a method is first invoked
+            unremovableProducer.produce(UnremovableBeanBuildItem.beanTypes(LangChain4jConfig.class));
+        }
+        if (needsEmbeddingModelBean) {
+            unremovableProducer.produce(UnremovableBeanBuildItem.beanTypes(LangChain4jDotNames.EMBEDDING_MODEL));
+        }
+    }
+
     @BuildStep
     public void validateGuardrails(SynthesisFinishedBuildItem synthesisFinished,
             List<AiServicesMethodBuildItem> methods,
@@ -1068,7 +1100,8 @@ public class AiServicesProcessor {
 
                             aiServicesMethodProducer.produce(new AiServicesMethodBuildItem(methodInfo,
                                     methodCreateInfo.getInputGuardrailsClassNames(),
-                                    methodCreateInfo.getOutputGuardrailsClassNames()));
+                                    methodCreateInfo.getOutputGuardrailsClassNames(),
+                                    methodCreateInfo.getResponseCacheInfo()));
                         }
                     }
 
@@ -1197,14 +1230,16 @@ public class AiServicesProcessor {
 
         List<String> outputGuardrails = AiServicesMethodBuildItem.gatherGuardrails(method, OUTPUT_GUARDRAILS);
         List<String> inputGuardrails = AiServicesMethodBuildItem.gatherGuardrails(method, INPUT_GUARDRAILS);
+        boolean inputGuardrailsConcurrent = AiServicesMethodBuildItem.gatherConcurrentInputGuardrails(method);
 
         String accumulatorClassName = AiServicesMethodBuildItem.gatherAccumulator(method);
+        Optional<AiServiceMethodCreateInfo.ResponseCacheInfo> responseCacheInfo = gatherResponseCacheInfo(method);
 
         return new AiServiceMethodCreateInfo(method.declaringClass().name().toString(), method.name(), systemMessageInfo,
                 userMessageInfo, memoryIdParamPosition, requiresModeration,
                 returnTypeSignature(method.returnType(), new TypeArgMapper(method.declaringClass(), index)),
                 metricsTimedInfo, metricsCountedInfo, spanInfo, responseSchemaInfo, methodToolClassNames, inputGuardrails,
-                outputGuardrails, accumulatorClassName);
+                inputGuardrailsConcurrent, outputGuardrails, accumulatorClassName, responseCacheInfo);
     }
 
     private void validateReturnType(MethodInfo method) {
@@ -1550,6 +1585,25 @@ public class AiServicesProcessor {
         return Optional.of(new AiServiceMethodCreateInfo.SpanInfo(name));
     }
 
+    private Optional<AiServiceMethodCreateInfo.ResponseCacheInfo> gatherResponseCacheInfo(MethodInfo method) {
+        AnnotationInstance instance = method.annotation(LangChain4jDotNames.CACHE_RESULT);
+        if (instance == null) {
+            // Check on class
+            instance = method.declaringClass().declaredAnnotation(LangChain4jDotNames.CACHE_RESULT);
+        }
+        if (instance == null) {
+            return Optional.empty();
+        }
+        DotName returnTypeName = method.returnType().name();
+        if (returnTypeName.equals(DotNames.MULTI) || returnTypeName.equals(LangChain4jDotNames.TOKEN_STREAM)
+                || returnTypeName.equals(LangChain4jDotNames.IMAGE)) {
+            throw illegalConfigurationForMethod("@CacheResult cannot be used on methods returning " + returnTypeName,
+                    method);
+        }
+        AnnotationValue semantic = instance.value("semantic");
+        return Optional.of(new AiServiceMethodCreateInfo.ResponseCacheInfo(semantic != null && semantic.asBoolean()));
+    }
+
     private List<String> gatherMethodToolClassNames(MethodInfo method) {
         AnnotationInstance toolBoxInstance = method.declaredAnnotation(ToolBox.class);
         if (toolBoxInstance == null) {
@@ -1688,11 +1742,14 @@ public class AiServicesProcessor {
         private final MethodInfo methodInfo;
         private final List<String> outputGuardrails;
         private final List<String> inputGuardrails;
+        private final Optional<AiServiceMethodCreateInfo.ResponseCacheInfo> responseCacheInfo;
 
-        public AiServicesMethodBuildItem(MethodInfo methodInfo, List<String> inputGuardrails, List<String> outputGuardrails) {
+        public AiServicesMethodBuildItem(MethodInfo methodInfo, List<String> inputGuardrails, List<String> outputGuardrails,
+                Optional<AiServiceMethodCreateInfo.ResponseCacheInfo> responseCacheInfo) {
             this.methodInfo = methodInfo;
             this.inputGuardrails = inputGuardrails;
             this.outputGuardrails = outputGuardrails;
+            this.responseCacheInfo = responseCacheInfo;
         }
 
         public List<String> getOutputGuardrails() {
@@ -1707,6 +1764,10 @@ public class AiServicesProcessor {
             return methodInfo;
         }
 
+        public Optional<AiServiceMethodCreateInfo.ResponseCacheInfo> getResponseCacheInfo() {
+            return responseCacheInfo;
+        }
+
         public static List<String> gatherGuardrails(MethodInfo methodInfo, DotName annotation) {
             List<String> guardrails = new ArrayList<>();
             AnnotationInstance instance = methodInfo.annotation(annotation);
@@ -1726,6 +1787,19 @@ public class AiServicesProcessor {
             return guardrails;
         }
 
+        public static boolean gatherConcurrentInputGuardrails(MethodInfo methodInfo) {
+            AnnotationInstance instance = methodInfo.annotation(INPUT_GUARDRAILS);
+            if (instance == null) {
+                // Check on class
+                instance = methodInfo.declaringClass().declaredAnnotation(INPUT_GUARDRAILS);
+            }
+            if (instance != null) {
+                AnnotationValue concurrent = instance.value("concurrent");
+                return concurrent != null && concurrent.asBoolean();
+            }
+            return false;
+        }
+
         public static String gatherAccumulator(MethodInfo methodInfo) {
             DotName annotation = DotName.createSimple(OutputGuardrailAccumulator.class);
             AnnotationInstance instance = methodInfo.annotation(annotation);
@@ -1,5 +1,6 @@
 package io.quarkiverse.langchain4j.deployment;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 import jakarta.enterprise.context.ApplicationScoped;
@@ -18,6 +19,8 @@ import io.quarkus.deployment.annotations.BuildProducer;
 import io.quarkus.deployment.annotations.BuildStep;
 import io.quarkus.deployment.annotations.ExecutionTime;
 import io.quarkus.deployment.annotations.Record;
+import io.quarkus.deployment.metrics.MetricsCapabilityBuildItem;
+import io.quarkus.runtime.metrics.MetricsFactory;
 
 public class ChatMemoryProcessor {
 
@@ -25,6 +28,7 @@ public class ChatMemoryProcessor {
     @Record(ExecutionTime.RUNTIME_INIT)
     void setupBeans(ChatMemoryBuildConfig buildConfig, ChatMemoryConfig runtimeConfig,
             ChatMemoryRecorder recorder,
+            Optional<MetricsCapabilityBuildItem> metricsCapability,
             BuildProducer<UnremovableBeanBuildItem> unremovableProducer,
             BuildProducer<SyntheticBeanBuildItem> syntheticBeanProducer) {
 
@@ -37,11 +41,13 @@ public class ChatMemoryProcessor {
                 .scope(ApplicationScoped.class)
                 .defaultBean();
 
+        boolean metricsEnabled = metricsCapability.isPresent()
+                && metricsCapability.get().metricsSupported(MetricsFactory.MICROMETER);
         if (buildConfig.type() == ChatMemoryBuildConfig.Type.MESSAGE_WINDOW) {
-            fun = recorder.messageWindow(runtimeConfig);
+            fun = recorder.messageWindow(runtimeConfig, metricsEnabled);
         } else if (buildConfig.type() == ChatMemoryBuildConfig.Type.TOKEN_WINDOW) {
             configurator.addInjectionPoint(ClassType.create(Tokenizer.class));
-            fun = recorder.tokenWindow(runtimeConfig);
+            fun = recorder.tokenWindow(runtimeConfig, metricsEnabled);
         } else {
             throw new IllegalStateException(
                     "Invalid configuration '" + buildConfig.type() + "' used in 'quarkus.langchain4j.chat-memory.type'");
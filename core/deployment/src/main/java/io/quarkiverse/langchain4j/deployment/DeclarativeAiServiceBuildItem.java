@@ -30,6 +30,7 @@ public final class DeclarativeAiServiceBuildItem extends MultiBuildItem {
     private final String chatModelName;
     private final String moderationModelName;
     private final String imageModelName;
+    private final boolean parallelToolExecution;
 
     public DeclarativeAiServiceBuildItem(
             ClassInfo serviceClassInfo,
@@ -48,7 +49,8 @@ public final class DeclarativeAiServiceBuildItem extends MultiBuildItem {
             String chatModelName,
             String moderationModelName,
             String imageModelName,
-            DotName toolProviderClassDotName) {
+            DotName toolProviderClassDotName,
+            boolean parallelToolExecution) {
         this.serviceClassInfo = serviceClassInfo;
         this.chatLanguageModelSupplierClassDotName = chatLanguageModelSupplierClassDotName;
         this.streamingChatLanguageModelSupplierClassDotName = streamingChatLanguageModelSupplierClassDotName;
@@ -66,6 +68,7 @@ public final class DeclarativeAiServiceBuildItem extends MultiBuildItem {
         this.moderationModelName = moderationModelName;
         this.imageModelName = imageModelName;
         this.toolProviderClassDotName = toolProviderClassDotName;
+        this.parallelToolExecution = parallelToolExecution;
     }
 
     public ClassInfo getServiceClassInfo() {
@@ -135,4 +138,8 @@ public final class DeclarativeAiServiceBuildItem extends MultiBuildItem {
     public DotName getToolProviderClassDotName() {
         return toolProviderClassDotName;
     }
+
+    public boolean isParallelToolExecution() {
+        return parallelToolExecution;
+    }
 }
@@ -27,12 +27,14 @@ import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.UserName;
 import dev.langchain4j.web.search.WebSearchEngine;
 import dev.langchain4j.web.search.WebSearchTool;
+import io.quarkiverse.langchain4j.CacheResult;
 import io.quarkiverse.langchain4j.CreatedAware;
 import io.quarkiverse.langchain4j.ImageUrl;
 import io.quarkiverse.langchain4j.ModelName;
 import io.quarkiverse.langchain4j.RegisterAiService;
 import io.quarkiverse.langchain4j.SeedMemory;
 import io.quarkiverse.langchain4j.audit.AuditService;
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore;
 import io.quarkiverse.langchain4j.guardrails.InputGuardrails;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrails;
 import io.quarkiverse.langchain4j.runtime.aiservice.QuarkusAiServiceContextQualifier;
@@ -108,6 +110,8 @@ public class LangChain4jDotNames {
             QuarkusAiServiceContextQualifier.class);
 
     static final DotName SEED_MEMORY = DotName.createSimple(SeedMemory.class);
+    static final DotName CACHE_RESULT = DotName.createSimple(CacheResult.class);
+    static final DotName AI_RESPONSE_CACHE_STORE = DotName.createSimple(AiResponseCacheStore.class);
 
     static final DotName WEB_SEARCH_TOOL = DotName.createSimple(WebSearchTool.class);
     static final DotName WEB_SEARCH_ENGINE = DotName.createSimple(WebSearchEngine.class);
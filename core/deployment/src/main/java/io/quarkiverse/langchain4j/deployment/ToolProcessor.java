@@ -43,7 +43,7 @@ import dev.langchain4j.agent.tool.ToolParameters;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.model.output.structured.Description;
 import io.quarkiverse.langchain4j.runtime.ToolsRecorder;
-import io.quarkiverse.langchain4j.runtime.prompt.Mappable;
+import io.quarkiverse.langchain4j.runtime.tool.ToolArgumentMapper;
 import io.quarkiverse.langchain4j.runtime.tool.ToolInvoker;
 import io.quarkiverse.langchain4j.runtime.tool.ToolMethodCreateInfo;
 import io.quarkiverse.langchain4j.runtime.tool.ToolParametersObjectSubstitution;
@@ -367,22 +367,31 @@ public class ToolProcessor {
                 invokeMc.returnValue(result);
             }
 
-            MethodCreator methodMetadataMc = classCreator
-                    .getMethodCreator(MethodDescriptor.ofMethod(implClassName, "methodMetadata",
-                            ToolInvoker.MethodMetadata.class));
-            ResultHandle nameToParamPositionHandle = methodMetadataMc.newInstance(HASHMAP_CTOR);
+            // the metadata never changes, so it is created once when the invoker is instantiated
+            FieldDescriptor methodMetadataField = FieldDescriptor.of(implClassName, "methodMetadata",
+                    ToolInvoker.MethodMetadata.class);
+            classCreator.getFieldCreator(methodMetadataField).setModifiers(Modifier.PRIVATE | Modifier.FINAL);
+
+            MethodCreator ctor = classCreator.getMethodCreator(MethodDescriptor.ofConstructor(implClassName));
+            ctor.invokeSpecialMethod(MethodDescriptor.ofConstructor(Object.class), ctor.getThis());
+            ResultHandle nameToParamPositionHandle = ctor.newInstance(HASHMAP_CTOR);
             for (var entry : nameToParamPosition.entrySet()) {
-                methodMetadataMc.invokeInterfaceMethod(MAP_PUT, nameToParamPositionHandle,
-                        methodMetadataMc.load(entry.getKey()),
-                        methodMetadataMc.load(entry.getValue()));
+                ctor.invokeInterfaceMethod(MAP_PUT, nameToParamPositionHandle,
+                        ctor.load(entry.getKey()),
+                        ctor.load(entry.getValue()));
             }
-
-            ResultHandle resultHandle = methodMetadataMc.newInstance(METHOD_METADATA_CTOR,
-                    methodMetadataMc.load(toolReturnsVoid),
+            ResultHandle methodMetadataHandle = ctor.newInstance(METHOD_METADATA_CTOR,
+                    ctor.load(toolReturnsVoid),
                     nameToParamPositionHandle,
-                    memoryIdParamPosition != null ? methodMetadataMc.load(Integer.valueOf(memoryIdParamPosition))
-                            : methodMetadataMc.loadNull());
-            methodMetadataMc.returnValue(resultHandle);
+                    memoryIdParamPosition != null ? ctor.load(Integer.valueOf(memoryIdParamPosition))
+                            : ctor.loadNull());
+            ctor.writeInstanceField(methodMetadataField, ctor.getThis(), methodMetadataHandle);
+            ctor.returnValue(null);
+
+            MethodCreator methodMetadataMc = classCreator
+                    .getMethodCreator(MethodDescriptor.ofMethod(implClassName, "methodMetadata",
+                            ToolInvoker.MethodMetadata.class));
+            methodMetadataMc.returnValue(methodMetadataMc.readInstanceField(methodMetadataField, methodMetadataMc.getThis()));
         }
         return implClassName;
     }
@@ -394,7 +403,7 @@ public class ToolProcessor {
         try (ClassCreator classCreator = ClassCreator.builder()
                 .classOutput(classOutput)
                 .className(implClassName)
-                .interfaces(Mappable.class)
+                .interfaces(ToolArgumentMapper.class)
                 .build()) {
 
             List<FieldDescriptor> fieldDescriptors = new ArrayList<>();
@@ -405,14 +414,15 @@ public class ToolProcessor {
                 classCreator.getFieldCreator(fieldDescriptor).setModifiers(Modifier.PUBLIC);
             }
 
+            // the fields are declared in the same order as the method parameters, so they are written straight into
+            // the position of the corresponding parameter
             MethodCreator mc = classCreator
-                    .getMethodCreator(MethodDescriptor.ofMethod(implClassName, "obtainFieldValuesMap", Map.class));
-            ResultHandle mapHandle = mc.newInstance(MethodDescriptor.ofConstructor(HashMap.class));
-            for (FieldDescriptor field : fieldDescriptors) {
-                ResultHandle fieldValue = mc.readInstanceField(field, mc.getThis());
-                mc.invokeInterfaceMethod(MAP_PUT, mapHandle, mc.load(field.getName()), fieldValue);
+                    .getMethodCreator(MethodDescriptor.ofMethod(implClassName, "mapTo", void.class, Object[].class));
+            for (int i = 0; i < fieldDescriptors.size(); i++) {
+                ResultHandle fieldValue = mc.readInstanceField(fieldDescriptors.get(i), mc.getThis());
+                mc.writeArrayValue(mc.getMethodParam(0), i, fieldValue);
             }
-            mc.returnValue(mapHandle);
+            mc.returnValue(null);
         }
         return implClassName;
     }
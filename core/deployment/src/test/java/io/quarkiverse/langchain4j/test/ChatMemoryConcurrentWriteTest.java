@@ -0,0 +1,168 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.memory.AppendableChatMemoryStore;
+import io.quarkus.arc.Arc;
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * The memory of an invocation is read before the model is called and written back afterwards, so another instance of
+ * the application can update the store in between.
+ */
+class ChatMemoryConcurrentWriteTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, RecordingChatMemoryStore.class));
+
+    @Inject
+    MyService myService;
+
+    @Inject
+    RecordingChatMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        store.reset(true);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void unchangedStoreOnlyReceivesTheNewMessages() {
+        myService.chat("hello", 1);
+        myService.chat("how are you?", 1);
+
+        assertThat(store.operations()).containsExactly("append 2", "append 2");
+        assertThat(store.getMessages(1)).extracting(ChatMessage::text)
+                .containsExactly("hello", "answer to hello", "how are you?", "answer to how are you?");
+    }
+
+    @Test
+    @ActivateRequestContext
+    void storeUpdatedDuringTheInvocationIsRewritten() {
+        myService.chat("hello", 2);
+        store.reset(false);
+
+        myService.chat("write concurrently", 2);
+
+        // the delta computed from what was read before the model was called is rejected
+        assertThat(store.operations()).containsExactly("external", "conflict", "update 4");
+        assertThat(store.getMessages(2)).extracting(ChatMessage::text)
+                .containsExactly("hello", "answer to hello", "write concurrently", "answer to write concurrently");
+
+        // the messages that were just written are the ones the next delta is computed from
+        store.reset(false);
+        myService.chat("how are you?", 2);
+        assertThat(store.operations()).containsExactly("append 2");
+    }
+
+    @ApplicationScoped
+    public static class RecordingChatMemoryStore implements AppendableChatMemoryStore {
+
+        private final List<String> operations = new ArrayList<>();
+        private final ConcurrentHashMap<Object, List<ChatMessage>> messages = new ConcurrentHashMap<>();
+
+        synchronized List<String> operations() {
+            return new ArrayList<>(operations);
+        }
+
+        synchronized void reset(boolean messages) {
+            operations.clear();
+            if (messages) {
+                this.messages.clear();
+            }
+        }
+
+        /**
+         * Simulates a write by another instance of the application
+         */
+        synchronized void writeExternally(Object memoryId, ChatMessage message) {
+            operations.add("external");
+            messages.computeIfAbsent(memoryId, id -> new ArrayList<>()).add(message);
+        }
+
+        @Override
+        public synchronized List<ChatMessage> getMessages(Object memoryId) {
+            return new ArrayList<>(messages.getOrDefault(memoryId, List.of()));
+        }
+
+        @Override
+        public synchronized void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            operations.add("update " + messages.size());
+            this.messages.put(memoryId, new ArrayList<>(messages));
+        }
+
+        @Override
+        public synchronized void deleteMessages(Object memoryId) {
+            operations.add("delete");
+            messages.remove(memoryId);
+        }
+
+        @Override
+        public synchronized boolean replaceMessages(Object memoryId, List<ChatMessage> expectedMessages, int fromIndex,
+                int removeCount, List<ChatMessage> messages) {
+            List<ChatMessage> stored = this.messages.computeIfAbsent(memoryId, id -> new ArrayList<>());
+            if (!stored.equals(expectedMessages)) {
+                operations.add("conflict");
+                return false;
+            }
+            if (removeCount == 0) {
+                operations.add("append " + messages.size());
+            } else {
+                operations.add("replace " + fromIndex + " " + removeCount + " " + messages.size());
+            }
+            stored.subList(fromIndex, fromIndex + removeCount).clear();
+            stored.addAll(messages);
+            return true;
+        }
+    }
+
+    public static class TestAiSupplier implements Supplier<ChatLanguageModel> {
+        @Override
+        public ChatLanguageModel get() {
+            return new TestAiModel();
+        }
+    }
+
+    public static class TestAiModel implements ChatLanguageModel {
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            String text = messages.get(messages.size() - 1).text();
+            if (text.equals("write concurrently")) {
+                Arc.container().instance(RecordingChatMemoryStore.class).get()
+                        .writeExternally(2, AiMessage.from("from another instance"));
+            }
+            return new Response<>(new AiMessage("answer to " + text));
+        }
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = TestAiSupplier.class)
+    interface MyService {
+
+        String chat(@UserMessage String msg, @MemoryId Object id);
+    }
+}
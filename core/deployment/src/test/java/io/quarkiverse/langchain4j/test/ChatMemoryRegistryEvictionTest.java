@@ -0,0 +1,165 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import io.quarkiverse.langchain4j.ChatMemoryRemover;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.QuarkusUnitTest;
+
+class ChatMemoryRegistryEvictionTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, MyChatMemoryProvider.class)
+                    .addAsResource(new StringAsset("quarkus.langchain4j.chat-memory.registry.max-size=1"),
+                            "application.properties"));
+
+    @Inject
+    MyService myService;
+
+    @Inject
+    MyChatMemoryProvider chatMemoryProvider;
+
+    @Test
+    @ActivateRequestContext
+    void evictedMemoriesAreReadAgainFromTheStore() {
+        int created = chatMemoryProvider.created();
+        assertThat(myService.chat("hello", 1)).isEqualTo("1 messages received");
+        assertThat(myService.chat("hello", 1)).isEqualTo("3 messages received");
+        assertThat(chatMemoryProvider.created()).isEqualTo(created + 1);
+
+        assertThat(myService.chat("hello", 2)).isEqualTo("1 messages received");
+        assertThat(chatMemoryProvider.created()).isEqualTo(created + 2);
+
+        // the memory of the first conversation was evicted but its messages are still in the store
+        assertThat(myService.chat("hello again", 1)).isEqualTo("5 messages received");
+        assertThat(chatMemoryProvider.created()).isEqualTo(created + 3);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void evictedMemoriesAreRemovedFromTheStore() {
+        myService.chat("hello", 3);
+        // evicts the memory of the first conversation
+        myService.chat("hello", 4);
+
+        ChatMemoryRemover.remove(myService, 3);
+        assertThat(chatMemoryProvider.messages(3)).isEmpty();
+        assertThat(chatMemoryProvider.messages(4)).hasSize(2);
+    }
+
+    @Test
+    void onlyTheMemoriesInTheRegistryAreClearedWhenTheServiceIsClosed() {
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            myService.chat("hello", 5);
+            // evicts the memory of the first conversation
+            myService.chat("hello", 6);
+        } finally {
+            requestContext.terminate();
+        }
+
+        // the registry does not remember the memories it evicted
+        assertThat(chatMemoryProvider.messages(5)).hasSize(2);
+        assertThat(chatMemoryProvider.messages(6)).isEmpty();
+
+        requestContext.activate();
+        try {
+            ChatMemoryRemover.remove(myService, 5);
+        } finally {
+            requestContext.terminate();
+        }
+        assertThat(chatMemoryProvider.messages(5)).isEmpty();
+    }
+
+    @Test
+    @ActivateRequestContext
+    void memoryEvictedDuringAnInvocationIsStillUsedByIt() {
+        myService.chat("hello", 7);
+        int created = chatMemoryProvider.created();
+
+        // while the model is called, the memory is evicted and another invocation gets a new memory for the same id
+        assertThat(myService.chat("evict 7", 7)).isEqualTo("3 messages received");
+        assertThat(chatMemoryProvider.created()).isEqualTo(created + 2);
+
+        // like for two instances of the application, the last write wins
+        assertThat(chatMemoryProvider.messages(7)).extracting(ChatMessage::text)
+                .containsExactly("hello", "1 messages received", "evict 7", "3 messages received");
+        assertThat(myService.chat("hello again", 7)).isEqualTo("5 messages received");
+    }
+
+    @ApplicationScoped
+    public static class MyChatMemoryProvider implements ChatMemoryProvider {
+
+        private final ChatMemoryStore store = new InMemoryChatMemoryStore();
+        private final AtomicInteger created = new AtomicInteger();
+
+        int created() {
+            return created.get();
+        }
+
+        List<ChatMessage> messages(Object memoryId) {
+            return store.getMessages(memoryId);
+        }
+
+        @Override
+        public ChatMemory get(Object memoryId) {
+            created.incrementAndGet();
+            return MessageWindowChatMemory.builder().id(memoryId).maxMessages(10).chatMemoryStore(store).build();
+        }
+    }
+
+    public static class TestAiSupplier implements Supplier<ChatLanguageModel> {
+        @Override
+        public ChatLanguageModel get() {
+            return new TestAiModel();
+        }
+    }
+
+    public static class TestAiModel implements ChatLanguageModel {
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            String text = messages.get(messages.size() - 1).text();
+            if (text.startsWith("evict ")) {
+                MyService myService = Arc.container().instance(MyService.class).get();
+                myService.chat("hello", "other");
+                myService.chat("hello", Integer.valueOf(text.substring("evict ".length())));
+            }
+            return new Response<>(new AiMessage(messages.size() + " messages received"));
+        }
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = TestAiSupplier.class)
+    interface MyService {
+        String chat(@UserMessage String msg, @MemoryId Object id);
+    }
+}
@@ -0,0 +1,80 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatMemoryRegistry;
+
+public class ChatMemoryRegistryTest {
+
+    @Test
+    void least_recently_used_memories_are_evicted() {
+        RecordingRegistry registry = new RecordingRegistry(2, null);
+        ChatMemory first = registry.computeIfAbsent("first", memory());
+        registry.computeIfAbsent("second", memory());
+        // makes "second" the least recently used memory
+        assertThat(registry.computeIfAbsent("first", memory())).isSameAs(first);
+
+        registry.computeIfAbsent("third", memory());
+        assertThat(registry.keySet()).containsExactly("first", "third");
+        assertThat(registry.events).containsExactly("added", "added", "added", "evicted");
+    }
+
+    @Test
+    void idle_memories_are_evicted() throws InterruptedException {
+        RecordingRegistry registry = new RecordingRegistry(null, Duration.ofMillis(50));
+        registry.computeIfAbsent("first", memory());
+        Thread.sleep(100);
+
+        assertThat(registry.get("first")).isNull();
+        assertThat(registry.events).containsExactly("added", "evicted");
+    }
+
+    @Test
+    void removed_memories_are_not_evicted() {
+        RecordingRegistry registry = new RecordingRegistry(null, null);
+        registry.computeIfAbsent("first", memory());
+        registry.computeIfAbsent("second", memory());
+        registry.remove("first");
+        registry.clear();
+
+        assertThat(registry).isEmpty();
+        assertThat(registry.events).containsExactly("added", "added", "removed", "removed");
+    }
+
+    private static Function<Object, ChatMemory> memory() {
+        return new Function<>() {
+            @Override
+            public ChatMemory apply(Object id) {
+                return MessageWindowChatMemory.builder().id(id).maxMessages(10).build();
+            }
+        };
+    }
+
+    private static class RecordingRegistry extends ChatMemoryRegistry {
+
+        final List<String> events = new ArrayList<>();
+
+        RecordingRegistry(Integer maxSize, Duration expireAfterAccess) {
+            super(maxSize, expireAfterAccess);
+        }
+
+        @Override
+        protected void onAdded() {
+            events.add("added");
+        }
+
+        @Override
+        protected void onRemoved(boolean evicted) {
+            events.add(evicted ? "evicted" : "removed");
+        }
+    }
+}
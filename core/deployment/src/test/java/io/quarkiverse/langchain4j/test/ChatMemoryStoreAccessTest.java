@@ -0,0 +1,112 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkus.test.QuarkusUnitTest;
+
+class ChatMemoryStoreAccessTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, CountingChatMemoryStore.class));
+
+    @Inject
+    MyService myService;
+
+    @Inject
+    CountingChatMemoryStore store;
+
+    @Test
+    @ActivateRequestContext
+    void memoryIsReadAndWrittenOncePerInvocation() {
+        assertThat(myService.chat("hello", 1)).isEqualTo("1 messages received");
+        assertThat(store.reads()).isEqualTo(1);
+        assertThat(store.writes()).isEqualTo(1);
+
+        assertThat(myService.chat("hello again", 1)).isEqualTo("3 messages received");
+        assertThat(store.reads()).isEqualTo(2);
+        assertThat(store.writes()).isEqualTo(2);
+        assertThat(store.getMessages(1)).extracting(ChatMessage::text)
+                .containsExactly("Be nice", "hello", "1 messages received", "hello again", "3 messages received");
+    }
+
+    @ApplicationScoped
+    public static class CountingChatMemoryStore implements ChatMemoryStore {
+
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicInteger writes = new AtomicInteger();
+        private final ConcurrentHashMap<Object, List<ChatMessage>> messages = new ConcurrentHashMap<>();
+
+        int reads() {
+            return reads.get();
+        }
+
+        int writes() {
+            return writes.get();
+        }
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            reads.incrementAndGet();
+            return new ArrayList<>(messages.getOrDefault(memoryId, List.of()));
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            writes.incrementAndGet();
+            this.messages.put(memoryId, new ArrayList<>(messages));
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            writes.incrementAndGet();
+            messages.remove(memoryId);
+        }
+    }
+
+    public static class TestAiSupplier implements Supplier<ChatLanguageModel> {
+        @Override
+        public ChatLanguageModel get() {
+            return new TestAiModel();
+        }
+    }
+
+    public static class TestAiModel implements ChatLanguageModel {
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            // the system message is not counted
+            return new Response<>(new AiMessage((messages.size() - 1) + " messages received"));
+        }
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = TestAiSupplier.class)
+    interface MyService {
+        @SystemMessage("Be nice")
+        String chat(@UserMessage String msg, @MemoryId Object id);
+    }
+}
@@ -0,0 +1,156 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.quarkiverse.langchain4j.memory.AppendableChatMemoryStore;
+import io.quarkiverse.langchain4j.runtime.aiservice.DeltaWritingChatMemory;
+
+public class DeltaWritingChatMemoryTest {
+
+    private RecordingStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RecordingStore();
+    }
+
+    @Test
+    void replacing_messages_only_appends_new_ones() {
+        DeltaWritingChatMemory memory = memory(10);
+        memory.replaceMessages(List.of(UserMessage.from("hello"), AiMessage.from("hi")));
+        assertThat(store.operations).containsExactly("append 2");
+
+        store.operations.clear();
+        memory.replaceMessages(List.of(UserMessage.from("hello"), AiMessage.from("hi"), UserMessage.from("how are you?"),
+                AiMessage.from("fine")));
+        assertThat(store.operations).containsExactly("append 2");
+        assertThat(store.messages).extracting(ChatMessage::text).containsExactly("hello", "hi", "how are you?", "fine");
+    }
+
+    @Test
+    void evicted_messages_are_trimmed() {
+        DeltaWritingChatMemory memory = memory(3);
+        memory.replaceMessages(List.of(SystemMessage.from("be nice"), UserMessage.from("one"), AiMessage.from("two")));
+        store.operations.clear();
+
+        memory.replaceMessages(List.of(SystemMessage.from("be nice"), UserMessage.from("one"), AiMessage.from("two"),
+                UserMessage.from("three"), AiMessage.from("four")));
+        assertThat(store.operations).containsExactly("replace 1 2 2");
+        assertThat(store.messages).extracting(ChatMessage::text).containsExactly("be nice", "three", "four");
+    }
+
+    @Test
+    void single_add_writes_delta() {
+        DeltaWritingChatMemory memory = memory(10);
+        memory.add(UserMessage.from("one"));
+        memory.add(AiMessage.from("two"));
+        assertThat(store.operations).containsExactly("append 1", "append 1");
+        assertThat(memory.messages()).extracting(ChatMessage::text).containsExactly("one", "two");
+    }
+
+    @Test
+    void nothing_reusable_results_in_full_write() {
+        DeltaWritingChatMemory memory = memory(10);
+        memory.replaceMessages(List.of(SystemMessage.from("first"), UserMessage.from("one")));
+        store.operations.clear();
+
+        memory.replaceMessages(List.of(SystemMessage.from("second"), UserMessage.from("two")));
+        assertThat(store.operations).containsExactly("update 2");
+        assertThat(store.messages).extracting(ChatMessage::text).containsExactly("second", "two");
+    }
+
+    @Test
+    void concurrent_update_results_in_full_write() {
+        DeltaWritingChatMemory memory = memory(10);
+        memory.replaceMessages(List.of(UserMessage.from("hello"), AiMessage.from("hi")));
+        store.operations.clear();
+
+        store.concurrentWrite = UserMessage.from("from another instance");
+        memory.replaceMessages(List.of(UserMessage.from("hello"), AiMessage.from("hi"), UserMessage.from("how are you?")));
+        assertThat(store.operations).containsExactly("conflict", "update 3");
+        assertThat(store.messages).extracting(ChatMessage::text).containsExactly("hello", "hi", "how are you?");
+    }
+
+    private DeltaWritingChatMemory memory(int maxMessages) {
+        return new DeltaWritingChatMemory(store, new Function<>() {
+            @Override
+            public ChatMemory apply(ChatMemoryStore s) {
+                return MessageWindowChatMemory.builder().id("test").maxMessages(maxMessages).chatMemoryStore(s).build();
+            }
+        });
+    }
+
+    private static class RecordingStore implements AppendableChatMemoryStore {
+
+        final List<ChatMessage> messages = new ArrayList<>();
+        final List<String> operations = new ArrayList<>();
+        ChatMessage concurrentWrite;
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            return new ArrayList<>(messages);
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            operations.add("update " + messages.size());
+            this.messages.clear();
+            this.messages.addAll(messages);
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            operations.add("delete");
+            messages.clear();
+        }
+
+        @Override
+        public boolean appendMessages(Object memoryId, List<ChatMessage> expectedMessages, List<ChatMessage> messages) {
+            if (!isExpected(expectedMessages)) {
+                return false;
+            }
+            operations.add("append " + messages.size());
+            this.messages.addAll(messages);
+            return true;
+        }
+
+        @Override
+        public boolean replaceMessages(Object memoryId, List<ChatMessage> expectedMessages, int fromIndex,
+                int removeCount, List<ChatMessage> messages) {
+            if (!isExpected(expectedMessages)) {
+                return false;
+            }
+            operations.add("replace " + fromIndex + " " + removeCount + " " + messages.size());
+            this.messages.subList(fromIndex, fromIndex + removeCount).clear();
+            this.messages.addAll(messages);
+            return true;
+        }
+
+        private boolean isExpected(List<ChatMessage> expectedMessages) {
+            if (concurrentWrite != null) {
+                // another writer updates the store between the read and the write
+                messages.add(concurrentWrite);
+                concurrentWrite = null;
+            }
+            if (!messages.equals(expectedMessages)) {
+                operations.add("conflict");
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore.SemanticEntry;
+import io.quarkiverse.langchain4j.cache.InMemoryAiResponseCacheStore;
+
+class InMemoryAiResponseCacheStoreTest {
+
+    @Test
+    void should_evict_the_least_recently_used_responses() {
+        InMemoryAiResponseCacheStore store = new InMemoryAiResponseCacheStore(2);
+        store.put("first", AiMessage.from("first"), null);
+        store.put("second", AiMessage.from("second"), null);
+        store.get("first");
+        store.put("third", AiMessage.from("third"), null);
+
+        assertThat(store.get("first")).isEqualTo(AiMessage.from("first"));
+        assertThat(store.get("second")).isNull();
+        assertThat(store.get("third")).isEqualTo(AiMessage.from("third"));
+    }
+
+    @Test
+    void should_bound_the_semantic_entries_across_namespaces() {
+        InMemoryAiResponseCacheStore store = new InMemoryAiResponseCacheStore(3);
+        store.addSemanticEntry("a", entry(1, "a1"), null);
+        store.addSemanticEntry("a", entry(2, "a2"), null);
+        store.addSemanticEntry("b", entry(3, "b1"), null);
+        store.addSemanticEntry("c", entry(4, "c1"), null);
+
+        // the oldest entry of the least recently used namespace is evicted
+        assertThat(store.getSemanticEntries("a")).extracting(e -> e.response().text()).containsExactly("a2");
+        store.addSemanticEntry("c", entry(5, "c2"), null);
+        store.addSemanticEntry("c", entry(6, "c3"), null);
+
+        // namespace b was the least recently used one, then namespace a
+        assertThat(store.getSemanticEntries("b")).isEmpty();
+        assertThat(store.getSemanticEntries("a")).isEmpty();
+        assertThat(store.getSemanticEntries("c"))
+                .extracting(e -> e.response().text(), e -> e.embedding().vector()[0])
+                .containsExactly(tuple("c1", 4f), tuple("c2", 5f), tuple("c3", 6f));
+    }
+
+    @Test
+    void should_not_count_the_expired_semantic_entries() throws InterruptedException {
+        InMemoryAiResponseCacheStore store = new InMemoryAiResponseCacheStore(2);
+        store.addSemanticEntry("a", entry(1, "a1"), Duration.ofMillis(50));
+        store.addSemanticEntry("b", entry(2, "b1"), null);
+        Thread.sleep(100);
+        assertThat(store.getSemanticEntries("a")).isEmpty();
+
+        store.addSemanticEntry("c", entry(3, "c1"), null);
+
+        assertThat(store.getSemanticEntries("b")).extracting(e -> e.response().text()).containsExactly("b1");
+        assertThat(store.getSemanticEntries("c")).extracting(e -> e.response().text()).containsExactly("c1");
+    }
+
+    private static SemanticEntry entry(float value, String response) {
+        return new SemanticEntry(Embedding.from(new float[] { value, 0 }), AiMessage.from(response));
+    }
+}
@@ -0,0 +1,146 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.runtime.ContextLocals;
+import io.quarkiverse.langchain4j.runtime.aiservice.AiServiceConstants;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.QuarkusUnitTest;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.Vertx;
+
+class MemoryIdContextLocalTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, MyChatMemoryProvider.class, MemoryIdModelSupplier.class,
+                            MemoryIdStreamingModelSupplier.class));
+
+    @Inject
+    MyService myService;
+
+    @Inject
+    Vertx vertx;
+
+    @Test
+    void memoryIdIsOnlySetDuringTheInvocation() throws Exception {
+        String result = runOnDuplicatedContext(new Callable<>() {
+            @Override
+            public String call() {
+                String response = myService.chat("hello", "conversation");
+                return response + "," + ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID);
+            }
+        });
+        assertThat(result).isEqualTo("conversation,null");
+    }
+
+    @Test
+    void memoryIdOfTheCallerIsRestored() throws Exception {
+        String result = runOnDuplicatedContext(new Callable<>() {
+            @Override
+            public String call() {
+                // as if the service was invoked by a tool of another service
+                ContextLocals.put(AiServiceConstants.AI_SERVICE_MEMORY_ID, "outer");
+                String response = myService.chat("hello", "inner");
+                return response + "," + ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID);
+            }
+        });
+        assertThat(result).isEqualTo("inner,outer");
+    }
+
+    @Test
+    void memoryIdIsSetWhenTheStreamIsSubscribedTo() throws Exception {
+        String result = runOnDuplicatedContext(new Callable<>() {
+            @Override
+            public String call() {
+                Multi<String> stream = myService.stream("hello", "conversation");
+                String beforeSubscription = ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID);
+                String response = String.join("", stream.collect().asList().await().indefinitely());
+                return beforeSubscription + "," + response + ","
+                        + ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID);
+            }
+        });
+        assertThat(result).isEqualTo("null,conversation,null");
+    }
+
+    private String runOnDuplicatedContext(Callable<String> callable) throws Exception {
+        return VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext()).executeBlocking(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                ManagedContext requestContext = Arc.container().requestContext();
+                requestContext.activate();
+                try {
+                    return callable.call();
+                } finally {
+                    requestContext.terminate();
+                }
+            }
+        }).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = MemoryIdModelSupplier.class, streamingChatLanguageModelSupplier = MemoryIdStreamingModelSupplier.class)
+    interface MyService {
+
+        String chat(@UserMessage String message, @MemoryId String memoryId);
+
+        Multi<String> stream(@UserMessage String message, @MemoryId String memoryId);
+    }
+
+    @ApplicationScoped
+    public static class MyChatMemoryProvider implements ChatMemoryProvider {
+
+        @Override
+        public ChatMemory get(Object memoryId) {
+            return MessageWindowChatMemory.builder().id(memoryId).maxMessages(10).build();
+        }
+    }
+
+    /**
+     * Answers with the memory id it sees, like the models that keep state for each conversation.
+     */
+    public static class MemoryIdModelSupplier implements Supplier<ChatLanguageModel> {
+
+        @Override
+        public ChatLanguageModel get() {
+            return messages -> new Response<>(
+                    new AiMessage(String.valueOf((Object) ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID))));
+        }
+    }
+
+    public static class MemoryIdStreamingModelSupplier implements Supplier<StreamingChatLanguageModel> {
+
+        @Override
+        public StreamingChatLanguageModel get() {
+            return (messages, handler) -> {
+                String memoryId = String.valueOf((Object) ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID));
+                handler.onNext(memoryId);
+                handler.onComplete(new Response<>(new AiMessage(memoryId)));
+            };
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package io.quarkiverse.langchain4j.test;
+
+import static dev.langchain4j.data.message.ChatMessageType.TOOL_EXECUTION_RESULT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkus.test.QuarkusUnitTest;
+
+class ParallelToolExecutionTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, MyToolProvider.class, MyToolProviderSupplier.class, RequestState.class,
+                            FailingService.class, FailingToolProvider.class, FailingToolProviderSupplier.class));
+
+    @Inject
+    MyService myService;
+
+    @Inject
+    FailingService failingService;
+
+    @Inject
+    RequestState requestState;
+
+    @Test
+    @ActivateRequestContext
+    void toolsAreExecutedConcurrentlyAndResultsKeepTheirOrder() {
+        // each tool waits for the other one to start, so this can only complete if they run concurrently
+        assertEquals("first:none,second:none,third:none", myService.chat("hello", 1));
+    }
+
+    @Test
+    @ActivateRequestContext
+    void toolsSeeTheRequestContextOfTheInvocation() {
+        requestState.setValue("request");
+        assertEquals("first:request,second:request,third:request", myService.chat("hello", 2));
+    }
+
+    @Test
+    @ActivateRequestContext
+    void runningToolsAreInterruptedWhenOneFails() throws InterruptedException {
+        FailingToolProvider.interrupted = new CountDownLatch(2);
+        assertThrows(IllegalStateException.class, () -> failingService.chat("hello", 3));
+        // the caller, which runs the tasks no worker has started, is never interrupted
+        assertFalse(Thread.currentThread().isInterrupted());
+        // the tools that were blocked are interrupted instead of running until the end
+        assertTrue(FailingToolProvider.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @RequestScoped
+    public static class RequestState {
+
+        private String value = "none";
+
+        public String value() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    @ApplicationScoped
+    public static class MyToolProviderSupplier implements Supplier<ToolProvider> {
+        @Inject
+        MyToolProvider myToolProvider;
+
+        @Override
+        public ToolProvider get() {
+            return myToolProvider;
+        }
+    }
+
+    @ApplicationScoped
+    public static class MyToolProvider implements ToolProvider {
+
+        @Inject
+        RequestState requestState;
+
+        @Override
+        public ToolProviderResult provideTools(ToolProviderRequest request) {
+            CountDownLatch latch = new CountDownLatch(3);
+            ToolProviderResult.Builder builder = ToolProviderResult.builder();
+            for (String name : List.of("first", "second", "third")) {
+                ToolExecutor toolExecutor = (t, m) -> {
+                    latch.countDown();
+                    try {
+                        return latch.await(10, TimeUnit.SECONDS) ? name + ":" + requestState.value() : "timeout";
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                };
+                builder.add(ToolSpecification.builder().name(name).description(name).build(), toolExecutor);
+            }
+            return builder.build();
+        }
+    }
+
+    @ApplicationScoped
+    public static class FailingToolProviderSupplier implements Supplier<ToolProvider> {
+        @Inject
+        FailingToolProvider failingToolProvider;
+
+        @Override
+        public ToolProvider get() {
+            return failingToolProvider;
+        }
+    }
+
+    @ApplicationScoped
+    public static class FailingToolProvider implements ToolProvider {
+
+        static volatile CountDownLatch interrupted;
+
+        @Override
+        public ToolProviderResult provideTools(ToolProviderRequest request) {
+            CountDownLatch started = new CountDownLatch(2);
+            ToolProviderResult.Builder builder = ToolProviderResult.builder();
+            builder.add(ToolSpecification.builder().name("first").description("first").build(), (t, m) -> {
+                try {
+                    started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                throw new IllegalStateException("first failed");
+            });
+            for (String name : List.of("second", "third")) {
+                builder.add(ToolSpecification.builder().name(name).description(name).build(), (t, m) -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                        return name;
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        return "interrupted";
+                    }
+                });
+            }
+            return builder.build();
+        }
+    }
+
+    public static class TestAiSupplier implements Supplier<ChatLanguageModel> {
+        @Override
+        public ChatLanguageModel get() {
+            return new TestAiModel();
+        }
+    }
+
+    public static class TestAiModel implements ChatLanguageModel {
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+            ChatMessage lastMsg = messages.get(messages.size() - 1);
+            if (lastMsg.type().equals(TOOL_EXECUTION_RESULT)) {
+                List<String> results = messages.stream()
+                        .filter(m -> m.type().equals(TOOL_EXECUTION_RESULT))
+                        .map(ChatMessage::text)
+                        .toList();
+                return new Response<>(new AiMessage(String.join(",", results)));
+            }
+            List<ToolExecutionRequest> requests = List.of("first", "second", "third").stream()
+                    .map(name -> ToolExecutionRequest.builder().name(name).id(name).build())
+                    .toList();
+            return new Response<>(AiMessage.from(requests), new TokenUsage(42, 42), FinishReason.TOOL_EXECUTION);
+        }
+    }
+
+    @RegisterAiService(toolProviderSupplier = MyToolProviderSupplier.class, chatLanguageModelSupplier = TestAiSupplier.class, parallelToolExecution = true)
+    interface MyService {
+        String chat(@UserMessage String msg, @MemoryId Object id);
+    }
+
+    @RegisterAiService(toolProviderSupplier = FailingToolProviderSupplier.class, chatLanguageModelSupplier = TestAiSupplier.class, parallelToolExecution = true)
+    interface FailingService {
+        String chat(@UserMessage String msg, @MemoryId Object id);
+    }
+}
@@ -0,0 +1,94 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.runtime.AiServicesRecorder;
+import io.quarkiverse.langchain4j.runtime.aiservice.AiServiceMethodCreateInfo;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class PromptTemplateCacheTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, EchoModelSupplier.class)
+                    .addAsResource(new StringAsset("quarkus.langchain4j.template-cache-size=2"),
+                            "application.properties"));
+
+    @Inject
+    MyService service;
+
+    @Test
+    @ActivateRequestContext
+    void runtime_templates_are_rendered() {
+        assertThat(service.chat("Hello {name}", "Quarkus")).isEqualTo("Hello Quarkus");
+        assertThat(service.chat("Bye {name}", "Quarkus")).isEqualTo("Bye Quarkus");
+    }
+
+    @Test
+    void runtime_templates_are_parsed_once() {
+        AiServiceMethodCreateInfo createInfo = createInfo();
+        PromptTemplate template = createInfo.getRuntimePromptTemplate("Hi {name}");
+        assertThat(createInfo.getRuntimePromptTemplate("Hi {name}")).isSameAs(template);
+    }
+
+    @Test
+    void least_recently_used_runtime_templates_are_evicted() {
+        AiServiceMethodCreateInfo createInfo = createInfo();
+        PromptTemplate first = createInfo.getRuntimePromptTemplate("first {name}");
+        PromptTemplate second = createInfo.getRuntimePromptTemplate("second {name}");
+        // makes "second" the least recently used template
+        assertThat(createInfo.getRuntimePromptTemplate("first {name}")).isSameAs(first);
+
+        createInfo.getRuntimePromptTemplate("third {name}");
+        assertThat(createInfo.getRuntimePromptTemplate("first {name}")).isSameAs(first);
+        assertThat(createInfo.getRuntimePromptTemplate("second {name}")).isNotSameAs(second);
+    }
+
+    private static AiServiceMethodCreateInfo createInfo() {
+        return AiServicesRecorder.getMetadata().get(MyService.class.getName()).methodMap().values().stream()
+                .filter(m -> m.getMethodName().equals("chat"))
+                .findFirst().orElseThrow();
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = EchoModelSupplier.class, chatMemoryProviderSupplier = RegisterAiService.NoChatMemoryProviderSupplier.class)
+    interface MyService {
+
+        String chat(@UserMessage String template, @V("name") String name);
+    }
+
+    public static class EchoModelSupplier implements Supplier<ChatLanguageModel> {
+
+        @Override
+        public ChatLanguageModel get() {
+            return new ChatLanguageModel() {
+                @Override
+                public Response<AiMessage> generate(List<ChatMessage> messages) {
+                    dev.langchain4j.data.message.UserMessage userMessage = (dev.langchain4j.data.message.UserMessage) messages
+                            .get(messages.size() - 1);
+                    return new Response<>(new AiMessage(userMessage.singleText()));
+                }
+            };
+        }
+    }
+}
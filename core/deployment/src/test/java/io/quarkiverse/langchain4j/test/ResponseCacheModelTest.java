@@ -0,0 +1,97 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.quarkiverse.langchain4j.CacheResult;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * The AI services share the method that caches the responses, but not the model answering it.
+ */
+public class ResponseCacheModelTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(Translator.class, FrenchTranslator.class, GermanTranslator.class, FrenchModelSupplier.class,
+                            GermanModelSupplier.class));
+
+    @Inject
+    FrenchTranslator frenchTranslator;
+
+    @Inject
+    GermanTranslator germanTranslator;
+
+    @Test
+    @ActivateRequestContext
+    void testThatResponsesOfAnotherModelAreNotReused() {
+        assertThat(frenchTranslator.translate("Hello")).isEqualTo("fr: Hello");
+        assertThat(germanTranslator.translate("Hello")).isEqualTo("de: Hello");
+
+        assertThat(frenchTranslator.translate("Hello")).isEqualTo("fr: Hello");
+        assertThat(germanTranslator.translate("Hello")).isEqualTo("de: Hello");
+    }
+
+    public interface Translator {
+
+        @CacheResult
+        String translate(String text);
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = FrenchModelSupplier.class, chatMemoryProviderSupplier = RegisterAiService.NoChatMemoryProviderSupplier.class)
+    public interface FrenchTranslator extends Translator {
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = GermanModelSupplier.class, chatMemoryProviderSupplier = RegisterAiService.NoChatMemoryProviderSupplier.class)
+    public interface GermanTranslator extends Translator {
+    }
+
+    public static class FrenchModelSupplier implements Supplier<ChatLanguageModel> {
+
+        @Override
+        public ChatLanguageModel get() {
+            return new FrenchModel();
+        }
+    }
+
+    public static class GermanModelSupplier implements Supplier<ChatLanguageModel> {
+
+        @Override
+        public ChatLanguageModel get() {
+            return new GermanModel();
+        }
+    }
+
+    public static class FrenchModel implements ChatLanguageModel {
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return new Response<>(new AiMessage("fr: " + ((UserMessage) messages.get(messages.size() - 1)).singleText()));
+        }
+    }
+
+    public static class GermanModel implements ChatLanguageModel {
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return new Response<>(new AiMessage("de: " + ((UserMessage) messages.get(messages.size() - 1)).singleText()));
+        }
+    }
+}
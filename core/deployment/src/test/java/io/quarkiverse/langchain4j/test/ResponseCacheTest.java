@@ -0,0 +1,171 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.Result;
+import io.quarkiverse.langchain4j.CacheResult;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class ResponseCacheTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyService.class, MyModelSupplier.class, LetterEmbeddingModel.class));
+
+    @Inject
+    MyService service;
+
+    @BeforeEach
+    void reset() {
+        MyModelSupplier.CALLS.set(0);
+        LetterEmbeddingModel.EMBEDDINGS.set(0);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatSameMessagesAreAnsweredFromTheCache() {
+        assertThat(service.exact("What is the capital of France?")).isEqualTo("Answer to: What is the capital of France?");
+        assertThat(service.exact("What is the capital of France?")).isEqualTo("Answer to: What is the capital of France?");
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(1);
+
+        assertThat(service.exact("What is the capital of Italy?")).isEqualTo("Answer to: What is the capital of Italy?");
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(2);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatMethodsDoNotShareTheirResponses() {
+        service.exact("Who are you?");
+        service.uncached("Who are you?");
+        service.uncached("Who are you?");
+        service.semantic("Who are you?");
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(4);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatCachedResponsesAreParsedAgain() {
+        Result<String> first = service.result("How are you?");
+        Result<String> second = service.result("How are you?");
+        assertThat(first.content()).startsWith("Answer to: How are you?");
+        assertThat(second.content()).isEqualTo(first.content());
+        assertThat(second.tokenUsage()).isNull();
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(1);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatSimilarMessagesAreAnsweredFromTheCacheInSemanticMode() {
+        assertThat(service.semantic("What is the weather like in Paris?"))
+                .isEqualTo("Answer to: What is the weather like in Paris?");
+        // only the case and the punctuation differ, so the embeddings are the same
+        assertThat(service.semantic("what is the weather like in paris"))
+                .isEqualTo("Answer to: What is the weather like in Paris?");
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(1);
+
+        assertThat(service.semantic("Tell me a joke")).isEqualTo("Answer to: Tell me a joke");
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(2);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatMessagesAreEmbeddedOnceInSemanticMode() {
+        // there is nothing to compare the message with, it is only embedded to be stored
+        service.semanticOnce("Where is the Eiffel Tower?");
+        assertThat(LetterEmbeddingModel.EMBEDDINGS.get()).isEqualTo(1);
+
+        // the embedding computed for the lookup is the one that is stored
+        service.semanticOnce("Tell me about the Louvre");
+        assertThat(LetterEmbeddingModel.EMBEDDINGS.get()).isEqualTo(2);
+
+        // an exact match does not need any embedding
+        service.semanticOnce("Tell me about the Louvre");
+        assertThat(LetterEmbeddingModel.EMBEDDINGS.get()).isEqualTo(2);
+        assertThat(MyModelSupplier.CALLS.get()).isEqualTo(2);
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = MyModelSupplier.class, chatMemoryProviderSupplier = RegisterAiService.NoChatMemoryProviderSupplier.class)
+    public interface MyService {
+
+        @CacheResult
+        String exact(String message);
+
+        @CacheResult
+        Result<String> result(String message);
+
+        @CacheResult(semantic = true)
+        String semantic(String message);
+
+        @CacheResult(semantic = true)
+        String semanticOnce(String message);
+
+        String uncached(String message);
+    }
+
+    public static class MyModelSupplier implements Supplier<ChatLanguageModel> {
+
+        static final AtomicInteger CALLS = new AtomicInteger();
+
+        @Override
+        public ChatLanguageModel get() {
+            return new ChatLanguageModel() {
+                @Override
+                public Response<AiMessage> generate(List<ChatMessage> messages) {
+                    CALLS.incrementAndGet();
+                    UserMessage userMessage = (UserMessage) messages.get(messages.size() - 1);
+                    return new Response<>(new AiMessage("Answer to: " + userMessage.singleText()));
+                }
+            };
+        }
+    }
+
+    /**
+     * Embeds a text as the frequencies of its letters, ignoring the case.
+     */
+    @ApplicationScoped
+    public static class LetterEmbeddingModel implements EmbeddingModel {
+
+        static final AtomicInteger EMBEDDINGS = new AtomicInteger();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            EMBEDDINGS.addAndGet(textSegments.size());
+            List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+            for (TextSegment textSegment : textSegments) {
+                float[] vector = new float[26];
+                for (char c : textSegment.text().toLowerCase().toCharArray()) {
+                    if (c >= 'a' && c <= 'z') {
+                        vector[c - 'a']++;
+                    }
+                }
+                embeddings.add(Embedding.from(vector));
+            }
+            return Response.from(embeddings);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package io.quarkiverse.langchain4j.test.guardrails;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.guardrails.IncrementalOutputGuardrail;
+import io.quarkiverse.langchain4j.guardrails.IncrementalOutputGuardrailParams;
+import io.quarkiverse.langchain4j.guardrails.OutputGuardrailResult;
+import io.quarkiverse.langchain4j.guardrails.OutputGuardrails;
+import io.quarkiverse.langchain4j.runtime.aiservice.GuardrailException;
+import io.quarkus.test.QuarkusUnitTest;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+
+public class IncrementalOutputGuardrailOnStreamedResponseTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyAiService.class, SentenceGuardrail.class, GreetingGuardrail.class,
+                            MyChatModelSupplier.class));
+
+    @Inject
+    MyAiService aiService;
+
+    @Inject
+    SentenceGuardrail sentenceGuardrail;
+
+    @Inject
+    GreetingGuardrail greetingGuardrail;
+
+    @BeforeEach
+    void reset() {
+        sentenceGuardrail.reset();
+        greetingGuardrail.reset();
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatSentencesAreReleasedOnceValidated() {
+        List<String> chunks = aiService.sentences("Hi|! How| are you? |I am| fine.").collect().asList().await()
+                .indefinitely();
+
+        assertThat(chunks).containsExactly("Hi! ", "How are you? ", "I am fine.");
+        assertThat(sentenceGuardrail.windows()).containsExactly("Hi! ", "How are you? ", "I am fine.");
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatTheStreamFailsAsSoonAsASentenceIsInvalid() {
+        AssertSubscriber<String> subscriber = aiService.sentences("Hi! |This is| forbidden. |Never| validated.")
+                .subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        subscriber.awaitFailure().assertFailedWith(GuardrailException.class, "forbidden");
+        assertThat(subscriber.getItems()).containsExactly("Hi! ");
+        assertThat(sentenceGuardrail.windows()).containsExactly("Hi! ", "This is forbidden. ");
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatPendingTokensAreReleasedOnceAccepted() {
+        List<String> chunks = aiService.greeting("He|llo|, how| are you").collect().asList().await().indefinitely();
+
+        assertThat(chunks).containsExactly("Hello", ", how", " are you");
+        // once the response is accepted, the guardrail is not called anymore
+        assertThat(greetingGuardrail.windows()).containsExactly("He", "Hello");
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatAPendingVerdictFailsOnceTheResponseIsComplete() {
+        AssertSubscriber<String> subscriber = aiService.greeting("Good|bye")
+                .subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        subscriber.awaitFailure().assertFailedWith(GuardrailException.class, "did not reach a verdict");
+        assertThat(subscriber.getItems()).isEmpty();
+        assertThat(greetingGuardrail.windows()).containsExactly("Good", "Goodbye", "Goodbye");
+    }
+
+    @RegisterAiService(streamingChatLanguageModelSupplier = MyChatModelSupplier.class)
+    public interface MyAiService {
+
+        @OutputGuardrails(SentenceGuardrail.class)
+        Multi<String> sentences(String tokens);
+
+        @OutputGuardrails(GreetingGuardrail.class)
+        Multi<String> greeting(String tokens);
+    }
+
+    @ApplicationScoped
+    public static class SentenceGuardrail implements IncrementalOutputGuardrail {
+
+        private final List<String> windows = new CopyOnWriteArrayList<>();
+
+        @Override
+        public OutputGuardrailResult validate(IncrementalOutputGuardrailParams params) {
+            windows.add(params.window());
+            if (params.window().contains("forbidden")) {
+                return fatal("forbidden");
+            }
+            return success();
+        }
+
+        public List<String> windows() {
+            return windows;
+        }
+
+        public void reset() {
+            windows.clear();
+        }
+    }
+
+    @ApplicationScoped
+    public static class GreetingGuardrail implements IncrementalOutputGuardrail {
+
+        private final List<String> windows = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Window window() {
+            return Window.TOKEN;
+        }
+
+        @Override
+        public OutputGuardrailResult validate(IncrementalOutputGuardrailParams params) {
+            windows.add(params.window());
+            if (params.response().toString().startsWith("Hello")) {
+                return accepted();
+            }
+            return pending();
+        }
+
+        public List<String> windows() {
+            return windows;
+        }
+
+        public void reset() {
+            windows.clear();
+        }
+    }
+
+    public static class MyChatModelSupplier implements Supplier<StreamingChatLanguageModel> {
+
+        @Override
+        public StreamingChatLanguageModel get() {
+            return new MyStreamedChatModel();
+        }
+    }
+
+    /**
+     * Streams the tokens of the user message, separated by {@code |}.
+     */
+    public static class MyStreamedChatModel implements StreamingChatLanguageModel {
+
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            String tokens = ((UserMessage) messages.get(messages.size() - 1)).singleText();
+            for (String token : tokens.split("\\|")) {
+                handler.onNext(token);
+            }
+            handler.onComplete(Response.from(AiMessage.from(tokens.replace("|", ""))));
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package io.quarkiverse.langchain4j.test.guardrails;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Dependent;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.guardrails.InputGuardrail;
+import io.quarkiverse.langchain4j.guardrails.InputGuardrailResult;
+import io.quarkiverse.langchain4j.guardrails.InputGuardrails;
+import io.quarkiverse.langchain4j.runtime.aiservice.GuardrailException;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class InputGuardrailConcurrentTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(MyAiService.class, MyChatModel.class, MyChatModelSupplier.class,
+                            ValidationException.class));
+
+    @Inject
+    MyAiService aiService;
+
+    @Inject
+    WaitingGuardrail waitingGuardrail;
+
+    @Inject
+    FailingGuardrail failingGuardrail;
+
+    @Inject
+    RequestScopedGuardrail requestScopedGuardrail;
+
+    @Inject
+    BlockingGuardrail blockingGuardrail;
+
+    @BeforeEach
+    void reset() {
+        waitingGuardrail.reset();
+        failingGuardrail.reset();
+        DependentGuardrail.INSTANCES.set(0);
+        DependentGuardrail.DESTROYED.set(0);
+        blockingGuardrail.reset();
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatGuardrailsAreRunConcurrently() {
+        // each guardrail waits for the other one, so they can only succeed when they are run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        waitingGuardrail.waitFor(latch);
+        failingGuardrail.waitFor(latch);
+
+        assertThat(aiService.concurrent("1", "foo")).isEqualTo("Hi!");
+        assertThat(waitingGuardrail.spy()).isEqualTo(1);
+        assertThat(failingGuardrail.spy()).isEqualTo(1);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatFailuresAreReportedInTheOrderOfTheGuardrails() {
+        failingGuardrail.fail();
+
+        assertThatThrownBy(() -> aiService.concurrent("1", "foo"))
+                .isInstanceOf(GuardrailException.class)
+                .hasCauseInstanceOf(ValidationException.class)
+                .hasRootCauseMessage("boom");
+        assertThat(waitingGuardrail.spy()).isEqualTo(1);
+        assertThat(failingGuardrail.spy()).isEqualTo(1);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatRequestScopedGuardrailsUseTheRequestOfTheCaller() {
+        assertThat(aiService.requestScoped("1", "foo")).isEqualTo("Hi!");
+        assertThat(aiService.requestScoped("1", "bar")).isEqualTo("Hi!");
+        // the guardrails ran on other threads, with the instance of the current request
+        assertThat(requestScopedGuardrail.spy()).isEqualTo(2);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatGuardrailsFollowingAFatalResultAreCancelled() throws InterruptedException {
+        assertThatThrownBy(() -> aiService.fatal("1", "foo"))
+                .isInstanceOf(GuardrailException.class)
+                .hasMessageContaining("fatal");
+        // the blocking guardrail would otherwise wait for 10 seconds
+        assertThat(blockingGuardrail.interrupted().await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatDependentGuardrailsAreInstantiatedForEachValidation() {
+        aiService.dependent("1", "foo");
+        aiService.dependent("1", "bar");
+        assertThat(DependentGuardrail.INSTANCES.get()).isEqualTo(2);
+        // and each instance is destroyed once it has validated the message
+        assertThat(DependentGuardrail.DESTROYED.get()).isEqualTo(2);
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testThatSingletonGuardrailsAreInstantiatedOnce() {
+        aiService.singleton("1", "foo");
+        aiService.singleton("1", "bar");
+        assertThat(SingletonGuardrail.INSTANCES.get()).isEqualTo(1);
+        assertThat(SingletonGuardrail.VALIDATIONS.get()).isEqualTo(2);
+    }
+
+    @RegisterAiService(chatLanguageModelSupplier = MyChatModelSupplier.class)
+    public interface MyAiService {
+
+        @InputGuardrails(value = { WaitingGuardrail.class, FailingGuardrail.class }, concurrent = true)
+        String concurrent(@MemoryId String mem, @UserMessage String message);
+
+        @InputGuardrails(DependentGuardrail.class)
+        String dependent(@MemoryId String mem, @UserMessage String message);
+
+        @InputGuardrails(SingletonGuardrail.class)
+        String singleton(@MemoryId String mem, @UserMessage String message);
+
+        @InputGuardrails(value = { WaitingGuardrail.class, RequestScopedGuardrail.class }, concurrent = true)
+        String requestScoped(@MemoryId String mem, @UserMessage String message);
+
+        @InputGuardrails(value = { FatalGuardrail.class, BlockingGuardrail.class }, concurrent = true)
+        String fatal(@MemoryId String mem, @UserMessage String message);
+    }
+
+    public abstract static class LatchGuardrail implements InputGuardrail {
+
+        private final AtomicInteger spy = new AtomicInteger(0);
+        private volatile CountDownLatch latch;
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            spy.incrementAndGet();
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    if (!latch.await(10, TimeUnit.SECONDS)) {
+                        return fatal("The guardrails were not run concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return fatal("Interrupted");
+                }
+            }
+            return success();
+        }
+
+        public int spy() {
+            return spy.get();
+        }
+
+        public void waitFor(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        public void reset() {
+            spy.set(0);
+            latch = null;
+        }
+    }
+
+    @ApplicationScoped
+    public static class WaitingGuardrail extends LatchGuardrail {
+    }
+
+    @ApplicationScoped
+    public static class FailingGuardrail extends LatchGuardrail {
+
+        private volatile boolean fail;
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            InputGuardrailResult result = super.validate(um);
+            if (fail) {
+                return failure("boom", new ValidationException("boom"));
+            }
+            return result;
+        }
+
+        public void fail() {
+            fail = true;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            fail = false;
+        }
+    }
+
+    @RequestScoped
+    public static class RequestScopedGuardrail implements InputGuardrail {
+
+        private final AtomicInteger spy = new AtomicInteger(0);
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            spy.incrementAndGet();
+            return success();
+        }
+
+        public int spy() {
+            return spy.get();
+        }
+    }
+
+    @ApplicationScoped
+    public static class FatalGuardrail implements InputGuardrail {
+
+        @Inject
+        BlockingGuardrail blockingGuardrail;
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            try {
+                // makes sure that the other guardrail is running when this one fails
+                blockingGuardrail.started().await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return fatal("fatal");
+        }
+    }
+
+    @ApplicationScoped
+    public static class BlockingGuardrail implements InputGuardrail {
+
+        private volatile CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return success();
+        }
+
+        public CountDownLatch started() {
+            return started;
+        }
+
+        public CountDownLatch interrupted() {
+            return interrupted;
+        }
+
+        public void reset() {
+            started = new CountDownLatch(1);
+            interrupted = new CountDownLatch(1);
+        }
+    }
+
+    @Dependent
+    public static class DependentGuardrail implements InputGuardrail {
+
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+        static final AtomicInteger DESTROYED = new AtomicInteger();
+
+        public DependentGuardrail() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            return success();
+        }
+
+        @PreDestroy
+        void destroy() {
+            DESTROYED.incrementAndGet();
+        }
+    }
+
+    @Singleton
+    public static class SingletonGuardrail implements InputGuardrail {
+
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+        static final AtomicInteger VALIDATIONS = new AtomicInteger();
+
+        public SingletonGuardrail() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public InputGuardrailResult validate(dev.langchain4j.data.message.UserMessage um) {
+            VALIDATIONS.incrementAndGet();
+            return success();
+        }
+    }
+
+    public static class MyChatModelSupplier implements Supplier<ChatLanguageModel> {
+
+        @Override
+        public ChatLanguageModel get() {
+            return new MyChatModel();
+        }
+    }
+
+    public static class MyChatModel implements ChatLanguageModel {
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return new Response<>(new AiMessage("Hi!"));
+        }
+    }
+}
@@ -26,6 +26,7 @@ import dev.langchain4j.model.output.Response;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.UserMessage;
 import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.guardrails.GuardrailResult;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrail;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrailResult;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrails;
@@ -38,7 +39,8 @@ public class OutputGuardrailValidationTest {
     @RegisterExtension
     static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
             .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
-                    .addClasses(MyAiService.class, OKGuardrail.class, KOGuardrail.class,
+                    .addClasses(MyAiService.class, OKGuardrail.class, KOGuardrail.class, PendingGuardrail.class,
+                            AcceptedGuardrail.class,
                             MyChatModel.class, MyChatModelSupplier.class, MyMemoryProviderSupplier.class));
 
     @Inject
@@ -92,6 +94,22 @@ public class OutputGuardrailValidationTest {
         assertThat(fatal.spy()).isEqualTo(1);
     }
 
+    @Test
+    @ActivateRequestContext
+    void testPendingIsRejected() {
+        assertThatThrownBy(() -> aiService.pending("6"))
+                .isInstanceOf(GuardrailException.class)
+                .hasMessageContaining("can return a pending or accepted result");
+    }
+
+    @Test
+    @ActivateRequestContext
+    void testAcceptedIsRejected() {
+        assertThatThrownBy(() -> aiService.accepted("7"))
+                .isInstanceOf(GuardrailException.class)
+                .hasMessageContaining("can return a pending or accepted result");
+    }
+
     @RegisterAiService(chatLanguageModelSupplier = MyChatModelSupplier.class, chatMemoryProviderSupplier = MyMemoryProviderSupplier.class)
     public interface MyAiService {
 
@@ -114,6 +132,14 @@ public class OutputGuardrailValidationTest {
         @UserMessage("Say Hi!")
         @OutputGuardrails(KOFatalGuardrail.class)
         String fatal(@MemoryId String mem);
+
+        @UserMessage("Say Hi!")
+        @OutputGuardrails(PendingGuardrail.class)
+        String pending(@MemoryId String mem);
+
+        @UserMessage("Say Hi!")
+        @OutputGuardrails(AcceptedGuardrail.class)
+        String accepted(@MemoryId String mem);
     }
 
     @RequestScoped
@@ -199,6 +225,24 @@ public class OutputGuardrailValidationTest {
         }
     }
 
+    @ApplicationScoped
+    public static class PendingGuardrail implements OutputGuardrail {
+
+        @Override
+        public OutputGuardrailResult validate(AiMessage responseFromLLM) {
+            return new OutputGuardrailResult(GuardrailResult.Result.PENDING, null, List.of());
+        }
+    }
+
+    @ApplicationScoped
+    public static class AcceptedGuardrail implements OutputGuardrail {
+
+        @Override
+        public OutputGuardrailResult validate(AiMessage responseFromLLM) {
+            return new OutputGuardrailResult(GuardrailResult.Result.ACCEPTED, null, List.of());
+        }
+    }
+
     public static class MyChatModelSupplier implements Supplier<ChatLanguageModel> {
 
         @Override
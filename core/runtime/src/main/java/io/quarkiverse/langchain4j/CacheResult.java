@@ -0,0 +1,39 @@
+package io.quarkiverse.langchain4j;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore;
+
+/**
+ * When used on a method of an AiService annotated with {@link RegisterAiService}, the response of the model is cached,
+ * so that invoking the method again with the same messages returns the cached response instead of calling the model.
+ * When used on the AiService, the responses of all its methods are cached.
+ * <p>
+ * The cache key is computed from the messages sent to the model (including the system message, the chat memory and the
+ * output format instructions), the tools and the AI service method. The response is parsed again on each cache hit, so
+ * any return type is supported, but methods streaming their response are not.
+ * <p>
+ * The responses are kept in the {@link AiResponseCacheStore} bean, an in-memory store by default, for which the size
+ * and the time-to-live of the entries are configured with {@code quarkus.langchain4j.response-cache.*}.
+ * <p>
+ * Note that the tools are not executed on a cache hit, and that the chat memory only receives the cached response.
+ */
+@Retention(RUNTIME)
+@Target({ TYPE, METHOD })
+public @interface CacheResult {
+
+    /**
+     * Whether a cached response can be returned when the last message sent to the model is similar to, and not only
+     * equal to, the one of a cached response.
+     * <p>
+     * The similarity is computed with the embeddings of the messages, using the {@code EmbeddingModel} configured with
+     * {@code quarkus.langchain4j.response-cache.embedding-model-name}, and a response is reused when its similarity is
+     * above {@code quarkus.langchain4j.response-cache.semantic-threshold}. All the other messages still need to be equal.
+     */
+    boolean semantic() default false;
+}
@@ -146,6 +146,21 @@ public @interface RegisterAiService {
      */
     Class<? extends Supplier<ToolProvider>> toolProviderSupplier() default BeanIfExistsToolProviderSupplier.class;
 
+    /**
+     * Whether the tools requested by the LLM in a single response should be executed concurrently instead of one after
+     * the other.
+     * <p>
+     * This is useful when the LLM routinely requests multiple tool executions at once (something OpenAI models frequently
+     * do) and the tools are slow (for example because they call remote services), as the time spent executing tools
+     * becomes the time of the slowest tool instead of the sum of all of them.
+     * The results are always passed back to the LLM in the order in which the tools were requested.
+     * <p>
+     * CAUTION: When enabled, the tools are executed on the worker pool, so they need to be thread safe. They share the
+     * Vert.x context and the request context of the invocation. If one of the tools fails, the tools that are still
+     * running are interrupted.
+     */
+    boolean parallelToolExecution() default false;
+
     /**
      * Marker that is used to tell Quarkus to use the {@link ChatLanguageModel} that has been configured as a CDI bean by
      * any of the extensions providing such capability (such as {@code quarkus-langchain4j-openai} and
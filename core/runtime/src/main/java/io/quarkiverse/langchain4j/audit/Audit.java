@@ -1,5 +1,6 @@
 package io.quarkiverse.langchain4j.audit;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -71,6 +72,14 @@ public abstract class Audit {
 
     }
 
+    /**
+     * Invoked when a tool requested by the LLM has been executed, with the time its execution took. It is important
+     * to note that when the tools are executed concurrently, the durations overlap.
+     */
+    public void onToolExecuted(ToolExecutionResultMessage toolExecutionResultMessage, Duration duration) {
+
+    }
+
     /**
      * Invoked when the final result of the AiService method has been computed
      */
@@ -0,0 +1,49 @@
+package io.quarkiverse.langchain4j.cache;
+
+import java.time.Duration;
+import java.util.List;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import io.quarkiverse.langchain4j.CacheResult;
+
+/**
+ * Stores the responses cached for the AI service methods annotated with {@link CacheResult}.
+ * <p>
+ * An in-memory store is used by default, another store can be used by exposing it as a CDI bean.
+ * Implementations must be thread-safe.
+ */
+public interface AiResponseCacheStore {
+
+    /**
+     * @param key the key computed from the messages sent to the model
+     * @return the cached response, or {@code null} if there is none
+     */
+    AiMessage get(String key);
+
+    /**
+     * @param key the key computed from the messages sent to the model
+     * @param response the response of the model
+     * @param ttl how long the response should be kept, {@code null} for no limit
+     */
+    void put(String key, AiMessage response, Duration ttl);
+
+    /**
+     * @param namespace the key computed from all the messages sent to the model but the last one
+     * @return the responses cached for similar requests, which only differ by their last message
+     */
+    List<SemanticEntry> getSemanticEntries(String namespace);
+
+    /**
+     * @param namespace the key computed from all the messages sent to the model but the last one
+     * @param entry the response of the model, along with the embedding of the last message sent to the model
+     * @param ttl how long the response should be kept, {@code null} for no limit
+     */
+    void addSemanticEntry(String namespace, SemanticEntry entry, Duration ttl);
+
+    /**
+     * A response of the model, along with the embedding of the last message sent to the model.
+     */
+    record SemanticEntry(Embedding embedding, AiMessage response) {
+    }
+}
@@ -0,0 +1,122 @@
+package io.quarkiverse.langchain4j.cache;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.langchain4j.data.message.AiMessage;
+
+/**
+ * Keeps the cached responses in memory, the least recently used ones being evicted first once there are too many of
+ * them.
+ * <p>
+ * At most {@code maxSize} responses are kept for the exact matches, and at most {@code maxSize} semantic entries are kept
+ * across all the semantic namespaces, the oldest entry of the least recently used namespace being evicted first. The
+ * expired responses are removed when they are accessed, so that no thread is needed.
+ */
+public class InMemoryAiResponseCacheStore implements AiResponseCacheStore {
+
+    private final int maxSize;
+    // the iteration order goes from the least recently used entry to the most recently used one
+    private final LinkedHashMap<String, Expiring<AiMessage>> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Deque<Expiring<SemanticEntry>>> namespaces = new LinkedHashMap<>(16, 0.75f,
+            true);
+    // the number of semantic entries in all the namespaces
+    private int semanticSize;
+
+    public InMemoryAiResponseCacheStore(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public synchronized AiMessage get(String key) {
+        Expiring<AiMessage> response = responses.get(key);
+        if (response == null) {
+            return null;
+        }
+        if (response.isExpired(System.nanoTime())) {
+            responses.remove(key);
+            return null;
+        }
+        return response.value;
+    }
+
+    @Override
+    public synchronized void put(String key, AiMessage response, Duration ttl) {
+        responses.put(key, new Expiring<>(response, ttl));
+        trim(responses);
+    }
+
+    @Override
+    public synchronized List<SemanticEntry> getSemanticEntries(String namespace) {
+        Deque<Expiring<SemanticEntry>> entries = namespaces.get(namespace);
+        if (entries == null) {
+            return List.of();
+        }
+        long now = System.nanoTime();
+        List<SemanticEntry> result = new ArrayList<>(entries.size());
+        Iterator<Expiring<SemanticEntry>> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Expiring<SemanticEntry> entry = iterator.next();
+            if (entry.isExpired(now)) {
+                iterator.remove();
+                semanticSize--;
+            } else {
+                result.add(entry.value);
+            }
+        }
+        if (entries.isEmpty()) {
+            namespaces.remove(namespace);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void addSemanticEntry(String namespace, SemanticEntry entry, Duration ttl) {
+        Deque<Expiring<SemanticEntry>> entries = namespaces.computeIfAbsent(namespace, k -> new ArrayDeque<>());
+        entries.addLast(new Expiring<>(entry, ttl));
+        semanticSize++;
+        Iterator<Deque<Expiring<SemanticEntry>>> iterator = namespaces.values().iterator();
+        while (semanticSize > maxSize) {
+            Deque<Expiring<SemanticEntry>> leastRecentlyUsed = iterator.next();
+            while (!leastRecentlyUsed.isEmpty() && (semanticSize > maxSize)) {
+                leastRecentlyUsed.removeFirst();
+                semanticSize--;
+            }
+            if (leastRecentlyUsed.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void trim(Map<String, ?> map) {
+        Iterator<String> iterator = map.keySet().iterator();
+        while (map.size() > maxSize) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Expiring<T> {
+
+        private final T value;
+        private final long expiresAt;
+
+        private Expiring(T value, Duration ttl) {
+            this.value = value;
+            this.expiresAt = ttl == null ? Long.MAX_VALUE : System.nanoTime() + ttl.toNanos();
+        }
+
+        private boolean isExpired(long now) {
+            return (expiresAt != Long.MAX_VALUE) && (now - expiresAt > 0);
+        }
+    }
+}
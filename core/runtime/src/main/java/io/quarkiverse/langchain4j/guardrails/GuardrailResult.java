@@ -19,6 +19,18 @@ public interface GuardrailResult<GR extends GuardrailResult> {
          * A successful validation with a specific result.
          */
         SUCCESS_WITH_RESULT,
+        /**
+         * A validation that could not reach a verdict yet, and needs more text to do so.
+         * Only used by the {@link IncrementalOutputGuardrail incremental output guardrails}, it is a fatal failure
+         * when returned by any other guardrail.
+         */
+        PENDING,
+        /**
+         * A successful validation that also covers the text that has not been produced yet.
+         * Only used by the {@link IncrementalOutputGuardrail incremental output guardrails}, it is a fatal failure
+         * when returned by any other guardrail.
+         */
+        ACCEPTED,
         /**
          * A failed validation not preventing the subsequent validations eventually registered to be evaluated.
          */
@@ -0,0 +1,89 @@
+package io.quarkiverse.langchain4j.guardrails;
+
+import java.util.HashMap;
+
+import io.smallrye.common.annotation.Experimental;
+
+/**
+ * An output guardrail that validates a streamed response while it is produced, window by window, instead of waiting
+ * for the whole response to be accumulated.
+ * <p>
+ * When all the output guardrails of a method returning a {@code Multi<String>} are incremental, and no
+ * {@link OutputGuardrailAccumulator} is configured, each guardrail is called as soon as one of its windows is complete.
+ * The text is released to the caller as soon as all the guardrails validated it, so a guardrail using the
+ * {@link Window#TOKEN} window adds almost no delay. For each window, the guardrail can return:
+ * <ul>
+ * <li>{@link #success()}, when the window is valid, the guardrail is then called again with the next window,</li>
+ * <li>{@link #pending()}, when the guardrail needs more text to reach a verdict, the window is then prepended to the
+ * next one and the text it contains is not released,</li>
+ * <li>{@link #accepted()}, when the rest of the response does not need to be validated,</li>
+ * <li>a failure, which ends the stream right away. Retrying or reprompting is only possible as long as no text was
+ * released, otherwise the failure is reported as is.</li>
+ * </ul>
+ * Rewriting the response is not allowed while streaming.
+ * <p>
+ * When the response is not streamed, the guardrail is called once, with the whole response as the last window.
+ */
+@Experimental("This feature is experimental and the API is subject to change")
+public interface IncrementalOutputGuardrail extends OutputGuardrail {
+
+    /**
+     * How the streamed response is split before being validated.
+     */
+    enum Window {
+        /**
+         * Each token received from the model is a window.
+         */
+        TOKEN,
+        /**
+         * Each sentence, ending with a {@code .}, {@code !} or {@code ?} followed by a whitespace, or with a new line,
+         * is a window.
+         */
+        SENTENCE,
+        /**
+         * Each paragraph, ending with an empty line, is a window.
+         */
+        PARAGRAPH
+    }
+
+    /**
+     * @return how the streamed response is split before being validated, {@link Window#SENTENCE} by default
+     */
+    default Window window() {
+        return Window.SENTENCE;
+    }
+
+    /**
+     * Validates a window of the response from the LLM.
+     * <p>
+     * Implementation must not attempt to write to the memory or the augmentation result.
+     *
+     * @param params the parameters, including the window to validate and the state of the validation of the response
+     */
+    OutputGuardrailResult validate(IncrementalOutputGuardrailParams params);
+
+    @Override
+    default OutputGuardrailResult validate(OutputGuardrailParams params) {
+        String text = params.responseFromLLM().text();
+        OutputGuardrailResult result = validate(new IncrementalOutputGuardrailParams(text, text, true, new HashMap<>(),
+                params.memory(), params.augmentationResult(), params.userMessageTemplate(), params.variables()));
+        if (result.isPending()) {
+            return failure("The guardrail did not reach a verdict on the complete response");
+        }
+        return result.isAccepted() ? success() : result;
+    }
+
+    /**
+     * @return The result of an incremental validation that needs more text to reach a verdict.
+     */
+    default OutputGuardrailResult pending() {
+        return OutputGuardrailResult.pending();
+    }
+
+    /**
+     * @return The result of an incremental validation accepting the rest of the response without looking at it.
+     */
+    default OutputGuardrailResult accepted() {
+        return OutputGuardrailResult.accepted();
+    }
+}
@@ -0,0 +1,25 @@
+package io.quarkiverse.langchain4j.guardrails;
+
+import java.util.Map;
+
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.rag.AugmentationResult;
+
+/**
+ * Represents the parameter passed to {@link IncrementalOutputGuardrail#validate(IncrementalOutputGuardrailParams)}.
+ *
+ * @param window the text of the window to validate, which includes the text of the previous windows for which the
+ *        guardrail returned {@link IncrementalOutputGuardrail#pending()}, can be empty when {@code last} is {@code true}
+ * @param response the response received so far, up to the end of the window, only valid during the validation
+ * @param last whether the response is complete, in which case the guardrail must reach a verdict
+ * @param state a mutable map in which the guardrail can keep a state between the validations of the windows of the same
+ *        response
+ * @param memory the memory, can be {@code null} or empty
+ * @param augmentationResult the augmentation result, can be {@code null}
+ * @param userMessageTemplate the user message template, cannot be {@code null}
+ * @param variables the variable to be used with userMessageTemplate, cannot be {@code null}
+ */
+public record IncrementalOutputGuardrailParams(String window, CharSequence response, boolean last,
+        Map<String, Object> state, ChatMemory memory, AugmentationResult augmentationResult,
+        String userMessageTemplate, Map<String, Object> variables) {
+}
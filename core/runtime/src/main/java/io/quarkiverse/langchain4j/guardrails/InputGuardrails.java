@@ -37,4 +37,13 @@ public @interface InputGuardrails {
      */
     Class<? extends InputGuardrail>[] value();
 
+    /**
+     * Whether the guardrails are run at the same time instead of one after the other.
+     * <p>
+     * This is only possible when the guardrails do not depend on each other. Their results are combined in the order
+     * of the list, as if they had been run one after the other, but all the guardrails are run even if one of them
+     * fails with a fatal result.
+     */
+    boolean concurrent() default false;
+
 }
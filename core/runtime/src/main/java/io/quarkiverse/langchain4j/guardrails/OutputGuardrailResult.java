@@ -14,6 +14,10 @@ public record OutputGuardrailResult(Result result, String successfulResult,
         List<Failure> failures) implements GuardrailResult<OutputGuardrailResult> {
 
     private static final OutputGuardrailResult SUCCESS = new OutputGuardrailResult();
+    private static final OutputGuardrailResult PENDING = new OutputGuardrailResult(Result.PENDING, null,
+            Collections.emptyList());
+    private static final OutputGuardrailResult ACCEPTED = new OutputGuardrailResult(Result.ACCEPTED, null,
+            Collections.emptyList());
 
     private OutputGuardrailResult() {
         this(Result.SUCCESS, null, Collections.emptyList());
@@ -35,13 +39,38 @@ public record OutputGuardrailResult(Result result, String successfulResult,
         return new OutputGuardrailResult(successfulResult);
     }
 
+    /**
+     * @return the result of an incremental validation that needs more text to reach a verdict, only available through
+     *         {@link IncrementalOutputGuardrail#pending()}
+     */
+    static OutputGuardrailResult pending() {
+        return PENDING;
+    }
+
+    /**
+     * @return the result of an incremental validation that accepts the rest of the response without looking at it, only
+     *         available through {@link IncrementalOutputGuardrail#accepted()}
+     */
+    static OutputGuardrailResult accepted() {
+        return ACCEPTED;
+    }
+
     public static OutputGuardrailResult failure(List<? extends GuardrailResult.Failure> failures) {
         return new OutputGuardrailResult((List<Failure>) failures, false);
     }
 
     @Override
     public boolean isSuccess() {
-        return result == Result.SUCCESS || result == Result.SUCCESS_WITH_RESULT;
+        return result == Result.SUCCESS || result == Result.SUCCESS_WITH_RESULT || result == Result.PENDING
+                || result == Result.ACCEPTED;
+    }
+
+    public boolean isPending() {
+        return result == Result.PENDING;
+    }
+
+    public boolean isAccepted() {
+        return result == Result.ACCEPTED;
     }
 
     @Override
@@ -0,0 +1,49 @@
+package io.quarkiverse.langchain4j.memory;
+
+import java.util.List;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+/**
+ * A {@link ChatMemoryStore} that is able to update the stored messages incrementally instead of replacing all of them.
+ * <p>
+ * When the configured store implements this interface, the {@link ChatMemory} instances created by the extension only
+ * write the messages that changed since the memory was last read, instead of rewriting the entire conversation
+ * on every update.
+ * <p>
+ * As the changes are computed from the messages that were read earlier, they are only applied if the stored messages
+ * did not change in the meantime (another instance of the application could have updated them), otherwise the
+ * extension falls back to {@link #updateMessages(Object, List)}. Implementations must check this atomically with
+ * the update.
+ */
+public interface AppendableChatMemoryStore extends ChatMemoryStore {
+
+    /**
+     * Removes {@code removeCount} messages starting at position {@code fromIndex} and then appends {@code messages}
+     * after the last stored message, if the stored messages are still {@code expectedMessages}.
+     *
+     * @param memoryId The ID of the chat memory
+     * @param expectedMessages The messages that are expected to be stored
+     * @param fromIndex The position of the first message to remove
+     * @param removeCount The number of messages to remove, can be {@code 0}
+     * @param messages The messages to append, can be empty
+     * @return {@code false} if the stored messages were not {@code expectedMessages}, in which case nothing was written
+     */
+    boolean replaceMessages(Object memoryId, List<ChatMessage> expectedMessages, int fromIndex, int removeCount,
+            List<ChatMessage> messages);
+
+    /**
+     * Appends {@code messages} after the last stored message, if the stored messages are still
+     * {@code expectedMessages}.
+     *
+     * @param memoryId The ID of the chat memory
+     * @param expectedMessages The messages that are expected to be stored
+     * @param messages The messages to append
+     * @return {@code false} if the stored messages were not {@code expectedMessages}, in which case nothing was written
+     */
+    default boolean appendMessages(Object memoryId, List<ChatMessage> expectedMessages, List<ChatMessage> messages) {
+        return replaceMessages(memoryId, expectedMessages, expectedMessages.size(), 0, messages);
+    }
+}
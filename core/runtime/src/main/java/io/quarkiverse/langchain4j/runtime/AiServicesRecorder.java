@@ -3,6 +3,7 @@ package io.quarkiverse.langchain4j.runtime;
 import static io.quarkiverse.langchain4j.QuarkusAiServicesFactory.InstanceHolder.INSTANCE;
 
 import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,6 +14,8 @@ import java.util.function.Supplier;
 import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.util.TypeLiteral;
 
+import org.eclipse.microprofile.config.ConfigProvider;
+
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.model.chat.ChatLanguageModel;
@@ -27,12 +30,16 @@ import io.quarkiverse.langchain4j.RegisterAiService;
 import io.quarkiverse.langchain4j.audit.AuditService;
 import io.quarkiverse.langchain4j.runtime.aiservice.AiServiceClassCreateInfo;
 import io.quarkiverse.langchain4j.runtime.aiservice.AiServiceMethodCreateInfo;
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatMemoryConfig;
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatMemoryRegistry;
 import io.quarkiverse.langchain4j.runtime.aiservice.ChatMemorySeeder;
 import io.quarkiverse.langchain4j.runtime.aiservice.DeclarativeAiServiceCreateInfo;
+import io.quarkiverse.langchain4j.runtime.aiservice.MetricsChatMemoryRegistry;
 import io.quarkiverse.langchain4j.runtime.aiservice.QuarkusAiServiceContext;
 import io.quarkus.arc.Arc;
 import io.quarkus.arc.SyntheticCreationalContext;
 import io.quarkus.runtime.annotations.Recorder;
+import io.smallrye.config.SmallRyeConfig;
 
 @Recorder
 public class AiServicesRecorder {
@@ -182,6 +189,21 @@ public class AiServicesRecorder {
                         }
                     }
 
+                    if (aiServiceContext.chatMemories != null) {
+                        // the runtime configuration is read when the AI service is created, since the AI services are
+                        // registered at static init
+                        ChatMemoryConfig.Registry registryConfig = ConfigProvider.getConfig().unwrap(SmallRyeConfig.class)
+                                .getConfigMapping(ChatMemoryConfig.class).registry();
+                        Integer maxSize = registryConfig.maxSize().isPresent() ? registryConfig.maxSize().getAsInt() : null;
+                        Duration expireAfterAccess = registryConfig.expireAfterAccess().orElse(null);
+                        if (info.metricsEnabled()) {
+                            aiServiceContext.chatMemories = new MetricsChatMemoryRegistry(maxSize, expireAfterAccess,
+                                    info.serviceClassName());
+                        } else if ((maxSize != null) || (expireAfterAccess != null)) {
+                            aiServiceContext.chatMemories = new ChatMemoryRegistry(maxSize, expireAfterAccess);
+                        }
+                    }
+
                     if (info.retrieverClassName() != null) {
                         quarkusAiServices.retriever((Retriever<TextSegment>) creationalContext.getInjectedReference(
                                 Thread.currentThread().getContextClassLoader().loadClass(info.retrieverClassName())));
@@ -270,6 +292,17 @@ public class AiServicesRecorder {
                         }
                     }
 
+                    aiServiceContext.parallelToolExecution = info.parallelToolExecution();
+
+                    AiServiceClassCreateInfo classCreateInfo = metadata.get(info.serviceClassName());
+                    if (classCreateInfo != null) {
+                        // parse the templates and resolve the guardrails now instead of on the first invocation of each method
+                        for (AiServiceMethodCreateInfo methodCreateInfo : classCreateInfo.methodMap().values()) {
+                            methodCreateInfo.initPromptTemplates();
+                            methodCreateInfo.initGuardrails();
+                        }
+                    }
+
                     if (info.chatMemorySeederClassName() != null) {
                         quarkusAiServices.chatMemorySeeder((ChatMemorySeeder) Thread
                                 .currentThread().getContextClassLoader()
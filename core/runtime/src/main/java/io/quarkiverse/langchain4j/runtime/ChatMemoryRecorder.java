@@ -9,50 +9,69 @@ import dev.langchain4j.memory.chat.TokenWindowChatMemory;
 import dev.langchain4j.model.Tokenizer;
 import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import io.quarkiverse.langchain4j.runtime.aiservice.ChatMemoryConfig;
+import io.quarkiverse.langchain4j.runtime.aiservice.DeltaWritingChatMemory;
+import io.quarkiverse.langchain4j.runtime.aiservice.MetricsChatMemoryStore;
 import io.quarkus.arc.SyntheticCreationalContext;
 import io.quarkus.runtime.annotations.Recorder;
 
 @Recorder
 public class ChatMemoryRecorder {
 
-    public Function<SyntheticCreationalContext<ChatMemoryProvider>, ChatMemoryProvider> messageWindow(ChatMemoryConfig config) {
+    public Function<SyntheticCreationalContext<ChatMemoryProvider>, ChatMemoryProvider> messageWindow(ChatMemoryConfig config,
+            boolean metricsEnabled) {
         return new Function<>() {
             @Override
             public ChatMemoryProvider apply(SyntheticCreationalContext<ChatMemoryProvider> context) {
-                ChatMemoryStore chatMemoryStore = context.getInjectedReference(ChatMemoryStore.class);
+                ChatMemoryStore chatMemoryStore = store(context, metricsEnabled);
                 int maxMessages = config.memoryWindow().maxMessages();
                 return new ChatMemoryProvider() {
                     @Override
                     public ChatMemory get(Object memoryId) {
-                        return MessageWindowChatMemory.builder()
-                                .maxMessages(maxMessages)
-                                .id(memoryId)
-                                .chatMemoryStore(chatMemoryStore)
-                                .build();
+                        return new DeltaWritingChatMemory(chatMemoryStore, new Function<>() {
+                            @Override
+                            public ChatMemory apply(ChatMemoryStore store) {
+                                return MessageWindowChatMemory.builder()
+                                        .maxMessages(maxMessages)
+                                        .id(memoryId)
+                                        .chatMemoryStore(store)
+                                        .build();
+                            }
+                        });
                     }
                 };
             }
         };
     }
 
-    public Function<SyntheticCreationalContext<ChatMemoryProvider>, ChatMemoryProvider> tokenWindow(ChatMemoryConfig config) {
+    public Function<SyntheticCreationalContext<ChatMemoryProvider>, ChatMemoryProvider> tokenWindow(ChatMemoryConfig config,
+            boolean metricsEnabled) {
         return new Function<>() {
             @Override
             public ChatMemoryProvider apply(SyntheticCreationalContext<ChatMemoryProvider> context) {
-                ChatMemoryStore chatMemoryStore = context.getInjectedReference(ChatMemoryStore.class);
+                ChatMemoryStore chatMemoryStore = store(context, metricsEnabled);
                 Tokenizer tokenizer = context.getInjectedReference(Tokenizer.class);
                 int maxTokens = config.tokenWindow().maxTokens();
                 return new ChatMemoryProvider() {
                     @Override
                     public ChatMemory get(Object memoryId) {
-                        return TokenWindowChatMemory.builder()
-                                .maxTokens(maxTokens, tokenizer)
-                                .id(memoryId)
-                                .chatMemoryStore(chatMemoryStore)
-                                .build();
+                        return new DeltaWritingChatMemory(chatMemoryStore, new Function<>() {
+                            @Override
+                            public ChatMemory apply(ChatMemoryStore store) {
+                                return TokenWindowChatMemory.builder()
+                                        .maxTokens(maxTokens, tokenizer)
+                                        .id(memoryId)
+                                        .chatMemoryStore(store)
+                                        .build();
+                            }
+                        });
                     }
                 };
             }
         };
     }
+
+    private static ChatMemoryStore store(SyntheticCreationalContext<ChatMemoryProvider> context, boolean metricsEnabled) {
+        ChatMemoryStore chatMemoryStore = context.getInjectedReference(ChatMemoryStore.class);
+        return metricsEnabled ? MetricsChatMemoryStore.wrap(chatMemoryStore) : chatMemoryStore;
+    }
 }
@@ -1,9 +1,11 @@
 package io.quarkiverse.langchain4j.runtime;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.jboss.logging.Logger;
 
@@ -11,6 +13,8 @@ import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.service.tool.ToolExecutor;
 import io.quarkiverse.langchain4j.runtime.tool.QuarkusToolExecutor;
 import io.quarkiverse.langchain4j.runtime.tool.QuarkusToolExecutorFactory;
+import io.quarkiverse.langchain4j.runtime.tool.ToolArgumentMapper;
+import io.quarkiverse.langchain4j.runtime.tool.ToolInvoker;
 import io.quarkiverse.langchain4j.runtime.tool.ToolMethodCreateInfo;
 import io.quarkus.arc.Arc;
 import io.quarkus.runtime.annotations.Recorder;
@@ -22,6 +26,9 @@ public class ToolsRecorder {
 
     // the key is the class' name
     private static final Map<String, List<ToolMethodCreateInfo>> metadata = new ConcurrentHashMap<>();
+    // the generated invokers are stateless, so a single instance of each is shared by all tool executors
+    private static final Map<String, ToolInvoker> invokers = new ConcurrentHashMap<>();
+    private static final Map<String, Class<? extends ToolArgumentMapper>> argumentMappers = new ConcurrentHashMap<>();
 
     public void setMetadata(Map<String, List<ToolMethodCreateInfo>> metadata) {
         ToolsRecorder.metadata.putAll(metadata);
@@ -33,6 +40,42 @@ public class ToolsRecorder {
 
     public static void clearMetadata() {
         metadata.clear();
+        invokers.clear();
+        argumentMappers.clear();
+    }
+
+    public static ToolInvoker toolInvoker(String invokerClassName) {
+        return invokers.computeIfAbsent(invokerClassName, new Function<>() {
+            @Override
+            public ToolInvoker apply(String className) {
+                try {
+                    return (ToolInvoker) Class.forName(className, true, Thread.currentThread().getContextClassLoader())
+                            .getConstructor().newInstance();
+                } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException
+                        | InvocationTargetException e) {
+                    throw new IllegalStateException(
+                            "Unable to create instance of '" + className + "'. Please report this issue to the maintainers",
+                            e);
+                }
+            }
+        });
+    }
+
+    public static Class<? extends ToolArgumentMapper> argumentMapperClass(String argumentMapperClassName) {
+        return argumentMappers.computeIfAbsent(argumentMapperClassName, new Function<>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Class<? extends ToolArgumentMapper> apply(String className) {
+                try {
+                    return (Class<? extends ToolArgumentMapper>) Class.forName(className, true,
+                            Thread.currentThread().getContextClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(
+                            "Unable to load argument mapper '" + className + "'. Please report this issue to the maintainers",
+                            e);
+                }
+            }
+        });
     }
 
     public static void populateToolMetadata(List<Object> objectsWithTools, List<ToolSpecification> toolSpecifications,
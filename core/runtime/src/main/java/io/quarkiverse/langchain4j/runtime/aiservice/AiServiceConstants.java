@@ -7,4 +7,8 @@ public final class AiServiceConstants {
 
     public static final String AI_SERVICE_CLASS_NAME = "aiservice.classname";
     public static final String AI_SERVICE_METHODNAME = "aiservice.methodname";
+    /**
+     * The id of the chat memory used by the current AI service invocation, only set when the AI service has a chat memory
+     */
+    public static final String AI_SERVICE_MEMORY_ID = "aiservice.memoryid";
 }
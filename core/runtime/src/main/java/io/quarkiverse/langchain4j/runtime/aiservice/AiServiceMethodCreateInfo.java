@@ -13,12 +13,14 @@ import java.util.function.Supplier;
 import org.eclipse.microprofile.config.ConfigProvider;
 
 import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.model.input.PromptTemplate;
 import dev.langchain4j.service.tool.ToolExecutor;
 import io.quarkiverse.langchain4j.guardrails.InputGuardrail;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrail;
 import io.quarkiverse.langchain4j.guardrails.OutputTokenAccumulator;
 import io.quarkiverse.langchain4j.runtime.ResponseSchemaUtil;
 import io.quarkiverse.langchain4j.runtime.config.GuardrailsConfig;
+import io.quarkiverse.langchain4j.runtime.config.LangChain4jConfig;
 import io.quarkiverse.langchain4j.runtime.types.TypeSignatureParser;
 import io.quarkus.arc.impl.LazyValue;
 import io.quarkus.runtime.annotations.RecordableConstructor;
@@ -43,20 +45,31 @@ public final class AiServiceMethodCreateInfo {
     // support for guardrails
     private final List<String> outputGuardrailsClassNames;
     private final List<String> inputGuardrailsClassNames;
+    private final boolean inputGuardrailsConcurrent;
+
+    // support @CacheResult
+    private final Optional<ResponseCacheInfo> responseCacheInfo;
+    private transient final LazyValue<Optional<ResponseCacheSupport.ResponseCache>> responseCache;
 
     // these are populated when the AiService method is first called which can happen on any thread
     private transient final List<ToolSpecification> toolSpecifications = new CopyOnWriteArrayList<>();
     private transient final Map<String, ToolExecutor> toolExecutors = new ConcurrentHashMap<>();
 
-    // Don't cache the instances, because of scope issues (some will need to be re-queried)
-    private transient final List<Class<? extends OutputGuardrail>> outputGuardrails = new CopyOnWriteArrayList<>();
-    private transient final List<Class<? extends InputGuardrail>> inputGuardrails = new CopyOnWriteArrayList<>();
+    // the guardrails are resolved once, the beans that are not normal scoped are still looked up on each validation
+    private transient final LazyValue<List<GuardrailBean<OutputGuardrail>>> outputGuardrails;
+    private transient final LazyValue<List<GuardrailBean<InputGuardrail>>> inputGuardrails;
 
     private final String outputTokenAccumulatorClassName;
     private OutputTokenAccumulator accumulator;
 
     private final LazyValue<Integer> guardrailsMaxRetry;
 
+    // the templates known at build time are parsed only once, the first time they are needed (the Qute engine is only available at runtime)
+    private transient final LazyValue<Optional<PromptTemplate>> systemMessageTemplate;
+    private transient final LazyValue<Optional<PromptTemplate>> userMessageTemplate;
+    // templates passed as method parameters can only be cached once they have been seen
+    private transient final LazyValue<PromptTemplateCache> runtimeTemplates;
+
     @RecordableConstructor
     public AiServiceMethodCreateInfo(String interfaceName, String methodName,
             Optional<TemplateInfo> systemMessageInfo,
@@ -70,8 +83,10 @@ public final class AiServiceMethodCreateInfo {
             ResponseSchemaInfo responseSchemaInfo,
             List<String> toolClassNames,
             List<String> inputGuardrailsClassNames,
+            boolean inputGuardrailsConcurrent,
             List<String> outputGuardrailsClassNames,
-            String outputTokenAccumulatorClassName) {
+            String outputTokenAccumulatorClassName,
+            Optional<ResponseCacheInfo> responseCacheInfo) {
         this.interfaceName = interfaceName;
         this.methodName = methodName;
         this.systemMessageInfo = systemMessageInfo;
@@ -91,8 +106,28 @@ public final class AiServiceMethodCreateInfo {
         this.responseSchemaInfo = responseSchemaInfo;
         this.toolClassNames = toolClassNames;
         this.inputGuardrailsClassNames = inputGuardrailsClassNames;
+        this.inputGuardrailsConcurrent = inputGuardrailsConcurrent;
         this.outputGuardrailsClassNames = outputGuardrailsClassNames;
+        this.inputGuardrails = new LazyValue<>(new Supplier<>() {
+            @Override
+            public List<GuardrailBean<InputGuardrail>> get() {
+                return GuardrailBean.resolve(inputGuardrailsClassNames, InputGuardrail.class);
+            }
+        });
+        this.outputGuardrails = new LazyValue<>(new Supplier<>() {
+            @Override
+            public List<GuardrailBean<OutputGuardrail>> get() {
+                return GuardrailBean.resolve(outputGuardrailsClassNames, OutputGuardrail.class);
+            }
+        });
         this.outputTokenAccumulatorClassName = outputTokenAccumulatorClassName;
+        this.responseCacheInfo = responseCacheInfo;
+        this.responseCache = new LazyValue<>(new Supplier<>() {
+            @Override
+            public Optional<ResponseCacheSupport.ResponseCache> get() {
+                return responseCacheInfo.map(ResponseCacheSupport.ResponseCache::create);
+            }
+        });
         // Use a lazy value to get the value at runtime.
         this.guardrailsMaxRetry = new LazyValue<Integer>(new Supplier<Integer>() {
             @Override
@@ -101,6 +136,28 @@ public final class AiServiceMethodCreateInfo {
                         .orElse(GuardrailsConfig.MAX_RETRIES_DEFAULT);
             }
         });
+        this.systemMessageTemplate = new LazyValue<>(new Supplier<>() {
+            @Override
+            public Optional<PromptTemplate> get() {
+                return systemMessageInfo.flatMap(TemplateInfo::text).map(PromptTemplate::from);
+            }
+        });
+        this.userMessageTemplate = new LazyValue<>(new Supplier<>() {
+            @Override
+            public Optional<PromptTemplate> get() {
+                return userMessageInfo.template().flatMap(TemplateInfo::text)
+                        .map(text -> PromptTemplate.from(AiServiceMethodImplementationSupport
+                                .userMessageTemplateText(AiServiceMethodCreateInfo.this, text)));
+            }
+        });
+        this.runtimeTemplates = new LazyValue<>(new Supplier<>() {
+            @Override
+            public PromptTemplateCache get() {
+                return new PromptTemplateCache(ConfigProvider.getConfig()
+                        .getOptionalValue("quarkus.langchain4j.template-cache-size", Integer.class)
+                        .orElse(LangChain4jConfig.TEMPLATE_CACHE_SIZE_DEFAULT));
+            }
+        });
     }
 
     public String getInterfaceName() {
@@ -167,8 +224,8 @@ public final class AiServiceMethodCreateInfo {
         return outputGuardrailsClassNames;
     }
 
-    public List<Class<? extends OutputGuardrail>> getOutputGuardrailsClasses() {
-        return outputGuardrails;
+    public List<GuardrailBean<OutputGuardrail>> getOutputGuardrails() {
+        return outputGuardrails.get();
     }
 
     public int getGuardrailsMaxRetry() {
@@ -179,8 +236,12 @@ public final class AiServiceMethodCreateInfo {
         return inputGuardrailsClassNames;
     }
 
-    public List<Class<? extends InputGuardrail>> getInputGuardrailsClasses() {
-        return inputGuardrails;
+    public boolean isInputGuardrailsConcurrent() {
+        return inputGuardrailsConcurrent;
+    }
+
+    public List<GuardrailBean<InputGuardrail>> getInputGuardrails() {
+        return inputGuardrails.get();
     }
 
     public String getOutputTokenAccumulatorClassName() {
@@ -195,6 +256,57 @@ public final class AiServiceMethodCreateInfo {
         return accumulator;
     }
 
+    public Optional<ResponseCacheInfo> getResponseCacheInfo() {
+        return responseCacheInfo;
+    }
+
+    /**
+     * @return the cache of the responses, resolved the first time it is needed, if the method is annotated with
+     *         {@code @CacheResult}
+     */
+    Optional<ResponseCacheSupport.ResponseCache> getResponseCache() {
+        return responseCache.get();
+    }
+
+    /**
+     * @return the parsed template of the {@code @SystemMessage} if its text was known at build time
+     */
+    public Optional<PromptTemplate> getSystemMessagePromptTemplate() {
+        return systemMessageTemplate.get();
+    }
+
+    /**
+     * @return the parsed template of the {@code @UserMessage} (including the response schema placeholder if needed)
+     *         if its text was known at build time
+     */
+    public Optional<PromptTemplate> getUserMessagePromptTemplate() {
+        return userMessageTemplate.get();
+    }
+
+    /**
+     * @return the parsed template for text that is only known at runtime, reusing a previously parsed template
+     *         if the same text has been seen recently
+     */
+    public PromptTemplate getRuntimePromptTemplate(String text) {
+        return runtimeTemplates.get().get(text);
+    }
+
+    /**
+     * Parses the templates that are known at build time so the first invocation of the method doesn't have to
+     */
+    public void initPromptTemplates() {
+        systemMessageTemplate.get();
+        userMessageTemplate.get();
+    }
+
+    /**
+     * Resolves the guardrails now instead of on the first invocation of the method
+     */
+    public void initGuardrails() {
+        inputGuardrails.get();
+        outputGuardrails.get();
+    }
+
     public String getUserMessageTemplate() {
         Optional<String> userMessageTemplateOpt = this.getUserMessageInfo().template()
                 .flatMap(AiServiceMethodCreateInfo.TemplateInfo::text);
@@ -326,6 +438,12 @@ public final class AiServiceMethodCreateInfo {
     public record SpanInfo(String name) {
     }
 
+    /**
+     * @param semantic whether a response can be reused when the last message is only similar to the cached one
+     */
+    public record ResponseCacheInfo(boolean semantic) {
+    }
+
     public record ResponseSchemaInfo(boolean enabled, boolean isInSystemMessage, Optional<Boolean> isInUserMessage,
             String outputFormatInstructions) {
 
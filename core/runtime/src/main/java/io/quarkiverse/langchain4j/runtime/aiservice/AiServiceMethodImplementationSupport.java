@@ -12,6 +12,7 @@ import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,6 +28,7 @@ import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import org.jboss.logging.Logger;
@@ -143,22 +145,60 @@ public class AiServiceMethodImplementationSupport {
     private static Object doImplement(AiServiceMethodCreateInfo methodCreateInfo, Object[] methodArgs,
             QuarkusAiServiceContext context, Audit audit) {
         Object memoryId = memoryId(methodCreateInfo, methodArgs, context.chatMemoryProvider != null);
-        Optional<SystemMessage> systemMessage = prepareSystemMessage(methodCreateInfo, methodArgs,
-                context.hasChatMemory() ? context.chatMemory(memoryId).messages() : Collections.emptyList());
+        if (!context.hasChatMemory() || !ContextLocals.duplicatedContextActive()) {
+            return doImplement(methodCreateInfo, methodArgs, context, audit, memoryId);
+        }
+        Object previousMemoryId = putMemoryId(memoryId);
+        try {
+            return doImplement(methodCreateInfo, methodArgs, context, audit, memoryId);
+        } finally {
+            restoreMemoryId(previousMemoryId);
+        }
+    }
+
+    /**
+     * Makes the memory id available to the models that keep state for each conversation, so that they know which one
+     * the request belongs to.
+     *
+     * @return the memory id it replaces, which is set when an AI service is invoked by a tool of another one
+     */
+    private static Object putMemoryId(Object memoryId) {
+        Object previousMemoryId = ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID);
+        ContextLocals.put(AiServiceConstants.AI_SERVICE_MEMORY_ID, memoryId);
+        return previousMemoryId;
+    }
+
+    private static void restoreMemoryId(Object previousMemoryId) {
+        if (previousMemoryId == null) {
+            ContextLocals.remove(AiServiceConstants.AI_SERVICE_MEMORY_ID);
+        } else {
+            ContextLocals.put(AiServiceConstants.AI_SERVICE_MEMORY_ID, previousMemoryId);
+        }
+    }
+
+    private static Object doImplement(AiServiceMethodCreateInfo methodCreateInfo, Object[] methodArgs,
+            QuarkusAiServiceContext context, Audit audit, Object memoryId) {
+        // the memory is read once, into a snapshot that all the stages of the invocation use, and that is only written
+        // back once the invocation has completed successfully (as the service could fail and be retried)
+        CommittableChatMemory chatMemory = context.hasChatMemory()
+                ? new DefaultCommittableChatMemory(context.chatMemory(memoryId))
+                : new NoopChatMemory();
+        List<ChatMessage> previousMessages = chatMemory.messages();
+        Optional<SystemMessage> systemMessage = prepareSystemMessage(methodCreateInfo, methodArgs, previousMessages);
         UserMessage userMessage = prepareUserMessage(context, methodCreateInfo, methodArgs);
         Map<String, Object> templateVariables = getTemplateVariables(methodArgs, methodCreateInfo.getUserMessageInfo());
 
         Type returnType = methodCreateInfo.getReturnType();
         if (isImage(returnType) || isResultImage(returnType)) {
-            return doImplementGenerateImage(methodCreateInfo, context, audit, systemMessage, userMessage, memoryId, returnType,
-                    templateVariables);
+            return doImplementGenerateImage(methodCreateInfo, context, audit, systemMessage, userMessage, chatMemory,
+                    returnType, templateVariables);
         }
 
         if (audit != null) {
             audit.initialMessages(systemMessage, userMessage);
         }
 
-        boolean needsMemorySeed = needsMemorySeed(context, memoryId); // we need to know figure this out before we add the system and user message
+        boolean needsMemorySeed = needsMemorySeed(context, previousMessages); // we need to know figure this out before we add the system and user message
 
         boolean hasMethodSpecificTools = methodCreateInfo.getToolClassNames() != null
                 && !methodCreateInfo.getToolClassNames().isEmpty();
@@ -182,10 +222,7 @@ public class AiServiceMethodImplementationSupport {
 
         AugmentationResult augmentationResult = null;
         if (context.retrievalAugmentor != null) {
-            List<ChatMessage> chatMemory = context.hasChatMemory()
-                    ? context.chatMemory(memoryId).messages()
-                    : null;
-            Metadata metadata = Metadata.from(userMessage, memoryId, chatMemory);
+            Metadata metadata = Metadata.from(userMessage, memoryId, context.hasChatMemory() ? previousMessages : null);
             AugmentationRequest augmentationRequest = new AugmentationRequest(userMessage, metadata);
 
             if (!isMulti(returnType)) {
@@ -207,8 +244,9 @@ public class AiServiceMethodImplementationSupport {
                                 ChatMessage augmentedUserMessage = ar.chatMessage();
 
                                 GuardrailsSupport.invokeInputGuardrails(methodCreateInfo, (UserMessage) augmentedUserMessage,
-                                        context.chatMemory(memoryId), ar, templateVariables);
+                                        context.hasChatMemory() ? chatMemory : null, ar, templateVariables);
                                 List<ChatMessage> messagesToSend = messagesToSend(augmentedUserMessage, needsMemorySeed);
+                                chatMemory.commit(); // for streaming cases, we really have to commit because all alternatives are worse
                                 return new TokenStreamMulti(messagesToSend, effectiveToolSpecifications,
                                         finalToolExecutors, ar.contents(), context, memoryId);
                             }
@@ -216,9 +254,7 @@ public class AiServiceMethodImplementationSupport {
                             private List<ChatMessage> messagesToSend(ChatMessage augmentedUserMessage,
                                     boolean needsMemorySeed) {
                                 List<ChatMessage> messagesToSend;
-                                ChatMemory chatMemory;
                                 if (context.hasChatMemory()) {
-                                    chatMemory = context.chatMemory(memoryId);
                                     messagesToSend = createMessagesToSendForExistingMemory(systemMessage, augmentedUserMessage,
                                             chatMemory, needsMemorySeed, context, methodCreateInfo);
                                 } else {
@@ -232,19 +268,15 @@ public class AiServiceMethodImplementationSupport {
         }
 
         GuardrailsSupport.invokeInputGuardrails(methodCreateInfo, userMessage,
-                context.hasChatMemory() ? context.chatMemory(memoryId) : null,
+                context.hasChatMemory() ? chatMemory : null,
                 augmentationResult, templateVariables);
 
-        CommittableChatMemory chatMemory;
         List<ChatMessage> messagesToSend;
 
         if (context.hasChatMemory()) {
-            // we want to defer saving the new messages because the service could fail and be retried
-            chatMemory = new DefaultCommittableChatMemory(context.chatMemory(memoryId));
             messagesToSend = createMessagesToSendForExistingMemory(systemMessage, userMessage, chatMemory, needsMemorySeed,
                     context, methodCreateInfo);
         } else {
-            chatMemory = new NoopChatMemory();
             messagesToSend = createMessagesToSendForNoMemory(systemMessage, userMessage, needsMemorySeed, context,
                     methodCreateInfo);
         }
@@ -265,38 +297,45 @@ public class AiServiceMethodImplementationSupport {
             }
 
             var actualAugmentationResult = augmentationResult;
-            return new TokenStreamMulti(messagesToSend, toolSpecifications, toolExecutors,
-                    (augmentationResult != null ? augmentationResult.contents() : null), context, memoryId)
-                    .plug(s -> GuardrailsSupport.accumulate(s, methodCreateInfo))
-                    .map(chunk -> {
-                        OutputGuardrailResult result;
-                        try {
-                            result = GuardrailsSupport.invokeOutputGuardrailsForStream(methodCreateInfo,
-                                    new OutputGuardrailParams(AiMessage.from(chunk), chatMemory, actualAugmentationResult,
-                                            methodCreateInfo.getUserMessageTemplate(),
-                                            Collections.unmodifiableMap(templateVariables)));
-                        } catch (Exception e) {
-                            throw new GuardrailException(e.getMessage(), e);
-                        }
+            Multi<String> stream = new TokenStreamMulti(messagesToSend, toolSpecifications, toolExecutors,
+                    (augmentationResult != null ? augmentationResult.contents() : null), context, memoryId);
+            if (GuardrailsSupport.isIncremental(methodCreateInfo)) {
+                // the guardrails validate the tokens as they are received, so the response is not accumulated
+                stream = stream.plug(s -> GuardrailsSupport.validateIncrementally(s, methodCreateInfo, chatMemory,
+                        actualAugmentationResult, templateVariables));
+            } else {
+                stream = stream.plug(s -> GuardrailsSupport.accumulate(s, methodCreateInfo))
+                        .map(chunk -> {
+                            OutputGuardrailResult result;
+                            try {
+                                result = GuardrailsSupport.invokeOutputGuardrailsForStream(methodCreateInfo,
+                                        new OutputGuardrailParams(AiMessage.from(chunk), chatMemory, actualAugmentationResult,
+                                                methodCreateInfo.getUserMessageTemplate(),
+                                                Collections.unmodifiableMap(templateVariables)));
+                            } catch (Exception e) {
+                                throw new GuardrailException(e.getMessage(), e);
+                            }
 
-                        if (!result.isSuccess()) {
-                            if (!result.isRetry()) {
-                                throw new GuardrailException(result.toString(), result.getFirstFailureException());
-                            } else if (result.getReprompt() != null) {
-                                chatMemory.add(new UserMessage(result.getReprompt()));
-                                throw new GuardrailsSupport.GuardrailRetryException();
+                            if (!result.isSuccess()) {
+                                if (!result.isRetry()) {
+                                    throw new GuardrailException(result.toString(), result.getFirstFailureException());
+                                } else if (result.getReprompt() != null) {
+                                    chatMemory.add(new UserMessage(result.getReprompt()));
+                                    throw new GuardrailsSupport.GuardrailRetryException();
+                                } else {
+                                    // Retry without re-prompting
+                                    throw new GuardrailsSupport.GuardrailRetryException();
+                                }
                             } else {
-                                // Retry without re-prompting
-                                throw new GuardrailsSupport.GuardrailRetryException();
-                            }
-                        } else {
-                            if (result.isRewrittenResult()) {
-                                throw new GuardrailException(
-                                        "Attempting to rewrite the LLM output while streaming is not allowed");
+                                if (result.isRewrittenResult()) {
+                                    throw new GuardrailException(
+                                            "Attempting to rewrite the LLM output while streaming is not allowed");
+                                }
+                                return chunk;
                             }
-                            return chunk;
-                        }
-                    })
+                        });
+            }
+            return stream
                     // Retry logic:
                     // 1. retry only on the custom RetryException
                     // 2. If we still have a RetryException afterward, we fail.
@@ -307,6 +346,19 @@ public class AiServiceMethodImplementationSupport {
                             "Output validation failed. The guardrails have reached the maximum number of retries"));
         }
 
+        ResponseCacheSupport.Lookup cacheLookup = ResponseCacheSupport.lookup(methodCreateInfo, context.chatModel,
+                messagesToSend, toolSpecifications);
+        if ((cacheLookup != null) && (cacheLookup.response() != null)) {
+            // the cached response has already been moderated and validated by the output guardrails
+            Response<AiMessage> cachedResponse = Response.from(cacheLookup.response());
+            if (audit != null) {
+                audit.addLLMToApplicationMessage(cachedResponse);
+            }
+            chatMemory.add(cachedResponse.content());
+            chatMemory.commit();
+            return parseResponse(cachedResponse, returnType, augmentationResult);
+        }
+
         Future<Moderation> moderationFuture = triggerModerationIfNeeded(context, methodCreateInfo, messagesToSend);
 
         log.debug("Attempting to obtain AI response");
@@ -337,17 +389,9 @@ public class AiServiceMethodImplementationSupport {
                 break;
             }
 
-            for (ToolExecutionRequest toolExecutionRequest : aiMessage.toolExecutionRequests()) {
-                log.debugv("Attempting to execute tool {0}", toolExecutionRequest);
-                ToolExecutor toolExecutor = toolExecutors.get(toolExecutionRequest.name());
-                if (toolExecutor == null) {
-                    throw runtime("Tool executor %s not found", toolExecutionRequest.name());
-                }
-                String toolExecutionResult = toolExecutor.execute(toolExecutionRequest, memoryId);
-                log.debugv("Result of {0} is '{1}'", toolExecutionRequest, toolExecutionResult);
-                ToolExecutionResultMessage toolExecutionResultMessage = ToolExecutionResultMessage.from(
-                        toolExecutionRequest,
-                        toolExecutionResult);
+            List<ToolExecutionResultMessage> toolExecutionResultMessages = executeTools(
+                    aiMessage.toolExecutionRequests(), toolExecutors, memoryId, context.parallelToolExecution, audit);
+            for (ToolExecutionResultMessage toolExecutionResultMessage : toolExecutionResultMessages) {
                 if (audit != null) {
                     audit.addApplicationToLLMMessage(toolExecutionResultMessage);
                 }
@@ -374,13 +418,21 @@ public class AiServiceMethodImplementationSupport {
 
         // everything worked as expected so let's commit the messages
         chatMemory.commit();
+        if (cacheLookup != null) {
+            cacheLookup.store(response.content());
+        }
 
         response = Response.from(response.content(), tokenUsageAccumulator, response.finishReason());
+        return parseResponse(response, returnType, augmentationResult);
+    }
+
+    private static Object parseResponse(Response<AiMessage> response, Type returnType,
+            AugmentationResult augmentationResult) {
         if (isResult(returnType)) {
             var parsedResponse = SERVICE_OUTPUT_PARSER.parse(response, resultTypeParam((ParameterizedType) returnType));
             return Result.builder()
                     .content(parsedResponse)
-                    .tokenUsage(tokenUsageAccumulator)
+                    .tokenUsage(response.tokenUsage())
                     .sources(augmentationResult == null ? null : augmentationResult.contents())
                     .finishReason(response.finishReason())
                     .build();
@@ -389,9 +441,67 @@ public class AiServiceMethodImplementationSupport {
         }
     }
 
+    private static List<ToolExecutionResultMessage> executeTools(List<ToolExecutionRequest> toolExecutionRequests,
+            Map<String, ToolExecutor> toolExecutors, Object memoryId, boolean parallel, Audit audit) {
+        List<ToolExecutor> executors = new ArrayList<>(toolExecutionRequests.size());
+        for (ToolExecutionRequest toolExecutionRequest : toolExecutionRequests) {
+            ToolExecutor toolExecutor = toolExecutors.get(toolExecutionRequest.name());
+            if (toolExecutor == null) {
+                throw runtime("Tool executor %s not found", toolExecutionRequest.name());
+            }
+            executors.add(toolExecutor);
+        }
+
+        long[] durations = new long[toolExecutionRequests.size()];
+        List<ToolExecutionResultMessage> result;
+        if (!parallel || toolExecutionRequests.size() == 1) {
+            result = new ArrayList<>(toolExecutionRequests.size());
+            for (int i = 0; i < toolExecutionRequests.size(); i++) {
+                result.add(executeTool(toolExecutionRequests.get(i), executors.get(i), memoryId, durations, i));
+            }
+        } else {
+            List<Callable<ToolExecutionResultMessage>> tasks = new ArrayList<>(toolExecutionRequests.size());
+            for (int i = 0; i < toolExecutionRequests.size(); i++) {
+                ToolExecutionRequest toolExecutionRequest = toolExecutionRequests.get(i);
+                ToolExecutor toolExecutor = executors.get(i);
+                int index = i;
+                tasks.add(new Callable<>() {
+                    @Override
+                    public ToolExecutionResultMessage call() {
+                        return executeTool(toolExecutionRequest, toolExecutor, memoryId, durations, index);
+                    }
+                });
+            }
+            // the results are in the same order as the requests
+            result = ConcurrentInvocations.invokeAll(tasks, new Predicate<>() {
+                @Override
+                public boolean test(ToolExecutionResultMessage toolExecutionResultMessage) {
+                    return false;
+                }
+            });
+        }
+
+        if (audit != null) {
+            for (int i = 0; i < result.size(); i++) {
+                audit.onToolExecuted(result.get(i), Duration.ofNanos(durations[i]));
+            }
+        }
+        return result;
+    }
+
+    private static ToolExecutionResultMessage executeTool(ToolExecutionRequest toolExecutionRequest,
+            ToolExecutor toolExecutor, Object memoryId, long[] durations, int index) {
+        log.debugv("Attempting to execute tool {0}", toolExecutionRequest);
+        long start = System.nanoTime();
+        String toolExecutionResult = toolExecutor.execute(toolExecutionRequest, memoryId);
+        durations[index] = System.nanoTime() - start;
+        log.debugv("Result of {0} is '{1}'", toolExecutionRequest, toolExecutionResult);
+        return ToolExecutionResultMessage.from(toolExecutionRequest, toolExecutionResult);
+    }
+
     private static Object doImplementGenerateImage(AiServiceMethodCreateInfo methodCreateInfo, QuarkusAiServiceContext context,
             Audit audit, Optional<SystemMessage> systemMessage, UserMessage userMessage,
-            Object memoryId, Type returnType, Map<String, Object> templateVariables) {
+            ChatMemory chatMemory, Type returnType, Map<String, Object> templateVariables) {
         String imagePrompt;
         if (systemMessage.isPresent()) {
             imagePrompt = systemMessage.get().text() + "\n" + userMessage.singleText();
@@ -408,7 +518,7 @@ public class AiServiceMethodImplementationSupport {
 
         // TODO: we can only support input guardrails for now as it is tied to AiMessage
         GuardrailsSupport.invokeInputGuardrails(methodCreateInfo, userMessage,
-                context.hasChatMemory() ? context.chatMemory(memoryId) : null,
+                context.hasChatMemory() ? chatMemory : null,
                 augmentationResult, templateVariables);
 
         Response<Image> imageResponse = context.imageModel.generate(imagePrompt);
@@ -430,7 +540,7 @@ public class AiServiceMethodImplementationSupport {
         }
     }
 
-    private static boolean needsMemorySeed(QuarkusAiServiceContext context, Object memoryId) {
+    private static boolean needsMemorySeed(QuarkusAiServiceContext context, List<ChatMessage> previousMessages) {
         if (context.chatMemorySeeder == null) {
             return false;
         }
@@ -439,9 +549,8 @@ public class AiServiceMethodImplementationSupport {
             return false;
         }
 
-        ChatMemory chatMemory = context.chatMemory(memoryId);
         // if the chat memory is not empty, so we don't seed it
-        return chatMemory.messages().isEmpty();
+        return previousMessages.isEmpty();
     }
 
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -564,7 +673,7 @@ public class AiServiceMethodImplementationSupport {
 
         templateParams.put(ResponseSchemaUtil.templateParam(), createInfo.getResponseSchemaInfo().outputFormatInstructions());
         templateParams.put("chat_memory", previousChatMessages);
-        Prompt prompt = PromptTemplate.from(systemMessageInfo.text().get()).apply(templateParams);
+        Prompt prompt = createInfo.getSystemMessagePromptTemplate().orElseThrow().apply(templateParams);
         return Optional.of(prompt.toSystemMessage());
     }
 
@@ -602,31 +711,18 @@ public class AiServiceMethodImplementationSupport {
         if (userMessageInfo.template().isPresent()) {
             AiServiceMethodCreateInfo.TemplateInfo templateInfo = userMessageInfo.template().get();
             Map<String, Object> templateVariables = getTemplateVariables(methodArgs, userMessageInfo);
-            String templateText;
+            PromptTemplate promptTemplate;
             if (templateInfo.text().isPresent()) {
-                templateText = templateInfo.text().get();
+                promptTemplate = createInfo.getUserMessagePromptTemplate().orElseThrow();
             } else {
-                templateText = (String) methodArgs[templateInfo.methodParamPosition().get()];
-            }
-
-            boolean hasResponseSchema = createInfo.getResponseSchemaInfo().isInUserMessage().orElse(false)
-                    || hasResponseSchema(templateText);
-
-            if (hasResponseSchema && !createInfo.getResponseSchemaInfo().enabled()) {
-                throw new RuntimeException(
-                        "The %s placeholder cannot be used if the property quarkus.langchain4j.response-schema is set to false. Found in: %s"
-                                .formatted(ResponseSchemaUtil.placeholder(), createInfo.getInterfaceName()));
-            }
-
-            // No response schema placeholder found in the @SystemMessage and @UserMessage, concat it to the UserMessage.
-            if (!createInfo.getResponseSchemaInfo().isInSystemMessage() && !hasResponseSchema) {
-                templateText = templateText.concat(ResponseSchemaUtil.placeholder());
+                String templateText = (String) methodArgs[templateInfo.methodParamPosition().get()];
+                promptTemplate = createInfo.getRuntimePromptTemplate(userMessageTemplateText(createInfo, templateText));
             }
 
             // we do not need to apply the instructions as they have already been added to the template text at build time
             templateVariables.put(ResponseSchemaUtil.templateParam(),
                     createInfo.getResponseSchemaInfo().outputFormatInstructions());
-            Prompt prompt = PromptTemplate.from(templateText).apply(templateVariables);
+            Prompt prompt = promptTemplate.apply(templateVariables);
             return createUserMessage(userName, imageContent, prompt.text());
 
         } else if (userMessageInfo.paramPosition().isPresent()) {
@@ -649,6 +745,23 @@ public class AiServiceMethodImplementationSupport {
         }
     }
 
+    static String userMessageTemplateText(AiServiceMethodCreateInfo createInfo, String templateText) {
+        boolean hasResponseSchema = createInfo.getResponseSchemaInfo().isInUserMessage().orElse(false)
+                || hasResponseSchema(templateText);
+
+        if (hasResponseSchema && !createInfo.getResponseSchemaInfo().enabled()) {
+            throw new RuntimeException(
+                    "The %s placeholder cannot be used if the property quarkus.langchain4j.response-schema is set to false. Found in: %s"
+                            .formatted(ResponseSchemaUtil.placeholder(), createInfo.getInterfaceName()));
+        }
+
+        // No response schema placeholder found in the @SystemMessage and @UserMessage, concat it to the UserMessage.
+        if (!createInfo.getResponseSchemaInfo().isInSystemMessage() && !hasResponseSchema) {
+            templateText = templateText.concat(ResponseSchemaUtil.placeholder());
+        }
+        return templateText;
+    }
+
     private static Map<String, Object> getTemplateVariables(Object[] methodArgs,
             AiServiceMethodCreateInfo.UserMessageInfo userMessageInfo) {
         Map<String, Object> variables = new HashMap<>();
@@ -788,8 +901,18 @@ public class AiServiceMethodImplementationSupport {
                             processor.onComplete();
                         }
                     })
-                    .onError(processor::onError)
-                    .start();
+                    .onError(processor::onError);
+            // the stream is subscribed to after the invocation of the AI service has returned
+            if (!context.hasChatMemory() || !ContextLocals.duplicatedContextActive()) {
+                stream.start();
+                return;
+            }
+            Object previousMemoryId = putMemoryId(memoryId);
+            try {
+                stream.start();
+            } finally {
+                restoreMemoryId(previousMemoryId);
+            }
         }
     }
 }
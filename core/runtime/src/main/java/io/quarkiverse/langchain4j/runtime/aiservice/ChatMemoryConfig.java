@@ -2,6 +2,10 @@ package io.quarkiverse.langchain4j.runtime.aiservice;
 
 import static io.quarkus.runtime.annotations.ConfigPhase.RUN_TIME;
 
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalInt;
+
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.memory.chat.TokenWindowChatMemory;
@@ -31,6 +35,17 @@ public interface ChatMemoryConfig {
      */
     TokenWindow tokenWindow();
 
+    /**
+     * Configures how many chat memories each AI service keeps in memory.
+     * <p>
+     * By default, an AI service keeps all the chat memories it used until they are removed or until the AI service is
+     * destroyed, which, for an application scoped AI service used with many memory ids, means forever.
+     * Evicting a chat memory does not remove its messages from the {@link dev.langchain4j.store.memory.chat.ChatMemoryStore},
+     * so this should only be used with chat memories that are backed by a store, which is the case of the ones setup by
+     * the extension.
+     */
+    Registry registry();
+
     @ConfigGroup
     interface MemoryWindow {
 
@@ -51,4 +66,24 @@ public interface ChatMemoryConfig {
         int maxTokens();
     }
 
+    @ConfigGroup
+    interface Registry {
+
+        /**
+         * The maximum number of chat memories each AI service keeps in memory, the least recently used ones being
+         * evicted once it is reached.
+         * <p>
+         * The messages of an evicted memory stay in its store, where they are read again the next time the memory is
+         * used. Closing the AI service does not delete them, they need to be removed with
+         * {@link io.quarkiverse.langchain4j.ChatMemoryRemover}.
+         */
+        OptionalInt maxSize();
+
+        /**
+         * How long a chat memory that is not used is kept in memory, after which it is evicted like when
+         * {@code max-size} is reached
+         */
+        Optional<Duration> expireAfterAccess();
+    }
+
 }
@@ -0,0 +1,171 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+/**
+ * The chat memories an AI service keeps in memory, which are evicted once there are too many of them, the least
+ * recently used first, or once they have not been used for too long.
+ * <p>
+ * Evicting a chat memory only removes it from the registry, its messages stay in the {@link ChatMemoryStore} and are
+ * read from it again the next time the memory is used. Eviction happens when the registry is accessed, so that no
+ * thread is needed.
+ * <p>
+ * The registry does not remember which memories it evicted, since there is no bound to the number of ids it would then
+ * have to keep. Closing the AI service therefore only clears the memories that are still in the registry, the messages
+ * of the evicted ones stay in the store until they are removed with {@link io.quarkiverse.langchain4j.ChatMemoryRemover}.
+ * <p>
+ * A memory can be evicted while an invocation that uses it is still in progress, in which case the next invocation
+ * for the same id gets a new memory. Both memories then read from and write to the same store, like two instances of
+ * the application would: the memory of the invocation that is in progress keeps being used until the invocation ends.
+ */
+public class ChatMemoryRegistry extends AbstractMap<Object, ChatMemory> {
+
+    private final int maxSize;
+    private final long expireAfterAccessNanos;
+    // the iteration order goes from the least recently used memory to the most recently used one
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxSize the maximum number of memories, {@code null} for no limit
+     * @param expireAfterAccess how long a memory is kept after its last use, {@code null} for no limit
+     */
+    public ChatMemoryRegistry(Integer maxSize, Duration expireAfterAccess) {
+        this.maxSize = maxSize == null ? Integer.MAX_VALUE : maxSize;
+        this.expireAfterAccessNanos = expireAfterAccess == null ? Long.MAX_VALUE : expireAfterAccess.toNanos();
+    }
+
+    @Override
+    public synchronized ChatMemory get(Object memoryId) {
+        long now = System.nanoTime();
+        evict(now);
+        Entry entry = entries.get(memoryId);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = now;
+        return entry.memory;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object memoryId) {
+        evict(System.nanoTime());
+        return entries.containsKey(memoryId);
+    }
+
+    @Override
+    public synchronized ChatMemory computeIfAbsent(Object memoryId,
+            Function<? super Object, ? extends ChatMemory> mappingFunction) {
+        ChatMemory memory = get(memoryId);
+        if (memory == null) {
+            memory = mappingFunction.apply(memoryId);
+            if (memory != null) {
+                put(memoryId, memory);
+            }
+        }
+        return memory;
+    }
+
+    @Override
+    public synchronized ChatMemory put(Object memoryId, ChatMemory memory) {
+        Entry previous = entries.put(memoryId, new Entry(memory, System.nanoTime()));
+        if (previous == null) {
+            onAdded();
+        }
+        evict(System.nanoTime());
+        return previous == null ? null : previous.memory;
+    }
+
+    @Override
+    public synchronized ChatMemory remove(Object memoryId) {
+        Entry entry = entries.remove(memoryId);
+        if (entry == null) {
+            return null;
+        }
+        onRemoved(false);
+        return entry.memory;
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (int i = 0; i < entries.size(); i++) {
+            onRemoved(false);
+        }
+        entries.clear();
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Object, ? super ChatMemory> action) {
+        // the action is not called while holding the lock, as it may access the store
+        for (Map.Entry<Object, ChatMemory> entry : entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return a copy of the entries of the registry
+     */
+    @Override
+    public synchronized Set<Map.Entry<Object, ChatMemory>> entrySet() {
+        List<Map.Entry<Object, ChatMemory>> copy = new ArrayList<>(entries.size());
+        for (Map.Entry<Object, Entry> entry : entries.entrySet()) {
+            copy.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().memory));
+        }
+        return new LinkedHashSet<>(copy);
+    }
+
+    /**
+     * Called when a memory is added to the registry
+     */
+    protected void onAdded() {
+    }
+
+    /**
+     * Called when a memory is removed from the registry
+     *
+     * @param evicted whether the memory was evicted, as opposed to being explicitly removed
+     */
+    protected void onRemoved(boolean evicted) {
+    }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, Entry> entry = iterator.next();
+            if ((entries.size() <= maxSize) && (now - entry.getValue().lastAccess <= expireAfterAccessNanos)) {
+                // the following memories were used more recently
+                return;
+            }
+            iterator.remove();
+            onRemoved(true);
+        }
+    }
+
+    private static final class Entry {
+
+        private final ChatMemory memory;
+        private long lastAccess;
+
+        private Entry(ChatMemory memory, long lastAccess) {
+            this.memory = memory;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.InjectableContext;
+import io.quarkus.arc.ManagedContext;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * Runs concurrently the steps of an AI service invocation that do not depend on each other, such as the tools
+ * requested by the model in a single response or the input guardrails.
+ * <p>
+ * When the caller runs on a duplicated Vert.x context, the tasks are executed on the worker pool with that same
+ * context, so that they see its context locals, its OpenTelemetry span and its request context. Otherwise, they are
+ * executed on the default worker pool with the request context of the caller, if it is active.
+ * <p>
+ * The caller runs the tasks that no worker has started yet, so that a saturated worker pool slows the tasks down
+ * instead of leaving the caller blocked, waiting for a thread that is itself waiting for it.
+ */
+final class ConcurrentInvocations {
+
+    private ConcurrentInvocations() {
+    }
+
+    /**
+     * Runs all the tasks concurrently and returns their results in the order of the tasks.
+     * <p>
+     * When a task returns a result that {@code stop} accepts, the tasks that follow it are cancelled, and the returned
+     * list ends with that result. When a task fails, all the other tasks are cancelled and its exception is thrown.
+     */
+    static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, Predicate<? super T> stop) {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Task<T>> futures = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            futures.add(new Task<>(new Body<>(tasks.get(i), i, futures, stop, failure)));
+        }
+
+        Context context = Vertx.currentContext();
+        if ((context != null) && VertxContext.isDuplicatedContext(context)) {
+            for (Task<T> future : futures) {
+                context.executeBlocking(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        future.runOnWorker();
+                        return null;
+                    }
+                }, false);
+            }
+        } else {
+            ManagedContext requestContext = Arc.container().requestContext();
+            InjectableContext.ContextState requestState = requestContext.isActive() ? requestContext.getState() : null;
+            for (Task<T> future : futures) {
+                Infrastructure.getDefaultExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestState == null) {
+                            future.runOnWorker();
+                            return;
+                        }
+                        // the state is shared with the caller, deactivating the context on this thread does not
+                        // destroy it
+                        requestContext.activate(requestState);
+                        try {
+                            future.runOnWorker();
+                        } finally {
+                            requestContext.deactivate();
+                        }
+                    }
+                });
+            }
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Task<T> future : futures) {
+            // does nothing if a worker has already started the task
+            future.runOnCaller();
+            T result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                for (Task<T> other : futures) {
+                    other.cancel();
+                }
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (CancellationException e) {
+                // only happens when another task failed
+                throw propagate(failure.get());
+            } catch (ExecutionException e) {
+                throw propagate(e.getCause());
+            }
+            results.add(result);
+            if (stop.test(result)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static RuntimeException propagate(Throwable failure) {
+        if (failure instanceof RuntimeException re) {
+            return re;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new RuntimeException(failure);
+    }
+
+    /**
+     * A task that is run exactly once, either by a worker or by the caller.
+     * <p>
+     * The workers go through {@link FutureTask#run()}, which lets {@link #cancel()} interrupt them. The caller calls
+     * the body directly instead, so that it is never interrupted: it has to collect the results of the other tasks.
+     */
+    private static final class Task<T> extends FutureTask<T> {
+
+        private final Body<T> body;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private Task(Body<T> body) {
+            super(body);
+            this.body = body;
+        }
+
+        void runOnWorker() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            run();
+            if (isCancelled()) {
+                // the interruption must not leak into the next task of the worker
+                Thread.interrupted();
+            }
+        }
+
+        void runOnCaller() {
+            if (!started.compareAndSet(false, true) || isDone()) {
+                return;
+            }
+            try {
+                set(body.call());
+            } catch (Throwable t) {
+                setException(t);
+            }
+        }
+
+        void cancel() {
+            cancel(true);
+        }
+    }
+
+    private static final class Body<T> implements Callable<T> {
+
+        private final Callable<T> callable;
+        private final int index;
+        private final List<Task<T>> tasks;
+        private final Predicate<? super T> stop;
+        private final AtomicReference<Throwable> failure;
+
+        private Body(Callable<T> callable, int index, List<Task<T>> tasks, Predicate<? super T> stop,
+                AtomicReference<Throwable> failure) {
+            this.callable = callable;
+            this.index = index;
+            this.tasks = tasks;
+            this.stop = stop;
+            this.failure = failure;
+        }
+
+        @Override
+        public T call() throws Exception {
+            T result;
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                if (failure.compareAndSet(null, t)) {
+                    cancelOthers(0);
+                }
+                throw t;
+            }
+            if (stop.test(result)) {
+                // the results that follow are not needed anymore
+                cancelOthers(index + 1);
+            }
+            return result;
+        }
+
+        private void cancelOthers(int fromIndex) {
+            for (int i = fromIndex; i < tasks.size(); i++) {
+                if (i != index) {
+                    tasks.get(i).cancel();
+                }
+            }
+        }
+    }
+}
@@ -20,5 +20,7 @@ public record DeclarativeAiServiceCreateInfo(
         String imageModelName,
         boolean needsStreamingChatModel,
         boolean needsModerationModel,
-        boolean needsImageModel) {
+        boolean needsImageModel,
+        boolean parallelToolExecution,
+        boolean metricsEnabled) {
 }
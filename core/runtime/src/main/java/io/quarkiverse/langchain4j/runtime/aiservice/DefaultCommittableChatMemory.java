@@ -8,6 +8,10 @@ import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.memory.ChatMemory;
 
+/**
+ * A snapshot of a {@link ChatMemory}, which is read once when it is created and only written back on {@link #commit()},
+ * so that all the stages of an AI service invocation work on the same messages without accessing the store again.
+ */
 class DefaultCommittableChatMemory implements CommittableChatMemory {
 
     private final ChatMemory delegate;
@@ -62,6 +66,13 @@ class DefaultCommittableChatMemory implements CommittableChatMemory {
 
     @Override
     public void commit() {
+        if (delegate instanceof DeltaWritingChatMemory deltaWritingChatMemory) {
+            // this results in a single write containing only what changed since the memory was read when this
+            // snapshot was created; if the store was updated in the meantime, the store rejects that change
+            // and all the messages are written instead
+            deltaWritingChatMemory.replaceMessages(newMessages, false);
+            return;
+        }
         delegate.clear(); // remove the original messages as this class keeps the entire state
         for (ChatMessage newMessage : newMessages) {
             delegate.add(newMessage);
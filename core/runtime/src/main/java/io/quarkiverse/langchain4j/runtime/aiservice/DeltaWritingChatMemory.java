@@ -0,0 +1,78 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.List;
+import java.util.function.Function;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.quarkiverse.langchain4j.memory.AppendableChatMemoryStore;
+
+/**
+ * A {@link ChatMemory} that delegates to a regular {@link ChatMemory} implementation (which takes care of the eviction
+ * policy), but makes sure that the {@link ChatMemoryStore} is written to as little as possible:
+ * <ul>
+ * <li>when the store is an {@link AppendableChatMemoryStore}, only the messages that changed are written</li>
+ * <li>{@link #replaceMessages(List)} results in a single write to the store, no matter how many messages are added</li>
+ * </ul>
+ */
+public class DeltaWritingChatMemory implements ChatMemory {
+
+    private final DeltaWritingChatMemoryStore store;
+    private final ChatMemory delegate;
+
+    /**
+     * @param store the store in which the messages are persisted
+     * @param delegateFactory creates the actual {@link ChatMemory} implementation for the {@link ChatMemoryStore} it is passed
+     */
+    public DeltaWritingChatMemory(ChatMemoryStore store, Function<ChatMemoryStore, ChatMemory> delegateFactory) {
+        this.store = new DeltaWritingChatMemoryStore(store);
+        this.delegate = delegateFactory.apply(this.store);
+    }
+
+    @Override
+    public Object id() {
+        return delegate.id();
+    }
+
+    @Override
+    public synchronized void add(ChatMessage message) {
+        delegate.add(message);
+    }
+
+    @Override
+    public synchronized List<ChatMessage> messages() {
+        return delegate.messages();
+    }
+
+    @Override
+    public synchronized void clear() {
+        delegate.clear();
+    }
+
+    /**
+     * Replaces the content of the memory with {@code messages} (to which the eviction policy of the memory is applied)
+     * while writing to the store only once.
+     */
+    public void replaceMessages(List<ChatMessage> messages) {
+        replaceMessages(messages, true);
+    }
+
+    /**
+     * @param reload whether the store needs to be read again, which is not needed when the caller read the memory
+     *        shortly before and is about to overwrite it anyway
+     */
+    synchronized void replaceMessages(List<ChatMessage> messages, boolean reload) {
+        Object id = delegate.id();
+        store.stage(id, reload);
+        try {
+            delegate.clear();
+            for (ChatMessage message : messages) {
+                delegate.add(message);
+            }
+            store.flush(id);
+        } finally {
+            store.discard();
+        }
+    }
+}
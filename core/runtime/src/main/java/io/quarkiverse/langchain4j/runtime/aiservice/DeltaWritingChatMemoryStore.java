@@ -0,0 +1,155 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.quarkiverse.langchain4j.memory.AppendableChatMemoryStore;
+
+/**
+ * Decorates the {@link ChatMemoryStore} of a single chat memory.
+ * <p>
+ * It remembers the messages that were last read from (or written to) the underlying store so that when the underlying
+ * store is an {@link AppendableChatMemoryStore} only the difference needs to be written.
+ * Furthermore, it allows a series of updates to be staged in memory and written to the underlying store at once.
+ * <p>
+ * Instances are not thread safe, {@link DeltaWritingChatMemory} takes care of guarding access to them.
+ */
+class DeltaWritingChatMemoryStore implements ChatMemoryStore {
+
+    private final ChatMemoryStore delegate;
+
+    // what we know is in the underlying store, null if unknown
+    private List<ChatMessage> persisted;
+    // not null while updates are being staged
+    private List<ChatMessage> staged;
+
+    DeltaWritingChatMemoryStore(ChatMemoryStore delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        if (staged != null) {
+            return new ArrayList<>(staged);
+        }
+        persisted = new ArrayList<>(delegate.getMessages(memoryId));
+        return new ArrayList<>(persisted);
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        if (staged != null) {
+            staged = new ArrayList<>(messages);
+            return;
+        }
+        write(memoryId, messages);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        if (staged != null) {
+            staged = new ArrayList<>();
+            return;
+        }
+        delegate.deleteMessages(memoryId);
+        persisted = new ArrayList<>();
+    }
+
+    /**
+     * From now on, all updates are only kept in memory until {@link #flush(Object)} is called
+     *
+     * @param reload whether to read the underlying store again even if its content is known
+     */
+    void stage(Object memoryId, boolean reload) {
+        if (reload || (persisted == null)) {
+            persisted = new ArrayList<>(delegate.getMessages(memoryId));
+        }
+        staged = new ArrayList<>(persisted);
+    }
+
+    /**
+     * Writes the staged updates to the underlying store
+     */
+    void flush(Object memoryId) {
+        List<ChatMessage> messages = staged;
+        staged = null;
+        write(memoryId, messages);
+    }
+
+    /**
+     * Throws away the staged updates
+     */
+    void discard() {
+        staged = null;
+    }
+
+    private void write(Object memoryId, List<ChatMessage> messages) {
+        if ((persisted != null) && (delegate instanceof AppendableChatMemoryStore appendable)) {
+            writeDelta(appendable, memoryId, persisted, messages);
+        } else {
+            delegate.updateMessages(memoryId, messages);
+        }
+        persisted = new ArrayList<>(messages);
+    }
+
+    /**
+     * Expresses the new messages as {@code old[0, fromIndex) + old[fromIndex + removeCount, old.size) + appended}
+     * and only sends that to the store, or all the new messages if the stored ones changed in the meantime.
+     */
+    static void writeDelta(AppendableChatMemoryStore store, Object memoryId, List<ChatMessage> oldMessages,
+            List<ChatMessage> newMessages) {
+        int oldSize = oldMessages.size();
+        int newSize = newMessages.size();
+
+        int commonPrefix = 0;
+        while (commonPrefix < oldSize && commonPrefix < newSize
+                && oldMessages.get(commonPrefix).equals(newMessages.get(commonPrefix))) {
+            commonPrefix++;
+        }
+        if (commonPrefix == oldSize) {
+            if ((newSize > oldSize)
+                    && !store.appendMessages(memoryId, oldMessages, newMessages.subList(oldSize, newSize))) {
+                // the stored messages changed since they were read, so the delta does not apply to them anymore
+                store.updateMessages(memoryId, newMessages);
+            }
+            return;
+        }
+
+        // find the smallest block of old messages that was evicted, so that the remaining old messages are kept as is
+        int keptFrom = commonPrefix + 1;
+        while (keptFrom < oldSize && !isKept(oldMessages, keptFrom, newMessages, commonPrefix)) {
+            keptFrom++;
+        }
+        int removeCount = keptFrom - commonPrefix;
+        int appendFrom = commonPrefix + (oldSize - keptFrom);
+        if (removeCount == oldSize) {
+            // nothing can be reused, so there is no point in doing anything other than a full write
+            if (newSize == 0) {
+                store.deleteMessages(memoryId);
+            } else {
+                store.updateMessages(memoryId, newMessages);
+            }
+            return;
+        }
+        if (!store.replaceMessages(memoryId, oldMessages, commonPrefix, removeCount,
+                newMessages.subList(appendFrom, newSize))) {
+            store.updateMessages(memoryId, newMessages);
+        }
+    }
+
+    private static boolean isKept(List<ChatMessage> oldMessages, int keptFrom, List<ChatMessage> newMessages,
+            int newFrom) {
+        int keptCount = oldMessages.size() - keptFrom;
+        if (newFrom + keptCount > newMessages.size()) {
+            return false;
+        }
+        for (int i = 0; i < keptCount; i++) {
+            if (!oldMessages.get(keptFrom + i).equals(newMessages.get(newFrom + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.enterprise.inject.spi.Bean;
+import jakarta.enterprise.inject.spi.BeanManager;
+import jakarta.inject.Singleton;
+
+import io.quarkiverse.langchain4j.guardrails.Guardrail;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.InjectableInstance;
+import io.quarkus.arc.InstanceHandle;
+
+/**
+ * A guardrail of an AI service method, resolved once instead of on each validation.
+ * <p>
+ * The client proxy of a normal scoped bean is kept, as it always delegates to the instance of the current context, and
+ * so is the instance of a {@code @Singleton} bean. The other beans are looked up for each validation, as a
+ * {@code @Dependent} bean needs a new instance every time, which is destroyed once the validation is over.
+ */
+public final class GuardrailBean<G extends Guardrail> {
+
+    private final Class<? extends G> guardrailClass;
+    private final InstanceHandle<? extends G> shared;
+    private final InjectableInstance<? extends G> instance;
+
+    private GuardrailBean(Class<? extends G> guardrailClass) {
+        this.guardrailClass = guardrailClass;
+        this.instance = Arc.container().select(guardrailClass);
+        BeanManager beanManager = Arc.container().beanManager();
+        Bean<?> bean = beanManager.resolve(beanManager.getBeans(guardrailClass));
+        if ((bean != null) && (beanManager.isNormalScope(bean.getScope()) || (bean.getScope() == Singleton.class))) {
+            G guardrail = instance.get();
+            // destroying this handle does nothing
+            this.shared = () -> guardrail;
+        } else {
+            this.shared = null;
+        }
+    }
+
+    /**
+     * @return the guardrails with the given class names, in the same order
+     */
+    static <G extends Guardrail> List<GuardrailBean<G>> resolve(List<String> classNames, Class<G> type) {
+        if (classNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<GuardrailBean<G>> guardrails = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            Class<? extends G> guardrailClass;
+            try {
+                guardrailClass = Class.forName(className, true, Thread.currentThread().getContextClassLoader())
+                        .asSubclass(type);
+            } catch (Exception e) {
+                throw new RuntimeException(
+                        "Could not find " + type.getSimpleName() + " implementation class: " + className, e);
+            }
+            guardrails.add(new GuardrailBean<>(guardrailClass));
+        }
+        return Collections.unmodifiableList(guardrails);
+    }
+
+    public Class<? extends G> guardrailClass() {
+        return guardrailClass;
+    }
+
+    /**
+     * @return a handle on an instance of the guardrail, which must be closed once the instance is not used anymore
+     */
+    public InstanceHandle<? extends G> get() {
+        // the handle owns the dependent instance, unlike the instance which would keep it until it is destroyed itself
+        return shared != null ? shared : instance.getHandle();
+    }
+}
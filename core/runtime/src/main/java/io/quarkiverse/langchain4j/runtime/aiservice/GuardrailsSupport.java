@@ -3,7 +3,9 @@ package io.quarkiverse.langchain4j.runtime.aiservice;
 import static dev.langchain4j.data.message.UserMessage.userMessage;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import jakarta.enterprise.inject.spi.CDI;
 
@@ -18,6 +20,7 @@ import dev.langchain4j.rag.AugmentationResult;
 import io.quarkiverse.langchain4j.guardrails.Guardrail;
 import io.quarkiverse.langchain4j.guardrails.GuardrailParams;
 import io.quarkiverse.langchain4j.guardrails.GuardrailResult;
+import io.quarkiverse.langchain4j.guardrails.IncrementalOutputGuardrail;
 import io.quarkiverse.langchain4j.guardrails.InputGuardrail;
 import io.quarkiverse.langchain4j.guardrails.InputGuardrailParams;
 import io.quarkiverse.langchain4j.guardrails.InputGuardrailResult;
@@ -25,6 +28,7 @@ import io.quarkiverse.langchain4j.guardrails.OutputGuardrail;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrailParams;
 import io.quarkiverse.langchain4j.guardrails.OutputGuardrailResult;
 import io.quarkiverse.langchain4j.guardrails.OutputTokenAccumulator;
+import io.quarkus.arc.InstanceHandle;
 import io.smallrye.mutiny.Multi;
 
 public class GuardrailsSupport {
@@ -113,65 +117,33 @@ public class GuardrailsSupport {
         return new Response<>(content, response.tokenUsage(), response.finishReason(), response.metadata());
     }
 
-    @SuppressWarnings("unchecked")
     private static OutputGuardrailResult invokeOutputGuardRails(AiServiceMethodCreateInfo methodCreateInfo,
             OutputGuardrailParams params) {
         if (methodCreateInfo.getOutputGuardrailsClassNames().isEmpty()) {
             return OutputGuardrailResult.success();
         }
-        List<Class<? extends OutputGuardrail>> classes;
-        synchronized (AiServiceMethodImplementationSupport.class) {
-            classes = methodCreateInfo.getOutputGuardrailsClasses();
-            if (classes.isEmpty()) {
-                for (String className : methodCreateInfo.getOutputGuardrailsClassNames()) {
-                    try {
-                        classes.add((Class<? extends OutputGuardrail>) Class.forName(className, true,
-                                Thread.currentThread().getContextClassLoader()));
-                    } catch (Exception e) {
-                        throw new RuntimeException(
-                                "Could not find " + OutputGuardrail.class.getSimpleName() + " implementation class: "
-                                        + className,
-                                e);
-                    }
-                }
-            }
-        }
-
-        return guardrailResult(params, (List) classes, OutputGuardrailResult.success(), OutputGuardrailResult::failure);
+        return guardrailResult(methodCreateInfo, params, methodCreateInfo.getOutputGuardrails(),
+                OutputGuardrailResult.success(), OutputGuardrailResult::failure);
     }
 
-    @SuppressWarnings("unchecked")
     private static InputGuardrailResult invokeInputGuardRails(AiServiceMethodCreateInfo methodCreateInfo,
             InputGuardrailParams params) {
         if (methodCreateInfo.getInputGuardrailsClassNames().isEmpty()) {
             return InputGuardrailResult.success();
         }
-        List<Class<? extends InputGuardrail>> classes;
-        synchronized (AiServiceMethodImplementationSupport.class) {
-            classes = methodCreateInfo.getInputGuardrailsClasses();
-            if (classes.isEmpty()) {
-                for (String className : methodCreateInfo.getInputGuardrailsClassNames()) {
-                    try {
-                        classes.add((Class<? extends InputGuardrail>) Class.forName(className, true,
-                                Thread.currentThread().getContextClassLoader()));
-                    } catch (Exception e) {
-                        throw new RuntimeException(
-                                "Could not find " + InputGuardrail.class.getSimpleName() + " implementation class: "
-                                        + className,
-                                e);
-                    }
-                }
-            }
+        List<GuardrailBean<InputGuardrail>> guardrails = methodCreateInfo.getInputGuardrails();
+        if (methodCreateInfo.isInputGuardrailsConcurrent() && guardrails.size() > 1) {
+            return concurrentGuardrailResult(methodCreateInfo, params, guardrails);
         }
-
-        return guardrailResult(params, (List) classes, InputGuardrailResult.success(), InputGuardrailResult::failure);
+        return guardrailResult(methodCreateInfo, params, guardrails, InputGuardrailResult.success(),
+                InputGuardrailResult::failure);
     }
 
-    private static <GR extends GuardrailResult> GR guardrailResult(GuardrailParams params,
-            List<Class<? extends Guardrail>> classes, GR accumulatedResults,
+    private static <GR extends GuardrailResult> GR guardrailResult(AiServiceMethodCreateInfo methodCreateInfo,
+            GuardrailParams params, List<? extends GuardrailBean<?>> guardrails, GR accumulatedResults,
             Function<List<? extends GuardrailResult.Failure>, GR> producer) {
-        for (Class<? extends Guardrail> bean : classes) {
-            GR result = (GR) CDI.current().select(bean).get().validate(params).validatedBy(bean);
+        for (GuardrailBean<?> guardrail : guardrails) {
+            GR result = validate(methodCreateInfo, guardrail, params);
             if (result.isFatal()) {
                 return accumulatedResults.isRewrittenResult() ? (GR) result.blockRetry() : result;
             }
@@ -184,6 +156,73 @@ public class GuardrailsSupport {
         return accumulatedResults;
     }
 
+    /**
+     * Runs all the input guardrails at the same time, their results are then combined in the order of the guardrails,
+     * as if they had been run one after the other: the guardrails that follow a fatal result are cancelled.
+     */
+    private static InputGuardrailResult concurrentGuardrailResult(AiServiceMethodCreateInfo methodCreateInfo,
+            InputGuardrailParams params, List<GuardrailBean<InputGuardrail>> guardrails) {
+        List<Callable<InputGuardrailResult>> tasks = new ArrayList<>(guardrails.size());
+        for (GuardrailBean<InputGuardrail> guardrail : guardrails) {
+            tasks.add(new Callable<>() {
+                @Override
+                public InputGuardrailResult call() {
+                    return validate(methodCreateInfo, guardrail, params);
+                }
+            });
+        }
+        List<InputGuardrailResult> results = ConcurrentInvocations.invokeAll(tasks, new Predicate<>() {
+            @Override
+            public boolean test(InputGuardrailResult result) {
+                return result.isFatal();
+            }
+        });
+
+        InputGuardrailResult accumulatedResults = InputGuardrailResult.success();
+        for (InputGuardrailResult result : results) {
+            if (result.isFatal()) {
+                return result;
+            }
+            accumulatedResults = compose(accumulatedResults, result, InputGuardrailResult::failure);
+        }
+        return accumulatedResults;
+    }
+
+    private static <GR extends GuardrailResult> GR validate(AiServiceMethodCreateInfo methodCreateInfo,
+            GuardrailBean<?> guardrail, GuardrailParams params) {
+        if (methodCreateInfo.getMetricsTimedInfo().isEmpty()) {
+            return validate(guardrail, params);
+        }
+        // Micrometer is available
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            GR result = validate(guardrail, params);
+            success = result.isSuccess();
+            return result;
+        } finally {
+            MetricsGuardrails.recordDuration(methodCreateInfo, guardrail.guardrailClass(), System.nanoTime() - start,
+                    success);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <GR extends GuardrailResult> GR validate(GuardrailBean<?> guardrail, GuardrailParams params) {
+        GuardrailResult result;
+        try (InstanceHandle<? extends Guardrail> handle = guardrail.get()) {
+            Guardrail instance = handle.get();
+            result = instance.validate(params);
+            if ((result instanceof OutputGuardrailResult outputResult)
+                    && (outputResult.isPending() || outputResult.isAccepted())) {
+                // these results are only meaningful while a streamed response is validated incrementally, and
+                // IncrementalOutputGuardrail already turns them into a verdict on the complete response otherwise
+                result = ((OutputGuardrail) instance).fatal("Only an " + IncrementalOutputGuardrail.class.getSimpleName()
+                        + " validating a streamed response can return a pending or accepted result");
+            }
+        }
+        return (GR) result.validatedBy(guardrail.guardrailClass());
+    }
+
     private static <GR extends GuardrailResult> GR compose(GR oldResult, GR newResult,
             Function<List<? extends GuardrailResult.Failure>, GR> producer) {
         if (oldResult.isSuccess()) {
@@ -234,6 +273,42 @@ public class GuardrailsSupport {
         return invokeOutputGuardRails(methodCreateInfo, outputGuardrailParams);
     }
 
+    /**
+     * @return whether the streamed response of the method is validated incrementally, which is the case when all its
+     *         output guardrails are {@link IncrementalOutputGuardrail incremental} and no accumulator is configured
+     */
+    public static boolean isIncremental(AiServiceMethodCreateInfo methodCreateInfo) {
+        if (methodCreateInfo.getOutputGuardrailsClassNames().isEmpty()
+                || methodCreateInfo.getOutputTokenAccumulatorClassName() != null) {
+            return false;
+        }
+        for (GuardrailBean<OutputGuardrail> guardrail : methodCreateInfo.getOutputGuardrails()) {
+            if (!IncrementalOutputGuardrail.class.isAssignableFrom(guardrail.guardrailClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validates the streamed response with the incremental output guardrails of the method, releasing the tokens once
+     * they have been validated and failing as soon as a guardrail fails.
+     */
+    public static Multi<String> validateIncrementally(Multi<String> upstream, AiServiceMethodCreateInfo methodCreateInfo,
+            ChatMemory chatMemory, AugmentationResult augmentationResult, Map<String, Object> templateVariables) {
+        Map<String, Object> variables = Collections.unmodifiableMap(templateVariables);
+        // the state of the validation is specific to each subscription, as the stream is subscribed again on retry
+        return Multi.createFrom().deferred(() -> {
+            IncrementalOutputGuardrailsValidation validation = new IncrementalOutputGuardrailsValidation(
+                    methodCreateInfo.getOutputGuardrails(), chatMemory, augmentationResult,
+                    methodCreateInfo.getUserMessageTemplate(), variables);
+            return Multi.createBy().concatenating().streams(
+                    upstream.onItem().transformToIterable(validation::onToken),
+                    Multi.createFrom().deferred(() -> Multi.createFrom().iterable(validation.onCompletion())))
+                    .onTermination().invoke(validation::close);
+        });
+    }
+
     static class GuardrailRetryException extends RuntimeException {
         // Marker class to indicate a retry to the downstream consumer.
     }
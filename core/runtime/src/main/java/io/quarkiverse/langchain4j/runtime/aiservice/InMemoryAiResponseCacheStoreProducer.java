@@ -0,0 +1,23 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+import io.quarkiverse.langchain4j.CacheResult;
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore;
+import io.quarkiverse.langchain4j.cache.InMemoryAiResponseCacheStore;
+import io.quarkiverse.langchain4j.runtime.config.LangChain4jConfig;
+import io.quarkus.arc.DefaultBean;
+
+/**
+ * Creates the default {@link AiResponseCacheStore} store to be used by the methods annotated with {@link CacheResult}
+ */
+public class InMemoryAiResponseCacheStoreProducer {
+
+    @Produces
+    @Singleton
+    @DefaultBean
+    public AiResponseCacheStore responseCacheStore(LangChain4jConfig config) {
+        return new InMemoryAiResponseCacheStore(config.responseCache().maxSize());
+    }
+}
@@ -0,0 +1,217 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.rag.AugmentationResult;
+import io.quarkiverse.langchain4j.guardrails.IncrementalOutputGuardrail;
+import io.quarkiverse.langchain4j.guardrails.IncrementalOutputGuardrailParams;
+import io.quarkiverse.langchain4j.guardrails.OutputGuardrail;
+import io.quarkiverse.langchain4j.guardrails.OutputGuardrailResult;
+import io.quarkus.arc.InstanceHandle;
+
+/**
+ * The validation of a single streamed response by {@link IncrementalOutputGuardrail incremental output guardrails}.
+ * <p>
+ * The tokens are kept until all the guardrails validated the windows containing them, and are then released as a
+ * single chunk. Once all the guardrails accepted the response, the tokens are released as soon as they are received.
+ */
+final class IncrementalOutputGuardrailsValidation {
+
+    private final List<GuardrailState> guardrails;
+    private final List<InstanceHandle<? extends OutputGuardrail>> handles;
+    private final ChatMemory chatMemory;
+    private final AugmentationResult augmentationResult;
+    private final String userMessageTemplate;
+    private final Map<String, Object> variables;
+
+    private final StringBuilder response = new StringBuilder();
+    // the response is released to the caller up to this position
+    private int released;
+
+    IncrementalOutputGuardrailsValidation(List<GuardrailBean<OutputGuardrail>> beans, ChatMemory chatMemory,
+            AugmentationResult augmentationResult, String userMessageTemplate, Map<String, Object> variables) {
+        this.guardrails = new ArrayList<>(beans.size());
+        this.handles = new ArrayList<>(beans.size());
+        for (GuardrailBean<OutputGuardrail> bean : beans) {
+            InstanceHandle<? extends OutputGuardrail> handle = bean.get();
+            handles.add(handle);
+            guardrails.add(new GuardrailState(bean.guardrailClass(), (IncrementalOutputGuardrail) handle.get()));
+        }
+        this.chatMemory = chatMemory;
+        this.augmentationResult = augmentationResult;
+        this.userMessageTemplate = userMessageTemplate;
+        this.variables = variables;
+    }
+
+    /**
+     * @return the chunks that can be released to the caller once the token has been validated
+     */
+    List<String> onToken(String token) {
+        if (allAccepted()) {
+            return List.of(token);
+        }
+        response.append(token);
+        for (GuardrailState guardrail : guardrails) {
+            if (!guardrail.accepted) {
+                guardrail.window.append(token);
+                validateWindows(guardrail);
+            }
+        }
+        return release();
+    }
+
+    /**
+     * @return the chunks that can be released to the caller once the complete response has been validated
+     */
+    List<String> onCompletion() {
+        for (GuardrailState guardrail : guardrails) {
+            if (!guardrail.accepted) {
+                validate(guardrail, guardrail.window.length(), true);
+            }
+        }
+        return release();
+    }
+
+    /**
+     * Destroys the {@code @Dependent} guardrails once the stream is over, whether it completed, failed or was cancelled
+     */
+    void close() {
+        for (InstanceHandle<? extends OutputGuardrail> handle : handles) {
+            handle.close();
+        }
+    }
+
+    private void validateWindows(GuardrailState guardrail) {
+        int end;
+        while (!guardrail.accepted && (end = windowEnd(guardrail)) > 0) {
+            validate(guardrail, end, false);
+        }
+    }
+
+    /**
+     * @return the end of the next complete window of the guardrail, or {@code -1} if there is none yet
+     */
+    private static int windowEnd(GuardrailState guardrail) {
+        StringBuilder window = guardrail.window;
+        int length = window.length();
+        switch (guardrail.type) {
+            case TOKEN:
+                return length > guardrail.scanned ? length : -1;
+            case SENTENCE:
+                for (int i = guardrail.scanned; i < length; i++) {
+                    char c = window.charAt(i);
+                    if (c == '\n') {
+                        return i + 1;
+                    }
+                    if ((c == '.' || c == '!' || c == '?') && (i + 1 < length)
+                            && Character.isWhitespace(window.charAt(i + 1))) {
+                        return i + 2;
+                    }
+                }
+                // the last character may end a sentence once the next token is received
+                guardrail.scanned = Math.max(guardrail.scanned, length - 1);
+                return -1;
+            case PARAGRAPH:
+                int index = window.indexOf("\n\n", guardrail.scanned);
+                if (index >= 0) {
+                    return index + 2;
+                }
+                guardrail.scanned = Math.max(guardrail.scanned, length - 1);
+                return -1;
+            default:
+                throw new IllegalStateException("Unknown window: " + guardrail.type);
+        }
+    }
+
+    private void validate(GuardrailState guardrail, int end, boolean last) {
+        OutputGuardrailResult result;
+        try {
+            int responseEnd = guardrail.windowStart + end;
+            result = guardrail.guardrail.validate(new IncrementalOutputGuardrailParams(
+                    guardrail.window.substring(0, end), CharBuffer.wrap(response, 0, responseEnd), last, guardrail.state,
+                    chatMemory, augmentationResult, userMessageTemplate, variables))
+                    .validatedBy(guardrail.clazz);
+        } catch (Exception e) {
+            throw new GuardrailException(e.getMessage(), e);
+        }
+
+        if (!result.isSuccess()) {
+            if (result.isRetry() && released == 0) {
+                if (result.getReprompt() != null) {
+                    chatMemory.add(new UserMessage(result.getReprompt()));
+                }
+                throw new GuardrailsSupport.GuardrailRetryException();
+            }
+            throw new GuardrailException(result.toString(), result.getFirstFailureException());
+        }
+        if (result.isRewrittenResult()) {
+            throw new GuardrailException("Attempting to rewrite the LLM output while streaming is not allowed");
+        }
+        if (result.isAccepted()) {
+            guardrail.accepted = true;
+            guardrail.window.setLength(0);
+        } else if (result.isPending()) {
+            if (last) {
+                throw new GuardrailException("The guardrail " + guardrail.clazz.getName()
+                        + " did not reach a verdict on the complete response");
+            }
+            // the window is validated again with the next one
+            guardrail.scanned = end;
+        } else {
+            guardrail.window.delete(0, end);
+            guardrail.windowStart += end;
+            guardrail.scanned = 0;
+        }
+    }
+
+    private List<String> release() {
+        int validated = response.length();
+        for (GuardrailState guardrail : guardrails) {
+            if (!guardrail.accepted) {
+                validated = Math.min(validated, guardrail.windowStart);
+            }
+        }
+        if (validated == released) {
+            return Collections.emptyList();
+        }
+        String chunk = response.substring(released, validated);
+        released = validated;
+        return List.of(chunk);
+    }
+
+    private boolean allAccepted() {
+        for (GuardrailState guardrail : guardrails) {
+            if (!guardrail.accepted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class GuardrailState {
+
+        private final Class<? extends OutputGuardrail> clazz;
+        private final IncrementalOutputGuardrail guardrail;
+        private final IncrementalOutputGuardrail.Window type;
+        private final Map<String, Object> state = new HashMap<>();
+        // the text that has not been validated yet, which starts at windowStart in the response
+        private final StringBuilder window = new StringBuilder();
+        private int windowStart;
+        // the window has no end before this position
+        private int scanned;
+        private boolean accepted;
+
+        private GuardrailState(Class<? extends OutputGuardrail> clazz, IncrementalOutputGuardrail guardrail) {
+            this.clazz = clazz;
+            this.guardrail = guardrail;
+            this.type = guardrail.window();
+        }
+    }
+}
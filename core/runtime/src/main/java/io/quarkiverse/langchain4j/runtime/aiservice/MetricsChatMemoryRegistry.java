@@ -0,0 +1,49 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * A {@link ChatMemoryRegistry} that exposes the number of memories it holds and the number of memories it evicted,
+ * kept in its own class as Micrometer is an optional dependency.
+ * <p>
+ * The metrics are tagged with the AI service, and cover all the instances of the AI service when it is not
+ * application scoped.
+ */
+public class MetricsChatMemoryRegistry extends ChatMemoryRegistry {
+
+    private static final Map<String, AtomicLong> SIZES = new ConcurrentHashMap<>();
+
+    private final AtomicLong size;
+    private final Counter evictions;
+
+    public MetricsChatMemoryRegistry(Integer maxSize, Duration expireAfterAccess, String aiServiceClassName) {
+        super(maxSize, expireAfterAccess);
+        Tags tags = Tags.of("ai_service.class_name", aiServiceClassName);
+        this.size = SIZES.computeIfAbsent(aiServiceClassName, name -> Metrics.globalRegistry
+                .gauge("langchain4j.chat.memory.registry.size", tags, new AtomicLong()));
+        this.evictions = Counter.builder("langchain4j.chat.memory.registry.evictions")
+                .description("Number of chat memories evicted from the memory of an AI service")
+                .tags(tags)
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    protected void onAdded() {
+        size.incrementAndGet();
+    }
+
+    @Override
+    protected void onRemoved(boolean evicted) {
+        size.decrementAndGet();
+        if (evicted) {
+            evictions.increment();
+        }
+    }
+}
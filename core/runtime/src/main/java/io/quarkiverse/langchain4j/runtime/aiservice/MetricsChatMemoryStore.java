@@ -0,0 +1,101 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.List;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.quarkiverse.langchain4j.memory.AppendableChatMemoryStore;
+import io.quarkiverse.langchain4j.runtime.ContextLocals;
+
+/**
+ * Counts the reads and the writes of a {@link ChatMemoryStore}, per AI service method, which makes it possible to
+ * follow how many times the store is accessed per invocation.
+ * <p>
+ * This is kept in its own class as Micrometer is an optional dependency.
+ */
+public class MetricsChatMemoryStore implements ChatMemoryStore {
+
+    private static final Meter.MeterProvider<Counter> READS = Counter.builder("langchain4j.chat.memory.store.reads")
+            .description("Number of times the messages of a chat memory were read from the store")
+            .withRegistry(Metrics.globalRegistry);
+    private static final Meter.MeterProvider<Counter> WRITES = Counter.builder("langchain4j.chat.memory.store.writes")
+            .description("Number of times the messages of a chat memory were written to the store")
+            .withRegistry(Metrics.globalRegistry);
+
+    private final ChatMemoryStore delegate;
+
+    private MetricsChatMemoryStore(ChatMemoryStore delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return a store that counts the accesses to {@code delegate}, and which is an {@link AppendableChatMemoryStore}
+     *         if {@code delegate} is one
+     */
+    public static ChatMemoryStore wrap(ChatMemoryStore delegate) {
+        if (delegate instanceof AppendableChatMemoryStore appendable) {
+            return new Appendable(appendable);
+        }
+        return new MetricsChatMemoryStore(delegate);
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        READS.withTags(tags()).increment();
+        return delegate.getMessages(memoryId);
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        WRITES.withTags(tags()).increment();
+        delegate.updateMessages(memoryId, messages);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        WRITES.withTags(tags()).increment();
+        delegate.deleteMessages(memoryId);
+    }
+
+    static Tags tags() {
+        Tags tags = Tags.empty();
+        if (ContextLocals.duplicatedContextActive()) {
+            String aiServiceClassName = ContextLocals.get(AiServiceConstants.AI_SERVICE_CLASS_NAME);
+            if (aiServiceClassName != null) {
+                tags = tags.and("ai_service.class_name", aiServiceClassName);
+            }
+            String aiServiceMethodName = ContextLocals.get(AiServiceConstants.AI_SERVICE_METHODNAME);
+            if (aiServiceMethodName != null) {
+                tags = tags.and("ai_service.method_name", aiServiceMethodName);
+            }
+        }
+        return tags;
+    }
+
+    private static class Appendable extends MetricsChatMemoryStore implements AppendableChatMemoryStore {
+
+        private final AppendableChatMemoryStore delegate;
+
+        Appendable(AppendableChatMemoryStore delegate) {
+            super(delegate);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean replaceMessages(Object memoryId, List<ChatMessage> expectedMessages, int fromIndex,
+                int removeCount, List<ChatMessage> messages) {
+            WRITES.withTags(tags()).increment();
+            return delegate.replaceMessages(memoryId, expectedMessages, fromIndex, removeCount, messages);
+        }
+
+        @Override
+        public boolean appendMessages(Object memoryId, List<ChatMessage> expectedMessages, List<ChatMessage> messages) {
+            WRITES.withTags(tags()).increment();
+            return delegate.appendMessages(memoryId, expectedMessages, messages);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.quarkiverse.langchain4j.guardrails.Guardrail;
+
+/**
+ * Records the duration of each guardrail validation, per guardrail and per AI service method.
+ * <p>
+ * This is kept in its own class as Micrometer is an optional dependency.
+ */
+final class MetricsGuardrails {
+
+    private MetricsGuardrails() {
+    }
+
+    static void recordDuration(AiServiceMethodCreateInfo methodCreateInfo, Class<? extends Guardrail> guardrailClass,
+            long durationNanos, boolean success) {
+        // the tags are not taken from the context locals, as the input guardrails can run on other threads
+        Timer.builder("langchain4j.guardrail.duration")
+                .description("Duration of the validations of a guardrail")
+                .tag("ai_service.class_name", methodCreateInfo.getInterfaceName())
+                .tag("ai_service.method_name", methodCreateInfo.getMethodName())
+                .tag("guardrail", guardrailClass.getName())
+                .tag("outcome", success ? "success" : "failure")
+                .register(Metrics.globalRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,34 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Counts the hits and the misses of the response cache, per AI service method.
+ * <p>
+ * This is kept in its own class as Micrometer is an optional dependency.
+ */
+final class MetricsResponseCache {
+
+    private MetricsResponseCache() {
+    }
+
+    static void recordHit(AiServiceMethodCreateInfo methodCreateInfo, boolean semantic) {
+        Counter.builder("langchain4j.response.cache.hits")
+                .description("Number of AI service invocations whose response was found in the cache")
+                .tag("ai_service.class_name", methodCreateInfo.getInterfaceName())
+                .tag("ai_service.method_name", methodCreateInfo.getMethodName())
+                .tag("mode", semantic ? "semantic" : "exact")
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    static void recordMiss(AiServiceMethodCreateInfo methodCreateInfo) {
+        Counter.builder("langchain4j.response.cache.misses")
+                .description("Number of AI service invocations whose response was not found in the cache")
+                .tag("ai_service.class_name", methodCreateInfo.getInterfaceName())
+                .tag("ai_service.method_name", methodCreateInfo.getMethodName())
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+}
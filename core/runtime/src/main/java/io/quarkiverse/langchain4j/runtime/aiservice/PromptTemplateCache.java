@@ -0,0 +1,46 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dev.langchain4j.model.input.PromptTemplate;
+
+/**
+ * A bounded, least-recently-used cache of parsed {@link PromptTemplate}s.
+ * <p>
+ * This is used for templates that are only known at runtime (for example when the template text is passed
+ * as a method parameter) so that repeated invocations with the same text don't need to re-parse the template.
+ */
+class PromptTemplateCache {
+
+    private final int maxSize;
+    private final Map<String, PromptTemplate> templates;
+
+    PromptTemplateCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PromptTemplate> eldest) {
+                return size() > PromptTemplateCache.this.maxSize;
+            }
+        };
+    }
+
+    PromptTemplate get(String text) {
+        if (maxSize <= 0) {
+            return PromptTemplate.from(text);
+        }
+        synchronized (templates) {
+            PromptTemplate template = templates.get(text);
+            if (template != null) {
+                return template;
+            }
+        }
+        // parse outside the lock, if two threads race on the same text the result is identical
+        PromptTemplate template = PromptTemplate.from(text);
+        synchronized (templates) {
+            templates.put(text, template);
+        }
+        return template;
+    }
+}
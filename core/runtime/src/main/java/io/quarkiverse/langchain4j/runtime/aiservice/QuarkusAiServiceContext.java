@@ -13,6 +13,7 @@ public class QuarkusAiServiceContext extends AiServiceContext {
     public AuditService auditService;
     public ChatMemorySeeder chatMemorySeeder;
     public ImageModel imageModel;
+    public boolean parallelToolExecution;
 
     // needed by Arc
     public QuarkusAiServiceContext() {
@@ -39,6 +40,7 @@ public class QuarkusAiServiceContext extends AiServiceContext {
                     chatMemory.clear();
                 }
             });
+            chatMemories.clear();
             chatMemories = null;
         }
     }
@@ -54,9 +56,11 @@ public class QuarkusAiServiceContext extends AiServiceContext {
         }
         for (Object id : ids) {
             ChatMemory chatMemory = chatMemories.remove(id);
-            if (chatMemory != null) {
-                chatMemory.clear();
+            if (chatMemory == null) {
+                // the memory was evicted, or was not used by this instance, but its messages can be in the store
+                chatMemory = chatMemoryProvider.get(id);
             }
+            chatMemory.clear();
         }
     }
 }
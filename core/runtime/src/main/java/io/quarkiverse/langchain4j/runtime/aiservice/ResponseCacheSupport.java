@@ -0,0 +1,283 @@
+package io.quarkiverse.langchain4j.runtime.aiservice;
+
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import io.quarkiverse.langchain4j.CacheResult;
+import io.quarkiverse.langchain4j.ModelName;
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore;
+import io.quarkiverse.langchain4j.runtime.NamedConfigUtil;
+import io.quarkiverse.langchain4j.runtime.config.LangChain4jConfig;
+import io.quarkiverse.langchain4j.runtime.config.ResponseCacheConfig;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ClientProxy;
+
+/**
+ * Looks up and stores the responses of the AI service methods annotated with {@link CacheResult}.
+ * <p>
+ * The key of a response is a hash of the AI service method, the chat model and its parameters, the tools and all the
+ * messages sent to the model. In semantic mode, the responses are also grouped by a hash of everything but the last
+ * message, and of the embedding model, so that a response can be reused when only the last message differs, as long as
+ * the embeddings of both messages are similar enough.
+ */
+final class ResponseCacheSupport {
+
+    private static final String PROVIDERS_CONFIG_PREFIX = "quarkus.langchain4j.";
+    private static final String CHAT_MODEL_CONFIG_SEGMENT = "chat-model.";
+
+    private ResponseCacheSupport() {
+    }
+
+    /**
+     * @return the lookup of the response to the messages, or {@code null} if the method does not cache its responses
+     */
+    static Lookup lookup(AiServiceMethodCreateInfo methodCreateInfo, ChatLanguageModel chatModel,
+            List<ChatMessage> messagesToSend, List<ToolSpecification> toolSpecifications) {
+        Optional<ResponseCache> responseCache = methodCreateInfo.getResponseCache();
+        if (responseCache.isEmpty()) {
+            return null;
+        }
+        ResponseCache cache = responseCache.get();
+        String model = cache.modelIdentity(chatModel);
+        Lookup lookup = new Lookup(cache,
+                hash(methodCreateInfo, model, toolSpecifications, messagesToSend, messagesToSend.size()));
+
+        lookup.response = cache.store.get(lookup.key);
+        if ((lookup.response == null) && (cache.embeddingModel != null)) {
+            ChatMessage lastMessage = messagesToSend.get(messagesToSend.size() - 1);
+            if ((lastMessage instanceof UserMessage userMessage) && userMessage.hasSingleText()) {
+                // the embeddings of different embedding models cannot be compared
+                lookup.namespace = hash(methodCreateInfo, model + "\n" + cache.embeddingModelIdentity,
+                        toolSpecifications, messagesToSend, messagesToSend.size() - 1);
+                lookup.text = userMessage.singleText();
+                List<AiResponseCacheStore.SemanticEntry> entries = cache.store.getSemanticEntries(lookup.namespace);
+                // the message only needs to be embedded right away if there is something to compare it with
+                if (!entries.isEmpty()) {
+                    lookup.embedding = cache.embeddingModel.embed(lookup.text).content();
+                    lookup.response = mostSimilar(cache, entries, lookup.embedding);
+                    lookup.semanticHit = lookup.response != null;
+                }
+            }
+        }
+
+        if (methodCreateInfo.getMetricsTimedInfo().isPresent()) {
+            // Micrometer is available
+            if (lookup.response != null) {
+                MetricsResponseCache.recordHit(methodCreateInfo, lookup.semanticHit);
+            } else {
+                MetricsResponseCache.recordMiss(methodCreateInfo);
+            }
+        }
+        return lookup;
+    }
+
+    private static AiMessage mostSimilar(ResponseCache cache, List<AiResponseCacheStore.SemanticEntry> entries,
+            Embedding embedding) {
+        AiMessage response = null;
+        double bestSimilarity = cache.semanticThreshold;
+        for (AiResponseCacheStore.SemanticEntry entry : entries) {
+            double similarity = CosineSimilarity.between(embedding, entry.embedding());
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                response = entry.response();
+            }
+        }
+        return response;
+    }
+
+    private static String hash(AiServiceMethodCreateInfo methodCreateInfo, String model,
+            List<ToolSpecification> toolSpecifications, List<ChatMessage> messages, int messageCount) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, methodCreateInfo.getInterfaceName());
+        update(digest, methodCreateInfo.getMethodName());
+        update(digest, model);
+        if (toolSpecifications != null) {
+            for (ToolSpecification toolSpecification : toolSpecifications) {
+                update(digest, toolSpecification.toString());
+            }
+        }
+        for (int i = 0; i < messageCount; i++) {
+            update(digest, ChatMessageSerializer.messageToJson(messages.get(i)));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separates the values, so that their concatenation is not ambiguous
+        digest.update((byte) 0);
+    }
+
+    /**
+     * The response cache of an AI service method, resolved the first time the method is invoked.
+     */
+    static final class ResponseCache {
+
+        private final AiResponseCacheStore store;
+        private final Duration ttl;
+        private final EmbeddingModel embeddingModel;
+        private final String embeddingModelIdentity;
+        private final double semanticThreshold;
+        // the key is the name of the chat model
+        private final Map<String, String> chatModelParameters = new ConcurrentHashMap<>();
+
+        private ResponseCache(AiResponseCacheStore store, Duration ttl, EmbeddingModel embeddingModel,
+                String embeddingModelIdentity, double semanticThreshold) {
+            this.store = store;
+            this.ttl = ttl;
+            this.embeddingModel = embeddingModel;
+            this.embeddingModelIdentity = embeddingModelIdentity;
+            this.semanticThreshold = semanticThreshold;
+        }
+
+        static ResponseCache create(AiServiceMethodCreateInfo.ResponseCacheInfo info) {
+            ResponseCacheConfig config = Arc.container().select(LangChain4jConfig.class).get().responseCache();
+            EmbeddingModel embeddingModel = null;
+            String embeddingModelIdentity = null;
+            if (info.semantic()) {
+                String embeddingModelName = config.embeddingModelName().orElse(NamedConfigUtil.DEFAULT_NAME);
+                if (NamedConfigUtil.isDefault(embeddingModelName)) {
+                    embeddingModel = Arc.container().select(EmbeddingModel.class).get();
+                } else {
+                    embeddingModel = Arc.container()
+                            .select(EmbeddingModel.class, ModelName.Literal.of(embeddingModelName)).get();
+                }
+                embeddingModelIdentity = ClientProxy.unwrap(embeddingModel).getClass().getName() + "\n"
+                        + embeddingModelName;
+            }
+            return new ResponseCache(Arc.container().select(AiResponseCacheStore.class).get(), config.ttl().orElse(null),
+                    embeddingModel, embeddingModelIdentity, config.semanticThreshold());
+        }
+
+        /**
+         * @return what identifies the chat model and its parameters, so that the responses of a model are not reused
+         *         once the model or its configuration changed, which matters for the stores shared by several
+         *         applications or outliving them
+         */
+        String modelIdentity(ChatLanguageModel chatModel) {
+            String modelName = NamedConfigUtil.DEFAULT_NAME;
+            Object model = chatModel;
+            if (chatModel instanceof ClientProxy clientProxy) {
+                for (Annotation qualifier : clientProxy.arc_bean().getQualifiers()) {
+                    if (qualifier instanceof ModelName name) {
+                        modelName = name.value();
+                    }
+                }
+                model = clientProxy.arc_contextualInstance();
+            }
+            return model.getClass().getName() + "\n" + modelName + "\n"
+                    + chatModelParameters.computeIfAbsent(modelName, new Function<>() {
+                        @Override
+                        public String apply(String modelName) {
+                            return chatModelParameters(modelName);
+                        }
+                    });
+        }
+
+        /**
+         * The chat model parameters are configured by each model provider, under
+         * {@code quarkus.langchain4j.<provider>.chat-model} for the default model and
+         * {@code quarkus.langchain4j.<provider>.<model name>.chat-model} for a named model, so they are looked up by
+         * their names as the core extension does not know the configuration of the providers.
+         */
+        private static String chatModelParameters(String modelName) {
+            String namedPrefix = modelName + "." + CHAT_MODEL_CONFIG_SEGMENT;
+            String quotedNamedPrefix = "\"" + modelName + "\"." + CHAT_MODEL_CONFIG_SEGMENT;
+            Config config = ConfigProvider.getConfig();
+            List<String> names = new ArrayList<>();
+            for (String name : config.getPropertyNames()) {
+                if (!name.startsWith(PROVIDERS_CONFIG_PREFIX)) {
+                    continue;
+                }
+                int providerEnd = name.indexOf('.', PROVIDERS_CONFIG_PREFIX.length());
+                if (providerEnd < 0) {
+                    continue;
+                }
+                String providerProperty = name.substring(providerEnd + 1);
+                if (NamedConfigUtil.isDefault(modelName) ? providerProperty.startsWith(CHAT_MODEL_CONFIG_SEGMENT)
+                        : (providerProperty.startsWith(namedPrefix) || providerProperty.startsWith(quotedNamedPrefix))) {
+                    names.add(name);
+                }
+            }
+            Collections.sort(names);
+            StringBuilder parameters = new StringBuilder();
+            for (String name : names) {
+                parameters.append(name).append('=').append(config.getOptionalValue(name, String.class).orElse(""))
+                        .append('\n');
+            }
+            return parameters.toString();
+        }
+    }
+
+    /**
+     * The lookup of the response to the messages sent to the model by a single invocation.
+     */
+    static final class Lookup {
+
+        private final ResponseCache cache;
+        private final String key;
+        private String namespace;
+        // the last message, which is embedded when it is first compared with the cached ones or when it is stored
+        private String text;
+        private Embedding embedding;
+        private AiMessage response;
+        private boolean semanticHit;
+
+        private Lookup(ResponseCache cache, String key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        /**
+         * @return the cached response, or {@code null} if there is none
+         */
+        AiMessage response() {
+            return response;
+        }
+
+        /**
+         * Caches the final response of the model, once it has been validated by the output guardrails
+         */
+        void store(AiMessage response) {
+            if (response.hasToolExecutionRequests()) {
+                return;
+            }
+            cache.store.put(key, response, cache.ttl);
+            if (namespace != null) {
+                if (embedding == null) {
+                    embedding = cache.embeddingModel.embed(text).content();
+                }
+                cache.store.addSemanticEntry(namespace, new AiResponseCacheStore.SemanticEntry(embedding, response),
+                        cache.ttl);
+            }
+        }
+    }
+}
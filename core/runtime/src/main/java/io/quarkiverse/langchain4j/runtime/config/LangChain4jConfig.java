@@ -8,11 +8,14 @@ import java.util.Optional;
 import io.quarkus.runtime.annotations.ConfigDocDefault;
 import io.quarkus.runtime.annotations.ConfigRoot;
 import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
 
 @ConfigRoot(phase = RUN_TIME)
 @ConfigMapping(prefix = "quarkus.langchain4j")
 public interface LangChain4jConfig {
 
+    int TEMPLATE_CACHE_SIZE_DEFAULT = 100;
+
     /**
      * Whether clients should log requests
      */
@@ -31,8 +34,22 @@ public interface LangChain4jConfig {
     @ConfigDocDefault("10s")
     Optional<Duration> timeout();
 
+    /**
+     * The maximum number of parsed templates that are cached for each AI service method whose template is only known at
+     * runtime (for example when the {@code @UserMessage} is passed as a method parameter).
+     * Templates known at build time are always parsed only once.
+     * Sets it to 0 to disable caching.
+     */
+    @WithDefault("" + TEMPLATE_CACHE_SIZE_DEFAULT)
+    int templateCacheSize();
+
     /**
      * Guardrails configuration
      */
     GuardrailsConfig guardrails();
+
+    /**
+     * Configuration of the cache used by the AI service methods annotated with {@code @CacheResult}
+     */
+    ResponseCacheConfig responseCache();
 }
@@ -0,0 +1,41 @@
+package io.quarkiverse.langchain4j.runtime.config;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import io.quarkus.runtime.annotations.ConfigDocDefault;
+import io.smallrye.config.WithDefault;
+
+public interface ResponseCacheConfig {
+
+    int MAX_SIZE_DEFAULT = 1000;
+    double SEMANTIC_THRESHOLD_DEFAULT = 0.95;
+
+    /**
+     * The maximum number of responses kept by the default in-memory cache, the least recently used ones being evicted
+     * first.
+     * In semantic mode, this is also the maximum number of responses kept for the semantic lookups, across all the
+     * conversations.
+     */
+    @WithDefault("" + MAX_SIZE_DEFAULT)
+    int maxSize();
+
+    /**
+     * How long a cached response is kept.
+     */
+    @ConfigDocDefault("no expiration")
+    Optional<Duration> ttl();
+
+    /**
+     * The minimum cosine similarity between the embeddings of the last messages sent to the model for a cached
+     * response to be reused, when the cache is used in semantic mode.
+     */
+    @WithDefault("" + SEMANTIC_THRESHOLD_DEFAULT)
+    double semanticThreshold();
+
+    /**
+     * The name of the embedding model used in semantic mode.
+     * If not set, the default embedding model is used.
+     */
+    Optional<String> embeddingModelName();
+}
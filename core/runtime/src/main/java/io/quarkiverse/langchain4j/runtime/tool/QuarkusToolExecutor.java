@@ -1,9 +1,6 @@
 package io.quarkiverse.langchain4j.runtime.tool;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
 import java.util.function.BiFunction;
 
 import org.jboss.logging.Logger;
@@ -14,7 +11,7 @@ import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.internal.Json;
 import dev.langchain4j.service.tool.ToolExecutor;
 import io.quarkiverse.langchain4j.QuarkusJsonCodecFactory;
-import io.quarkiverse.langchain4j.runtime.prompt.Mappable;
+import io.quarkiverse.langchain4j.runtime.ToolsRecorder;
 
 public class QuarkusToolExecutor implements ToolExecutor {
 
@@ -22,7 +19,17 @@ public class QuarkusToolExecutor implements ToolExecutor {
 
     private final Context context;
 
-    public record Context(Object tool, String toolInvokerName, String methodName, String argumentMapperClassName) {
+    /**
+     * @param invoker the (shared) invoker of the tool method
+     * @param argumentMapperClass the class into which the JSON arguments of the tool execution request are deserialized
+     */
+    public record Context(Object tool, ToolInvoker invoker, String methodName,
+            Class<? extends ToolArgumentMapper> argumentMapperClass) {
+
+        public Context(Object tool, String toolInvokerName, String methodName, String argumentMapperClassName) {
+            this(tool, ToolsRecorder.toolInvoker(toolInvokerName), methodName,
+                    ToolsRecorder.argumentMapperClass(argumentMapperClassName));
+        }
     }
 
     public interface Wrapper {
@@ -38,7 +45,7 @@ public class QuarkusToolExecutor implements ToolExecutor {
     public String execute(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
         log.debugv("About to execute {0}", toolExecutionRequest);
 
-        ToolInvoker invokerInstance = createInvokerInstance();
+        ToolInvoker invokerInstance = context.invoker;
 
         Object[] params = prepareArguments(toolExecutionRequest, invokerInstance.methodMetadata(), memoryId);
         try {
@@ -66,75 +73,34 @@ public class QuarkusToolExecutor implements ToolExecutor {
         return Json.toJson(invocationResult);
     }
 
-    // TODO: cache
-    private ToolInvoker createInvokerInstance() {
-        ToolInvoker invokerInstance;
-        try {
-            invokerInstance = (ToolInvoker) Class.forName(context.toolInvokerName, true, Thread.currentThread()
-                    .getContextClassLoader()).getConstructor().newInstance();
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException
-                | InvocationTargetException e) {
-            throw new IllegalStateException(
-                    "Unable to create instance of '" + context.toolInvokerName
-                            + "'. Please report this issue to the maintainers",
-                    e);
-        }
-        return invokerInstance;
-    }
-
     private Object[] prepareArguments(ToolExecutionRequest toolExecutionRequest,
             ToolInvoker.MethodMetadata methodMetadata, Object memoryId) {
         String argumentsJsonStr = toolExecutionRequest.arguments();
-        Map<String, Object> argumentsFromRequest;
+        int paramCount = methodMetadata.getNameToParamPosition().size();
+        if (argumentsJsonStr == null || argumentsJsonStr.isEmpty()) {
+            if (paramCount > 0) {
+                invalidMethodParams(argumentsJsonStr);
+            }
+            return new Object[0];
+        }
+
+        Object[] finalArgs = new Object[paramCount];
         try {
-            log.debugv("Attempting to convert {0} JSON string into args map", argumentsJsonStr);
-            argumentsFromRequest = convertJsonToArguments(argumentsJsonStr);
-            log.debugv("Converted {0} JSON string into args map {1}", argumentsJsonStr, argumentsFromRequest);
+            log.debugv("Attempting to convert {0} JSON string into args", argumentsJsonStr);
+            ToolArgumentMapper argumentMapper = QuarkusJsonCodecFactory.ObjectMapperHolder.MAPPER.readValue(argumentsJsonStr,
+                    context.argumentMapperClass);
+            argumentMapper.mapTo(finalArgs);
         } catch (JsonProcessingException e) {
             log.error(e);
             invalidMethodParams(argumentsJsonStr);
             return null; //keep the compiler happy
         }
-        if (argumentsFromRequest.size() != methodMetadata.getNameToParamPosition().size()) {
-            invalidMethodParams(argumentsJsonStr);
-        }
-
-        Object[] finalArgs = new Object[argumentsFromRequest.size()];
-        for (var entry : argumentsFromRequest.entrySet()) {
-            Integer pos = methodMetadata.getNameToParamPosition().get(entry.getKey());
-            if (pos == null) {
-                invalidMethodParams(argumentsJsonStr);
-            } else {
-                finalArgs[pos] = entry.getValue();
-            }
-        }
         if (memoryId != null && methodMetadata.getMemoryIdParamPosition() != null) {
             finalArgs[methodMetadata.getMemoryIdParamPosition()] = memoryId;
         }
         return finalArgs;
     }
 
-    private Map<String, Object> convertJsonToArguments(String argumentsJsonStr) throws JsonProcessingException {
-        if (argumentsJsonStr == null || argumentsJsonStr.isEmpty()) {
-            return Collections.emptyMap();
-        }
-        Mappable mappable = QuarkusJsonCodecFactory.ObjectMapperHolder.MAPPER.readValue(argumentsJsonStr, loadMapperClass());
-        return mappable.obtainFieldValuesMap();
-    }
-
-    @SuppressWarnings("unchecked")
-    private Class<? extends Mappable> loadMapperClass() {
-        try {
-            return (Class<? extends Mappable>) Class.forName(context.argumentMapperClassName, true, Thread.currentThread()
-                    .getContextClassLoader());
-        } catch (ClassNotFoundException e) {
-            throw new IllegalStateException(
-                    "Unable to load argument mapper of '" + context.toolInvokerName
-                            + "'. Please report this issue to the maintainers",
-                    e);
-        }
-    }
-
     private void invalidMethodParams(String argumentsJsonStr) {
         throw new IllegalArgumentException("params '" + argumentsJsonStr
                 + "' from request do not map onto the parameters needed by '" + context.tool.getClass().getName() + "#"
@@ -0,0 +1,13 @@
+package io.quarkiverse.langchain4j.runtime.tool;
+
+/**
+ * Implemented by the classes generated for each tool method into which the JSON arguments of a tool execution request
+ * are deserialized.
+ */
+public interface ToolArgumentMapper {
+
+    /**
+     * Writes the deserialized arguments into {@code params} at the position of the corresponding method parameter
+     */
+    void mapTo(Object[] params);
+}
@@ -1,8 +1,14 @@
 package org.acme.example.jlama.chat;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
 
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 
 @Path("embedding")
@@ -18,4 +24,24 @@ public class EmbeddingModelResource {
     public int blocking() {
         return embeddingModel.embed("When was the nobel prize for economics first awarded?").content().dimension();
     }
+
+    /**
+     * Embeds the given number of segments at once and returns the number of segments embedded per second, which is
+     * what matters when documents are ingested
+     */
+    @GET
+    @Path("throughput")
+    public double throughput(@QueryParam("segments") @DefaultValue("256") int segments) {
+        List<TextSegment> textSegments = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            textSegments.add(TextSegment.from("Segment " + i
+                    + ": the nobel prize for economics was first awarded in 1969, to Ragnar Frisch and Jan Tinbergen."));
+        }
+        // warm up
+        embeddingModel.embedAll(textSegments.subList(0, Math.min(16, segments)));
+
+        long start = System.nanoTime();
+        embeddingModel.embedAll(textSegments);
+        return segments / ((System.nanoTime() - start) / 1_000_000_000d);
+    }
 }
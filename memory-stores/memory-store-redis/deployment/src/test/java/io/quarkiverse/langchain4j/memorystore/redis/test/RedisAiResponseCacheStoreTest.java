@@ -0,0 +1,93 @@
+package io.quarkiverse.langchain4j.memorystore.redis.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore.SemanticEntry;
+import io.quarkiverse.langchain4j.memorystore.RedisAiResponseCacheStore;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class RedisAiResponseCacheStoreTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class))
+            .overrideRuntimeConfigKey("quarkus.langchain4j.openai.api-key", "test");
+
+    @Inject
+    RedisDataSource redisDataSource;
+
+    RedisAiResponseCacheStore store;
+
+    @BeforeEach
+    void setUp() {
+        redisDataSource.flushall();
+        store = new RedisAiResponseCacheStore(redisDataSource, 2);
+    }
+
+    @Test
+    void should_return_the_stored_response() {
+        store.put("key", AiMessage.from("cached"), null);
+
+        assertThat(store.get("key")).isEqualTo(AiMessage.from("cached"));
+        assertThat(store.get("other")).isNull();
+    }
+
+    @Test
+    void should_expire_the_response_after_its_ttl() throws InterruptedException {
+        store.put("key", AiMessage.from("cached"), Duration.ofMillis(200));
+        assertThat(store.get("key")).isEqualTo(AiMessage.from("cached"));
+
+        Thread.sleep(500);
+
+        assertThat(store.get("key")).isNull();
+    }
+
+    @Test
+    void should_keep_the_latest_semantic_entries_of_each_namespace() {
+        store.addSemanticEntry("namespace", entry(1, "first"), null);
+        store.addSemanticEntry("namespace", entry(2, "second"), null);
+        store.addSemanticEntry("namespace", entry(3, "third"), null);
+        store.addSemanticEntry("other", entry(4, "fourth"), null);
+
+        assertThat(store.getSemanticEntries("namespace"))
+                .extracting(e -> e.response().text(), e -> e.embedding().vector()[0])
+                .containsExactly(tuple("second", 2f), tuple("third", 3f));
+        assertThat(store.getSemanticEntries("other")).extracting(e -> e.response().text()).containsExactly("fourth");
+        assertThat(store.getSemanticEntries("unknown")).isEmpty();
+    }
+
+    @Test
+    void should_expire_the_semantic_entries_after_the_ttl_of_the_last_one() throws InterruptedException {
+        store.addSemanticEntry("namespace", entry(1, "first"), Duration.ofMillis(200));
+        assertThat(store.getSemanticEntries("namespace")).hasSize(1);
+
+        Thread.sleep(500);
+
+        assertThat(store.getSemanticEntries("namespace")).isEmpty();
+    }
+
+    @Test
+    void should_reject_a_non_positive_size() {
+        assertThatThrownBy(() -> new RedisAiResponseCacheStore(redisDataSource, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SemanticEntry entry(float value, String response) {
+        return new SemanticEntry(Embedding.from(new float[] { value, 0 }), AiMessage.from(response));
+    }
+}
@@ -0,0 +1,114 @@
+package io.quarkiverse.langchain4j.memorystore.redis.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.quarkiverse.langchain4j.memorystore.RedisChatMemoryStore;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.keys.RedisValueType;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class RedisChatMemoryStoreUpdatesTest {
+
+    private static final String MEMORY_ID = "updates";
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class))
+            .overrideRuntimeConfigKey("quarkus.langchain4j.openai.api-key", "test");
+
+    @Inject
+    ChatMemoryStore chatMemoryStore;
+
+    @Inject
+    RedisDataSource redisDataSource;
+
+    RedisChatMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = (RedisChatMemoryStore) chatMemoryStore;
+        store.deleteMessages(MEMORY_ID);
+    }
+
+    @Test
+    void should_append_messages() {
+        List<ChatMessage> first = List.of(UserMessage.from("hello"), AiMessage.from("hi"));
+        assertThat(store.appendMessages(MEMORY_ID, List.of(), first)).isTrue();
+        assertThat(store.appendMessages(MEMORY_ID, first, List.of(UserMessage.from("how are you?")))).isTrue();
+
+        assertThat(store.getMessages(MEMORY_ID)).containsExactly(UserMessage.from("hello"), AiMessage.from("hi"),
+                UserMessage.from("how are you?"));
+    }
+
+    @Test
+    void should_replace_messages_in_the_middle_of_the_list() {
+        List<ChatMessage> messages = List.of(SystemMessage.from("be nice"), UserMessage.from("hello"),
+                AiMessage.from("hi"), UserMessage.from("how are you?"));
+        store.updateMessages(MEMORY_ID, messages);
+
+        // evicts the first exchange but keeps the system message
+        assertThat(store.replaceMessages(MEMORY_ID, messages, 1, 2, List.of(AiMessage.from("fine")))).isTrue();
+
+        assertThat(store.getMessages(MEMORY_ID)).containsExactly(SystemMessage.from("be nice"),
+                UserMessage.from("how are you?"), AiMessage.from("fine"));
+    }
+
+    @Test
+    void should_not_write_if_the_messages_changed() {
+        List<ChatMessage> read = List.of(UserMessage.from("hello"), AiMessage.from("hi"));
+        store.updateMessages(MEMORY_ID, read);
+        // another instance of the application writes to the memory after it has been read
+        store.appendMessages(MEMORY_ID, read, List.of(UserMessage.from("from elsewhere")));
+
+        assertThat(store.appendMessages(MEMORY_ID, read, List.of(UserMessage.from("how are you?")))).isFalse();
+        assertThat(store.replaceMessages(MEMORY_ID, read, 0, 1, List.of())).isFalse();
+
+        assertThat(store.getMessages(MEMORY_ID)).containsExactly(UserMessage.from("hello"), AiMessage.from("hi"),
+                UserMessage.from("from elsewhere"));
+    }
+
+    @Test
+    void should_not_write_if_messages_were_evicted_and_added_since_they_were_read() {
+        List<ChatMessage> read = List.of(SystemMessage.from("be nice"), UserMessage.from("hello"), AiMessage.from("hi"));
+        store.updateMessages(MEMORY_ID, read);
+        // the size of the list does not change
+        store.replaceMessages(MEMORY_ID, read, 1, 1, List.of(UserMessage.from("from elsewhere")));
+
+        assertThat(store.appendMessages(MEMORY_ID, read, List.of(UserMessage.from("how are you?")))).isFalse();
+
+        assertThat(store.getMessages(MEMORY_ID)).containsExactly(SystemMessage.from("be nice"), AiMessage.from("hi"),
+                UserMessage.from("from elsewhere"));
+    }
+
+    @Test
+    void should_migrate_messages_stored_as_a_single_value() {
+        List<ChatMessage> messages = List.of(UserMessage.from("hello"), AiMessage.from("hi"));
+        // previous versions stored all the messages as a single JSON value
+        redisDataSource.value(new TypeReference<List<ChatMessage>>() {
+        }).set(MEMORY_ID, messages);
+
+        // the legacy value can not be updated incrementally
+        assertThat(store.appendMessages(MEMORY_ID, messages, List.of(UserMessage.from("how are you?")))).isFalse();
+
+        assertThat(store.getMessages(MEMORY_ID)).containsExactlyElementsOf(messages);
+        assertThat(redisDataSource.key().type(MEMORY_ID)).isEqualTo(RedisValueType.LIST);
+        assertThat(store.getMessages(MEMORY_ID)).containsExactlyElementsOf(messages);
+    }
+}
@@ -0,0 +1,45 @@
+package io.quarkiverse.langchain4j.memorystore;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import jakarta.inject.Singleton;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import dev.langchain4j.data.message.ChatMessage;
+import io.quarkiverse.langchain4j.QuarkusJsonCodecFactory;
+import io.quarkus.redis.datasource.codecs.Codec;
+
+/**
+ * Handles the individual {@link ChatMessage} entries of the Redis lists used by {@link RedisChatMemoryStore}
+ */
+@Singleton
+public class ChatMessageEntryCodec implements Codec {
+
+    @Override
+    public boolean canHandle(Type clazz) {
+        return ChatMessage.class.equals(clazz);
+    }
+
+    @Override
+    public byte[] encode(Object item) {
+        try {
+            return QuarkusJsonCodecFactory.ObjectMapperHolder.MAPPER.writeValueAsBytes(item);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] item) {
+        if (item == null) {
+            return null;
+        }
+        try {
+            return QuarkusJsonCodecFactory.ObjectMapperHolder.MAPPER.readValue(item, ChatMessage.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
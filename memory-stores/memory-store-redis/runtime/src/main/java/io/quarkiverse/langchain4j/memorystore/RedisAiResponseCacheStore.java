@@ -0,0 +1,120 @@
+package io.quarkiverse.langchain4j.memorystore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import io.quarkiverse.langchain4j.QuarkusJsonCodecFactory;
+import io.quarkiverse.langchain4j.cache.AiResponseCacheStore;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.list.ListCommands;
+import io.quarkus.redis.datasource.transactions.TransactionalRedisDataSource;
+import io.quarkus.redis.datasource.value.SetArgs;
+import io.quarkus.redis.datasource.value.ValueCommands;
+
+/**
+ * Stores the responses cached for the AI service methods annotated with {@code @CacheResult} in Redis, so that they are
+ * shared by all the instances of the application.
+ * <p>
+ * This store is not used by default, it needs to be exposed as a CDI bean, for example:
+ *
+ * <pre>
+ * &#64;Produces
+ * &#64;Singleton
+ * AiResponseCacheStore responseCacheStore(RedisDataSource redisDataSource) {
+ *     return new RedisAiResponseCacheStore(redisDataSource, 1000);
+ * }
+ * </pre>
+ *
+ * Each response is stored as a value expiring after its time-to-live. The responses of a semantic namespace are
+ * stored in a list trimmed to the given maximum size, which expires after the time-to-live of its last response.
+ */
+public class RedisAiResponseCacheStore implements AiResponseCacheStore {
+
+    private static final String KEY_PREFIX = "langchain4j:response-cache:";
+    private static final String NAMESPACE_PREFIX = KEY_PREFIX + "semantic:";
+
+    private final RedisDataSource redisDataSource;
+    private final int maxSemanticEntries;
+    private final ValueCommands<String, String> valueCommands;
+    private final ListCommands<String, String> listCommands;
+
+    /**
+     * @param maxSemanticEntries the maximum number of responses kept for each semantic namespace
+     */
+    public RedisAiResponseCacheStore(RedisDataSource redisDataSource, int maxSemanticEntries) {
+        if (maxSemanticEntries <= 0) {
+            throw new IllegalArgumentException("maxSemanticEntries must be positive");
+        }
+        this.redisDataSource = redisDataSource;
+        this.maxSemanticEntries = maxSemanticEntries;
+        this.valueCommands = redisDataSource.value(String.class);
+        this.listCommands = redisDataSource.list(String.class);
+    }
+
+    @Override
+    public AiMessage get(String key) {
+        String json = valueCommands.get(KEY_PREFIX + key);
+        return json == null ? null : (AiMessage) ChatMessageDeserializer.messageFromJson(json);
+    }
+
+    @Override
+    public void put(String key, AiMessage response, Duration ttl) {
+        String json = ChatMessageSerializer.messageToJson(response);
+        if (ttl == null) {
+            valueCommands.set(KEY_PREFIX + key, json);
+        } else {
+            valueCommands.set(KEY_PREFIX + key, json, new SetArgs().px(ttl));
+        }
+    }
+
+    @Override
+    public List<SemanticEntry> getSemanticEntries(String namespace) {
+        List<String> values = listCommands.lrange(NAMESPACE_PREFIX + namespace, 0, -1);
+        List<SemanticEntry> entries = new ArrayList<>(values.size());
+        for (String value : values) {
+            StoredSemanticEntry stored;
+            try {
+                stored = QuarkusJsonCodecFactory.ObjectMapperHolder.MAPPER.readValue(value, StoredSemanticEntry.class);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            entries.add(new SemanticEntry(Embedding.from(stored.vector()),
+                    (AiMessage) ChatMessageDeserializer.messageFromJson(stored.response())));
+        }
+        return entries;
+    }
+
+    @Override
+    public void addSemanticEntry(String namespace, SemanticEntry entry, Duration ttl) {
+        String key = NAMESPACE_PREFIX + namespace;
+        String value;
+        try {
+            value = QuarkusJsonCodecFactory.ObjectMapperHolder.MAPPER.writeValueAsString(new StoredSemanticEntry(
+                    entry.embedding().vector(), ChatMessageSerializer.messageToJson(entry.response())));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+        redisDataSource.withTransaction(new Consumer<>() {
+            @Override
+            public void accept(TransactionalRedisDataSource tx) {
+                tx.list(String.class).rpush(key, value);
+                tx.list(String.class).ltrim(key, -maxSemanticEntries, -1);
+                if (ttl != null) {
+                    tx.key().pexpire(key, ttl);
+                }
+            }
+        });
+    }
+
+    record StoredSemanticEntry(float[] vector, String response) {
+    }
+}
@@ -2,24 +2,41 @@ package io.quarkiverse.langchain4j.memorystore;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
 import dev.langchain4j.data.message.ChatMessage;
-import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.quarkiverse.langchain4j.memory.AppendableChatMemoryStore;
 import io.quarkus.redis.datasource.RedisDataSource;
 import io.quarkus.redis.datasource.keys.KeyCommands;
+import io.quarkus.redis.datasource.list.ListCommands;
+import io.quarkus.redis.datasource.transactions.OptimisticLockingTransactionResult;
+import io.quarkus.redis.datasource.transactions.TransactionalRedisDataSource;
 import io.quarkus.redis.datasource.value.ValueCommands;
 
-public class RedisChatMemoryStore implements ChatMemoryStore {
+/**
+ * Stores the messages of each chat memory in a Redis list, so that new messages can be pushed without having
+ * to rewrite the entire conversation.
+ */
+public class RedisChatMemoryStore implements AppendableChatMemoryStore {
 
-    private final ValueCommands<String, List<ChatMessage>> valueCommands;
+    private static final ChatMessage[] EMPTY_MESSAGE_ARRAY = new ChatMessage[0];
+
+    private final RedisDataSource redisDataSource;
+    private final ListCommands<String, ChatMessage> listCommands;
     private final KeyCommands<String> keyCommands;
+    // previous versions stored all the messages as a single JSON value
+    private final ValueCommands<String, List<ChatMessage>> legacyValueCommands;
 
     public RedisChatMemoryStore(RedisDataSource redisDataSource) {
-        this.valueCommands = redisDataSource.value(new TypeReference<List<ChatMessage>>() {
-        });
+        this.redisDataSource = redisDataSource;
+        this.listCommands = redisDataSource.list(ChatMessage.class);
         this.keyCommands = redisDataSource.key(String.class);
+        this.legacyValueCommands = redisDataSource.value(new TypeReference<List<ChatMessage>>() {
+        });
     }
 
     @Override
@@ -30,16 +47,107 @@ public class RedisChatMemoryStore implements ChatMemoryStore {
 
     @Override
     public List<ChatMessage> getMessages(Object memoryId) {
-        List<ChatMessage> chatMessages = valueCommands.get(memoryId.toString());
-        if (chatMessages != null) {
-            return chatMessages;
-        } else {
-            return Collections.emptyList();
+        String key = memoryId.toString();
+        try {
+            return listCommands.lrange(key, 0, -1);
+        } catch (RuntimeException e) {
+            if (isWrongType(e)) {
+                return migrateLegacyValue(key);
+            }
+            throw e;
         }
     }
 
     @Override
     public void updateMessages(Object memoryId, List<ChatMessage> messages) {
-        valueCommands.set(memoryId.toString(), messages);
+        String key = memoryId.toString();
+        redisDataSource.withTransaction(new Consumer<>() {
+            @Override
+            public void accept(TransactionalRedisDataSource tx) {
+                tx.key().del(key);
+                if (!messages.isEmpty()) {
+                    tx.list(ChatMessage.class).rpush(key, messages.toArray(EMPTY_MESSAGE_ARRAY));
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean replaceMessages(Object memoryId, List<ChatMessage> expectedMessages, int fromIndex, int removeCount,
+            List<ChatMessage> messages) {
+        String key = memoryId.toString();
+        // the key is watched, so the transaction is discarded if another client updates it after it has been checked
+        OptimisticLockingTransactionResult<Boolean> result = redisDataSource.withTransaction(
+                new Function<RedisDataSource, Boolean>() {
+                    @Override
+                    public Boolean apply(RedisDataSource ds) {
+                        ListCommands<String, ChatMessage> list = ds.list(ChatMessage.class);
+                        long size;
+                        try {
+                            size = list.llen(key);
+                        } catch (RuntimeException e) {
+                            if (isWrongType(e)) {
+                                // a legacy value is migrated by the full write the caller falls back to
+                                return false;
+                            }
+                            throw e;
+                        }
+                        // instead of reading the entire conversation, only its size and its last message are compared:
+                        // messages are evicted from its start and added to its end, so a write made since the caller
+                        // read it changes at least one of them
+                        if (size != expectedMessages.size()) {
+                            return false;
+                        }
+                        return (size == 0)
+                                || expectedMessages.get(expectedMessages.size() - 1).equals(list.lindex(key, -1));
+                    }
+                },
+                new BiConsumer<Boolean, TransactionalRedisDataSource>() {
+                    @Override
+                    public void accept(Boolean expected, TransactionalRedisDataSource tx) {
+                        if (!expected) {
+                            tx.discard();
+                            return;
+                        }
+                        if (removeCount > 0) {
+                            // Redis can only trim the ends of a list, so the messages that come before the removed
+                            // ones are pushed back
+                            tx.list(ChatMessage.class).ltrim(key, fromIndex + removeCount, -1);
+                            if (fromIndex > 0) {
+                                ChatMessage[] reversedHead = new ChatMessage[fromIndex];
+                                for (int i = 0; i < fromIndex; i++) {
+                                    reversedHead[i] = expectedMessages.get(fromIndex - 1 - i);
+                                }
+                                tx.list(ChatMessage.class).lpush(key, reversedHead);
+                            }
+                        }
+                        if (!messages.isEmpty()) {
+                            tx.list(ChatMessage.class).rpush(key, messages.toArray(EMPTY_MESSAGE_ARRAY));
+                        }
+                    }
+                }, key);
+        return !result.discarded();
+    }
+
+    /**
+     * @return whether the error is caused by the key holding a value that is not a list, which is how the messages were
+     *         stored by previous versions
+     */
+    private static boolean isWrongType(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if ((t.getMessage() != null) && t.getMessage().startsWith("WRONGTYPE")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<ChatMessage> migrateLegacyValue(String key) {
+        List<ChatMessage> messages = legacyValueCommands.get(key);
+        if (messages == null) {
+            return Collections.emptyList();
+        }
+        updateMessages(key, messages);
+        return messages;
     }
 }
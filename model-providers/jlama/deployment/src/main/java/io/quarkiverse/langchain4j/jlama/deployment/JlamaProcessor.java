@@ -37,6 +37,7 @@ import io.quarkiverse.langchain4j.jlama.runtime.JlamaAiRecorder;
 import io.quarkiverse.langchain4j.jlama.runtime.config.LangChain4jJlamaConfig;
 import io.quarkiverse.langchain4j.jlama.runtime.config.LangChain4jJlamaFixedRuntimeConfig;
 import io.quarkiverse.langchain4j.runtime.NamedConfigUtil;
+import io.quarkus.arc.BeanDestroyer;
 import io.quarkus.arc.deployment.SyntheticBeanBuildItem;
 import io.quarkus.builder.item.MultiBuildItem;
 import io.quarkus.deployment.IsNormal;
@@ -118,7 +119,9 @@ public class JlamaProcessor {
                 String configName = selected.getConfigName();
                 var builder = SyntheticBeanBuildItem.configure(EMBEDDING_MODEL).setRuntimeInit().defaultBean()
                         .unremovable().scope(ApplicationScoped.class)
-                        .supplier(recorder.embeddingModel(runtimeConfig, fixedRuntimeConfig, configName));
+                        .supplier(recorder.embeddingModel(runtimeConfig, fixedRuntimeConfig, configName))
+                        // stops the threads the segments are embedded with
+                        .destroyer(BeanDestroyer.AutoCloseableDestroyer.class);
                 addQualifierIfNecessary(builder, configName);
                 beanProducer.produce(builder.done());
             }
@@ -6,7 +6,6 @@ import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 import org.jboss.logging.Logger;
 
@@ -44,6 +43,7 @@ public class JlamaChatModel implements ChatLanguageModel {
     private final Integer maxTokens;
     private final Boolean logRequests;
     private final Boolean logResponses;
+    private final JlamaSessions sessions;
 
     public JlamaChatModel(JlamaChatModelBuilder builder) {
 
@@ -73,6 +73,9 @@ public class JlamaChatModel implements ChatLanguageModel {
         this.maxTokens = builder.maxTokens == null ? model.getConfig().contextLength : builder.maxTokens;
         this.logRequests = builder.logRequests != null && builder.logRequests;
         this.logResponses = builder.logResponses != null && builder.logResponses;
+        this.sessions = new JlamaSessions(
+                builder.maxSessions == null ? JlamaSessions.DEFAULT_MAX_SESSIONS : builder.maxSessions,
+                builder.maxSessionTokens == null ? JlamaSessions.DEFAULT_MAX_SESSION_TOKENS : builder.maxSessionTokens);
     }
 
     public static JlamaChatModelBuilder builder() {
@@ -94,11 +97,23 @@ public class JlamaChatModel implements ChatLanguageModel {
             log.info("Request: " + messages);
         }
 
-        PromptSupport.Builder promptBuilder = promptBuilder(messages);
-        Generator.Response r = model.generate(UUID.randomUUID(), promptContext(promptBuilder, toolSpecifications), temperature,
-                maxTokens, (token, time) -> {
-                });
-        Response<AiMessage> aiResponse = Response.from(aiMessageForResponse(r),
+        // the tools are rendered along with the first messages of the prompt, so a session that has seen them can't be
+        // continued
+        JlamaSessions.Lease lease = sessions.acquire(messages, toolSpecifications.isEmpty());
+        Generator.Response r;
+        try {
+            r = generate(lease, toolSpecifications);
+        } catch (IllegalArgumentException e) {
+            if (!lease.isReused()) {
+                throw e;
+            }
+            // the conversation no longer fits in the context of the session
+            lease = lease.restart();
+            r = generate(lease, toolSpecifications);
+        }
+        AiMessage aiMessage = aiMessageForResponse(r);
+        sessions.release(lease, aiMessage, r.promptTokens + r.generatedTokens);
+        Response<AiMessage> aiResponse = Response.from(aiMessage,
                 new TokenUsage(r.promptTokens, r.generatedTokens), toFinishReason(r.finishReason));
 
         if (logResponses) {
@@ -108,6 +123,13 @@ public class JlamaChatModel implements ChatLanguageModel {
         return aiResponse;
     }
 
+    private Generator.Response generate(JlamaSessions.Lease lease, List<ToolSpecification> toolSpecifications) {
+        PromptSupport.Builder promptBuilder = promptBuilder(lease.newMessages());
+        return model.generate(lease.sessionId(), promptContext(promptBuilder, toolSpecifications), temperature, maxTokens,
+                (token, time) -> {
+                });
+    }
+
     private PromptSupport.Builder promptBuilder(List<ChatMessage> messages) {
         PromptSupport.Builder promptBuilder = model.promptSupport().get().builder();
 
@@ -187,6 +209,8 @@ public class JlamaChatModel implements ChatLanguageModel {
         private Integer maxTokens;
         private Boolean logRequests;
         private Boolean logResponses;
+        private Integer maxSessions;
+        private Long maxSessionTokens;
 
         public JlamaChatModelBuilder modelCachePath(Optional<Path> modelCachePath) {
             this.modelCachePath = modelCachePath;
@@ -243,6 +267,16 @@ public class JlamaChatModel implements ChatLanguageModel {
             return this;
         }
 
+        public JlamaChatModelBuilder maxSessions(Integer maxSessions) {
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        public JlamaChatModelBuilder maxSessionTokens(Long maxSessionTokens) {
+            this.maxSessionTokens = maxSessionTokens;
+            return this;
+        }
+
         public JlamaChatModel build() {
             return new JlamaChatModel(this);
         }
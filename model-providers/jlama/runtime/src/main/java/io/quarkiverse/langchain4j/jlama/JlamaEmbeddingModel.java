@@ -4,6 +4,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.github.tjake.jlama.model.AbstractModel;
 import com.github.tjake.jlama.model.ModelSupport;
@@ -16,9 +23,22 @@ import dev.langchain4j.internal.RetryUtils;
 import dev.langchain4j.model.embedding.DimensionAwareEmbeddingModel;
 import dev.langchain4j.model.output.Response;
 
-public class JlamaEmbeddingModel extends DimensionAwareEmbeddingModel {
+/**
+ * Embeds text segments with a BERT model run by Jlama.
+ * <p>
+ * {@link BertModel#embed(String, Generator.PoolingType)} can be called concurrently: each call keeps the state of its
+ * forward pass in a buffer of its own and only reads the weights of the model. The segments of a batch are therefore
+ * embedded concurrently, on a pool of threads that is shut down when the model is closed.
+ */
+public class JlamaEmbeddingModel extends DimensionAwareEmbeddingModel implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 8;
+
     private final BertModel model;
     private final Generator.PoolingType poolingType;
+    private final int batchSize;
+    // the segments of a batch are embedded concurrently, null if they are embedded one after the other
+    private final ExecutorService executor;
 
     public JlamaEmbeddingModel(JlamaEmbeddingModelBuilder builder) {
 
@@ -46,6 +66,25 @@ public class JlamaEmbeddingModel extends DimensionAwareEmbeddingModel {
         this.dimension = model.getConfig().embeddingLength;
 
         this.poolingType = builder.poolingType == null ? Generator.PoolingType.MODEL : builder.poolingType;
+        this.batchSize = builder.batchSize == null ? DEFAULT_BATCH_SIZE : Math.max(1, builder.batchSize);
+        this.executor = createExecutor(batchSize, builder.threadCount);
+    }
+
+    JlamaEmbeddingModel(BertModel model, Generator.PoolingType poolingType, int batchSize, Integer threadCount) {
+        this.model = model;
+        this.dimension = model.getConfig().embeddingLength;
+        this.poolingType = poolingType;
+        this.batchSize = batchSize;
+        this.executor = createExecutor(batchSize, threadCount);
+    }
+
+    /**
+     * @param threadCount the number of threads Jlama is allowed to use, the number of processors if {@code null}
+     */
+    private static ExecutorService createExecutor(int batchSize, Integer threadCount) {
+        int threads = Math.min(batchSize,
+                threadCount == null ? Runtime.getRuntime().availableProcessors() : Math.max(1, threadCount));
+        return threads > 1 ? Executors.newFixedThreadPool(threads, new EmbeddingThreadFactory()) : null;
     }
 
     public static JlamaEmbeddingModelBuilder builder() {
@@ -54,15 +93,56 @@ public class JlamaEmbeddingModel extends DimensionAwareEmbeddingModel {
 
     @Override
     public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
-        List<Embedding> embeddings = new ArrayList<>();
-
-        textSegments.forEach(textSegment -> {
-            embeddings.add(Embedding.from(model.embed(textSegment.text(), poolingType)));
-        });
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        if (executor == null || textSegments.size() == 1) {
+            for (TextSegment textSegment : textSegments) {
+                embeddings.add(Embedding.from(model.embed(textSegment.text(), poolingType)));
+            }
+            return Response.from(embeddings);
+        }
 
+        // the matrices of an embedding model are too small for a single forward pass to keep all the cores busy, so
+        // the segments of each batch go through the model at the same time
+        List<Future<float[]>> batch = new ArrayList<>(batchSize);
+        try {
+            for (int start = 0; start < textSegments.size(); start += batchSize) {
+                batch.clear();
+                for (TextSegment textSegment : textSegments.subList(start,
+                        Math.min(start + batchSize, textSegments.size()))) {
+                    batch.add(executor.submit(new Callable<>() {
+                        @Override
+                        public float[] call() {
+                            return model.embed(textSegment.text(), poolingType);
+                        }
+                    }));
+                }
+                for (Future<float[]> future : batch) {
+                    embeddings.add(Embedding.from(future.get()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<float[]> future : batch) {
+                future.cancel(true);
+            }
+        }
         return Response.from(embeddings);
     }
 
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     public static class JlamaEmbeddingModelBuilder {
 
@@ -73,6 +153,7 @@ public class JlamaEmbeddingModel extends DimensionAwareEmbeddingModel {
         private Path workingDirectory;
         private Boolean quantizeModelAtRuntime;
         private Generator.PoolingType poolingType;
+        private Integer batchSize;
 
         public JlamaEmbeddingModelBuilder modelCachePath(Optional<Path> modelCachePath) {
             this.modelCachePath = modelCachePath;
@@ -104,8 +185,25 @@ public class JlamaEmbeddingModel extends DimensionAwareEmbeddingModel {
             return this;
         }
 
+        public JlamaEmbeddingModelBuilder batchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
         public JlamaEmbeddingModel build() {
             return new JlamaEmbeddingModel(this);
         }
     }
+
+    private static final class EmbeddingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jlama-embedding-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
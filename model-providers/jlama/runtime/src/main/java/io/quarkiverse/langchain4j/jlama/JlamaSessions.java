@@ -0,0 +1,139 @@
+package io.quarkiverse.langchain4j.jlama;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.jboss.logging.Logger;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import io.quarkiverse.langchain4j.runtime.ContextLocals;
+import io.quarkiverse.langchain4j.runtime.aiservice.AiServiceConstants;
+
+/**
+ * Keeps track of the Jlama sessions of the conversations that are going on, so that each turn of a conversation only
+ * needs to feed the model the messages that were added since the previous turn, instead of the entire conversation.
+ * <p>
+ * Jlama keeps a KV-cache for each session id it is given, and the prompt of a request made with a session id is
+ * appended to what the session has already seen. A session is therefore only reused by a request that continues the
+ * conversation the session has seen, which is checked message by message. Conversations are identified by the id of
+ * the chat memory of the AI service invocation the request is made for.
+ * <p>
+ * The least recently used sessions are forgotten when there are more of them than configured, or when the tokens they
+ * hold exceed the configured budget. Forgetting a session does not free its KV-cache, which Jlama provides no way to
+ * release, so these limits only bound the sessions that are reused, not the memory used by the model.
+ */
+final class JlamaSessions {
+
+    private static final Logger log = Logger.getLogger(JlamaSessions.class);
+
+    static final int DEFAULT_MAX_SESSIONS = 16;
+    static final long DEFAULT_MAX_SESSION_TOKENS = 65536;
+
+    private final int maxSessions;
+    private final long maxTokens;
+    // least recently used first
+    private final LinkedHashMap<Object, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long tokens;
+
+    JlamaSessions(int maxSessions, long maxTokens) {
+        this.maxSessions = maxSessions;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Finds the session the request can continue, the session is not available to other requests until it is given
+     * back using {@link #release(Lease, AiMessage, int)}.
+     *
+     * @param canReuse whether the request can be made with a session that has already seen some of its messages
+     */
+    Lease acquire(List<ChatMessage> messages, boolean canReuse) {
+        return acquire(ContextLocals.get(AiServiceConstants.AI_SERVICE_MEMORY_ID), messages, canReuse);
+    }
+
+    /**
+     * @param memoryId the conversation the request is part of, {@code null} if it is not known
+     */
+    Lease acquire(Object memoryId, List<ChatMessage> messages, boolean canReuse) {
+        if ((memoryId == null) || (maxSessions <= 0)) {
+            return new Lease(null, UUID.randomUUID(), messages, messages, 0);
+        }
+        Session session;
+        synchronized (this) {
+            // a session is used by a single request at a time, so a concurrent request for the same conversation starts
+            // a new one
+            session = sessions.remove(memoryId);
+            if (session != null) {
+                tokens -= session.tokens();
+            }
+        }
+        if (canReuse && (session != null) && continues(session.messages(), messages)) {
+            log.debugv("Reusing the session of conversation {0}, which has seen {1} out of {2} messages", memoryId,
+                    session.messages().size(), messages.size());
+            return new Lease(memoryId, session.id(), messages,
+                    messages.subList(session.messages().size(), messages.size()), session.tokens());
+        }
+        return new Lease(memoryId, UUID.randomUUID(), messages, messages, 0);
+    }
+
+    /**
+     * Gives back the session of a request that completed, which is not done when a request fails since it is not known
+     * what the session has seen
+     *
+     * @param tokens the number of tokens the request added to the session
+     */
+    void release(Lease lease, AiMessage response, int tokens) {
+        if (lease.memoryId() == null) {
+            return;
+        }
+        List<ChatMessage> seen = new ArrayList<>(lease.messages().size() + 1);
+        seen.addAll(lease.messages());
+        seen.add(response);
+        Session session = new Session(lease.sessionId(), seen, lease.previousTokens() + tokens);
+        synchronized (this) {
+            Session previous = sessions.put(lease.memoryId(), session);
+            if (previous != null) {
+                this.tokens -= previous.tokens();
+            }
+            this.tokens += session.tokens();
+            Iterator<Session> it = sessions.values().iterator();
+            while (((sessions.size() > maxSessions) || (this.tokens > maxTokens)) && it.hasNext()) {
+                this.tokens -= it.next().tokens();
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean continues(List<ChatMessage> seen, List<ChatMessage> messages) {
+        return (seen.size() < messages.size()) && seen.equals(messages.subList(0, seen.size()));
+    }
+
+    /**
+     * @param memoryId the conversation the request is part of, {@code null} if it is not known
+     * @param sessionId the Jlama session to make the request with
+     * @param messages all the messages of the request
+     * @param newMessages the messages the session has not seen yet, which are the ones the prompt is made of
+     * @param previousTokens the number of tokens the session has seen
+     */
+    record Lease(Object memoryId, UUID sessionId, List<ChatMessage> messages, List<ChatMessage> newMessages,
+            int previousTokens) {
+
+        boolean isReused() {
+            return newMessages.size() < messages.size();
+        }
+
+        /**
+         * @return a lease for a new session of the same conversation, which is used when the conversation no longer fits
+         *         in the context of the session
+         */
+        Lease restart() {
+            return new Lease(memoryId, UUID.randomUUID(), messages, messages, 0);
+        }
+    }
+
+    private record Session(UUID id, List<ChatMessage> messages, int tokens) {
+    }
+}
@@ -5,7 +5,6 @@ import static io.quarkiverse.langchain4j.jlama.JlamaModel.toFinishReason;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 import com.github.tjake.jlama.model.AbstractModel;
 import com.github.tjake.jlama.model.functions.Generator;
@@ -24,7 +23,7 @@ public class JlamaStreamingChatModel implements StreamingChatLanguageModel {
     private final AbstractModel model;
     private final Float temperature;
     private final Integer maxTokens;
-    private final UUID id = UUID.randomUUID();
+    private final JlamaSessions sessions;
 
     public JlamaStreamingChatModel(JlamaStreamingChatModelBuilder builder) {
         JlamaModelRegistry registry = JlamaModelRegistry.getOrCreate(builder.modelCachePath);
@@ -47,6 +46,9 @@ public class JlamaStreamingChatModel implements StreamingChatLanguageModel {
         this.model = loader.load();
         this.temperature = builder.temperature == null ? 0.7f : builder.temperature;
         this.maxTokens = builder.maxTokens == null ? model.getConfig().contextLength : builder.maxTokens;
+        this.sessions = new JlamaSessions(
+                builder.maxSessions == null ? JlamaSessions.DEFAULT_MAX_SESSIONS : builder.maxSessions,
+                builder.maxSessionTokens == null ? JlamaSessions.DEFAULT_MAX_SESSION_TOKENS : builder.maxSessionTokens);
     }
 
     public static JlamaStreamingChatModelBuilder builder() {
@@ -58,8 +60,33 @@ public class JlamaStreamingChatModel implements StreamingChatLanguageModel {
         if (model.promptSupport().isEmpty())
             throw new UnsupportedOperationException("This model does not support chat generation");
 
+        JlamaSessions.Lease lease = sessions.acquire(messages, true);
+        try {
+            Generator.Response r;
+            try {
+                r = generate(lease, handler);
+            } catch (IllegalArgumentException e) {
+                if (!lease.isReused()) {
+                    throw e;
+                }
+                // the conversation no longer fits in the context of the session, which is detected before any token
+                // is generated
+                lease = lease.restart();
+                r = generate(lease, handler);
+            }
+
+            AiMessage aiMessage = AiMessage.from(r.responseText);
+            sessions.release(lease, aiMessage, r.promptTokens + r.generatedTokens);
+            handler.onComplete(Response.from(aiMessage, new TokenUsage(r.promptTokens, r.generatedTokens),
+                    toFinishReason(r.finishReason)));
+        } catch (Throwable t) {
+            handler.onError(t);
+        }
+    }
+
+    private Generator.Response generate(JlamaSessions.Lease lease, StreamingResponseHandler<AiMessage> handler) {
         PromptSupport.Builder promptBuilder = model.promptSupport().get().builder();
-        for (ChatMessage message : messages) {
+        for (ChatMessage message : lease.newMessages()) {
             switch (message.type()) {
                 case SYSTEM -> promptBuilder.addSystemMessage(message.text());
                 case USER -> promptBuilder.addUserMessage(message.text());
@@ -67,17 +94,9 @@ public class JlamaStreamingChatModel implements StreamingChatLanguageModel {
                 default -> throw new IllegalArgumentException("Unsupported message type: " + message.type());
             }
         }
-
-        try {
-            Generator.Response r = model.generate(id, promptBuilder.build(), temperature, maxTokens, (token, time) -> {
-                handler.onNext(token);
-            });
-
-            handler.onComplete(Response.from(AiMessage.from(r.responseText), new TokenUsage(r.promptTokens, r.generatedTokens),
-                    toFinishReason(r.finishReason)));
-        } catch (Throwable t) {
-            handler.onError(t);
-        }
+        return model.generate(lease.sessionId(), promptBuilder.build(), temperature, maxTokens, (token, time) -> {
+            handler.onNext(token);
+        });
     }
 
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -92,6 +111,8 @@ public class JlamaStreamingChatModel implements StreamingChatLanguageModel {
         private DType workingQuantizedType;
         private Float temperature;
         private Integer maxTokens;
+        private Integer maxSessions;
+        private Long maxSessionTokens;
 
         public JlamaStreamingChatModelBuilder modelCachePath(Optional<Path> modelCachePath) {
             this.modelCachePath = modelCachePath;
@@ -138,6 +159,16 @@ public class JlamaStreamingChatModel implements StreamingChatLanguageModel {
             return this;
         }
 
+        public JlamaStreamingChatModelBuilder maxSessions(Integer maxSessions) {
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        public JlamaStreamingChatModelBuilder maxSessionTokens(Long maxSessionTokens) {
+            this.maxSessionTokens = maxSessionTokens;
+            return this;
+        }
+
         public JlamaStreamingChatModel build() {
             return new JlamaStreamingChatModel(this);
         }
@@ -40,6 +40,8 @@ public class JlamaAiRecorder {
 
             chatModelConfig.temperature().ifPresent(temp -> builder.temperature((float) temp));
             chatModelConfig.maxTokens().ifPresent(builder::maxTokens);
+            builder.maxSessions(chatModelConfig.maxSessions());
+            builder.maxSessionTokens(chatModelConfig.maxSessionTokens());
 
             return new Supplier<>() {
                 @Override
@@ -72,6 +74,8 @@ public class JlamaAiRecorder {
                     .modelCachePath(fixedRuntimeConfig.modelsPath());
 
             chatModelConfig.temperature().ifPresent(temp -> builder.temperature((float) temp));
+            builder.maxSessions(chatModelConfig.maxSessions());
+            builder.maxSessionTokens(chatModelConfig.maxSessionTokens());
 
             return new Supplier<>() {
                 @Override
@@ -99,7 +103,9 @@ public class JlamaAiRecorder {
         if (jlamaConfig.enableIntegration()) {
             var builder = JlamaEmbeddingModel.builder()
                     .modelName(jlamaFixedRuntimeConfig.embeddingModel().modelName())
-                    .modelCachePath(fixedRuntimeConfig.modelsPath());
+                    .modelCachePath(fixedRuntimeConfig.modelsPath())
+                    .batchSize(jlamaFixedRuntimeConfig.embeddingModel().batchSize())
+                    .threadCount(jlamaFixedRuntimeConfig.embeddingModel().threadCount().orElse(null));
 
             return new Supplier<>() {
                 @Override
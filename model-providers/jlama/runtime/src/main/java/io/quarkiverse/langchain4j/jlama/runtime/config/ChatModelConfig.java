@@ -5,6 +5,7 @@ import java.util.OptionalInt;
 
 import io.quarkus.runtime.annotations.ConfigDocDefault;
 import io.quarkus.runtime.annotations.ConfigGroup;
+import io.smallrye.config.WithDefault;
 
 @ConfigGroup
 public interface ChatModelConfig {
@@ -28,4 +29,22 @@ public interface ChatModelConfig {
      */
     OptionalInt maxTokens();
 
+    /**
+     * Maximum number of conversations for which the model keeps its state (most notably the KV-cache) around, so that
+     * the next turn of a conversation only needs to feed the model the messages that were added to it, instead of the
+     * entire conversation. Conversations are identified by the chat memory id of the AI service invocations.
+     * Set to {@code 0} to disable.
+     */
+    @WithDefault("16")
+    int maxSessions();
+
+    /**
+     * Maximum number of tokens, summed over all the conversations, whose session is reused by the next turn of their
+     * conversation, the least recently used conversations being forgotten first when it is exceeded.
+     * <p>
+     * This does not bound the memory used by the model: Jlama keeps the KV-cache of every session it was given, even
+     * once the session is forgotten, just like it does for the requests that are not part of a conversation.
+     */
+    @WithDefault("65536")
+    long maxSessionTokens();
 }
@@ -1,5 +1,7 @@
 package io.quarkiverse.langchain4j.jlama.runtime.config;
 
+import java.util.Optional;
+
 import io.quarkus.runtime.annotations.ConfigGroup;
 import io.smallrye.config.WithDefault;
 
@@ -12,4 +14,16 @@ public interface EmbeddingModelFixedRuntimeConfig {
     @WithDefault("intfloat/e5-small-v2")
     String modelName();
 
+    /**
+     * Maximum number of text segments that go through the model at the same time when several segments are embedded
+     * at once (for example during the ingestion of documents). Set to {@code 1} to embed them one after the other.
+     */
+    @WithDefault("8")
+    int batchSize();
+
+    /**
+     * Number of threads used to embed text segments, which bounds the number of segments of a batch that go through
+     * the model at the same time. Defaults to the number of available processors.
+     */
+    Optional<Integer> threadCount();
 }
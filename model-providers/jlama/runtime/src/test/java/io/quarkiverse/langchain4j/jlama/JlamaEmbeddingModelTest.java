@@ -0,0 +1,146 @@
+package io.quarkiverse.langchain4j.jlama;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.github.tjake.jlama.model.bert.BertModel;
+import com.github.tjake.jlama.model.functions.Generator;
+import com.github.tjake.jlama.safetensors.Config;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+class JlamaEmbeddingModelTest {
+
+    @Test
+    void embeddingsKeepTheOrderOfTheSegments() {
+        BertModel model = mockModel(new Embedder() {
+            @Override
+            public float[] embed(String text) {
+                return new float[] { Float.parseFloat(text) };
+            }
+        });
+        try (JlamaEmbeddingModel embeddingModel = new JlamaEmbeddingModel(model, Generator.PoolingType.MODEL, 4, 4)) {
+            List<Embedding> embeddings = embeddingModel.embedAll(segments(10)).content();
+
+            assertThat(embeddings).extracting(e -> e.vector()[0])
+                    .containsExactly(0f, 1f, 2f, 3f, 4f, 5f, 6f, 7f, 8f, 9f);
+        }
+    }
+
+    @Test
+    void segmentsOfABatchAreEmbeddedConcurrently() {
+        CountDownLatch started = new CountDownLatch(4);
+        BertModel model = mockModel(new Embedder() {
+            @Override
+            public float[] embed(String text) throws InterruptedException {
+                started.countDown();
+                // only returns once all the segments of the batch are being embedded
+                assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+                return new float[] { 1 };
+            }
+        });
+        try (JlamaEmbeddingModel embeddingModel = new JlamaEmbeddingModel(model, Generator.PoolingType.MODEL, 4, 4)) {
+            assertThat(embeddingModel.embedAll(segments(4)).content()).hasSize(4);
+        }
+    }
+
+    @Test
+    void concurrencyIsBoundedByTheThreadCount() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        BertModel model = mockModel(new Embedder() {
+            @Override
+            public float[] embed(String text) throws InterruptedException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return new float[] { 1 };
+            }
+        });
+        try (JlamaEmbeddingModel embeddingModel = new JlamaEmbeddingModel(model, Generator.PoolingType.MODEL, 8, 2)) {
+            assertThat(embeddingModel.embedAll(segments(16)).content()).hasSize(16);
+        }
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void failureOfASegmentIsPropagated() {
+        BertModel model = mockModel(new Embedder() {
+            @Override
+            public float[] embed(String text) {
+                if (text.equals("5")) {
+                    throw new IllegalStateException("boom");
+                }
+                return new float[] { 1 };
+            }
+        });
+        try (JlamaEmbeddingModel embeddingModel = new JlamaEmbeddingModel(model, Generator.PoolingType.MODEL, 4, 4)) {
+            assertThatThrownBy(() -> embeddingModel.embedAll(segments(8)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("boom");
+        }
+    }
+
+    @Test
+    void threadsAreStoppedWhenTheModelIsClosed() {
+        BertModel model = mockModel(new Embedder() {
+            @Override
+            public float[] embed(String text) {
+                return new float[] { 1 };
+            }
+        });
+        JlamaEmbeddingModel embeddingModel = new JlamaEmbeddingModel(model, Generator.PoolingType.MODEL, 4, 4);
+        assertThat(embeddingModel.embedAll(segments(4)).content()).hasSize(4);
+        embeddingModel.close();
+
+        assertThatThrownBy(() -> embeddingModel.embedAll(segments(4))).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void segmentsAreEmbeddedOnTheCallerThreadWithoutBatches() {
+        List<Thread> threads = new ArrayList<>();
+        BertModel model = mockModel(new Embedder() {
+            @Override
+            public float[] embed(String text) {
+                threads.add(Thread.currentThread());
+                return new float[] { 1 };
+            }
+        });
+        try (JlamaEmbeddingModel embeddingModel = new JlamaEmbeddingModel(model, Generator.PoolingType.MODEL, 1, 4)) {
+            assertThat(embeddingModel.embedAll(segments(4)).content()).hasSize(4);
+        }
+        assertThat(threads).containsOnly(Thread.currentThread());
+    }
+
+    private static List<TextSegment> segments(int count) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from(String.valueOf(i)));
+        }
+        return segments;
+    }
+
+    private static BertModel mockModel(Embedder embedder) {
+        BertModel model = Mockito.mock(BertModel.class);
+        Mockito.when(model.getConfig()).thenReturn(Mockito.mock(Config.class));
+        Mockito.when(model.embed(Mockito.anyString(), Mockito.any()))
+                .thenAnswer(invocation -> embedder.embed(invocation.getArgument(0)));
+        return model;
+    }
+
+    private interface Embedder {
+
+        float[] embed(String text) throws Exception;
+    }
+}
@@ -0,0 +1,161 @@
+package io.quarkiverse.langchain4j.jlama;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+class JlamaSessionsTest {
+
+    private static final UserMessage HELLO = UserMessage.from("Hello");
+    private static final AiMessage HI = AiMessage.from("Hi");
+    private static final UserMessage HOW_ARE_YOU = UserMessage.from("How are you?");
+
+    @Test
+    void continuedConversationReusesTheSession() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        JlamaSessions.Lease first = sessions.acquire("conversation", List.of(HELLO), true);
+        assertThat(first.isReused()).isFalse();
+        sessions.release(first, HI, 10);
+
+        List<ChatMessage> messages = List.of(HELLO, HI, HOW_ARE_YOU);
+        JlamaSessions.Lease second = sessions.acquire("conversation", messages, true);
+        assertThat(second.isReused()).isTrue();
+        assertThat(second.sessionId()).isEqualTo(first.sessionId());
+        assertThat(second.newMessages()).containsExactly(HOW_ARE_YOU);
+        assertThat(second.previousTokens()).isEqualTo(10);
+        assertThat(second.messages()).isEqualTo(messages);
+    }
+
+    @Test
+    void conversationThatDoesNotContinueTheSessionStartsANewOne() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        JlamaSessions.Lease first = sessions.acquire("conversation", List.of(HELLO), true);
+        sessions.release(first, HI, 10);
+
+        // the response of the model was replaced in the memory
+        List<ChatMessage> messages = List.of(HELLO, AiMessage.from("Hey"), HOW_ARE_YOU);
+        JlamaSessions.Lease second = sessions.acquire("conversation", messages, true);
+        assertThat(second.isReused()).isFalse();
+        assertThat(second.sessionId()).isNotEqualTo(first.sessionId());
+        assertThat(second.newMessages()).isEqualTo(messages);
+        assertThat(second.previousTokens()).isZero();
+
+        // the same messages again, the session has nothing left to be fed
+        sessions.release(second, HI, 10);
+        JlamaSessions.Lease third = sessions.acquire("conversation", List.of(HELLO, HI), true);
+        assertThat(third.isReused()).isFalse();
+    }
+
+    @Test
+    void sessionIsNotReusedWhenNotAllowed() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        sessions.release(sessions.acquire("conversation", List.of(HELLO), true), HI, 10);
+
+        JlamaSessions.Lease lease = sessions.acquire("conversation", List.of(HELLO, HI, HOW_ARE_YOU), false);
+        assertThat(lease.isReused()).isFalse();
+        assertThat(lease.previousTokens()).isZero();
+    }
+
+    @Test
+    void sessionIsUsedByASingleRequestAtATime() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        sessions.release(sessions.acquire("conversation", List.of(HELLO), true), HI, 10);
+
+        List<ChatMessage> messages = List.of(HELLO, HI, HOW_ARE_YOU);
+        JlamaSessions.Lease first = sessions.acquire("conversation", messages, true);
+        JlamaSessions.Lease second = sessions.acquire("conversation", messages, true);
+        assertThat(first.isReused()).isTrue();
+        assertThat(second.isReused()).isFalse();
+        assertThat(second.sessionId()).isNotEqualTo(first.sessionId());
+    }
+
+    @Test
+    void sessionOfAFailedRequestIsForgotten() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        sessions.release(sessions.acquire("conversation", List.of(HELLO), true), HI, 10);
+        // never released
+        sessions.acquire("conversation", List.of(HELLO, HI, HOW_ARE_YOU), true);
+
+        assertThat(sessions.acquire("conversation", List.of(HELLO, HI, HOW_ARE_YOU), true).isReused()).isFalse();
+    }
+
+    @Test
+    void unknownConversationIsNeverReused() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        JlamaSessions.Lease first = sessions.acquire(null, List.of(HELLO), true);
+        sessions.release(first, HI, 10);
+
+        JlamaSessions.Lease second = sessions.acquire(null, List.of(HELLO, HI, HOW_ARE_YOU), true);
+        assertThat(second.memoryId()).isNull();
+        assertThat(second.isReused()).isFalse();
+        assertThat(second.sessionId()).isNotEqualTo(first.sessionId());
+    }
+
+    @Test
+    void sessionsAreDisabled() {
+        JlamaSessions sessions = new JlamaSessions(0, 1000);
+        sessions.release(sessions.acquire("conversation", List.of(HELLO), true), HI, 10);
+
+        assertThat(sessions.acquire("conversation", List.of(HELLO, HI, HOW_ARE_YOU), true).isReused()).isFalse();
+    }
+
+    @Test
+    void leastRecentlyUsedSessionIsEvicted() {
+        JlamaSessions sessions = new JlamaSessions(2, 1000);
+        sessions.release(sessions.acquire("first", List.of(HELLO), true), HI, 10);
+        sessions.release(sessions.acquire("second", List.of(HELLO), true), HI, 10);
+        // makes "second" the least recently used session
+        JlamaSessions.Lease first = sessions.acquire("first", List.of(HELLO, HI, HOW_ARE_YOU), true);
+        assertThat(first.isReused()).isTrue();
+        sessions.release(first, HI, 10);
+
+        sessions.release(sessions.acquire("third", List.of(HELLO), true), HI, 10);
+
+        assertThat(sessions.acquire("second", List.of(HELLO, HI, HOW_ARE_YOU), true).isReused()).isFalse();
+        assertThat(sessions.acquire("first", List.of(HELLO, HI, HOW_ARE_YOU, HI, HOW_ARE_YOU), true).isReused())
+                .isTrue();
+        assertThat(sessions.acquire("third", List.of(HELLO, HI, HOW_ARE_YOU), true).isReused()).isTrue();
+    }
+
+    @Test
+    void sessionsAreEvictedWhenTheyExceedTheTokenBudget() {
+        JlamaSessions sessions = new JlamaSessions(4, 100);
+        sessions.release(sessions.acquire("first", List.of(HELLO), true), HI, 60);
+        sessions.release(sessions.acquire("second", List.of(HELLO), true), HI, 30);
+        // the tokens of the previous turns are counted as well: 30 + 50
+        JlamaSessions.Lease second = sessions.acquire("second", List.of(HELLO, HI, HOW_ARE_YOU), true);
+        sessions.release(second, HI, 50);
+
+        assertThat(sessions.acquire("first", List.of(HELLO, HI, HOW_ARE_YOU), true).isReused()).isFalse();
+        JlamaSessions.Lease next = sessions.acquire("second", List.of(HELLO, HI, HOW_ARE_YOU, HI, HOW_ARE_YOU), true);
+        assertThat(next.isReused()).isTrue();
+        assertThat(next.previousTokens()).isEqualTo(80);
+    }
+
+    @Test
+    void sessionLargerThanTheTokenBudgetIsNotKept() {
+        JlamaSessions sessions = new JlamaSessions(4, 100);
+        sessions.release(sessions.acquire("conversation", List.of(HELLO), true), HI, 150);
+
+        assertThat(sessions.acquire("conversation", List.of(HELLO, HI, HOW_ARE_YOU), true).isReused()).isFalse();
+    }
+
+    @Test
+    void restartedLeaseFeedsAllTheMessagesToANewSession() {
+        JlamaSessions sessions = new JlamaSessions(4, 1000);
+        sessions.release(sessions.acquire("conversation", List.of(HELLO), true), HI, 10);
+        JlamaSessions.Lease lease = sessions.acquire("conversation", List.of(HELLO, HI, HOW_ARE_YOU), true);
+
+        JlamaSessions.Lease restarted = lease.restart();
+        assertThat(restarted.memoryId()).isEqualTo("conversation");
+        assertThat(restarted.sessionId()).isNotEqualTo(lease.sessionId());
+        assertThat(restarted.newMessages()).isEqualTo(lease.messages());
+        assertThat(restarted.previousTokens()).isZero();
+    }
+}
@@ -46,15 +46,18 @@ import io.quarkus.deployment.builditem.FeatureBuildItem;
 import io.quarkus.deployment.builditem.LaunchModeBuildItem;
 import io.quarkus.deployment.builditem.NativeImageFeatureBuildItem;
 import io.quarkus.deployment.builditem.ServiceStartBuildItem;
+import io.quarkus.deployment.builditem.ShutdownContextBuildItem;
 import io.quarkus.deployment.builditem.nativeimage.NativeImageEnableModule;
 import io.quarkus.deployment.builditem.nativeimage.RuntimeInitializedPackageBuildItem;
 import io.quarkus.deployment.console.ConsoleInstalledBuildItem;
 import io.quarkus.deployment.console.StartupLogCompressor;
 import io.quarkus.deployment.logging.LoggingSetupBuildItem;
+import io.quarkus.deployment.metrics.MetricsCapabilityBuildItem;
 import io.quarkus.deployment.pkg.builditem.ArtifactResultBuildItem;
 import io.quarkus.deployment.pkg.builditem.JarBuildItem;
 import io.quarkus.deployment.pkg.steps.JarResultBuildStep;
 import io.quarkus.deployment.pkg.steps.NativeBuild;
+import io.quarkus.runtime.metrics.MetricsFactory;
 
 public class Llama3Processor {
 
@@ -95,6 +98,7 @@ public class Llama3Processor {
             List<SelectedChatModelProviderBuildItem> selectedChatItem,
             LangChain4jLlama3RuntimeConfig runtimeConfig,
             LangChain4jLlama3FixedRuntimeConfig fixedRuntimeConfig,
+            ShutdownContextBuildItem shutdown,
             BuildProducer<SyntheticBeanBuildItem> beanProducer) {
 
         for (var selected : selectedChatItem) {
@@ -102,7 +106,7 @@ public class Llama3Processor {
                 String configName = selected.getConfigName();
                 var builder = SyntheticBeanBuildItem.configure(CHAT_MODEL).setRuntimeInit().defaultBean()
                         .scope(ApplicationScoped.class)
-                        .supplier(recorder.chatModel(runtimeConfig, fixedRuntimeConfig, configName));
+                        .supplier(recorder.chatModel(runtimeConfig, fixedRuntimeConfig, configName, shutdown));
                 addQualifierIfNecessary(builder, configName);
                 beanProducer.produce(builder.done());
 
@@ -111,13 +115,35 @@ public class Llama3Processor {
                         .setRuntimeInit()
                         .defaultBean()
                         .scope(ApplicationScoped.class)
-                        .supplier(recorder.streamingChatModel(runtimeConfig, fixedRuntimeConfig, configName));
+                        .supplier(recorder.streamingChatModel(runtimeConfig, fixedRuntimeConfig, configName, shutdown));
                 addQualifierIfNecessary(streamingBuilder, configName);
                 beanProducer.produce(streamingBuilder.done());
             }
         }
     }
 
+    @BuildStep
+    @Record(ExecutionTime.RUNTIME_INIT)
+    void computePool(Llama3Recorder recorder,
+            List<SelectedChatModelProviderBuildItem> selectedChatItem,
+            LangChain4jLlama3RuntimeConfig runtimeConfig,
+            Optional<MetricsCapabilityBuildItem> metricsCapability,
+            ShutdownContextBuildItem shutdown) {
+        boolean llama3Selected = false;
+        for (var selected : selectedChatItem) {
+            if (PROVIDER.equals(selected.getProvider())) {
+                llama3Selected = true;
+                break;
+            }
+        }
+        if (!llama3Selected) {
+            return;
+        }
+        boolean metricsEnabled = metricsCapability.isPresent()
+                && metricsCapability.get().metricsSupported(MetricsFactory.MICROMETER);
+        recorder.computePool(runtimeConfig, metricsEnabled, shutdown);
+    }
+
     private void addQualifierIfNecessary(SyntheticBeanBuildItem.ExtendedBeanConfigurator builder, String configName) {
         if (!NamedConfigUtil.isDefault(configName)) {
             builder.addQualifier(AnnotationInstance.builder(ModelName.class).add("value", configName).build());
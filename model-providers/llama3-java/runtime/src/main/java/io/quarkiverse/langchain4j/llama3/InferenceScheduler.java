@@ -0,0 +1,326 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntConsumer;
+
+import org.jboss.logging.Logger;
+
+import io.quarkiverse.langchain4j.llama3.copy.Llama;
+import io.quarkiverse.langchain4j.llama3.copy.Sampler;
+
+/**
+ * Runs the inference of all the requests made to a model on a single thread, so that concurrent requests don't compete
+ * with each other for the CPU.
+ * <p>
+ * The requests that are generating tokens are decoded together: each step runs one token of each one of them through
+ * the model at once, which means the weights (reading them is what limits the throughput on a CPU) are read once per
+ * step instead of once per request. New requests are admitted between steps, and their prompts are ingested one block
+ * at a time, interleaved with the decode steps, so that a long prompt does not stall the requests that are already
+ * generating tokens.
+ * <p>
+ * The number of requests that are handled at once is bounded by the {@link StatePool} the states come from.
+ * <p>
+ * The generated tokens are handed over to the threads that made the requests, so that slow consumers of the tokens
+ * do not hold back the other requests. The scheduler thread runs until {@link #close()} is called.
+ */
+final class InferenceScheduler implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(InferenceScheduler.class);
+
+    // marks the end of the tokens generated for a request
+    private static final int END_OF_TOKENS = -1;
+
+    private final Llama model;
+    private final StatePool statePool;
+    private final LinkedBlockingQueue<Sequence> submitted = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    InferenceScheduler(Llama model, StatePool statePool) {
+        this.model = model;
+        this.statePool = statePool;
+        this.thread = new Thread(this::run, "llama3-inference-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Generates tokens until a stop token is generated or {@code maxTokens} is reached, and waits for the generation to
+     * complete.
+     *
+     * @param tokens all the tokens the model needs to see for the request, the first one being the token the model
+     *        starts from
+     * @param onTokenGenerated called on the calling thread for each generated token, the generation is cancelled if it
+     *        throws an exception
+     * @return the generated tokens, including the stop token, if any
+     */
+    List<Integer> generate(List<Integer> tokens, Set<Integer> stopTokens, int maxTokens, Sampler sampler,
+            IntConsumer onTokenGenerated) {
+        if (closed) {
+            throw new IllegalStateException("The llama3 model has been shut down");
+        }
+        if (maxTokens < 0 || model.configuration().contextLength < maxTokens) {
+            maxTokens = model.configuration().contextLength;
+        }
+        StatePool.Lease lease = statePool.acquire(tokens);
+        Sequence sequence = new Sequence(lease, tokens, stopTokens, maxTokens, sampler);
+        submitted.add(sequence);
+        if (closed) {
+            // the scheduler thread may have stopped before the sequence was submitted
+            failSubmitted();
+        }
+        try {
+            int token;
+            while ((token = sequence.generatedTokens.take()) != END_OF_TOKENS) {
+                onTokenGenerated.accept(token);
+            }
+        } catch (InterruptedException e) {
+            sequence.cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (RuntimeException | Error e) {
+            sequence.cancelled = true;
+            throw e;
+        }
+        try {
+            return sequence.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the scheduler thread, the requests that are still running fail
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        List<Sequence> prefilling = new ArrayList<>();
+        List<Sequence> decoding = new ArrayList<>();
+        try {
+            while (!closed) {
+                try {
+                    if (prefilling.isEmpty() && decoding.isEmpty()) {
+                        admit(submitted.take(), prefilling, decoding);
+                    }
+                    Sequence sequence;
+                    while ((sequence = submitted.poll()) != null) {
+                        admit(sequence, prefilling, decoding);
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                removeCancelled(prefilling);
+                removeCancelled(decoding);
+                if (!prefilling.isEmpty()) {
+                    prefill(prefilling, decoding);
+                }
+                if (!decoding.isEmpty()) {
+                    decode(decoding);
+                }
+            }
+        } finally {
+            IllegalStateException shutDown = new IllegalStateException("The llama3 model has been shut down");
+            for (Sequence sequence : prefilling) {
+                sequence.fail(shutDown);
+            }
+            for (Sequence sequence : decoding) {
+                sequence.fail(shutDown);
+            }
+            failSubmitted();
+        }
+    }
+
+    private void failSubmitted() {
+        Sequence sequence;
+        while ((sequence = submitted.poll()) != null) {
+            sequence.fail(new IllegalStateException("The llama3 model has been shut down"));
+        }
+    }
+
+    /**
+     * Releases the states of the requests whose tokens are not consumed anymore
+     */
+    private static void removeCancelled(List<Sequence> sequences) {
+        Iterator<Sequence> it = sequences.iterator();
+        while (it.hasNext()) {
+            Sequence sequence = it.next();
+            if (sequence.cancelled) {
+                it.remove();
+                sequence.fail(new CancellationException());
+            }
+        }
+    }
+
+    private void admit(Sequence sequence, List<Sequence> prefilling, List<Sequence> decoding) {
+        if (sequence.position >= sequence.maxTokens) {
+            // there is no room left in the context to generate anything
+            sequence.complete();
+        } else if (sequence.prefillTokens.length > 0) {
+            prefilling.add(sequence);
+        } else {
+            decoding.add(sequence);
+        }
+    }
+
+    /**
+     * Ingests the next block of prompt tokens of the oldest request that still has prompt tokens to ingest
+     */
+    private void prefill(List<Sequence> prefilling, List<Sequence> decoding) {
+        Sequence sequence = prefilling.getFirst();
+        try {
+            int count = Math.min(Math.max(1, Llama.PREFILL_BATCH_SIZE),
+                    sequence.prefillTokens.length - sequence.prefilled);
+            int[] block = Arrays.copyOfRange(sequence.prefillTokens, sequence.prefilled, sequence.prefilled + count);
+            Llama.prefill(model, sequence.lease.state(), block, count, sequence.lease.startPosition() + sequence.prefilled);
+            sequence.prefilled += count;
+        } catch (RuntimeException | Error e) {
+            prefilling.removeFirst();
+            sequence.fail(e);
+            return;
+        }
+        if (sequence.prefilled == sequence.prefillTokens.length) {
+            prefilling.removeFirst();
+            decoding.add(sequence);
+        }
+    }
+
+    /**
+     * Runs one token of each request that is generating tokens through the model and samples the next one
+     */
+    private void decode(List<Sequence> decoding) {
+        int batchSize = decoding.size();
+        Llama.State[] states = new Llama.State[batchSize];
+        int[] tokens = new int[batchSize];
+        int[] positions = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            Sequence sequence = decoding.get(i);
+            states[i] = sequence.lease.state();
+            tokens[i] = sequence.token;
+            positions[i] = sequence.position;
+        }
+        try {
+            Llama.forward(model, states, tokens, positions, batchSize);
+        } catch (RuntimeException | Error e) {
+            for (Sequence sequence : decoding) {
+                sequence.fail(e);
+            }
+            decoding.clear();
+            return;
+        }
+
+        Iterator<Sequence> it = decoding.iterator();
+        while (it.hasNext()) {
+            Sequence sequence = it.next();
+            boolean completed;
+            try {
+                completed = sequence.next();
+            } catch (RuntimeException | Error e) {
+                it.remove();
+                sequence.fail(e);
+                continue;
+            }
+            if (completed) {
+                it.remove();
+                sequence.complete();
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.tracev("Decoded {0} tokens in a single step", batchSize);
+        }
+    }
+
+    private final class Sequence {
+
+        final StatePool.Lease lease;
+        final List<Integer> tokens;
+        final Set<Integer> stopTokens;
+        final int maxTokens;
+        final Sampler sampler;
+        // the tokens that need to be ingested before the first token can be generated, all but the last one
+        final int[] prefillTokens;
+        final List<Integer> tokensSoFar = new ArrayList<>();
+        // the generated tokens that the thread which made the request has not consumed yet
+        final LinkedBlockingQueue<Integer> generatedTokens = new LinkedBlockingQueue<>();
+        final CompletableFuture<List<Integer>> result = new CompletableFuture<>();
+        volatile boolean cancelled;
+        int prefilled;
+        // the token that is run through the model next, and its position
+        int token;
+        int position;
+
+        Sequence(StatePool.Lease lease, List<Integer> tokens, Set<Integer> stopTokens, int maxTokens, Sampler sampler) {
+            this.lease = lease;
+            this.tokens = tokens;
+            this.stopTokens = stopTokens;
+            this.maxTokens = maxTokens;
+            this.sampler = sampler;
+
+            List<Integer> promptTokens = lease.promptTokens();
+            int latestToken = lease.state().latestToken;
+            if (promptTokens.isEmpty()) {
+                this.prefillTokens = new int[0];
+                this.token = latestToken;
+            } else {
+                this.prefillTokens = new int[promptTokens.size()];
+                this.prefillTokens[0] = latestToken;
+                for (int i = 1; i < prefillTokens.length; i++) {
+                    this.prefillTokens[i] = promptTokens.get(i - 1);
+                }
+                this.token = promptTokens.getLast();
+            }
+            this.position = lease.startPosition() + prefillTokens.length;
+        }
+
+        /**
+         * Samples the next token from the logits the last decode step left in the state
+         *
+         * @return whether the generation is complete
+         */
+        boolean next() {
+            int nextToken = sampler.sampleToken(lease.state().logits);
+            tokensSoFar.add(nextToken);
+            generatedTokens.add(nextToken);
+            lease.state().latestToken = token = nextToken;
+            position++;
+            return stopTokens.contains(nextToken) || position >= maxTokens;
+        }
+
+        void complete() {
+            try {
+                statePool.release(lease, tokens, tokensSoFar);
+            } finally {
+                result.complete(tokensSoFar);
+                generatedTokens.add(END_OF_TOKENS);
+            }
+        }
+
+        void fail(Throwable failure) {
+            try {
+                statePool.release(lease, tokens, List.of());
+            } finally {
+                result.completeExceptionally(failure);
+                generatedTokens.add(END_OF_TOKENS);
+            }
+        }
+    }
+}
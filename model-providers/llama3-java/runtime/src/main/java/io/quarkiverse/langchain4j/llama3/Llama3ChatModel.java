@@ -4,8 +4,6 @@ import static dev.langchain4j.data.message.AiMessage.aiMessage;
 import static io.quarkiverse.langchain4j.llama3.MessageMapper.toLlama3Message;
 import static io.quarkiverse.langchain4j.llama3.copy.Llama3.selectSampler;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,27 +28,36 @@ public class Llama3ChatModel implements ChatLanguageModel {
 
     private final Path modelPath;
     private final Llama model;
+    private final InferenceScheduler scheduler;
     private final Float temperature;
     private final Integer maxTokens;
     private final Float topP;
+    private final Integer topK;
     private final Integer seed;
     private final boolean logRequests;
     private final boolean logResponses;
 
     public Llama3ChatModel(Builder builder) {
-        Llama3ModelRegistry llama3ModelRegistry = Llama3ModelRegistry.getOrCreate(builder.modelCachePath);
-        try {
-            modelPath = llama3ModelRegistry.downloadModel(builder.modelName, builder.quantization,
-                    Optional.ofNullable(builder.authToken), Optional.empty());
-            model = llama3ModelRegistry.loadModel(builder.modelName, builder.quantization, builder.maxTokens, true);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        Llama3Inference inference = builder.inference;
+        if (inference == null) {
+            inference = Llama3Inference.builder()
+                    .modelCachePath(builder.modelCachePath)
+                    .modelName(builder.modelName)
+                    .quantization(builder.quantization)
+                    .authToken(builder.authToken)
+                    .maxTokens(builder.maxTokens)
+                    .kvCacheSize(builder.kvCacheSize)
+                    .maxConcurrentRequests(builder.maxConcurrentRequests)
+                    .offHeapKvCache(builder.offHeapKvCache)
+                    .build();
+        }
+        modelPath = inference.modelPath();
+        model = inference.model();
+        scheduler = inference.scheduler();
         temperature = builder.temperature;
         maxTokens = builder.maxTokens;
         topP = builder.topP;
+        topK = builder.topK;
         seed = builder.seed;
         logRequests = builder.logRequests;
         logResponses = builder.logResponses;
@@ -81,7 +88,7 @@ public class Llama3ChatModel implements ChatLanguageModel {
                 false // echo
         );
         Sampler sampler = selectSampler(model.configuration().vocabularySize, options.temperature(), options.topp(),
-                options.seed());
+                topK, options.seed());
         InferenceResponse inferenceResponse = runInference(model, sampler, options, llama3Messages);
 
         var response = Response.from(aiMessage(inferenceResponse.text()),
@@ -96,25 +103,27 @@ public class Llama3ChatModel implements ChatLanguageModel {
 
     private InferenceResponse runInference(Llama model, Sampler sampler, Llama3.Options options,
             List<ChatFormat.Message> messages) {
-        Llama.State state = model.createNewState();
         ChatFormat chatFormat = new ChatFormat(model.tokenizer());
 
-        List<Integer> promptTokens = new ArrayList<>(chatFormat.encodeDialogPrompt(true, messages));
-
+        // the model always starts from the begin of text token (see Llama#createNewState)
+        List<Integer> tokens = new ArrayList<>();
+        tokens.add(chatFormat.getBeginOfText());
+        tokens.addAll(chatFormat.encodeDialogPrompt(true, messages));
+        int promptTokenCount = tokens.size() - 1;
         Set<Integer> stopTokens = chatFormat.getStopTokens();
-        List<Integer> responseTokens = Llama.generateTokens(model, state, 0, promptTokens, stopTokens, options.maxTokens(),
-                sampler, options.echo(), token -> {
-                    if (options.stream()) {
-                        if (!model.tokenizer().isSpecialToken(token)) {
-                            System.out.print(model.tokenizer().decode(List.of(token)));
-                        }
-                    }
-                });
+
+        List<Integer> responseTokens = scheduler.generate(tokens, stopTokens, options.maxTokens(), sampler, token -> {
+            if (options.stream()) {
+                if (!model.tokenizer().isSpecialToken(token)) {
+                    System.out.print(model.tokenizer().decode(List.of(token)));
+                }
+            }
+        });
         if (!responseTokens.isEmpty() && stopTokens.contains(responseTokens.getLast())) {
             responseTokens.removeLast();
         }
 
-        return new InferenceResponse(model.tokenizer().decode(responseTokens), promptTokens.size(), responseTokens.size());
+        return new InferenceResponse(model.tokenizer().decode(responseTokens), promptTokenCount, responseTokens.size());
     }
 
     record InferenceResponse(String text, int promptTokens, int responseTokens) {
@@ -128,17 +137,31 @@ public class Llama3ChatModel implements ChatLanguageModel {
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     public static class Builder {
 
-        private Optional<Path> modelCachePath;
+        private Optional<Path> modelCachePath = Optional.empty();
+        private Llama3Inference inference;
         private String modelName = Consts.DEFAULT_CHAT_MODEL_NAME;
         private String quantization = Consts.DEFAULT_CHAT_MODEL_QUANTIZATION;
         private String authToken;
         private Integer maxTokens = 4_000;
         private Float temperature = 0.7f;
         private Float topP = 0.95f;
+        private Integer topK = 0;
         private Integer seed = 17;
+        private long kvCacheSize = 1024L * 1024 * 1024;
+        private int maxConcurrentRequests = 4;
+        private boolean offHeapKvCache;
         private boolean logRequests;
         private boolean logResponses;
 
+        /**
+         * Runs the requests with an already loaded model, shared with other chat models, in which case the options
+         * that determine how the model is loaded and how its requests are scheduled are ignored
+         */
+        public Builder inference(Llama3Inference inference) {
+            this.inference = inference;
+            return this;
+        }
+
         public Builder modelCachePath(Optional<Path> modelCachePath) {
             this.modelCachePath = modelCachePath;
             return this;
@@ -174,11 +197,31 @@ public class Llama3ChatModel implements ChatLanguageModel {
             return this;
         }
 
+        public Builder topK(Integer topK) {
+            this.topK = topK;
+            return this;
+        }
+
         public Builder seed(Integer seed) {
             this.seed = seed;
             return this;
         }
 
+        public Builder kvCacheSize(long kvCacheSize) {
+            this.kvCacheSize = kvCacheSize;
+            return this;
+        }
+
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        public Builder offHeapKvCache(boolean offHeapKvCache) {
+            this.offHeapKvCache = offHeapKvCache;
+            return this;
+        }
+
         public Builder logRequests(boolean logRequests) {
             this.logRequests = logRequests;
             return this;
@@ -0,0 +1,115 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import io.quarkiverse.langchain4j.llama3.copy.Llama;
+
+/**
+ * A loaded model, together with the pool of states and the scheduler that run all the requests made to it.
+ * <p>
+ * A single instance is meant to be shared by the chat model and the streaming chat model of a configuration, so that
+ * the weights are loaded once and the requests made through both of them are decoded together.
+ * It needs to be closed in order to stop the scheduler thread.
+ */
+public final class Llama3Inference implements AutoCloseable {
+
+    private final Path modelPath;
+    private final Llama model;
+    private final InferenceScheduler scheduler;
+
+    private Llama3Inference(Builder builder) {
+        Llama3ModelRegistry llama3ModelRegistry = Llama3ModelRegistry.getOrCreate(builder.modelCachePath);
+        try {
+            modelPath = llama3ModelRegistry.downloadModel(builder.modelName, builder.quantization,
+                    Optional.ofNullable(builder.authToken), Optional.empty());
+            model = llama3ModelRegistry.loadModel(builder.modelName, builder.quantization, builder.maxTokens, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        scheduler = new InferenceScheduler(model,
+                new StatePool(model, builder.kvCacheSize, builder.maxConcurrentRequests, builder.offHeapKvCache));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    Path modelPath() {
+        return modelPath;
+    }
+
+    Llama model() {
+        return model;
+    }
+
+    InferenceScheduler scheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public void close() {
+        scheduler.close();
+    }
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public static class Builder {
+
+        private Optional<Path> modelCachePath = Optional.empty();
+        private String modelName = Consts.DEFAULT_CHAT_MODEL_NAME;
+        private String quantization = Consts.DEFAULT_CHAT_MODEL_QUANTIZATION;
+        private String authToken;
+        private int maxTokens = 4_000;
+        private long kvCacheSize = 1024L * 1024 * 1024;
+        private int maxConcurrentRequests = 4;
+        private boolean offHeapKvCache;
+
+        public Builder modelCachePath(Optional<Path> modelCachePath) {
+            this.modelCachePath = modelCachePath;
+            return this;
+        }
+
+        public Builder modelName(String modelName) {
+            this.modelName = modelName;
+            return this;
+        }
+
+        public Builder quantization(String quantization) {
+            this.quantization = quantization;
+            return this;
+        }
+
+        public Builder authToken(String authToken) {
+            this.authToken = authToken;
+            return this;
+        }
+
+        public Builder maxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        public Builder kvCacheSize(long kvCacheSize) {
+            this.kvCacheSize = kvCacheSize;
+            return this;
+        }
+
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        public Builder offHeapKvCache(boolean offHeapKvCache) {
+            this.offHeapKvCache = offHeapKvCache;
+            return this;
+        }
+
+        public Llama3Inference build() {
+            return new Llama3Inference(this);
+        }
+    }
+}
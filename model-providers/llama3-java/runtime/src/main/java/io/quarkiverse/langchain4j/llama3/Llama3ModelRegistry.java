@@ -6,19 +6,14 @@ import java.io.IOError;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 
 import org.jboss.logging.Logger;
 
@@ -42,10 +37,21 @@ public class Llama3ModelRegistry {
             + File.separator + "models";
     public static String FINISHED_MARKER = ".finished";
 
+    private static final String DEFAULT_BASE_URL = "https://huggingface.co";
+
     private final Path modelCachePath;
+    private final String baseUrl;
+    private final ModelDownloader downloader;
 
     private Llama3ModelRegistry(Path modelCachePath) {
+        this(modelCachePath, DEFAULT_BASE_URL,
+                new ModelDownloader(ModelDownloader.DEFAULT_PARALLELISM, ModelDownloader.DEFAULT_CHUNK_SIZE));
+    }
+
+    Llama3ModelRegistry(Path modelCachePath, String baseUrl, ModelDownloader downloader) {
         this.modelCachePath = modelCachePath;
+        this.baseUrl = baseUrl;
+        this.downloader = downloader;
         if (!Files.exists(modelCachePath)) {
             try {
                 Files.createDirectories(modelCachePath);
@@ -81,53 +87,18 @@ public class Llama3ModelRegistry {
             return result;
         }
 
-        HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
         URI uri = URI.create(
-                String.format("https://huggingface.co/%s/%s/resolve/main/%s", modelInfo.owner(), modelInfo.name(),
-                        effectiveFileName));
-        HttpRequest request = HttpRequest.newBuilder().uri(uri).build();
-        HttpResponse<InputStream> httpResponse = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
-        if (httpResponse.statusCode() != 200) {
-            throw new RuntimeException(
-                    "Unable to download model " + modelName + ". Response code from " + uri + " is : "
-                            + httpResponse.statusCode());
-        }
+                String.format("%s/%s/%s/resolve/main/%s", baseUrl, modelInfo.owner(), modelInfo.name(), effectiveFileName));
         Files.createDirectories(result.getParent());
-        long totalBytes = httpResponse.headers().firstValueAsLong("content-length").orElse(-1);
         ProgressReporter progressReporter = maybeProgressReporter.orElse((filename, sizeDownloaded, totalSize) -> {
         });
 
         if (maybeProgressReporter.isEmpty()) {
             log.info("Downloading file " + result.toAbsolutePath());
         }
-        String resultFileName = result.getFileName().toString();
-        progressReporter.update(resultFileName, 0L, totalBytes);
-
-        try (CountingInputStream inStream = new CountingInputStream(httpResponse.body())) {
-            CompletableFuture<Long> cf = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return Files.copy(inStream, result, StandardCopyOption.REPLACE_EXISTING);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-            while (!cf.isDone()) {
-                progressReporter.update(resultFileName, inStream.count, totalBytes);
-            }
-            if (cf.isCompletedExceptionally()) {
-                progressReporter.update(resultFileName, inStream.count, totalBytes);
-            } else {
-                progressReporter.update(resultFileName, totalBytes, totalBytes);
-            }
-
-            try {
-                cf.get();
-            } catch (Throwable e) {
-                throw new IOException("Failed to download file: " + resultFileName, e);
-            }
-            if (maybeProgressReporter.isEmpty()) {
-                log.info("Downloaded file " + result.toAbsolutePath());
-            }
+        downloader.download(uri, authToken, result, progressReporter);
+        if (maybeProgressReporter.isEmpty()) {
+            log.info("Downloaded file " + result.toAbsolutePath());
         }
 
         // create a finished marker
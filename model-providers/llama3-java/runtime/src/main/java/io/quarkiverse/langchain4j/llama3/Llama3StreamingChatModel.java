@@ -4,8 +4,6 @@ import static dev.langchain4j.data.message.AiMessage.aiMessage;
 import static io.quarkiverse.langchain4j.llama3.MessageMapper.toLlama3Message;
 import static io.quarkiverse.langchain4j.llama3.copy.Llama3.selectSampler;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,27 +29,36 @@ public class Llama3StreamingChatModel implements StreamingChatLanguageModel {
     private static final Logger log = LoggerFactory.getLogger(Llama3StreamingChatModel.class);
     private final Path modelPath;
     private final Llama model;
+    private final InferenceScheduler scheduler;
     private final Float temperature;
     private final Integer maxTokens;
     private final Float topP;
+    private final Integer topK;
     private final Integer seed;
     private final Boolean logRequests;
     private final Boolean logResponses;
 
     public Llama3StreamingChatModel(Builder builder) {
-        Llama3ModelRegistry llama3ModelRegistry = Llama3ModelRegistry.getOrCreate(builder.modelCachePath);
-        try {
-            modelPath = llama3ModelRegistry.downloadModel(builder.modelName, builder.quantization,
-                    Optional.ofNullable(builder.authToken), Optional.empty());
-            model = llama3ModelRegistry.loadModel(builder.modelName, builder.quantization, builder.maxTokens, true);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        Llama3Inference inference = builder.inference;
+        if (inference == null) {
+            inference = Llama3Inference.builder()
+                    .modelCachePath(builder.modelCachePath)
+                    .modelName(builder.modelName)
+                    .quantization(builder.quantization)
+                    .authToken(builder.authToken)
+                    .maxTokens(builder.maxTokens)
+                    .kvCacheSize(builder.kvCacheSize)
+                    .maxConcurrentRequests(builder.maxConcurrentRequests)
+                    .offHeapKvCache(builder.offHeapKvCache)
+                    .build();
         }
+        modelPath = inference.modelPath();
+        model = inference.model();
+        scheduler = inference.scheduler();
         temperature = builder.temperature;
         maxTokens = builder.maxTokens;
         topP = builder.topP;
+        topK = builder.topK;
         seed = builder.seed;
         logRequests = builder.logRequests;
         logResponses = builder.logResponses;
@@ -59,9 +66,20 @@ public class Llama3StreamingChatModel implements StreamingChatLanguageModel {
 
     @Override
     public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
-        List<ChatFormat.Message> llama3Messages = new ArrayList<>();
-        for (ChatMessage message : messages) {
-            llama3Messages.add(toLlama3Message(message));
+        Response<AiMessage> response;
+        try {
+            response = runInference(messages, handler);
+        } catch (RuntimeException | Error e) {
+            handler.onError(e);
+            return;
+        }
+        handler.onComplete(response);
+    }
+
+    private Response<AiMessage> runInference(List<ChatMessage> chatMessages, StreamingResponseHandler<AiMessage> handler) {
+        List<ChatFormat.Message> messages = new ArrayList<>();
+        for (ChatMessage message : chatMessages) {
+            messages.add(toLlama3Message(message));
         }
 
         Llama3.Options options = new Llama3.Options(
@@ -77,34 +95,31 @@ public class Llama3StreamingChatModel implements StreamingChatLanguageModel {
                 false // echo
         );
         Sampler sampler = selectSampler(model.configuration().vocabularySize, options.temperature(), options.topp(),
-                options.seed());
-        runInference(model, sampler, options, llama3Messages, handler);
-    }
+                topK, options.seed());
 
-    private void runInference(Llama model, Sampler sampler, Llama3.Options options,
-            List<ChatFormat.Message> messages,
-            StreamingResponseHandler<AiMessage> handler) {
-        Llama.State state = model.createNewState();
         ChatFormat chatFormat = new ChatFormat(model.tokenizer());
 
-        List<Integer> promptTokens = new ArrayList<>(chatFormat.encodeDialogPrompt(true, messages));
-
+        // the model always starts from the begin of text token (see Llama#createNewState)
+        List<Integer> tokens = new ArrayList<>();
+        tokens.add(chatFormat.getBeginOfText());
+        tokens.addAll(chatFormat.encodeDialogPrompt(true, messages));
+        int promptTokenCount = tokens.size() - 1;
         Set<Integer> stopTokens = chatFormat.getStopTokens();
-        List<Integer> responseTokens = Llama.generateTokens(model, state, 0, promptTokens, stopTokens, options.maxTokens(),
-                sampler, options.echo(), token -> {
-                    if (options.stream()) {
-                        if (!model.tokenizer().isSpecialToken(token)) {
-                            String text = model.tokenizer().decode(List.of(token));
-                            handler.onNext(text);
-                        }
-                    }
-                });
+
+        List<Integer> responseTokens = scheduler.generate(tokens, stopTokens, options.maxTokens(), sampler, token -> {
+            if (options.stream()) {
+                if (!model.tokenizer().isSpecialToken(token)) {
+                    String text = model.tokenizer().decode(List.of(token));
+                    handler.onNext(text);
+                }
+            }
+        });
         if (!responseTokens.isEmpty() && stopTokens.contains(responseTokens.getLast())) {
             responseTokens.removeLast();
         }
 
-        handler.onComplete(Response.from(aiMessage(model.tokenizer().decode(responseTokens)),
-                new TokenUsage(promptTokens.size(), responseTokens.size())));
+        return Response.from(aiMessage(model.tokenizer().decode(responseTokens)),
+                new TokenUsage(promptTokenCount, responseTokens.size()));
     }
 
     public static Builder builder() {
@@ -114,17 +129,31 @@ public class Llama3StreamingChatModel implements StreamingChatLanguageModel {
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     public static class Builder {
 
-        private Optional<Path> modelCachePath;
+        private Optional<Path> modelCachePath = Optional.empty();
+        private Llama3Inference inference;
         private String modelName = Consts.DEFAULT_CHAT_MODEL_NAME;
         private String quantization = Consts.DEFAULT_CHAT_MODEL_QUANTIZATION;
         private String authToken;
         private Integer maxTokens = 4_000;
         private Float temperature = 0.7f;
         private Float topP = 0.95f;
+        private Integer topK = 0;
         private Integer seed = 17;
+        private long kvCacheSize = 1024L * 1024 * 1024;
+        private int maxConcurrentRequests = 4;
+        private boolean offHeapKvCache;
         private Boolean logRequests;
         private Boolean logResponses;
 
+        /**
+         * Runs the requests with an already loaded model, shared with other chat models, in which case the options
+         * that determine how the model is loaded and how its requests are scheduled are ignored
+         */
+        public Builder inference(Llama3Inference inference) {
+            this.inference = inference;
+            return this;
+        }
+
         public Builder modelCachePath(Optional<Path> modelCachePath) {
             this.modelCachePath = modelCachePath;
             return this;
@@ -160,11 +189,31 @@ public class Llama3StreamingChatModel implements StreamingChatLanguageModel {
             return this;
         }
 
+        public Builder topK(Integer topK) {
+            this.topK = topK;
+            return this;
+        }
+
         public Builder seed(Integer seed) {
             this.seed = seed;
             return this;
         }
 
+        public Builder kvCacheSize(long kvCacheSize) {
+            this.kvCacheSize = kvCacheSize;
+            return this;
+        }
+
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        public Builder offHeapKvCache(boolean offHeapKvCache) {
+            this.offHeapKvCache = offHeapKvCache;
+            return this;
+        }
+
         public Builder logRequests(Boolean logRequests) {
             this.logRequests = logRequests;
             return this;
@@ -0,0 +1,381 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Downloads a model file, in chunks that are requested in parallel when the server supports range requests.
+ * <p>
+ * The chunks are written into a preallocated {@code .part} file, and the ones that were written are recorded in a
+ * manifest next to it, so that an interrupted download resumes where it stopped instead of starting over.
+ * When the server exposes the SHA-256 of the file (which Hugging Face does for the files stored with Git LFS), the
+ * downloaded file is verified against it before it replaces the target file.
+ */
+final class ModelDownloader {
+
+    private static final Logger log = Logger.getLogger(ModelDownloader.class);
+
+    static final String PART_SUFFIX = ".part";
+    static final String MANIFEST_SUFFIX = ".part.manifest";
+
+    static final int DEFAULT_PARALLELISM = 8;
+    static final long DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 500;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes \\d+-\\d+/(\\d+)");
+    private static final Pattern SHA_256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
+    private final int parallelism;
+    private final long chunkSize;
+
+    ModelDownloader(int parallelism, long chunkSize) {
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = chunkSize;
+    }
+
+    void download(URI uri, Optional<String> authToken, Path target, ProgressReporter progressReporter)
+            throws IOException, InterruptedException {
+        String fileName = target.getFileName().toString();
+        Path part = target.resolveSibling(fileName + PART_SUFFIX);
+        Path manifestPath = target.resolveSibling(fileName + MANIFEST_SUFFIX);
+
+        // asking for the first byte tells whether the server supports range requests, and how large the file is
+        HttpResponse<InputStream> probe = client.send(request(uri, authToken).header("Range", "bytes=0-0").build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        Optional<String> sha256 = expectedSha256(probe);
+        long totalBytes;
+        if (probe.statusCode() == 206) {
+            probe.body().close();
+            totalBytes = totalSize(probe);
+            downloadChunks(uri, authToken, part, manifestPath, totalBytes, sha256.orElse(""), progressReporter);
+        } else if (probe.statusCode() == 200) {
+            // the server ignored the range, so the file is downloaded in one go using this response
+            totalBytes = probe.headers().firstValueAsLong("content-length").orElse(-1);
+            Files.deleteIfExists(manifestPath);
+            downloadAtOnce(probe, part, fileName, totalBytes, progressReporter);
+        } else {
+            probe.body().close();
+            throw new RuntimeException(
+                    "Unable to download " + fileName + ". Response code from " + uri + " is : " + probe.statusCode());
+        }
+
+        if (sha256.isPresent()) {
+            String actual = sha256(part);
+            if (!actual.equals(sha256.get())) {
+                Files.deleteIfExists(part);
+                Files.deleteIfExists(manifestPath);
+                throw new IOException("Checksum mismatch for " + fileName + ": expected SHA-256 " + sha256.get()
+                        + " but got " + actual);
+            }
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(manifestPath);
+        progressReporter.update(fileName, totalBytes, totalBytes);
+    }
+
+    private void downloadChunks(URI uri, Optional<String> authToken, Path part, Path manifestPath, long totalBytes,
+            String sha256, ProgressReporter progressReporter) throws IOException, InterruptedException {
+        String fileName = part.getFileName().toString();
+        Manifest existing = Manifest.read(manifestPath);
+        Manifest manifest;
+        if ((existing != null) && Files.exists(part) && existing.matches(totalBytes, chunkSize, sha256)) {
+            manifest = existing;
+        } else {
+            manifest = new Manifest(totalBytes, chunkSize, sha256);
+            Files.deleteIfExists(part);
+        }
+        int chunks = (int) ((totalBytes + chunkSize - 1) / chunkSize);
+        AtomicLong downloaded = new AtomicLong();
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            if (manifest.isCompleted(i)) {
+                downloaded.addAndGet(chunkLength(i, totalBytes));
+            } else {
+                remaining.add(i);
+            }
+        }
+        if (remaining.size() < chunks) {
+            log.debugf("Resuming the download of %s, %d out of %d chunks are missing", fileName, remaining.size(),
+                    chunks);
+        }
+        progressReporter.update(fileName, downloaded.get(), totalBytes);
+        if (remaining.isEmpty()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() != totalBytes) {
+                // positional writes beyond the end of the file would work as well, this just allocates it up front
+                channel.truncate(totalBytes);
+                if (totalBytes > 0 && channel.size() < totalBytes) {
+                    channel.write(ByteBuffer.allocate(1), totalBytes - 1);
+                }
+            }
+            manifest.write(manifestPath);
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, remaining.size()),
+                    new DownloadThreadFactory());
+            List<Future<Void>> futures = new ArrayList<>(remaining.size());
+            try {
+                for (int chunk : remaining) {
+                    futures.add(executor.submit(new Callable<>() {
+                        @Override
+                        public Void call() throws Exception {
+                            long start = chunk * chunkSize;
+                            downloadRange(uri, authToken, channel, start, start + chunkLength(chunk, totalBytes),
+                                    downloaded);
+                            manifest.complete(chunk, manifestPath);
+                            return null;
+                        }
+                    }));
+                }
+                executor.shutdown();
+                while (!executor.awaitTermination(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    progressReporter.update(fileName, downloaded.get(), totalBytes);
+                }
+            } finally {
+                // only does something when the download was interrupted, in which case what was written is kept
+                executor.shutdownNow();
+            }
+            progressReporter.update(fileName, downloaded.get(), totalBytes);
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to download file: " + fileName, e.getCause());
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Writes the bytes {@code [start, end)} of the file at their position in the channel, retrying from where it stopped
+     * if the connection fails
+     */
+    private void downloadRange(URI uri, Optional<String> authToken, FileChannel channel, long start, long end,
+            AtomicLong downloaded) throws IOException, InterruptedException {
+        long position = start;
+        for (int attempt = 1;; attempt++) {
+            try {
+                HttpResponse<InputStream> response = client.send(
+                        request(uri, authToken).header("Range", "bytes=" + position + "-" + (end - 1)).build(),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream in = response.body()) {
+                    if (response.statusCode() != 206) {
+                        throw new IOException("Unexpected response code " + response.statusCode()
+                                + " for the range request to " + uri);
+                    }
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((position < end)
+                            && ((read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position))) != -1)) {
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                        while (byteBuffer.hasRemaining()) {
+                            position += channel.write(byteBuffer, position);
+                        }
+                        downloaded.addAndGet(read);
+                    }
+                }
+                if (position < end) {
+                    throw new IOException("The connection to " + uri + " was closed before the end of the range");
+                }
+                return;
+            } catch (IOException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debugf(e, "Retrying the download of the bytes %d-%d of %s", position, end - 1, uri);
+            }
+        }
+    }
+
+    private void downloadAtOnce(HttpResponse<InputStream> response, Path part, String fileName, long totalBytes,
+            ProgressReporter progressReporter) throws IOException {
+        progressReporter.update(fileName, 0L, totalBytes);
+        long lastUpdate = System.nanoTime();
+        try (Llama3ModelRegistry.CountingInputStream in = new Llama3ModelRegistry.CountingInputStream(response.body());
+                var out = Files.newOutputStream(part)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (System.nanoTime() - lastUpdate >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS)) {
+                    progressReporter.update(fileName, in.getCount(), totalBytes);
+                    lastUpdate = System.nanoTime();
+                }
+            }
+        } catch (IOException e) {
+            throw new IOException("Failed to download file: " + fileName, e);
+        }
+    }
+
+    private long chunkLength(int chunk, long totalBytes) {
+        return Math.min(chunkSize, totalBytes - chunk * chunkSize);
+    }
+
+    private static HttpRequest.Builder request(URI uri, Optional<String> authToken) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri);
+        authToken.ifPresent(token -> builder.header("Authorization", "Bearer " + token));
+        return builder;
+    }
+
+    private static long totalSize(HttpResponse<?> response) throws IOException {
+        String contentRange = response.headers().firstValue("content-range").orElse("");
+        var matcher = CONTENT_RANGE.matcher(contentRange);
+        if (!matcher.matches()) {
+            throw new IOException("Unable to determine the size of " + response.uri() + " from " + contentRange);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Hugging Face redirects the files stored with Git LFS to a CDN, and exposes their SHA-256 in the
+     * {@code X-Linked-Etag} header of the redirect (which is why the previous responses are looked at as well).
+     */
+    private static Optional<String> expectedSha256(HttpResponse<?> response) {
+        for (HttpResponse<?> r = response; r != null; r = r.previousResponse().orElse(null)) {
+            for (String header : List.of("x-linked-etag", "etag")) {
+                Optional<String> value = r.headers().firstValue(header)
+                        .map(v -> v.replace("W/", "").replace("\"", "").toLowerCase(Locale.ROOT));
+                if (value.isPresent() && SHA_256.matcher(value.get()).matches()) {
+                    return value;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The chunks of a partially downloaded file that were written, along with what identifies the file they belong to
+     */
+    static final class Manifest {
+
+        private final long size;
+        private final long chunkSize;
+        private final String sha256;
+        private final BitSet completed;
+
+        Manifest(long size, long chunkSize, String sha256) {
+            this(size, chunkSize, sha256, new BitSet());
+        }
+
+        private Manifest(long size, long chunkSize, String sha256, BitSet completed) {
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.sha256 = sha256;
+            this.completed = completed;
+        }
+
+        boolean matches(long size, long chunkSize, String sha256) {
+            return (this.size == size) && (this.chunkSize == chunkSize) && this.sha256.equals(sha256);
+        }
+
+        synchronized boolean isCompleted(int chunk) {
+            return completed.get(chunk);
+        }
+
+        synchronized void complete(int chunk, Path path) throws IOException {
+            completed.set(chunk);
+            write(path);
+        }
+
+        synchronized void write(Path path) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("size", Long.toString(size));
+            properties.setProperty("chunk-size", Long.toString(chunkSize));
+            properties.setProperty("sha256", sha256);
+            properties.setProperty("completed", HexFormat.of().formatHex(completed.toByteArray()));
+            // the manifest is replaced atomically, so that it is never found half written
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp)) {
+                properties.store(writer, null);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        static Manifest read(Path path) {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path)) {
+                properties.load(reader);
+                return new Manifest(Long.parseLong(properties.getProperty("size")),
+                        Long.parseLong(properties.getProperty("chunk-size")),
+                        properties.getProperty("sha256", ""),
+                        BitSet.valueOf(HexFormat.of().parseHex(properties.getProperty("completed", ""))));
+            } catch (IOException | RuntimeException e) {
+                log.debugf(e, "Ignoring the unreadable download manifest %s", path);
+                return null;
+            }
+        }
+    }
+
+    private static final class DownloadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "llama3-download-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.jboss.logging.Logger;
+
+import io.quarkiverse.langchain4j.llama3.copy.Llama;
+
+/**
+ * Bounded pool of {@link Llama.State} instances, which are large (most notably because of the KV-cache) and are
+ * therefore reused across requests instead of being allocated for each one of them.
+ * <p>
+ * The pool also keeps track of the tokens that each idle state has seen, so that a new request only needs to ingest
+ * the tokens that come after the longest prefix it has in common with one of them.
+ * In a multi-turn chat this prefix is typically the system message and the history of the conversation.
+ * <p>
+ * A state is handed out to a single request at a time, and the number of requests holding a state is bounded,
+ * which means that requests exceeding that number wait for a state to be released.
+ * As many idle states as there can be concurrent requests are always kept, so that the requests don't allocate a new
+ * state each time. More idle states are kept as long as the configured amount of memory is not exceeded, the least
+ * recently used ones being repurposed (or evicted) first.
+ */
+final class StatePool {
+
+    private static final Logger log = Logger.getLogger(StatePool.class);
+
+    private final Llama model;
+    private final boolean offHeapKvCache;
+    private final int maxIdle;
+    private final Semaphore permits;
+    // least recently used first
+    private final LinkedList<Entry> idle = new LinkedList<>();
+
+    StatePool(Llama model, long maxIdleSizeInBytes, int maxConcurrentRequests, boolean offHeapKvCache) {
+        this.model = model;
+        this.offHeapKvCache = offHeapKvCache;
+        int maxPermits = Math.max(1, maxConcurrentRequests);
+        // the states of the requests running at the same time are recycled regardless of the memory budget, which only
+        // applies to the states that are kept on top of them for their prefix
+        this.maxIdle = (int) Math.max(maxPermits,
+                Math.min(Integer.MAX_VALUE, maxIdleSizeInBytes / stateSizeInBytes(model.configuration())));
+        this.permits = new Semaphore(maxPermits, true);
+    }
+
+    /**
+     * Waits until the request is allowed to run and hands it a state, which must be given back using
+     * {@link #release(Lease, List, List)}.
+     *
+     * @param tokens all the tokens the model needs to see for the request, the first one being the token the model
+     *        starts from
+     */
+    Lease acquire(List<Integer> tokens) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        try {
+            Entry reused = null;
+            int prefix = 0;
+            synchronized (this) {
+                for (Entry entry : idle) {
+                    int entryPrefix = commonPrefixLength(entry.tokens(), tokens);
+                    if (entryPrefix > prefix) {
+                        reused = entry;
+                        prefix = entryPrefix;
+                    }
+                }
+                if ((reused == null) && !idle.isEmpty()
+                        && (idle.getFirst().tokens().isEmpty() || (idle.size() >= maxIdle))) {
+                    // either there is a state nothing can be reused from, or there is no room left to keep one more
+                    // state around, in both cases the least useful one is repurposed
+                    reused = idle.getFirst();
+                }
+                if (reused != null) {
+                    idle.remove(reused);
+                }
+            }
+
+            Llama.State state;
+            int startPosition;
+            if (reused == null) {
+                state = model.createNewState(offHeapKvCache);
+                startPosition = 0;
+            } else {
+                // there is no need to clear anything: the KV-cache entries after the start position are overwritten
+                // before they are read and the other buffers are overwritten on each forward pass
+                state = reused.state();
+                // the last token always needs to go through the model in order to obtain the logits of the next one
+                startPosition = Math.min(prefix, tokens.size() - 1);
+                if (startPosition > 0) {
+                    log.debugv("Reusing the KV-cache of {0} out of {1} prompt tokens", startPosition, tokens.size());
+                }
+            }
+            state.latestToken = tokens.get(startPosition);
+            return new Lease(state, startPosition, tokens.subList(startPosition + 1, tokens.size()));
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back the state of a completed (or failed) request
+     *
+     * @param tokens all the tokens the model was supposed to see during the request
+     * @param generatedTokens the tokens that were generated, the last one of which was never fed back into the model,
+     *        empty if the request failed
+     */
+    void release(Lease lease, List<Integer> tokens, List<Integer> generatedTokens) {
+        try {
+            List<Integer> processedTokens;
+            if (generatedTokens.isEmpty()) {
+                // it is not known how far the request got
+                processedTokens = Collections.emptyList();
+            } else {
+                processedTokens = new ArrayList<>(tokens.size() + generatedTokens.size() - 1);
+                processedTokens.addAll(tokens);
+                processedTokens.addAll(generatedTokens.subList(0, generatedTokens.size() - 1));
+                if (processedTokens.size() > model.configuration().contextLength) {
+                    processedTokens = Collections.emptyList();
+                }
+            }
+
+            synchronized (this) {
+                Entry entry = new Entry(lease.state(), processedTokens);
+                if (processedTokens.isEmpty()) {
+                    idle.addFirst(entry);
+                } else {
+                    idle.addLast(entry);
+                }
+                Iterator<Entry> it = idle.iterator();
+                while (idle.size() > maxIdle) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static int commonPrefixLength(List<Integer> first, List<Integer> second) {
+        int max = Math.min(first.size(), second.size());
+        int i = 0;
+        while (i < max && first.get(i).equals(second.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static long stateSizeInBytes(Llama.Configuration config) {
+        long kvDim = ((long) config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        long kvCache = 2L * config.numberOfLayers * config.contextLength * kvDim;
+        long buffers = 6L * config.dim + 2L * config.hiddenDim + (long) config.numberOfHeads * config.contextLength
+                + config.vocabularySize;
+        // the prompt tokens are ingested in batches using additional buffers
+        long prefillBuffers = Llama.PREFILL_BATCH_SIZE > 1
+                ? (long) Llama.PREFILL_BATCH_SIZE * (4L * config.dim + 2L * config.hiddenDim + 2L * kvDim)
+                : 0;
+        return Float.BYTES * (kvCache + buffers + prefillBuffers);
+    }
+
+    /**
+     * @param state the state to run the request with
+     * @param startPosition the position from which the model needs to be run
+     * @param promptTokens the prompt tokens that still need to be ingested after {@link Llama.State#latestToken}
+     */
+    record Lease(Llama.State state, int startPosition, List<Integer> promptTokens) {
+    }
+
+    private record Entry(Llama.State state, List<Integer> tokens) {
+    }
+}
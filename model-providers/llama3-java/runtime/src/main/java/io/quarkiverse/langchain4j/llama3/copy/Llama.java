@@ -5,12 +5,26 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.function.IntConsumer;
-import java.util.stream.Stream;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 public record Llama(Configuration configuration, Tokenizer tokenizer, Weights weights) {
 
+    /**
+     * Number of prompt tokens that are run through the model at once, set to 1 to ingest prompt tokens one by one
+     */
+    public static final int PREFILL_BATCH_SIZE = Integer.getInteger("llama.PrefillBatchSize", 32);
+
     public State createNewState() {
-        State state = new State(configuration());
+        return createNewState(false);
+    }
+
+    /**
+     * @param offHeapKvCache whether the key/value caches, which make up most of the state, should be allocated outside
+     *        the Java heap
+     */
+    public State createNewState(boolean offHeapKvCache) {
+        State state = new State(configuration(), offHeapKvCache);
         state.latestToken = tokenizer.getSpecialTokens().get("<|begin_of_text|>");
         return state;
     }
@@ -113,7 +127,10 @@ public record Llama(Configuration configuration, Tokenizer tokenizer, Weights we
 
         public int latestToken;
 
-        State(Configuration config) {
+        // only allocated once prompt tokens are ingested in batches
+        PrefillBuffers prefill;
+
+        State(Configuration config, boolean offHeapKvCache) {
             this.x = ArrayFloatTensor.allocate(config.dim);
             this.xb = ArrayFloatTensor.allocate(config.dim);
             this.xb2 = ArrayFloatTensor.allocate(config.dim);
@@ -125,10 +142,42 @@ public record Llama(Configuration configuration, Tokenizer tokenizer, Weights we
             this.att = ArrayFloatTensor.allocate(config.numberOfHeads, config.contextLength);
             this.logits = ArrayFloatTensor.allocate(config.vocabularySize);
             int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
-            this.keyCache = Stream.generate(() -> ArrayFloatTensor.allocate(config.contextLength, kvDim))
-                    .limit(config.numberOfLayers).toArray(FloatTensor[]::new);
-            this.valueCache = Stream.generate(() -> ArrayFloatTensor.allocate(config.contextLength, kvDim))
-                    .limit(config.numberOfLayers).toArray(FloatTensor[]::new);
+            IntFunction<FloatTensor> cacheAllocator = offHeapKvCache
+                    ? layer -> SegmentFloatTensor.allocate(config.contextLength, kvDim)
+                    : layer -> ArrayFloatTensor.allocate(config.contextLength, kvDim);
+            this.keyCache = IntStream.range(0, config.numberOfLayers).mapToObj(cacheAllocator).toArray(FloatTensor[]::new);
+            this.valueCache = IntStream.range(0, config.numberOfLayers).mapToObj(cacheAllocator).toArray(FloatTensor[]::new);
+        }
+    }
+
+    /**
+     * The activation buffers of {@link State}, for each token of a block of prompt tokens
+     */
+    static final class PrefillBuffers {
+
+        final FloatTensor[] x;
+        final FloatTensor[] xb;
+        final FloatTensor[] xb2;
+        final FloatTensor[] hb;
+        final FloatTensor[] hb2;
+        final FloatTensor[] q;
+        final FloatTensor[] k;
+        final FloatTensor[] v;
+
+        PrefillBuffers(Configuration config, int batchSize) {
+            int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+            this.x = allocate(batchSize, config.dim);
+            this.xb = allocate(batchSize, config.dim);
+            this.xb2 = allocate(batchSize, config.dim);
+            this.hb = allocate(batchSize, config.hiddenDim);
+            this.hb2 = allocate(batchSize, config.hiddenDim);
+            this.q = allocate(batchSize, config.dim);
+            this.k = allocate(batchSize, kvDim);
+            this.v = allocate(batchSize, kvDim);
+        }
+
+        private static FloatTensor[] allocate(int batchSize, int size) {
+            return IntStream.range(0, batchSize).mapToObj(i -> ArrayFloatTensor.allocate(size)).toArray(FloatTensor[]::new);
         }
     }
 
@@ -143,15 +192,83 @@ public record Llama(Configuration configuration, Tokenizer tokenizer, Weights we
         out.mapWithIndexInPlace(0, size, (value, index) -> weight.get(index) * (finalss * x.getFloat(index)));
     }
 
+    static void rope(Configuration config, Weights weights, FloatTensor q, FloatTensor k, int position) {
+        int headSize = config.headSize;
+        int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        for (int i = 0; i < config.dim; i += 2) {
+            int head_dim = i % headSize;
+            float fcr = weights.freq_cis_real.get(position * (headSize / 2) + (head_dim / 2));
+            float fci = weights.freq_cis_imag.get(position * (headSize / 2) + (head_dim / 2));
+            int rotn = i < kvDim ? 2 : 1; // how many vectors? 2 = q & k, 1 = q only
+            for (int v = 0; v < rotn; v++) {
+                FloatTensor vec = v == 0 ? q : k; // the vector to rotate (query or key)
+                float v0 = vec.getFloat(i);
+                float v1 = vec.getFloat(i + 1);
+                vec.setFloat(i, v0 * fcr - v1 * fci);
+                vec.setFloat(i + 1, v0 * fci + v1 * fcr);
+            }
+        }
+    }
+
+    /**
+     * Multihead attention of query {@code q} at {@code position} over the keys and values of {@code layer}
+     * for positions {@code 0..position} (inclusive), the result is stored into {@code out}.
+     */
+    static void attention(Configuration config, State state, FloatTensor q, FloatTensor out, int layer, int position) {
+        int headSize = config.headSize;
+        int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        int kvMul = config.numberOfHeads / config.numberOfKeyValueHeads; // integer multiplier of the kv sharing in multiquery
+        float sqrtHeadSize = (float) Math.sqrt(headSize);
+
+        // iterate over all heads
+        Parallel.parallelFor(0, config.numberOfHeads, h -> {
+            // get the query vector for this head
+            // float* q = s.q + h * headSize;
+            int qOffset = h * headSize;
+
+            // attention scores for this head
+            // float* att = s.att + h * config.seq_len;
+            int attOffset = h * config.contextLength;
+
+            // iterate over all timesteps, including the current one
+            for (int t = 0; t <= position; t++) {
+                // get the key vector for this head and at this timestep
+                // float* k = s.key_cache + loff + t * dim + h * headSize;
+                int keyCacheOffset = /* loff + */ t * kvDim + (h / kvMul) * headSize;
+                // calculate the attention score as the dot product of q and k
+                float score = q.dot(qOffset, state.keyCache[layer], keyCacheOffset, headSize);
+                score /= sqrtHeadSize;
+                // save the score to the attention buffer
+                state.att.setFloat(attOffset + t, score);
+            }
+
+            // softmax the scores to get attention weights, from 0..position inclusively
+            state.att.softmaxInPlace(attOffset, position + 1);
+
+            // weighted sum of the values, store back into xb
+            // float* xb = s.xb + h * headSize;
+            int xbOffset = h * headSize;
+            // memset(xb, 0, headSize * sizeof(float));
+            out.fillInPlace(xbOffset, headSize, 0f);
+
+            for (int t = 0; t <= position; t++) {
+                // get the value vector for this head and at this timestep
+                // float* v = s.value_cache + loff + t * dim + h * headSize;
+                int vOffset = /* loff + */ t * kvDim + (h / kvMul) * headSize;
+                // get the attention weight for this timestep
+                float a = state.att.getFloat(attOffset + t);
+                // accumulate the weighted value into xb
+                out.saxpyInPlace(xbOffset, state.valueCache[layer], vOffset, headSize, a);
+            }
+        });
+    }
+
     static FloatTensor forward(Llama model, State state, int token, int position) {
         // a few convenience variables
         Configuration config = model.configuration();
         Weights weights = model.weights();
         int dim = config.dim;
-        int headSize = config.headSize;
         int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
-        int kvMul = config.numberOfHeads / config.numberOfKeyValueHeads; // integer multiplier of the kv sharing in multiquery
-        float sqrtHeadSize = (float) Math.sqrt(headSize);
 
         // copy the token embedding into x
         weights.token_embedding_table.copyTo(token * dim, state.x, 0, dim);
@@ -167,68 +284,15 @@ public record Llama(Configuration configuration, Tokenizer tokenizer, Weights we
             weights.wv[l].matmul(state.xb, state.v, kvDim, dim);
 
             // RoPE relative positional encoding: complex-valued rotate q and k in each head
-            for (int i = 0; i < dim; i += 2) {
-                int head_dim = i % headSize;
-                float fcr = weights.freq_cis_real.get(position * (headSize / 2) + (head_dim / 2));
-                float fci = weights.freq_cis_imag.get(position * (headSize / 2) + (head_dim / 2));
-                int rotn = i < kvDim ? 2 : 1; // how many vectors? 2 = q & k, 1 = q only
-                for (int v = 0; v < rotn; v++) {
-                    FloatTensor vec = v == 0 ? state.q : state.k; // the vector to rotate (query or key)
-                    float v0 = vec.getFloat(i);
-                    float v1 = vec.getFloat(i + 1);
-                    vec.setFloat(i, v0 * fcr - v1 * fci);
-                    vec.setFloat(i + 1, v0 * fci + v1 * fcr);
-                }
-            }
+            rope(config, weights, state.q, state.k, position);
 
             // save key,value at this time step (position) to our kv cache
             //int loff = l * config.seq_len * kvDim; // kv cache layer offset for convenience
             state.k.copyTo(0, state.keyCache[l], position * kvDim, kvDim);
             state.v.copyTo(0, state.valueCache[l], position * kvDim, kvDim);
 
-            int curLayer = l;
-
-            // multihead attention. iterate over all heads
-            Parallel.parallelFor(0, config.numberOfHeads, h -> {
-                // get the query vector for this head
-                // float* q = s.q + h * headSize;
-                int qOffset = h * headSize;
-
-                // attention scores for this head
-                // float* att = s.att + h * config.seq_len;
-                int attOffset = h * config.contextLength;
-
-                // iterate over all timesteps, including the current one
-                for (int t = 0; t <= position; t++) {
-                    // get the key vector for this head and at this timestep
-                    // float* k = s.key_cache + loff + t * dim + h * headSize;
-                    int keyCacheOffset = /* loff + */ t * kvDim + (h / kvMul) * headSize;
-                    // calculate the attention score as the dot product of q and k
-                    float score = state.q.dot(qOffset, state.keyCache[curLayer], keyCacheOffset, headSize);
-                    score /= sqrtHeadSize;
-                    // save the score to the attention buffer
-                    state.att.setFloat(attOffset + t, score);
-                }
-
-                // softmax the scores to get attention weights, from 0..position inclusively
-                state.att.softmaxInPlace(attOffset, position + 1);
-
-                // weighted sum of the values, store back into xb
-                // float* xb = s.xb + h * headSize;
-                int xbOffset = h * headSize;
-                // memset(xb, 0, headSize * sizeof(float));
-                state.xb.fillInPlace(xbOffset, headSize, 0f);
-
-                for (int t = 0; t <= position; t++) {
-                    // get the value vector for this head and at this timestep
-                    // float* v = s.value_cache + loff + t * dim + h * headSize;
-                    int vOffset = /* loff + */ t * kvDim + (h / kvMul) * headSize;
-                    // get the attention weight for this timestep
-                    float a = state.att.getFloat(attOffset + t);
-                    // accumulate the weighted value into xb
-                    state.xb.saxpyInPlace(xbOffset, state.valueCache[curLayer], vOffset, headSize, a);
-                }
-            });
+            // multihead attention
+            attention(config, state, state.q, state.xb, l, position);
 
             // final matmul to get the output of the attention
             weights.wo[l].matmul(state.xb, state.xb2, dim, dim);
@@ -267,6 +331,192 @@ public record Llama(Configuration configuration, Tokenizer tokenizer, Weights we
         return state.logits;
     }
 
+    /**
+     * Same as calling {@link #forward(Llama, State, int, int)} for each one of the first {@code batchSize} states, except
+     * that each weight matrix is read once for all of them instead of once per state.
+     * The logits of each state end up in its {@link State#logits}.
+     */
+    public static void forward(Llama model, State[] states, int[] tokens, int[] positions, int batchSize) {
+        Configuration config = model.configuration();
+        Weights weights = model.weights();
+        int dim = config.dim;
+        int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+
+        FloatTensor[] x = new FloatTensor[batchSize];
+        FloatTensor[] xb = new FloatTensor[batchSize];
+        FloatTensor[] xb2 = new FloatTensor[batchSize];
+        FloatTensor[] hb = new FloatTensor[batchSize];
+        FloatTensor[] hb2 = new FloatTensor[batchSize];
+        FloatTensor[] q = new FloatTensor[batchSize];
+        FloatTensor[] k = new FloatTensor[batchSize];
+        FloatTensor[] v = new FloatTensor[batchSize];
+        FloatTensor[] logits = new FloatTensor[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            State state = states[i];
+            x[i] = state.x;
+            xb[i] = state.xb;
+            xb2[i] = state.xb2;
+            hb[i] = state.hb;
+            hb2[i] = state.hb2;
+            q[i] = state.q;
+            k[i] = state.k;
+            v[i] = state.v;
+            logits[i] = state.logits;
+            // copy the token embedding into x
+            weights.token_embedding_table.copyTo(tokens[i] * dim, state.x, 0, dim);
+        }
+
+        // forward all the layers
+        for (int l = 0; l < config.numberOfLayers; l++) {
+            // attention rmsnorm
+            for (int i = 0; i < batchSize; i++) {
+                rmsnorm(xb[i], x[i], weights.rms_att_weight[l], dim, config.rmsNormEps);
+            }
+
+            // qkv matmuls for all the states
+            weights.wq[l].matmul(batchSize, xb, q, dim, dim);
+            weights.wk[l].matmul(batchSize, xb, k, kvDim, dim);
+            weights.wv[l].matmul(batchSize, xb, v, kvDim, dim);
+
+            for (int i = 0; i < batchSize; i++) {
+                State state = states[i];
+                int position = positions[i];
+                // RoPE relative positional encoding: complex-valued rotate q and k in each head
+                rope(config, weights, q[i], k[i], position);
+                // save key,value at this time step (position) to the kv cache of the state
+                k[i].copyTo(0, state.keyCache[l], position * kvDim, kvDim);
+                v[i].copyTo(0, state.valueCache[l], position * kvDim, kvDim);
+                // multihead attention
+                attention(config, state, q[i], xb[i], l, position);
+            }
+
+            // final matmul to get the output of the attention
+            weights.wo[l].matmul(batchSize, xb, xb2, dim, dim);
+
+            for (int i = 0; i < batchSize; i++) {
+                // residual connection back into x
+                x[i].addInPlace(xb2[i]);
+                // ffn rmsnorm
+                rmsnorm(xb[i], x[i], weights.rms_ffn_weight[l], dim, config.rmsNormEps);
+            }
+
+            // Now for FFN in PyTorch we have: self.w2(F.silu(self.w1(x)) * self.w3(x))
+            // first calculate self.w1(x) and self.w3(x)
+            weights.w1[l].matmul(batchSize, xb, hb, config.hiddenDim, dim);
+            weights.w3[l].matmul(batchSize, xb, hb2, config.hiddenDim, dim);
+
+            for (int i = 0; i < batchSize; i++) {
+                // SwiGLU non-linearity
+                // silu(x)=x*σ(x), where σ(x) is the logistic sigmoid
+                hb[i].mapInPlace(value -> value / (float) (1.0 + Math.exp(-value)));
+                // elementwise multiply with w3(x)
+                hb[i].multiplyInPlace(hb2[i]);
+            }
+
+            // final matmul to get the output of the ffn
+            weights.w2[l].matmul(batchSize, hb, xb, dim, config.hiddenDim);
+
+            // residual connection
+            for (int i = 0; i < batchSize; i++) {
+                x[i].addInPlace(xb[i]);
+            }
+        }
+
+        // final rmsnorm
+        for (int i = 0; i < batchSize; i++) {
+            rmsnorm(x[i], x[i], weights.rms_final_weight, dim, config.rmsNormEps);
+        }
+
+        // classifier into logits
+        weights.wcls.matmul(batchSize, x, logits, config.vocabularySize, dim);
+    }
+
+    /**
+     * Ingests {@code tokens[0..count)} at positions {@code startPosition..startPosition + count}, like calling
+     * {@link #forward(Llama, State, int, int)} for each one of them would, except that no logits are computed.
+     * <p>
+     * The tokens are processed in blocks of {@link #PREFILL_BATCH_SIZE}, so that each weight matrix is read (and
+     * dequantized) once per block instead of once per token.
+     */
+    public static void prefill(Llama model, State state, int[] tokens, int count, int startPosition) {
+        Configuration config = model.configuration();
+        Weights weights = model.weights();
+        int dim = config.dim;
+        int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        if (state.prefill == null) {
+            state.prefill = new PrefillBuffers(config, PREFILL_BATCH_SIZE);
+        }
+        PrefillBuffers b = state.prefill;
+
+        for (int offset = 0; offset < count; offset += PREFILL_BATCH_SIZE) {
+            int batchSize = Math.min(PREFILL_BATCH_SIZE, count - offset);
+            int batchPosition = startPosition + offset;
+
+            // copy the token embeddings into x
+            for (int i = 0; i < batchSize; i++) {
+                weights.token_embedding_table.copyTo(tokens[offset + i] * dim, b.x[i], 0, dim);
+            }
+
+            // forward all the layers
+            for (int l = 0; l < config.numberOfLayers; l++) {
+                // attention rmsnorm
+                for (int i = 0; i < batchSize; i++) {
+                    rmsnorm(b.xb[i], b.x[i], weights.rms_att_weight[l], dim, config.rmsNormEps);
+                }
+
+                // qkv matmuls for all the positions of the block
+                weights.wq[l].matmul(batchSize, b.xb, b.q, dim, dim);
+                weights.wk[l].matmul(batchSize, b.xb, b.k, kvDim, dim);
+                weights.wv[l].matmul(batchSize, b.xb, b.v, kvDim, dim);
+
+                for (int i = 0; i < batchSize; i++) {
+                    int position = batchPosition + i;
+                    // RoPE relative positional encoding: complex-valued rotate q and k in each head
+                    rope(config, weights, b.q[i], b.k[i], position);
+                    // save key,value at this time step (position) to our kv cache
+                    b.k[i].copyTo(0, state.keyCache[l], position * kvDim, kvDim);
+                    b.v[i].copyTo(0, state.valueCache[l], position * kvDim, kvDim);
+                }
+
+                // multihead attention, each position only attends to itself and the positions before it
+                for (int i = 0; i < batchSize; i++) {
+                    attention(config, state, b.q[i], b.xb[i], l, batchPosition + i);
+                }
+
+                // final matmul to get the output of the attention
+                weights.wo[l].matmul(batchSize, b.xb, b.xb2, dim, dim);
+
+                for (int i = 0; i < batchSize; i++) {
+                    // residual connection back into x
+                    b.x[i].addInPlace(b.xb2[i]);
+                    // ffn rmsnorm
+                    rmsnorm(b.xb[i], b.x[i], weights.rms_ffn_weight[l], dim, config.rmsNormEps);
+                }
+
+                // Now for FFN in PyTorch we have: self.w2(F.silu(self.w1(x)) * self.w3(x))
+                // first calculate self.w1(x) and self.w3(x)
+                weights.w1[l].matmul(batchSize, b.xb, b.hb, config.hiddenDim, dim);
+                weights.w3[l].matmul(batchSize, b.xb, b.hb2, config.hiddenDim, dim);
+
+                for (int i = 0; i < batchSize; i++) {
+                    // SwiGLU non-linearity
+                    // silu(x)=x*σ(x), where σ(x) is the logistic sigmoid
+                    b.hb[i].mapInPlace(value -> value / (float) (1.0 + Math.exp(-value)));
+                    // elementwise multiply with w3(x)
+                    b.hb[i].multiplyInPlace(b.hb2[i]);
+                }
+
+                // final matmul to get the output of the ffn
+                weights.w2[l].matmul(batchSize, b.hb, b.xb, dim, config.hiddenDim);
+
+                // residual connection
+                for (int i = 0; i < batchSize; i++) {
+                    b.x[i].addInPlace(b.xb[i]);
+                }
+            }
+        }
+    }
+
     /**
      * LLM generation entry point, ingest prompt tokens and generates new tokens.
      *
@@ -301,7 +551,30 @@ public record Llama(Configuration configuration, Tokenizer tokenizer, Weights we
         int token = state.latestToken; // BOS?
         int nextToken;
         int promptIndex = 0;
-        for (int position = startPosition; position < maxTokens; ++position) {
+        int position = startPosition;
+
+        // The logits of all the tokens but the last prompt token are not needed, so they can be ingested in batches.
+        // The last prompt token goes through the regular path below, which computes the logits of the first
+        // generated token.
+        int prefillCount = Math.min(promptTokens.size(), maxTokens - 1 - startPosition);
+        if (PREFILL_BATCH_SIZE > 1 && prefillCount > 1) {
+            int[] prefillTokens = new int[prefillCount];
+            prefillTokens[0] = token;
+            for (int i = 1; i < prefillCount; i++) {
+                prefillTokens[i] = promptTokens.get(i - 1);
+            }
+            prefill(model, state, prefillTokens, prefillCount, startPosition);
+            if (echo) {
+                for (int i = 0; i < prefillCount; i++) {
+                    System.err.print(Tokenizer.replaceControlCharacters(model.tokenizer().decode(List.of(promptTokens.get(i)))));
+                }
+            }
+            promptIndex = prefillCount;
+            position += prefillCount;
+            state.latestToken = token = promptTokens.get(prefillCount - 1);
+        }
+
+        for (; position < maxTokens; ++position) {
             forward(model, state, token, position);
             if (promptIndex < promptTokens.size()) {
                 // Force-pick token from prompt.
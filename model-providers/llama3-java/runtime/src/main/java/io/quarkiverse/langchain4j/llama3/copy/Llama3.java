@@ -21,6 +21,7 @@ package io.quarkiverse.langchain4j.llama3.copy;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.lang.reflect.Field;
@@ -29,46 +30,40 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
-import java.util.function.IntConsumer;
 import java.util.random.RandomGenerator;
 import java.util.random.RandomGeneratorFactory;
-import java.util.stream.IntStream;
 
 import jdk.incubator.vector.ByteVector;
 import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
 import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
 import jdk.incubator.vector.VectorSpecies;
 import sun.misc.Unsafe;
 
 public class Llama3 {
 
     public static Sampler selectSampler(int vocabularySize, float temperature, float topp, long rngSeed) {
+        return selectSampler(vocabularySize, temperature, topp, 0, rngSeed);
+    }
+
+    /**
+     * @param topk number of most likely tokens the next token is sampled from, {@code 0} to disable
+     */
+    public static Sampler selectSampler(int vocabularySize, float temperature, float topp, int topk, long rngSeed) {
         Sampler sampler;
-        if (temperature == 0.0f) {
+        if (temperature == 0.0f || topk == 1) {
             // greedy argmax sampling: take the token with the highest probability
             sampler = Sampler.ARGMAX;
         } else {
             // we sample from this distribution to get the next token
             RandomGenerator rng = RandomGeneratorFactory.getDefault().create(rngSeed);
-            Sampler innerSampler;
-            if (topp <= 0 || topp >= 1) {
-                // simply sample from the predicted probability distribution
-                innerSampler = new CategoricalSampler(rng);
-            } else {
-                // top-p (nucleus) sampling, clamping the least likely tokens to zero
-                innerSampler = new ToppSampler(vocabularySize, topp, rng);
-            }
-            sampler = logits -> {
-                // apply the temperature to the logits
-                logits.divideInPlace(0, logits.size(), temperature);
-                // apply softmax to the logits to get the probabilities for next token
-                logits.softmaxInPlace(0, logits.size());
-                return innerSampler.sampleToken(logits);
-            };
+            sampler = new FusedSampler(vocabularySize, temperature, topp, topk, rng);
         }
         return sampler;
     }
@@ -276,12 +271,6 @@ public class Llama3 {
     }
 }
 
-final class Parallel {
-    public static void parallelFor(int startInclusive, int endExclusive, IntConsumer action) {
-        IntStream.range(startInclusive, endExclusive).parallel().forEach(action);
-    }
-}
-
 final class Float16 {
     public static final int BYTES = 2;
 }
@@ -353,10 +342,36 @@ abstract class FloatTensor {
         return scalarDot(this, thisOffset, that, thatOffset, size);
     }
 
+    /**
+     * Accumulates the products of the 16 floats of {@code that} starting at {@code thatOffset} with the given 16 quants,
+     * which are dequantized to {@code quant * scale + offset}.
+     */
+    static FloatVector fmaQuants(ByteVector quants, FloatVector scale, FloatVector offset, FloatTensor that,
+            int thatOffset, FloatVector acc) {
+        assert quants.length() == 16;
+        for (int part = 0; part < 16 / F_SPECIES.length(); part++) {
+            var weights = ((FloatVector) quants.castShape(F_SPECIES, part)).fma(scale, offset);
+            acc = that.getFloatVector(F_SPECIES, thatOffset + part * F_SPECIES.length()).fma(weights, acc);
+        }
+        return acc;
+    }
+
     void matmul(FloatTensor that, FloatTensor out, int dim0, int dim1) {
         Parallel.parallelFor(0, dim0, i -> out.setFloat(i, dot(i * dim1, that, 0, dim1)));
     }
 
+    /**
+     * Same as {@link #matmul(FloatTensor, FloatTensor, int, int)} for each one of the first {@code batchSize} entries of
+     * {@code that} and {@code out}, implementations are expected to read each row of this tensor only once.
+     */
+    void matmul(int batchSize, FloatTensor[] that, FloatTensor[] out, int dim0, int dim1) {
+        Parallel.parallelFor(0, dim0, i -> {
+            for (int b = 0; b < batchSize; b++) {
+                out[b].setFloat(i, dot(i * dim1, that[b], 0, dim1));
+            }
+        });
+    }
+
     @FunctionalInterface
     interface AggregateFunction {
         float apply(float acc, float value);
@@ -483,6 +498,9 @@ abstract class FloatTensor {
  */
 final class Q4_0FloatTensor extends FloatTensor {
 
+    // number of vectors the batched matmul multiplies each row with at once
+    private static final int BATCH_TILE = 4;
+
     final int size;
     final MemorySegment memorySegment;
 
@@ -599,10 +617,69 @@ final class Q4_0FloatTensor extends FloatTensor {
 
         return result;
     }
+
+    @Override
+    void matmul(int batchSize, FloatTensor[] that, FloatTensor[] out, int dim0, int dim1) {
+        if (!FloatTensor.USE_VECTOR_API || dim1 % GGMLType.Q4_0.getBlockSize() != 0) {
+            super.matmul(batchSize, that, out, dim0, dim1);
+            return;
+        }
+        Parallel.parallelFor(0, dim0, i -> {
+            int b = 0;
+            for (; b + BATCH_TILE <= batchSize; b += BATCH_TILE) {
+                vectorDot4(this, i * dim1, that, b, out, i, dim1);
+            }
+            for (; b < batchSize; b++) {
+                out[b].setFloat(i, vectorDot(this, i * dim1, (ArrayFloatTensor) that[b], 0, dim1));
+            }
+        });
+    }
+
+    /**
+     * Computes the dot products of a block-aligned row of this tensor with {@code that[b..b + 4)}, dequantizing each
+     * block only once.
+     */
+    private static void vectorDot4(Q4_0FloatTensor thiz, int thisOffset, FloatTensor[] that, int b, FloatTensor[] out,
+            int row, int size) {
+        FloatTensor that0 = that[b];
+        FloatTensor that1 = that[b + 1];
+        FloatTensor that2 = that[b + 2];
+        FloatTensor that3 = that[b + 3];
+        FloatVector acc0 = FloatVector.zero(F_SPECIES);
+        FloatVector acc1 = FloatVector.zero(F_SPECIES);
+        FloatVector acc2 = FloatVector.zero(F_SPECIES);
+        FloatVector acc3 = FloatVector.zero(F_SPECIES);
+        int blockOffset = thisOffset / GGMLType.Q4_0.getBlockSize() * GGMLType.Q4_0.getTypeSize();
+        for (int j = 0; j < size; j += GGMLType.Q4_0.getBlockSize(), blockOffset += GGMLType.Q4_0.getTypeSize()) {
+            var wScale = FloatVector.broadcast(F_SPECIES, Float.float16ToFloat(readShort(thiz.memorySegment, blockOffset)));
+            var wBytes = ByteVector.fromMemorySegment(ByteVector.SPECIES_128, thiz.memorySegment,
+                    blockOffset + Float16.BYTES, ByteOrder.LITTLE_ENDIAN);
+            // the low nibbles hold the first half of the block, the high nibbles the second one
+            for (int half = 0; half < 2; half++) {
+                var quants = half == 0 ? wBytes.and((byte) 0xF).sub((byte) 8)
+                        : wBytes.lanewise(VectorOperators.LSHR, 4).sub((byte) 8);
+                for (int part = 0; part < 16 / F_SPECIES.length(); part++) {
+                    FloatVector w = wScale.mul(quants.castShape(F_SPECIES, part));
+                    int thatOffset = j + half * 16 + part * F_SPECIES.length();
+                    acc0 = that0.getFloatVector(F_SPECIES, thatOffset).fma(w, acc0);
+                    acc1 = that1.getFloatVector(F_SPECIES, thatOffset).fma(w, acc1);
+                    acc2 = that2.getFloatVector(F_SPECIES, thatOffset).fma(w, acc2);
+                    acc3 = that3.getFloatVector(F_SPECIES, thatOffset).fma(w, acc3);
+                }
+            }
+        }
+        out[b].setFloat(row, acc0.reduceLanes(VectorOperators.ADD));
+        out[b + 1].setFloat(row, acc1.reduceLanes(VectorOperators.ADD));
+        out[b + 2].setFloat(row, acc2.reduceLanes(VectorOperators.ADD));
+        out[b + 3].setFloat(row, acc3.reduceLanes(VectorOperators.ADD));
+    }
 }
 
 final class Q8_0FloatTensor extends FloatTensor {
 
+    // number of vectors the batched matmul multiplies each row with at once
+    private static final int BATCH_TILE = 4;
+
     final int size;
     final MemorySegment memorySegment;
 
@@ -713,6 +790,413 @@ final class Q8_0FloatTensor extends FloatTensor {
 
         return result;
     }
+
+    @Override
+    void matmul(int batchSize, FloatTensor[] that, FloatTensor[] out, int dim0, int dim1) {
+        if (!FloatTensor.USE_VECTOR_API || dim1 % GGMLType.Q8_0.getBlockSize() != 0) {
+            super.matmul(batchSize, that, out, dim0, dim1);
+            return;
+        }
+        Parallel.parallelFor(0, dim0, i -> {
+            int b = 0;
+            for (; b + BATCH_TILE <= batchSize; b += BATCH_TILE) {
+                vectorDot4(this, i * dim1, that, b, out, i, dim1);
+            }
+            for (; b < batchSize; b++) {
+                out[b].setFloat(i, vectorDot(this, i * dim1, (ArrayFloatTensor) that[b], 0, dim1));
+            }
+        });
+    }
+
+    /**
+     * Computes the dot products of a block-aligned row of this tensor with {@code that[b..b + 4)}, dequantizing each
+     * block only once.
+     */
+    private static void vectorDot4(Q8_0FloatTensor thiz, int thisOffset, FloatTensor[] that, int b, FloatTensor[] out,
+            int row, int size) {
+        FloatTensor that0 = that[b];
+        FloatTensor that1 = that[b + 1];
+        FloatTensor that2 = that[b + 2];
+        FloatTensor that3 = that[b + 3];
+        FloatVector acc0 = FloatVector.zero(F_SPECIES);
+        FloatVector acc1 = FloatVector.zero(F_SPECIES);
+        FloatVector acc2 = FloatVector.zero(F_SPECIES);
+        FloatVector acc3 = FloatVector.zero(F_SPECIES);
+        int blockOffset = thisOffset / GGMLType.Q8_0.getBlockSize() * GGMLType.Q8_0.getTypeSize();
+        for (int j = 0; j < size; j += GGMLType.Q8_0.getBlockSize(), blockOffset += GGMLType.Q8_0.getTypeSize()) {
+            var wScale = FloatVector.broadcast(F_SPECIES, Float.float16ToFloat(readShort(thiz.memorySegment, blockOffset)));
+            for (int half = 0; half < 2; half++) {
+                var quants = ByteVector.fromMemorySegment(ByteVector.SPECIES_128, thiz.memorySegment,
+                        blockOffset + Float16.BYTES + half * 16, ByteOrder.LITTLE_ENDIAN);
+                for (int part = 0; part < 16 / F_SPECIES.length(); part++) {
+                    FloatVector w = wScale.mul(quants.castShape(F_SPECIES, part));
+                    int thatOffset = j + half * 16 + part * F_SPECIES.length();
+                    acc0 = that0.getFloatVector(F_SPECIES, thatOffset).fma(w, acc0);
+                    acc1 = that1.getFloatVector(F_SPECIES, thatOffset).fma(w, acc1);
+                    acc2 = that2.getFloatVector(F_SPECIES, thatOffset).fma(w, acc2);
+                    acc3 = that3.getFloatVector(F_SPECIES, thatOffset).fma(w, acc3);
+                }
+            }
+        }
+        out[b].setFloat(row, acc0.reduceLanes(VectorOperators.ADD));
+        out[b + 1].setFloat(row, acc1.reduceLanes(VectorOperators.ADD));
+        out[b + 2].setFloat(row, acc2.reduceLanes(VectorOperators.ADD));
+        out[b + 3].setFloat(row, acc3.reduceLanes(VectorOperators.ADD));
+    }
+}
+
+/**
+ * Super-block of 256 4-bit quants, split into 8 blocks of 32 that each have their own 6-bit scale and minimum:
+ * {@code fp16 d, fp16 dmin, uint8 scales[12], uint8 qs[128]}. Used by the {@code Q4_K_*} models.
+ */
+final class Q4_KFloatTensor extends FloatTensor {
+
+    private static final int SCALES_OFFSET = 2 * Float16.BYTES;
+    private static final int QUANTS_OFFSET = SCALES_OFFSET + 12;
+
+    final int size;
+    final MemorySegment memorySegment;
+
+    public Q4_KFloatTensor(int size, MemorySegment memorySegment) {
+        this.size = size;
+        this.memorySegment = memorySegment;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    public void setFloat(int index, float value) {
+        throw new UnsupportedOperationException("setFloat");
+    }
+
+    @Override
+    FloatVector getFloatVector(VectorSpecies<Float> species, int index) {
+        throw new UnsupportedOperationException("getFloatVector");
+    }
+
+    @Override
+    public GGMLType type() {
+        return GGMLType.Q4_K;
+    }
+
+    @Override
+    public float getFloat(int index) {
+        assert 0 <= index && index < size;
+        int blockIndex = index / GGMLType.Q4_K.getBlockSize();
+        int blockOffset = blockIndex * GGMLType.Q4_K.getTypeSize();
+        int modIndex = index % GGMLType.Q4_K.getBlockSize();
+        // each group of 64 values shares 32 bytes of quants: the low nibbles hold the first 32 values
+        int group = modIndex / 64;
+        int groupIndex = modIndex % 64;
+        int subBlock = group * 2 + groupIndex / 32;
+        float d = Float.float16ToFloat(readShort(memorySegment, blockOffset));
+        float dmin = Float.float16ToFloat(readShort(memorySegment, blockOffset + Float16.BYTES));
+        int quants = Byte.toUnsignedInt(readByte(memorySegment, blockOffset + QUANTS_OFFSET + group * 32 + groupIndex % 32));
+        int quant = groupIndex < 32 ? quants & 0x0F : quants >>> 4;
+        return d * scale(memorySegment, blockOffset, subBlock) * quant - dmin * min(memorySegment, blockOffset, subBlock);
+    }
+
+    /**
+     * The 6-bit scales of the first 4 blocks are in the low bits of the bytes 0-3, their minimums in the low bits of
+     * the bytes 4-7, the ones of the last 4 blocks are split between the bytes 8-11 and the high bits of the bytes 0-7.
+     */
+    private static int scale(MemorySegment memorySegment, int blockOffset, int subBlock) {
+        int scalesOffset = blockOffset + SCALES_OFFSET;
+        if (subBlock < 4) {
+            return readByte(memorySegment, scalesOffset + subBlock) & 63;
+        }
+        return (readByte(memorySegment, scalesOffset + subBlock + 4) & 0xF)
+                | ((Byte.toUnsignedInt(readByte(memorySegment, scalesOffset + subBlock - 4)) >>> 6) << 4);
+    }
+
+    private static int min(MemorySegment memorySegment, int blockOffset, int subBlock) {
+        int scalesOffset = blockOffset + SCALES_OFFSET;
+        if (subBlock < 4) {
+            return readByte(memorySegment, scalesOffset + subBlock + 4) & 63;
+        }
+        return (Byte.toUnsignedInt(readByte(memorySegment, scalesOffset + subBlock + 4)) >>> 4)
+                | ((Byte.toUnsignedInt(readByte(memorySegment, scalesOffset + subBlock)) >>> 6) << 4);
+    }
+
+    @Override
+    public float dot(int thisOffset, FloatTensor that, int thatOffset, int size) {
+        if (FloatTensor.USE_VECTOR_API) {
+            return vectorDot(this, thisOffset, (ArrayFloatTensor) that, thatOffset, size);
+        } else {
+            return FloatTensor.scalarDot(this, thisOffset, that, thatOffset, size);
+        }
+    }
+
+    private static float vectorDot(Q4_KFloatTensor thiz, int thisOffset, ArrayFloatTensor that, int thatOffset, int size) {
+        float result = 0f;
+        int j = 0;
+
+        // Align thisOffset + j to type().getBlockSize().
+        assert Integer.bitCount(GGMLType.Q4_K.getBlockSize()) == 1 : "power of 2";
+        int alignmentBound = Math.min(size, -thisOffset & (GGMLType.Q4_K.getBlockSize() - 1));
+        if (alignmentBound > 0) {
+            result += FloatTensor.scalarDot(thiz, thisOffset, that, thatOffset, alignmentBound);
+            j += alignmentBound;
+        }
+        assert (thisOffset + j) % GGMLType.Q4_K.getBlockSize() == 0;
+
+        FloatVector val = FloatVector.zero(F_SPECIES);
+        int blockOffset = (thisOffset + j) / GGMLType.Q4_K.getBlockSize() * GGMLType.Q4_K.getTypeSize();
+        int upperBound = j + (size - j) / GGMLType.Q4_K.getBlockSize() * GGMLType.Q4_K.getBlockSize();
+        for (; j < upperBound; j += GGMLType.Q4_K.getBlockSize(), blockOffset += GGMLType.Q4_K.getTypeSize()) {
+            float d = Float.float16ToFloat(readShort(thiz.memorySegment, blockOffset));
+            float dmin = Float.float16ToFloat(readShort(thiz.memorySegment, blockOffset + Float16.BYTES));
+            for (int group = 0; group < 4; group++) {
+                var loScale = FloatVector.broadcast(F_SPECIES, d * scale(thiz.memorySegment, blockOffset, 2 * group));
+                var loMin = FloatVector.broadcast(F_SPECIES, -dmin * min(thiz.memorySegment, blockOffset, 2 * group));
+                var hiScale = FloatVector.broadcast(F_SPECIES, d * scale(thiz.memorySegment, blockOffset, 2 * group + 1));
+                var hiMin = FloatVector.broadcast(F_SPECIES, -dmin * min(thiz.memorySegment, blockOffset, 2 * group + 1));
+                for (int half = 0; half < 2; half++) {
+                    var wBytes = ByteVector.fromMemorySegment(ByteVector.SPECIES_128, thiz.memorySegment,
+                            blockOffset + QUANTS_OFFSET + group * 32 + half * 16, ByteOrder.LITTLE_ENDIAN);
+                    int xOffset = thatOffset + j + group * 64 + half * 16;
+                    val = fmaQuants(wBytes.and((byte) 0xF), loScale, loMin, that, xOffset, val);
+                    val = fmaQuants(wBytes.lanewise(VectorOperators.LSHR, 4), hiScale, hiMin, that, xOffset + 32, val);
+                }
+            }
+        }
+        result += val.reduceLanes(VectorOperators.ADD);
+
+        // Remaining entries.
+        if (j < size) {
+            result += FloatTensor.scalarDot(thiz, thisOffset + j, that, thatOffset + j, size - j);
+        }
+
+        return result;
+    }
+}
+
+/**
+ * Super-block of 256 6-bit quants, split into 16 blocks of 16 that each have their own 8-bit scale:
+ * {@code uint8 ql[128], uint8 qh[64], int8 scales[16], fp16 d}. Used by the {@code Q6_K} models and by some of the
+ * tensors of the {@code Q4_K_M} and {@code Q5_K_M} ones.
+ */
+final class Q6_KFloatTensor extends FloatTensor {
+
+    private static final int HIGH_BITS_OFFSET = 128;
+    private static final int SCALES_OFFSET = HIGH_BITS_OFFSET + 64;
+    private static final int D_OFFSET = SCALES_OFFSET + 16;
+
+    final int size;
+    final MemorySegment memorySegment;
+
+    public Q6_KFloatTensor(int size, MemorySegment memorySegment) {
+        this.size = size;
+        this.memorySegment = memorySegment;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    public void setFloat(int index, float value) {
+        throw new UnsupportedOperationException("setFloat");
+    }
+
+    @Override
+    FloatVector getFloatVector(VectorSpecies<Float> species, int index) {
+        throw new UnsupportedOperationException("getFloatVector");
+    }
+
+    @Override
+    public GGMLType type() {
+        return GGMLType.Q6_K;
+    }
+
+    @Override
+    public float getFloat(int index) {
+        assert 0 <= index && index < size;
+        int blockIndex = index / GGMLType.Q6_K.getBlockSize();
+        int blockOffset = blockIndex * GGMLType.Q6_K.getTypeSize();
+        int modIndex = index % GGMLType.Q6_K.getBlockSize();
+        // each half of the super-block uses 64 bytes of low bits, 32 bytes of high bits and 8 scales, and is laid out
+        // as 4 rows of 32 values that use the low/high nibble of the low bits and the 2 bits of the high bits in turn
+        int half = modIndex / 128;
+        int row = (modIndex % 128) / 32;
+        int l = modIndex % 32;
+        int lowBits = Byte.toUnsignedInt(readByte(memorySegment, blockOffset + half * 64 + (row % 2) * 32 + l));
+        int highBits = Byte.toUnsignedInt(readByte(memorySegment, blockOffset + HIGH_BITS_OFFSET + half * 32 + l));
+        int quant = ((row < 2 ? lowBits & 0xF : lowBits >>> 4) | (((highBits >>> (2 * row)) & 3) << 4)) - 32;
+        byte scale = readByte(memorySegment, blockOffset + SCALES_OFFSET + half * 8 + row * 2 + l / 16);
+        float d = Float.float16ToFloat(readShort(memorySegment, blockOffset + D_OFFSET));
+        return d * scale * quant;
+    }
+
+    @Override
+    public float dot(int thisOffset, FloatTensor that, int thatOffset, int size) {
+        if (FloatTensor.USE_VECTOR_API) {
+            return vectorDot(this, thisOffset, (ArrayFloatTensor) that, thatOffset, size);
+        } else {
+            return FloatTensor.scalarDot(this, thisOffset, that, thatOffset, size);
+        }
+    }
+
+    private static float vectorDot(Q6_KFloatTensor thiz, int thisOffset, ArrayFloatTensor that, int thatOffset, int size) {
+        float result = 0f;
+        int j = 0;
+
+        // Align thisOffset + j to type().getBlockSize().
+        assert Integer.bitCount(GGMLType.Q6_K.getBlockSize()) == 1 : "power of 2";
+        int alignmentBound = Math.min(size, -thisOffset & (GGMLType.Q6_K.getBlockSize() - 1));
+        if (alignmentBound > 0) {
+            result += FloatTensor.scalarDot(thiz, thisOffset, that, thatOffset, alignmentBound);
+            j += alignmentBound;
+        }
+        assert (thisOffset + j) % GGMLType.Q6_K.getBlockSize() == 0;
+
+        FloatVector val = FloatVector.zero(F_SPECIES);
+        FloatVector zero = FloatVector.zero(F_SPECIES);
+        int blockOffset = (thisOffset + j) / GGMLType.Q6_K.getBlockSize() * GGMLType.Q6_K.getTypeSize();
+        int upperBound = j + (size - j) / GGMLType.Q6_K.getBlockSize() * GGMLType.Q6_K.getBlockSize();
+        for (; j < upperBound; j += GGMLType.Q6_K.getBlockSize(), blockOffset += GGMLType.Q6_K.getTypeSize()) {
+            float d = Float.float16ToFloat(readShort(thiz.memorySegment, blockOffset + D_OFFSET));
+            for (int half = 0; half < 2; half++) {
+                int scalesOffset = blockOffset + SCALES_OFFSET + half * 8;
+                for (int chunk = 0; chunk < 2; chunk++) {
+                    var B_SPECIES = ByteVector.SPECIES_128;
+                    int lowOffset = blockOffset + half * 64 + chunk * 16;
+                    var lo0 = ByteVector.fromMemorySegment(B_SPECIES, thiz.memorySegment, lowOffset, ByteOrder.LITTLE_ENDIAN);
+                    var lo1 = ByteVector.fromMemorySegment(B_SPECIES, thiz.memorySegment, lowOffset + 32,
+                            ByteOrder.LITTLE_ENDIAN);
+                    var hi = ByteVector.fromMemorySegment(B_SPECIES, thiz.memorySegment,
+                            blockOffset + HIGH_BITS_OFFSET + half * 32 + chunk * 16, ByteOrder.LITTLE_ENDIAN);
+                    var q0 = lo0.and((byte) 0xF).or(hi.and((byte) 3).lanewise(VectorOperators.LSHL, 4)).sub((byte) 32);
+                    var q1 = lo1.and((byte) 0xF)
+                            .or(hi.lanewise(VectorOperators.LSHR, 2).and((byte) 3).lanewise(VectorOperators.LSHL, 4))
+                            .sub((byte) 32);
+                    var q2 = lo0.lanewise(VectorOperators.LSHR, 4)
+                            .or(hi.lanewise(VectorOperators.LSHR, 4).and((byte) 3).lanewise(VectorOperators.LSHL, 4))
+                            .sub((byte) 32);
+                    var q3 = lo1.lanewise(VectorOperators.LSHR, 4)
+                            .or(hi.lanewise(VectorOperators.LSHR, 6).lanewise(VectorOperators.LSHL, 4))
+                            .sub((byte) 32);
+                    int xOffset = thatOffset + j + half * 128 + chunk * 16;
+                    val = fmaQuants(q0, scale(thiz, scalesOffset + chunk, d), zero, that, xOffset, val);
+                    val = fmaQuants(q1, scale(thiz, scalesOffset + chunk + 2, d), zero, that, xOffset + 32, val);
+                    val = fmaQuants(q2, scale(thiz, scalesOffset + chunk + 4, d), zero, that, xOffset + 64, val);
+                    val = fmaQuants(q3, scale(thiz, scalesOffset + chunk + 6, d), zero, that, xOffset + 96, val);
+                }
+            }
+        }
+        result += val.reduceLanes(VectorOperators.ADD);
+
+        // Remaining entries.
+        if (j < size) {
+            result += FloatTensor.scalarDot(thiz, thisOffset + j, that, thatOffset + j, size - j);
+        }
+
+        return result;
+    }
+
+    private static FloatVector scale(Q6_KFloatTensor thiz, int scaleOffset, float d) {
+        return FloatVector.broadcast(F_SPECIES, d * readByte(thiz.memorySegment, scaleOffset));
+    }
+}
+
+/**
+ * Half-precision floats, used by the unquantized models.
+ */
+final class F16FloatTensor extends FloatTensor {
+
+    private static final VectorSpecies<Short> S_SPECIES = VectorSpecies.of(short.class,
+            VectorShape.forBitSize(F_SPECIES.vectorBitSize() / 2));
+    private static final VectorSpecies<Integer> I_SPECIES = F_SPECIES.withLanes(int.class);
+
+    final int size;
+    final MemorySegment memorySegment;
+
+    public F16FloatTensor(int size, MemorySegment memorySegment) {
+        this.size = size;
+        this.memorySegment = memorySegment;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    public void setFloat(int index, float value) {
+        throw new UnsupportedOperationException("setFloat");
+    }
+
+    @Override
+    FloatVector getFloatVector(VectorSpecies<Float> species, int index) {
+        throw new UnsupportedOperationException("getFloatVector");
+    }
+
+    @Override
+    public GGMLType type() {
+        return GGMLType.F16;
+    }
+
+    @Override
+    public float getFloat(int index) {
+        assert 0 <= index && index < size;
+        return Float.float16ToFloat(readShort(memorySegment, (long) index * Float16.BYTES));
+    }
+
+    @Override
+    public float dot(int thisOffset, FloatTensor that, int thatOffset, int size) {
+        if (FloatTensor.USE_VECTOR_API) {
+            return vectorDot(this, thisOffset, (ArrayFloatTensor) that, thatOffset, size);
+        } else {
+            return FloatTensor.scalarDot(this, thisOffset, that, thatOffset, size);
+        }
+    }
+
+    private static float vectorDot(F16FloatTensor thiz, int thisOffset, ArrayFloatTensor that, int thatOffset, int size) {
+        FloatVector val = FloatVector.zero(F_SPECIES);
+        int j = 0;
+        int upperBound = F_SPECIES.loopBound(size);
+        for (; j < upperBound; j += F_SPECIES.length()) {
+            var halfs = ShortVector.fromMemorySegment(S_SPECIES, thiz.memorySegment,
+                    (long) (thisOffset + j) * Float16.BYTES, ByteOrder.LITTLE_ENDIAN);
+            val = that.getFloatVector(F_SPECIES, thatOffset + j).fma(toFloats(halfs), val);
+        }
+        float result = val.reduceLanes(VectorOperators.ADD);
+
+        // Remaining entries.
+        if (j < size) {
+            result += FloatTensor.scalarDot(thiz, thisOffset + j, that, thatOffset + j, size - j);
+        }
+
+        return result;
+    }
+
+    /**
+     * Same as {@link Float#float16ToFloat(short)}, for each lane: the JDK has no vectorized conversion (yet).
+     */
+    private static FloatVector toFloats(ShortVector halfs) {
+        var bits = ((IntVector) halfs.castShape(I_SPECIES, 0)).and(0xFFFF);
+        var sign = bits.and(0x8000).lanewise(VectorOperators.LSHL, 16);
+        var exponent = bits.lanewise(VectorOperators.LSHR, 10).and(0x1F);
+        var mantissa = bits.and(0x3FF);
+        // normal numbers: rebias the exponent from 15 to 127 and widen the mantissa from 10 to 23 bits
+        var floatBits = sign.or(exponent.add(127 - 15).lanewise(VectorOperators.LSHL, 23))
+                .or(mantissa.lanewise(VectorOperators.LSHL, 13));
+        // infinities and NaNs
+        floatBits = floatBits.blend(sign.or(0x7F800000).or(mantissa.lanewise(VectorOperators.LSHL, 13)), exponent.eq(0x1F));
+        var floats = floatBits.reinterpretAsFloats();
+        // zeros and subnormal numbers, which are mantissa * 2^-24
+        VectorMask<Integer> subnormal = exponent.eq(0);
+        if (subnormal.anyTrue()) {
+            var subnormals = ((FloatVector) mantissa.castShape(F_SPECIES, 0)).mul(0x1p-24f);
+            subnormals = subnormals.lanewise(VectorOperators.NEG, sign.compare(VectorOperators.NE, 0).cast(F_SPECIES));
+            floats = floats.blend(subnormals, subnormal.cast(F_SPECIES));
+        }
+        return floats;
+    }
 }
 
 final class ArrayFloatTensor extends FloatTensor {
@@ -763,6 +1247,58 @@ final class ArrayFloatTensor extends FloatTensor {
     }
 }
 
+/**
+ * {@link FloatTensor} of {@link GGMLType#F32} values stored outside the Java heap.
+ * <p>
+ * The memory is released once the tensor is no longer reachable.
+ */
+final class SegmentFloatTensor extends FloatTensor {
+
+    final int size;
+    final MemorySegment memorySegment;
+
+    SegmentFloatTensor(int size, MemorySegment memorySegment) {
+        this.size = size;
+        this.memorySegment = memorySegment;
+    }
+
+    public static FloatTensor allocate(int... dims) {
+        int numberOfElements = FloatTensor.numberOfElements(dims);
+        return new SegmentFloatTensor(numberOfElements,
+                Arena.ofAuto().allocate((long) numberOfElements * Float.BYTES, Float.BYTES));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float getFloat(int index) {
+        assert 0 <= index && index < size;
+        return UNSAFE.getFloat(memorySegment.address() + (long) index * Float.BYTES);
+    }
+
+    @Override
+    public void setFloat(int index, float value) {
+        assert 0 <= index && index < size;
+        UNSAFE.putFloat(memorySegment.address() + (long) index * Float.BYTES, value);
+    }
+
+    @Override
+    public GGMLType type() {
+        return GGMLType.F32;
+    }
+
+    @Override
+    public FloatVector getFloatVector(VectorSpecies<Float> species, int index) {
+        if (!USE_VECTOR_API) {
+            throw new UnsupportedOperationException();
+        }
+        return FloatVector.fromMemorySegment(species, memorySegment, (long) index * Float.BYTES, ByteOrder.nativeOrder());
+    }
+}
+
 final class RoPE {
     public static Pair<float[], float[]> precomputeFreqsCis(int contextLength, int headSize, double theta,
             boolean ropeScaling, float scaleFactor, float loFreqFactor, float hiFreqFactor, float oldContextLength) {
@@ -798,103 +1334,129 @@ final class RoPE {
     }
 }
 
-record CategoricalSampler(RandomGenerator rng) implements Sampler {
-
-    @Override
-    public int sampleToken(FloatTensor logits) {
-        // sample index from probabilities (they must sum to 1!)
-        float random0to1 = rng.nextFloat(1f);
-        float cdf = 0.0f;
-        for (int i = 0; i < logits.size(); i++) {
-            cdf += logits.getFloat(i);
-            if (random0to1 < cdf) {
-                return i;
-            }
-        }
-        return logits.size() - 1; // in case of rounding errors
-    }
-}
-
-final class ToppSampler implements Sampler {
+/**
+ * Samples the next token from the probability distribution given by the logits and the temperature, restricted to the
+ * {@code topk} most likely tokens and then to the smallest set of most likely tokens whose cumulative probability
+ * exceeds {@code topp} (nucleus sampling).
+ * <p>
+ * The temperature scaling, the softmax and the selection of the candidates are done on primitive arrays, and the logits
+ * are left untouched.
+ */
+final class FusedSampler implements Sampler {
 
-    final int[] indices;
+    final float temperature;
     final float topp;
+    final int topk;
     final RandomGenerator rng;
+    final float[] probabilities;
+    final int[] indices;
 
-    public ToppSampler(int maxNumberOfElements, float topp, RandomGenerator rng) {
-        this.indices = new int[maxNumberOfElements];
+    /**
+     * @param topp disabled if not in {@code (0, 1)}
+     * @param topk disabled if not in {@code (0, maxNumberOfElements)}
+     */
+    FusedSampler(int maxNumberOfElements, float temperature, float topp, int topk, RandomGenerator rng) {
+        this.temperature = temperature;
         this.topp = topp;
+        this.topk = topk;
         this.rng = rng;
+        this.probabilities = new float[maxNumberOfElements];
+        this.indices = new int[maxNumberOfElements];
     }
 
-    static void swap(int[] array, int from, int to) {
-        int tmp = array[from];
-        array[from] = array[to];
-        array[to] = tmp;
-    }
+    @Override
+    public int sampleToken(FloatTensor logits) {
+        int n = logits.size();
+        float[] p = probabilities;
+
+        // apply the temperature to the logits, then softmax them to get the probabilities of the next token
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            float value = logits.getFloat(i) / temperature;
+            p[i] = value;
+            max = Float.max(max, value);
+        }
+        float sum = 0f;
+        for (int i = 0; i < n; i++) {
+            float value = (float) Math.exp(p[i] - max);
+            p[i] = value;
+            sum += value;
+        }
+        for (int i = 0; i < n; i++) {
+            p[i] /= sum;
+        }
 
-    static void siftDown(int[] array, int from, int n, Comparator<Integer> comparator) {
-        int prev = from, next;
-        while ((next = 2 * prev + 1) < n) {
-            int r = 2 * prev + 2;
-            if (r < n && comparator.compare(array[r], array[next]) < 0) {
-                next = r;
+        // the candidates are indices[0 .. count)
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        int count = n;
+        float mass = 1.0f;
+        if (topk > 0 && topk < n) {
+            selectTopK(indices, p, n, topk);
+            count = topk;
+            mass = 0f;
+            for (int i = 0; i < count; i++) {
+                mass += p[indices[i]];
             }
-            if (comparator.compare(array[next], array[prev]) < 0) {
-                swap(array, prev, next);
-                prev = next;
-            } else {
-                break;
+        }
+
+        if (topp > 0 && topp < 1 && count > 1) {
+            return sampleTopp(p, count, mass);
+        }
+
+        // sample index from the candidates
+        float r = rng.nextFloat(1f) * mass;
+        float cdf = 0.0f;
+        for (int i = 0; i < count; i++) {
+            cdf += p[indices[i]];
+            if (r < cdf) {
+                return indices[i];
             }
         }
+        return indices[count - 1]; // in case of rounding errors
     }
 
-    @Override
-    public int sampleToken(FloatTensor logits) {
+    private int sampleTopp(float[] p, int count, float mass) {
         // top-p sampling (or "nucleus sampling") samples from the smallest set of
         // tokens that exceed probability topp. This way we never sample tokens that
         // have very low probabilities and are less likely to go "off the rails".
-        Comparator<Integer> comparator = Comparator.comparingDouble(logits::getFloat).reversed();
-
-        int n = logits.size();
-        int head = 0;
-        int tail = n - 1;
         // values smaller than (1 - topp) / (n - 1) cannot be part of the result
         // so for efficiency we crop these out as candidates before sorting
-        float cutoff = (1.0f - topp) / (n - 1);
-        for (int i = 0; i < indices.length; i++) {
-            if (logits.getFloat(i) >= cutoff) {
-                indices[head++] = i;
-            } else {
-                indices[tail--] = i;
+        float cutoff = (1.0f - topp) * mass / (count - 1);
+        int n0 = 0;
+        for (int i = 0; i < count; i++) {
+            int index = indices[i];
+            if (p[index] >= cutoff) {
+                indices[n0++] = index;
             }
         }
 
-        int n0 = head;
         // build heap O(n0)
         for (int i = n0 / 2 - 1; i >= 0; --i) {
-            siftDown(indices, i, n0, comparator);
+            siftDown(indices, p, i, n0);
         }
 
         // truncate the list where cumulative probability of the largest k elements exceeds topp
         // O(k lg n0)
+        float threshold = topp * mass;
         float cumulativeProb = 0.0f;
         int lastIndex = 0;
         for (int i = n0 - 1; i >= 0; i--) {
             swap(indices, 0, i);
-            cumulativeProb += logits.getFloat(indices[i]);
-            if (cumulativeProb > topp) {
+            cumulativeProb += p[indices[i]];
+            if (cumulativeProb > threshold) {
                 lastIndex = i;
                 break; // we've exceeded topp by including lastIndex
             }
-            siftDown(indices, 0, i - 1, comparator);
+            siftDown(indices, p, 0, i - 1);
         }
 
         // sample from the truncated list
         float r = rng.nextFloat(1f) * cumulativeProb;
         float cdf = 0.0f;
         for (int i = n0 - 1; i >= lastIndex; i--) {
-            cdf += logits.getFloat(indices[i]);
+            cdf += p[indices[i]];
             if (r < cdf) {
                 return indices[i];
             }
@@ -902,4 +1464,64 @@ final class ToppSampler implements Sampler {
 
         return indices[lastIndex]; // in case of rounding errors
     }
+
+    static void swap(int[] array, int from, int to) {
+        int tmp = array[from];
+        array[from] = array[to];
+        array[to] = tmp;
+    }
+
+    /**
+     * Max-heap sift down of {@code array[from]}, ordered by the values of {@code p} the entries of the array point to.
+     */
+    static void siftDown(int[] array, float[] p, int from, int n) {
+        int prev = from, next;
+        while ((next = 2 * prev + 1) < n) {
+            int r = 2 * prev + 2;
+            if (r < n && p[array[r]] > p[array[next]]) {
+                next = r;
+            }
+            if (p[array[next]] > p[array[prev]]) {
+                swap(array, prev, next);
+                prev = next;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Moves the {@code k} entries of {@code array[0 .. n)} that point to the largest values of {@code p} to
+     * {@code array[0 .. k)}, in no particular order (quickselect).
+     */
+    static void selectTopK(int[] array, float[] p, int n, int k) {
+        int lo = 0;
+        int hi = n - 1;
+        int target = k - 1;
+        while (lo < hi) {
+            float pivot = p[array[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (p[array[i]] > pivot) {
+                    i++;
+                }
+                while (p[array[j]] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(array, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                hi = j;
+            } else if (target >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package io.quarkiverse.langchain4j.llama3.copy;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the parallel loops of the inference (most notably the matrix multiplications), either on the common
+ * {@link ForkJoinPool} or on the pool set with {@link #setPool(ForkJoinPool)}.
+ */
+public final class Parallel {
+
+    // the number of tasks each loop is split into, per thread of the pool, to balance the load between the threads
+    private static final int TASKS_PER_THREAD = 4;
+
+    private static volatile ForkJoinPool pool;
+
+    private Parallel() {
+    }
+
+    /**
+     * @param pool the pool to run the parallel loops on, {@code null} to use the common pool
+     */
+    public static void setPool(ForkJoinPool pool) {
+        Parallel.pool = pool;
+    }
+
+    public static void parallelFor(int startInclusive, int endExclusive, IntConsumer action) {
+        ForkJoinPool pool = Parallel.pool;
+        if (pool == null) {
+            IntStream.range(startInclusive, endExclusive).parallel().forEach(action);
+            return;
+        }
+        int threshold = Math.max(1, (endExclusive - startInclusive) / (pool.getParallelism() * TASKS_PER_THREAD));
+        pool.invoke(new ParallelForTask(startInclusive, endExclusive, threshold, action));
+    }
+
+    private static final class ParallelForTask extends RecursiveAction {
+
+        private final int startInclusive;
+        private final int endExclusive;
+        private final int threshold;
+        private final IntConsumer action;
+
+        ParallelForTask(int startInclusive, int endExclusive, int threshold, IntConsumer action) {
+            this.startInclusive = startInclusive;
+            this.endExclusive = endExclusive;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (endExclusive - startInclusive <= threshold) {
+                for (int i = startInclusive; i < endExclusive; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (startInclusive + endExclusive) >>> 1;
+            invokeAll(new ParallelForTask(startInclusive, middle, threshold, action),
+                    new ParallelForTask(middle, endExclusive, threshold, action));
+        }
+    }
+}
@@ -3,9 +3,9 @@ package io.quarkiverse.langchain4j.llama3.copy;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,10 +21,18 @@ import java.util.stream.IntStream;
  * <a href="https://github.com/openai/gpt-2/blob/master/src/encoder.py">GPT 2 tokenizer</a>
  */
 public class Tokenizer {
+    /**
+     * Number of encoded chunks of text that are kept around, set to 0 to disable the cache
+     */
+    static final int CHUNK_CACHE_SIZE = Integer.getInteger("llama.TokenizerChunkCacheSize", 8192);
+
     private final Pattern compiledPattern;
     private final Vocabulary vocabulary;
-    private final Map<Pair<Integer, Integer>, Integer> merges;
+    private final MergeRanks merges;
     private final Map<String, Integer> specialTokens;
+    // the token of each (byte encoded) character, see BYTE_ENCODER
+    private final int[] charTokens;
+    private final Map<String, int[]> chunkCache;
 
     public String regexPattern() {
         if (compiledPattern == null) {
@@ -46,17 +54,30 @@ public class Tokenizer {
         this.vocabulary = vocabulary;
         this.compiledPattern = regexPattern != null ? Pattern.compile(regexPattern) : null;
         this.specialTokens = new HashMap<>(specialTokens);
-        this.merges = new HashMap<>();
+        this.merges = new MergeRanks(merges.size());
         for (Pair<Integer, Integer> pair : merges) {
             int firstIndex = pair.first();
             int secondIndex = pair.second();
             int mergeIndex = vocabulary.getIndex(vocabulary.get(firstIndex) + vocabulary.get(secondIndex)).orElseThrow();
-            this.merges.put(pair, mergeIndex);
+            this.merges.put(firstIndex, secondIndex, mergeIndex);
         }
+        this.charTokens = new int[BYTE_DECODER.keySet().stream().mapToInt(Integer::intValue).max().orElseThrow() + 1];
+        Arrays.fill(charTokens, -1);
+        for (int c : BYTE_DECODER.keySet()) {
+            charTokens[c] = vocabulary.getIndex(String.valueOf((char) c)).orElse(-1);
+        }
+        this.chunkCache = CHUNK_CACHE_SIZE > 0 ? new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > CHUNK_CACHE_SIZE;
+            }
+        } : null;
     }
 
     private int[] encodeImpl(String text) {
-        return encode(text, Set.of()).stream().mapToInt(i -> i).toArray();
+        IntArray ids = new IntArray(text.length());
+        encodeOrdinary(text, ids);
+        return ids.toArray();
     }
 
     /**
@@ -101,81 +122,112 @@ public class Tokenizer {
         return ids;
     }
 
-    private static List<String> findAll(Pattern pattern, String text) {
-        List<String> allMatches = new ArrayList<>();
-        Matcher matcher = pattern.matcher(text);
-        while (matcher.find()) {
-            allMatches.add(matcher.group());
-        }
-        return allMatches;
-    }
-
     /**
      * Encoding that ignores any special tokens.
      */
     public List<Integer> encodeOrdinary(String text) {
+        IntArray ids = new IntArray(text.length());
+        encodeOrdinary(text, ids);
+        return ids.toList();
+    }
+
+    private void encodeOrdinary(String text, IntArray ids) {
         // split text into chunks of text by categories defined in regex pattern
-        List<String> textChunks = findAll(compiledPattern, text);
+        Matcher matcher = compiledPattern.matcher(text);
         // all chunks of text are encoded separately, then results are joined
-        List<Integer> ids = new ArrayList<>();
-        for (String chunk : textChunks) {
-            List<Integer> chunkIds = encodeChunk(chunk);
-            ids.addAll(chunkIds);
+        while (matcher.find()) {
+            ids.addAll(encodeChunk(matcher.group()));
         }
-        return ids;
     }
 
-    private Map<Pair<Integer, Integer>, Integer> getStats(List<Integer> ids) {
-        Map<Pair<Integer, Integer>, Integer> map = new HashMap<>();
-        for (int i = 0; i + 1 < ids.size(); i++) {
-            Pair<Integer, Integer> key = new Pair<>(ids.get(i), ids.get(i + 1));
-            map.put(key, map.getOrDefault(key, 0) + 1);
+    private int[] encodeChunk(String chunk) {
+        if (chunkCache == null) {
+            return mergeChunk(chunk);
         }
-        return map;
-    }
-
-    private List<Integer> encodeChunk(String chunk) {
-        // return the token ids
-        // let's begin. first, convert all bytes to integers in range 0..255
-        List<Integer> ids = new ArrayList<>();
-        for (int b : chunk.toCharArray()) {
-            int tokenIndex = this.vocabulary.getIndex(String.valueOf((char) b)).orElseThrow();
-            ids.add(tokenIndex);
-        }
-
-        while (ids.size() >= 2) {
-            // find the pair with the lowest merge index
-            Map<Pair<Integer, Integer>, Integer> stats = getStats(ids);
-            Pair<Integer, Integer> pair = stats.keySet().stream()
-                    .min(Comparator.comparingInt(key -> this.merges.getOrDefault(key, Integer.MAX_VALUE))).orElseThrow();
-            // subtle: if there are no more merges available, the key will
-            // result in an inf for every single pair, and the min will be
-            // just the first pair in the list, arbitrarily
-            // we can detect this terminating case by a membership check
-            if (!this.merges.containsKey(pair)) {
-                break; // nothing else can be merged anymore
+        int[] ids;
+        synchronized (chunkCache) {
+            ids = chunkCache.get(chunk);
+        }
+        if (ids == null) {
+            ids = mergeChunk(chunk);
+            synchronized (chunkCache) {
+                chunkCache.put(chunk, ids);
             }
-            // otherwise let's merge the best pair (lowest merge index)
-            int idx = this.merges.get(pair);
-            ids = merge(ids, pair, idx);
         }
         return ids;
     }
 
-    private static List<Integer> merge(List<Integer> ids, Pair<Integer, Integer> pair, int idx) {
-        List<Integer> newids = new ArrayList<>();
-        int i = 0;
-        while (i < ids.size()) {
-            // if not at the very last position AND the pair matches, replace it
-            if (ids.get(i).equals(pair.first()) && i < ids.size() - 1 && ids.get(i + 1).equals(pair.second())) {
-                newids.add(idx);
-                i += 2;
-            } else {
-                newids.add(ids.get(i));
-                i += 1;
+    /**
+     * Applies the merges to the characters of the chunk, the pair with the lowest merge index (the leftmost one in case of
+     * a tie) being merged first, until no pair can be merged anymore.
+     * <p>
+     * The tokens are kept in a linked list (backed by arrays), and the candidate merges in a priority queue ordered by
+     * merge index then position, so that each merge only costs a few queue operations. Queue entries that are made
+     * obsolete by a merge are skipped when they are polled.
+     */
+    private int[] mergeChunk(String chunk) {
+        int n = chunk.length();
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            char c = chunk.charAt(i);
+            int tokenIndex = c < charTokens.length ? charTokens[c] : -1;
+            ids[i] = tokenIndex >= 0 ? tokenIndex : this.vocabulary.getIndex(String.valueOf(c)).orElseThrow();
+        }
+        if (n < 2) {
+            return ids;
+        }
+
+        int[] prev = new int[n];
+        int[] next = new int[n];
+        for (int i = 0; i < n; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1 < n ? i + 1 : -1;
+        }
+        MergeQueue queue = new MergeQueue(n);
+        for (int i = 0; i + 1 < n; i++) {
+            int rank = merges.get(ids[i], ids[i + 1]);
+            if (rank >= 0) {
+                queue.add(rank, i);
             }
         }
-        return newids;
+
+        int remaining = n;
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int rank = (int) (entry >>> 32);
+            int position = (int) entry;
+            int right = next[position];
+            // skip merges made obsolete by previous merges
+            if (ids[position] < 0 || right < 0 || merges.get(ids[position], ids[right]) != rank) {
+                continue;
+            }
+            ids[position] = rank;
+            ids[right] = -1;
+            int newRight = next[right];
+            next[position] = newRight;
+            if (newRight >= 0) {
+                prev[newRight] = position;
+                int newRank = merges.get(rank, ids[newRight]);
+                if (newRank >= 0) {
+                    queue.add(newRank, position);
+                }
+            }
+            int left = prev[position];
+            if (left >= 0) {
+                int newRank = merges.get(ids[left], rank);
+                if (newRank >= 0) {
+                    queue.add(newRank, left);
+                }
+            }
+            remaining--;
+        }
+
+        int[] result = new int[remaining];
+        int j = 0;
+        for (int i = 0; i >= 0; i = next[i]) {
+            result[j++] = ids[i];
+        }
+        return result;
     }
 
     public String decodeImpl(List<Integer> tokens) {
@@ -265,4 +317,151 @@ public class Tokenizer {
         }
         return new String(rawBytes, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Open addressing hash table from a pair of tokens, packed into a {@code long}, to the token they merge into.
+     */
+    private static final class MergeRanks {
+
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        MergeRanks(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(2, expectedSize * 2) - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(values, -1);
+        }
+
+        void put(int first, int second, int value) {
+            long key = pack(first, second);
+            int slot = slot(key);
+            while (values[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        /**
+         * @return the token the pair merges into, -1 if the pair cannot be merged
+         */
+        int get(int first, int second) {
+            long key = pack(first, second);
+            int slot = slot(key);
+            while (values[slot] >= 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long pack(int first, int second) {
+            return ((long) first << 32) | (second & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * Binary min-heap of candidate merges, each one packed into a {@code long} as the merge index followed by the
+     * position of the left token of the pair.
+     */
+    private static final class MergeQueue {
+
+        private long[] heap;
+        private int size;
+
+        MergeQueue(int initialCapacity) {
+            this.heap = new long[Math.max(2, initialCapacity)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int rank, int position) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            long entry = ((long) rank << 32) | position;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= entry) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+        }
+
+        long poll() {
+            long result = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return result;
+        }
+    }
+
+    /**
+     * Growable array of tokens, to avoid boxing them while encoding.
+     */
+    private static final class IntArray {
+
+        private int[] values;
+        private int size;
+
+        IntArray(int initialCapacity) {
+            this.values = new int[Math.max(8, initialCapacity)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(int[] other) {
+            if (size + other.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(size * 2, size + other.length));
+            }
+            System.arraycopy(other, 0, values, size, other.length);
+            size += other.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        List<Integer> toList() {
+            List<Integer> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(values[i]);
+            }
+            return list;
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package io.quarkiverse.langchain4j.llama3.runtime;
+
+import java.util.concurrent.ForkJoinPool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Exposes the load of the pool the inference runs on, kept in its own class as Micrometer is an optional dependency
+ */
+final class ComputePoolMetrics {
+
+    private ComputePoolMetrics() {
+    }
+
+    static void register(ForkJoinPool pool) {
+        Gauge.builder("langchain4j.llama3.compute.queued", pool, p -> p.getQueuedSubmissionCount() + p.getQueuedTaskCount())
+                .description("Number of inference tasks waiting for a thread of the compute pool")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("langchain4j.llama3.compute.active", pool, ForkJoinPool::getActiveThreadCount)
+                .description("Number of threads of the compute pool that are running inference tasks")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("langchain4j.llama3.compute.size", pool, ForkJoinPool::getParallelism)
+                .description("Number of threads of the compute pool")
+                .register(Metrics.globalRegistry);
+    }
+}
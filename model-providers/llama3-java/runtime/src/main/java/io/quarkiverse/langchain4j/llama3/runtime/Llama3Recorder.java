@@ -1,5 +1,11 @@
 package io.quarkiverse.langchain4j.llama3.runtime;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import dev.langchain4j.model.chat.ChatLanguageModel;
@@ -7,19 +13,59 @@ import dev.langchain4j.model.chat.DisabledChatLanguageModel;
 import dev.langchain4j.model.chat.DisabledStreamingChatLanguageModel;
 import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import io.quarkiverse.langchain4j.llama3.Llama3ChatModel;
+import io.quarkiverse.langchain4j.llama3.Llama3Inference;
 import io.quarkiverse.langchain4j.llama3.Llama3StreamingChatModel;
+import io.quarkiverse.langchain4j.llama3.copy.Parallel;
 import io.quarkiverse.langchain4j.llama3.runtime.config.ChatModelConfig;
 import io.quarkiverse.langchain4j.llama3.runtime.config.LangChain4jLlama3FixedRuntimeConfig;
 import io.quarkiverse.langchain4j.llama3.runtime.config.LangChain4jLlama3RuntimeConfig;
 import io.quarkiverse.langchain4j.runtime.NamedConfigUtil;
+import io.quarkus.runtime.ShutdownContext;
 import io.quarkus.runtime.annotations.Recorder;
 
 @Recorder
 public class Llama3Recorder {
 
+    // the chat model and the streaming chat model of a configuration share the same model and scheduler
+    private static final Map<String, Llama3Inference> inferences = new ConcurrentHashMap<>();
+
+    public void computePool(LangChain4jLlama3RuntimeConfig runtimeConfig, boolean metricsEnabled,
+            ShutdownContext shutdownContext) {
+        if (!runtimeConfig.dedicatedComputePool()) {
+            return;
+        }
+        int size = runtimeConfig.computePoolSize().orElse(Runtime.getRuntime().availableProcessors());
+        if (size < 1) {
+            throw new IllegalArgumentException("quarkus.langchain4j.llama3.compute-pool-size must be at least 1");
+        }
+        ForkJoinPool pool = new ForkJoinPool(size, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("llama3-compute-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, null, false);
+        Parallel.setPool(pool);
+        if (metricsEnabled) {
+            ComputePoolMetrics.register(pool);
+        }
+        shutdownContext.addShutdownTask(new Runnable() {
+            @Override
+            public void run() {
+                Parallel.setPool(null);
+                pool.shutdown();
+            }
+        });
+    }
+
     public Supplier<ChatLanguageModel> chatModel(LangChain4jLlama3RuntimeConfig runtimeConfig,
             LangChain4jLlama3FixedRuntimeConfig fixedRuntimeConfig,
-            String configName) {
+            String configName, ShutdownContext shutdownContext) {
         LangChain4jLlama3RuntimeConfig.Llama3Config llama3Config = correspondingJlamaConfig(runtimeConfig, configName);
         LangChain4jLlama3FixedRuntimeConfig.Llama3Config llama3FixedRuntimeConfig = correspondingJlamaFixedRuntimeConfig(
                 fixedRuntimeConfig, configName);
@@ -28,11 +74,9 @@ public class Llama3Recorder {
             ChatModelConfig chatModelConfig = llama3Config.chatModel();
 
             var builder = Llama3ChatModel.builder()
-                    .modelName(llama3FixedRuntimeConfig.chatModel().modelName())
-                    .quantization(llama3FixedRuntimeConfig.chatModel().quantization())
                     .logRequests(llama3Config.logRequests().orElse(false))
                     .logResponses(llama3Config.logResponses().orElse(false))
-                    .modelCachePath(fixedRuntimeConfig.modelsPath());
+                    .topK(chatModelConfig.topK());
 
             if (chatModelConfig.temperature().isPresent()) {
                 builder.temperature((float) chatModelConfig.temperature().getAsDouble());
@@ -41,10 +85,13 @@ public class Llama3Recorder {
                 builder.maxTokens(chatModelConfig.maxTokens().getAsInt());
             }
 
+            var inferenceBuilder = inferenceBuilder(llama3FixedRuntimeConfig, fixedRuntimeConfig, chatModelConfig);
+            closeOnShutdown(configName, shutdownContext);
+
             return new Supplier<>() {
                 @Override
                 public ChatLanguageModel get() {
-                    return builder.build();
+                    return builder.inference(inference(configName, inferenceBuilder)).build();
                 }
             };
         } else {
@@ -59,7 +106,7 @@ public class Llama3Recorder {
 
     public Supplier<StreamingChatLanguageModel> streamingChatModel(LangChain4jLlama3RuntimeConfig runtimeConfig,
             LangChain4jLlama3FixedRuntimeConfig fixedRuntimeConfig,
-            String configName) {
+            String configName, ShutdownContext shutdownContext) {
         LangChain4jLlama3RuntimeConfig.Llama3Config llama3Config = correspondingJlamaConfig(runtimeConfig, configName);
         LangChain4jLlama3FixedRuntimeConfig.Llama3Config llama3FixedRuntimeConfig = correspondingJlamaFixedRuntimeConfig(
                 fixedRuntimeConfig, configName);
@@ -68,11 +115,9 @@ public class Llama3Recorder {
             ChatModelConfig chatModelConfig = llama3Config.chatModel();
 
             var builder = Llama3StreamingChatModel.builder()
-                    .modelName(llama3FixedRuntimeConfig.chatModel().modelName())
-                    .quantization(llama3FixedRuntimeConfig.chatModel().quantization())
                     .logRequests(llama3Config.logRequests().orElse(false))
                     .logResponses(llama3Config.logResponses().orElse(false))
-                    .modelCachePath(fixedRuntimeConfig.modelsPath());
+                    .topK(chatModelConfig.topK());
 
             if (chatModelConfig.temperature().isPresent()) {
                 builder.temperature((float) chatModelConfig.temperature().getAsDouble());
@@ -81,10 +126,13 @@ public class Llama3Recorder {
                 builder.maxTokens(chatModelConfig.maxTokens().getAsInt());
             }
 
+            var inferenceBuilder = inferenceBuilder(llama3FixedRuntimeConfig, fixedRuntimeConfig, chatModelConfig);
+            closeOnShutdown(configName, shutdownContext);
+
             return new Supplier<>() {
                 @Override
                 public StreamingChatLanguageModel get() {
-                    return builder.build();
+                    return builder.inference(inference(configName, inferenceBuilder)).build();
                 }
             };
         } else {
@@ -97,6 +145,43 @@ public class Llama3Recorder {
         }
     }
 
+    private static Llama3Inference.Builder inferenceBuilder(
+            LangChain4jLlama3FixedRuntimeConfig.Llama3Config llama3FixedRuntimeConfig,
+            LangChain4jLlama3FixedRuntimeConfig fixedRuntimeConfig, ChatModelConfig chatModelConfig) {
+        var builder = Llama3Inference.builder()
+                .modelName(llama3FixedRuntimeConfig.chatModel().modelName())
+                .quantization(llama3FixedRuntimeConfig.chatModel().quantization())
+                .modelCachePath(fixedRuntimeConfig.modelsPath())
+                .kvCacheSize(chatModelConfig.kvCacheSize().asLongValue())
+                .maxConcurrentRequests(chatModelConfig.maxConcurrentRequests())
+                .offHeapKvCache(chatModelConfig.offHeapKvCache());
+        if (chatModelConfig.maxTokens().isPresent()) {
+            builder.maxTokens(chatModelConfig.maxTokens().getAsInt());
+        }
+        return builder;
+    }
+
+    private static Llama3Inference inference(String configName, Llama3Inference.Builder inferenceBuilder) {
+        return inferences.computeIfAbsent(configName, new Function<>() {
+            @Override
+            public Llama3Inference apply(String configName) {
+                return inferenceBuilder.build();
+            }
+        });
+    }
+
+    private static void closeOnShutdown(String configName, ShutdownContext shutdownContext) {
+        shutdownContext.addShutdownTask(new Runnable() {
+            @Override
+            public void run() {
+                Llama3Inference inference = inferences.remove(configName);
+                if (inference != null) {
+                    inference.close();
+                }
+            }
+        });
+    }
+
     private LangChain4jLlama3RuntimeConfig.Llama3Config correspondingJlamaConfig(
             LangChain4jLlama3RuntimeConfig runtimeConfig,
             String configName) {
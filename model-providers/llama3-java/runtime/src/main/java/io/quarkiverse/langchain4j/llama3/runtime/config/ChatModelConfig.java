@@ -4,6 +4,8 @@ import java.util.OptionalDouble;
 import java.util.OptionalInt;
 
 import io.quarkus.runtime.annotations.ConfigGroup;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.smallrye.config.WithDefault;
 
 @ConfigGroup
 public interface ChatModelConfig {
@@ -18,4 +20,41 @@ public interface ChatModelConfig {
      */
     OptionalInt maxTokens();
 
+    /**
+     * Number of most likely tokens the next token is sampled from, {@code 0} to sample from all the tokens.
+     */
+    @WithDefault("0")
+    int topK();
+
+    /**
+     * Maximum amount of memory used to keep the state (most notably the KV-cache) of previous requests around, so that
+     * it can be reused instead of being allocated again, and so that the prompt tokens a new request has in common with
+     * one of them (typically the system message and the history of the conversation) don't need to be ingested again.
+     * <p>
+     * The states of as many requests as {@code max-concurrent-requests} are always kept, even when they exceed this
+     * amount, this only limits how many more of them are kept.
+     */
+    @WithDefault("1G")
+    MemorySize kvCacheSize();
+
+    /**
+     * Maximum number of requests the model processes at the same time, additional requests wait for one of them to
+     * complete. Each request being processed holds its own state (most notably its own KV-cache).
+     * <p>
+     * The requests that are processed at the same time generate their tokens together, which means this is also the
+     * maximum number of tokens that are decoded with a single pass over the weights of the model.
+     * <p>
+     * This applies to the requests made through the chat model and the streaming chat model together, as they share the
+     * same model.
+     */
+    @WithDefault("4")
+    int maxConcurrentRequests();
+
+    /**
+     * Whether the KV-cache of each request should be allocated outside the Java heap, which prevents large context
+     * lengths from putting pressure on the garbage collector
+     */
+    @WithDefault("false")
+    boolean offHeapKvCache();
+
 }
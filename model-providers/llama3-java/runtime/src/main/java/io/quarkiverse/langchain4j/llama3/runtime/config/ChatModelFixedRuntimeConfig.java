@@ -14,7 +14,9 @@ public interface ChatModelFixedRuntimeConfig {
     String modelName();
 
     /**
-     * Quantization of the model to use
+     * Quantization of the model to use, which is part of the name of the GGUF file that is used.
+     * The supported quantizations are {@code Q4_0}, {@code Q8_0}, the {@code Q4_K} ones (such as {@code Q4_K_M}, whose
+     * files also contain {@code Q6_K} tensors), {@code Q6_K} and {@code F16}.
      */
     @WithDefault(Consts.DEFAULT_CHAT_MODEL_QUANTIZATION)
     String quantization();
@@ -4,6 +4,7 @@ import static io.quarkus.runtime.annotations.ConfigPhase.RUN_TIME;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import io.quarkus.runtime.annotations.ConfigDocDefault;
 import io.quarkus.runtime.annotations.ConfigDocMapKey;
@@ -34,6 +35,19 @@ public interface LangChain4jLlama3RuntimeConfig {
     @WithDefaults
     Map<String, Llama3Config> namedConfig();
 
+    /**
+     * Whether the inference runs on a dedicated pool of threads, instead of the common {@code ForkJoinPool} that is
+     * shared with the rest of the application.
+     */
+    @WithDefault("true")
+    boolean dedicatedComputePool();
+
+    /**
+     * Number of threads of the dedicated pool the inference runs on.
+     */
+    @ConfigDocDefault("the number of available processors")
+    OptionalInt computePoolSize();
+
     @ConfigGroup
     interface Llama3Config {
 
@@ -0,0 +1,146 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkiverse.langchain4j.llama3.copy.Llama;
+import io.quarkiverse.langchain4j.llama3.copy.Sampler;
+import io.quarkiverse.langchain4j.llama3.copy.SyntheticLlama;
+
+public class InferenceSchedulerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final Set<Integer> STOP_TOKENS = Set.of(SyntheticLlama.EOT);
+    private static final int MAX_TOKENS = 80;
+
+    private final Llama model = SyntheticLlama.create(128);
+    private final List<InferenceScheduler> schedulers = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        schedulers.forEach(InferenceScheduler::close);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentRequestsGenerateTheSameTokensAsSequentialOnes() throws Exception {
+        // prompts of different lengths, so that some requests are still ingesting their prompt while others generate
+        List<List<Integer>> prompts = List.of(
+                prompt(1, 2, 3),
+                prompt(4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29,
+                        30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40),
+                prompt(41),
+                prompt(42, 43, 44, 45, 46, 47, 48, 49));
+
+        InferenceScheduler sequential = scheduler(1);
+        List<List<Integer>> expected = new ArrayList<>();
+        for (List<Integer> prompt : prompts) {
+            expected.add(sequential.generate(prompt, STOP_TOKENS, MAX_TOKENS, Sampler.ARGMAX, token -> {
+            }));
+        }
+
+        InferenceScheduler concurrent = scheduler(prompts.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        List<List<Integer>> streamed = new ArrayList<>();
+        for (List<Integer> prompt : prompts) {
+            List<Integer> tokens = new CopyOnWriteArrayList<>();
+            streamed.add(tokens);
+            results.add(executor.submit(() -> {
+                start.await();
+                return concurrent.generate(prompt, STOP_TOKENS, MAX_TOKENS, Sampler.ARGMAX, tokens::add);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < prompts.size(); i++) {
+            List<Integer> generated = results.get(i).get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            assertThat(generated).as("request %d", i).isNotEmpty().isEqualTo(expected.get(i));
+            assertThat(streamed.get(i)).as("request %d", i).isEqualTo(generated);
+        }
+    }
+
+    @Test
+    public void consumerFailureReleasesTheState() {
+        // a single request at a time, the next one waits forever if the state is not given back
+        InferenceScheduler scheduler = scheduler(1);
+
+        assertThatThrownBy(() -> scheduler.generate(prompt(1, 2, 3), STOP_TOKENS, MAX_TOKENS, Sampler.ARGMAX, token -> {
+            throw new IllegalArgumentException("consumer failure");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("consumer failure");
+
+        List<Integer> generated = assertTimeoutPreemptively(TIMEOUT,
+                () -> scheduler.generate(prompt(4, 5), STOP_TOKENS, MAX_TOKENS, Sampler.ARGMAX, token -> {
+                }));
+        assertThat(generated).isNotEmpty();
+    }
+
+    @Test
+    public void closeFailsPendingRequests() throws Exception {
+        InferenceScheduler scheduler = scheduler(2);
+        CountDownLatch sampling = new CountDownLatch(1);
+        Semaphore resume = new Semaphore(0);
+        // holds the scheduler thread until the scheduler has been closed
+        Sampler blocking = SyntheticLlama.argmaxAfter(() -> {
+            sampling.countDown();
+            resume.acquireUninterruptibly();
+        });
+
+        Future<List<Integer>> running = executor.submit(
+                () -> scheduler.generate(prompt(1, 2, 3), STOP_TOKENS, MAX_TOKENS, blocking, token -> {
+                }));
+        assertThat(sampling.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isTrue();
+        Thread[] submitter = new Thread[1];
+        Future<List<Integer>> queued = executor.submit(() -> {
+            submitter[0] = Thread.currentThread();
+            return scheduler.generate(prompt(4, 5), STOP_TOKENS, MAX_TOKENS, Sampler.ARGMAX, token -> {
+            });
+        });
+        // the request is queued once its thread waits for the generated tokens
+        while (submitter[0] == null || submitter[0].getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+
+        scheduler.close();
+        resume.release(MAX_TOKENS);
+
+        for (Future<List<Integer>> request : List.of(running, queued)) {
+            assertThatThrownBy(() -> request.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessageContaining("shut down");
+        }
+        assertThatThrownBy(() -> scheduler.generate(prompt(6), STOP_TOKENS, MAX_TOKENS, Sampler.ARGMAX, token -> {
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("shut down");
+    }
+
+    private InferenceScheduler scheduler(int maxConcurrentRequests) {
+        InferenceScheduler scheduler = new InferenceScheduler(model, new StatePool(model, 0, maxConcurrentRequests, false));
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    private static List<Integer> prompt(Integer... tokens) {
+        List<Integer> prompt = new ArrayList<>();
+        prompt.add(SyntheticLlama.BEGIN_OF_TEXT);
+        prompt.addAll(List.of(tokens));
+        return prompt;
+    }
+}
@@ -0,0 +1,138 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class Llama3ModelRegistryTest {
+
+    private static final String MODEL_NAME = "owner/Model-GGUF";
+    private static final String QUANTIZATION = "Q4_0";
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @TempDir
+    Path modelsPath;
+
+    private final byte[] content = new byte[10 * CHUNK_SIZE + 123];
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private volatile boolean rangesSupported = true;
+    private volatile String sha256;
+    // the start of the range that fails, -1 if none does
+    private volatile long failingRangeStart = -1;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        new Random(42).nextBytes(content);
+        sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/owner/Model-GGUF/resolve/main/Model-Q4_0.gguf", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void downloadsChunksInParallel() throws Exception {
+        Path result = registry().downloadModel(MODEL_NAME, QUANTIZATION, Optional.empty(), Optional.empty());
+
+        assertThat(Files.readAllBytes(result)).isEqualTo(content);
+        assertThat(result.resolveSibling(Llama3ModelRegistry.FINISHED_MARKER)).exists();
+        assertThat(result.resolveSibling(result.getFileName() + ModelDownloader.PART_SUFFIX)).doesNotExist();
+        assertThat(result.resolveSibling(result.getFileName() + ModelDownloader.MANIFEST_SUFFIX)).doesNotExist();
+        // the probe, and one request per chunk
+        assertThat(ranges).hasSize(1 + 11);
+    }
+
+    @Test
+    public void resumesInterruptedDownload() throws Exception {
+        failingRangeStart = 3 * CHUNK_SIZE;
+        assertThatThrownBy(() -> registry().downloadModel(MODEL_NAME, QUANTIZATION, Optional.empty(), Optional.empty()))
+                .isInstanceOf(IOException.class);
+
+        failingRangeStart = -1;
+        ranges.clear();
+        Path result = registry().downloadModel(MODEL_NAME, QUANTIZATION, Optional.empty(), Optional.empty());
+
+        assertThat(Files.readAllBytes(result)).isEqualTo(content);
+        // the probe, and the chunk that failed
+        assertThat(ranges).containsExactly("bytes=0-0", "bytes=" + 3 * CHUNK_SIZE + "-" + (4 * CHUNK_SIZE - 1));
+    }
+
+    @Test
+    public void rejectsCorruptedDownload() {
+        sha256 = "0".repeat(64);
+
+        assertThatThrownBy(() -> registry().downloadModel(MODEL_NAME, QUANTIZATION, Optional.empty(), Optional.empty()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum mismatch");
+        assertThat(modelsPath.resolve("owner_Model-GGUF/Model-Q4_0.gguf")).doesNotExist();
+        assertThat(modelsPath.resolve("owner_Model-GGUF/Model-Q4_0.gguf" + ModelDownloader.PART_SUFFIX)).doesNotExist();
+    }
+
+    @Test
+    public void downloadsAtOnceWhenRangesAreNotSupported() throws Exception {
+        rangesSupported = false;
+
+        Path result = registry().downloadModel(MODEL_NAME, QUANTIZATION, Optional.empty(), Optional.empty());
+
+        assertThat(Files.readAllBytes(result)).isEqualTo(content);
+        assertThat(ranges).hasSize(1);
+    }
+
+    private Llama3ModelRegistry registry() {
+        return new Llama3ModelRegistry(modelsPath, "http://localhost:" + server.getAddress().getPort(),
+                new ModelDownloader(4, CHUNK_SIZE));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range);
+        exchange.getResponseHeaders().add("X-Linked-Etag", "\"" + sha256 + "\"");
+        Matcher matcher = range == null ? null : RANGE.matcher(range);
+        if (!rangesSupported || (matcher == null) || !matcher.matches()) {
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+            return;
+        }
+        int start = Integer.parseInt(matcher.group(1));
+        int end = Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+        if (start == failingRangeStart) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, start, end - start + 1);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.quarkiverse.langchain4j.llama3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.quarkiverse.langchain4j.llama3.copy.Llama;
+import io.quarkiverse.langchain4j.llama3.copy.SyntheticLlama;
+
+public class StatePoolTest {
+
+    private final Llama model = SyntheticLlama.create(64);
+
+    @Test
+    public void statesOfConcurrentRequestsAreRecycledWithoutMemoryBudget() {
+        StatePool pool = new StatePool(model, 0, 2, false);
+
+        StatePool.Lease first = pool.acquire(List.of(SyntheticLlama.BEGIN_OF_TEXT, 1, 2));
+        StatePool.Lease second = pool.acquire(List.of(SyntheticLlama.BEGIN_OF_TEXT, 3, 4));
+        pool.release(first, List.of(SyntheticLlama.BEGIN_OF_TEXT, 1, 2), List.of(5));
+        pool.release(second, List.of(SyntheticLlama.BEGIN_OF_TEXT, 3, 4), List.of());
+
+        StatePool.Lease third = pool.acquire(List.of(SyntheticLlama.BEGIN_OF_TEXT, 6));
+        StatePool.Lease fourth = pool.acquire(List.of(SyntheticLlama.BEGIN_OF_TEXT, 7));
+        assertThat(List.of(third.state(), fourth.state())).containsExactlyInAnyOrder(first.state(), second.state());
+    }
+
+    @Test
+    public void commonPrefixIsNotIngestedAgain() {
+        StatePool pool = new StatePool(model, 0, 1, false);
+
+        List<Integer> prompt = List.of(SyntheticLlama.BEGIN_OF_TEXT, 1, 2, 3);
+        StatePool.Lease lease = pool.acquire(prompt);
+        assertThat(lease.startPosition()).isZero();
+        assertThat(lease.promptTokens()).containsExactly(1, 2, 3);
+        pool.release(lease, prompt, List.of(4, SyntheticLlama.EOT));
+
+        // the generated token that was fed back into the model is part of the reused prefix, the last one is not
+        StatePool.Lease next = pool.acquire(List.of(SyntheticLlama.BEGIN_OF_TEXT, 1, 2, 3, 4, 5, 6));
+        assertThat(next.state()).isSameAs(lease.state());
+        assertThat(next.startPosition()).isEqualTo(5);
+        assertThat(next.state().latestToken).isEqualTo(5);
+        assertThat(next.promptTokens()).containsExactly(6);
+    }
+
+    @Test
+    public void memoryBudgetKeepsMoreStatesThanConcurrentRequests() {
+        long stateSize = StatePool.stateSizeInBytes(model.configuration());
+        StatePool pool = new StatePool(model, 3 * stateSize, 1, false);
+
+        // the prompts have nothing in common, otherwise the state of the previous one would be reused
+        StatePool.Lease[] leases = new StatePool.Lease[3];
+        for (int i = 0; i < leases.length; i++) {
+            List<Integer> prompt = List.of(10 + i, 20 + i);
+            leases[i] = pool.acquire(prompt);
+            pool.release(leases[i], prompt, List.of(30 + i));
+        }
+
+        // each conversation finds its own state back
+        for (int i = leases.length - 1; i >= 0; i--) {
+            StatePool.Lease lease = pool.acquire(List.of(10 + i, 20 + i, 40));
+            assertThat(lease.state()).isSameAs(leases[i].state());
+            assertThat(lease.startPosition()).isEqualTo(2);
+            pool.release(lease, List.of(), List.of());
+        }
+    }
+
+    @Test
+    public void stateSizeIncludesThePrefillBuffers() {
+        Llama.Configuration config = model.configuration();
+        long kvDim = ((long) config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        long kvCache = 2L * config.numberOfLayers * config.contextLength * kvDim;
+        long prefill = Llama.PREFILL_BATCH_SIZE > 1
+                ? (long) Llama.PREFILL_BATCH_SIZE * (4L * config.dim + 2L * config.hiddenDim + 2L * kvDim)
+                : 0;
+        assertThat(StatePool.stateSizeInBytes(config)).isGreaterThan(Float.BYTES * (kvCache + prefill));
+    }
+}
@@ -0,0 +1,163 @@
+package io.quarkiverse.langchain4j.llama3.copy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the batched code paths, which read each weight matrix once for several tokens, compute the same values as
+ * running the tokens one by one.
+ */
+public class BatchedInferenceTest {
+
+    private static final int CONTEXT_LENGTH = 128;
+    private static final float TOLERANCE = 1e-4f;
+
+    @Test
+    public void prefillMatchesForward() {
+        for (GGMLType weightType : List.of(GGMLType.F32, GGMLType.Q4_0, GGMLType.Q8_0)) {
+            Llama model = SyntheticLlama.create(CONTEXT_LENGTH, 42, weightType);
+            // more than a block of prefill, and a partial one
+            int[] tokens = randomTokens(new Random(1), Llama.PREFILL_BATCH_SIZE + 9);
+            int count = tokens.length - 1;
+
+            Llama.State expected = model.createNewState();
+            for (int position = 0; position < count; position++) {
+                Llama.forward(model, expected, tokens[position], position);
+            }
+            Llama.State actual = model.createNewState();
+            Llama.prefill(model, actual, tokens, count, 0);
+
+            assertSameKvCache(model, expected, actual, count, weightType);
+            // the next token attends to all the ingested ones
+            assertSame(Llama.forward(model, actual, tokens[count], count),
+                    Llama.forward(model, expected, tokens[count], count), weightType + " logits");
+        }
+    }
+
+    @Test
+    public void prefillContinuesFromStartPosition() {
+        Llama model = SyntheticLlama.create(CONTEXT_LENGTH, 42, GGMLType.Q8_0);
+        int[] tokens = randomTokens(new Random(2), 20);
+
+        Llama.State expected = model.createNewState();
+        for (int position = 0; position < tokens.length; position++) {
+            Llama.forward(model, expected, tokens[position], position);
+        }
+        Llama.State actual = model.createNewState();
+        Llama.prefill(model, actual, tokens, 7, 0);
+        int[] rest = new int[tokens.length - 7];
+        System.arraycopy(tokens, 7, rest, 0, rest.length);
+        Llama.prefill(model, actual, rest, rest.length, 7);
+
+        assertSameKvCache(model, expected, actual, tokens.length, GGMLType.Q8_0);
+    }
+
+    @Test
+    public void batchedForwardMatchesForward() {
+        for (GGMLType weightType : List.of(GGMLType.F32, GGMLType.Q4_0, GGMLType.Q8_0)) {
+            Llama model = SyntheticLlama.create(CONTEXT_LENGTH, 42, weightType);
+            Random random = new Random(3);
+            // not a multiple of the 4 states the quantized matrices are multiplied with at once
+            int batchSize = 6;
+            Llama.State[] expected = new Llama.State[batchSize];
+            Llama.State[] actual = new Llama.State[batchSize];
+            int[] positions = new int[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                // each state is at a different position of its own sequence
+                int[] history = randomTokens(random, 1 + i * 3);
+                expected[i] = model.createNewState();
+                actual[i] = model.createNewState();
+                Llama.prefill(model, expected[i], history, history.length, 0);
+                Llama.prefill(model, actual[i], history, history.length, 0);
+                positions[i] = history.length;
+            }
+            int[] tokens = randomTokens(random, batchSize);
+
+            Llama.forward(model, actual, tokens, positions, batchSize);
+
+            for (int i = 0; i < batchSize; i++) {
+                FloatTensor logits = Llama.forward(model, expected[i], tokens[i], positions[i]);
+                assertSame(actual[i].logits, logits, weightType + " logits of state " + i);
+                assertSameKvCache(model, expected[i], actual[i], positions[i] + 1, weightType);
+            }
+        }
+    }
+
+    @Test
+    public void q4_0BatchedMatmulMatchesMatmul() {
+        Random random = new Random(4);
+        assertBatchedMatmulMatchesMatmul(SyntheticLlama.q4_0(randomValues(random, 24 * 96)), 24, 96, random);
+    }
+
+    @Test
+    public void q8_0BatchedMatmulMatchesMatmul() {
+        Random random = new Random(5);
+        assertBatchedMatmulMatchesMatmul(SyntheticLlama.q8_0(randomValues(random, 24 * 96)), 24, 96, random);
+    }
+
+    /**
+     * The batch sizes that are not multiples of 4 end with vectors that are multiplied with each row one at a time.
+     */
+    private static void assertBatchedMatmulMatchesMatmul(FloatTensor matrix, int dim0, int dim1, Random random) {
+        for (int batchSize = 1; batchSize <= 9; batchSize++) {
+            FloatTensor[] that = new FloatTensor[batchSize];
+            FloatTensor[] out = new FloatTensor[batchSize];
+            for (int b = 0; b < batchSize; b++) {
+                that[b] = new ArrayFloatTensor(randomValues(random, dim1));
+                out[b] = ArrayFloatTensor.allocate(dim0);
+            }
+
+            matrix.matmul(batchSize, that, out, dim0, dim1);
+
+            for (int b = 0; b < batchSize; b++) {
+                FloatTensor expected = ArrayFloatTensor.allocate(dim0);
+                matrix.matmul(that[b], expected, dim0, dim1);
+                assertSame(out[b], expected, "batch size " + batchSize + ", vector " + b);
+            }
+        }
+    }
+
+    private static void assertSameKvCache(Llama model, Llama.State expected, Llama.State actual, int positions,
+            GGMLType weightType) {
+        Llama.Configuration config = model.configuration();
+        int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        for (int l = 0; l < config.numberOfLayers; l++) {
+            for (int i = 0; i < positions * kvDim; i++) {
+                String description = weightType + " layer " + l + ", position " + i / kvDim;
+                assertThat(actual.keyCache[l].getFloat(i)).as("key of %s", description)
+                        .isCloseTo(expected.keyCache[l].getFloat(i), within(TOLERANCE));
+                assertThat(actual.valueCache[l].getFloat(i)).as("value of %s", description)
+                        .isCloseTo(expected.valueCache[l].getFloat(i), within(TOLERANCE));
+            }
+        }
+    }
+
+    private static void assertSame(FloatTensor actual, FloatTensor expected, String description) {
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.getFloat(i)).as("%s at %d", description, i)
+                    .isCloseTo(expected.getFloat(i), within(TOLERANCE * Math.max(1f, Math.abs(expected.getFloat(i)))));
+        }
+    }
+
+    private static int[] randomTokens(Random random, int count) {
+        int[] tokens = new int[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = random.nextInt(256);
+        }
+        return tokens;
+    }
+
+    private static float[] randomValues(Random random, int size) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,82 @@
+package io.quarkiverse.langchain4j.llama3.copy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class FusedSamplerTest {
+
+    private static final int VOCABULARY_SIZE = 1000;
+
+    @Test
+    public void sameSeedSamplesSameTokens() {
+        FloatTensor logits = randomLogits(42);
+        Sampler first = Llama3.selectSampler(VOCABULARY_SIZE, 0.7f, 0.95f, 0, 17);
+        Sampler second = Llama3.selectSampler(VOCABULARY_SIZE, 0.7f, 0.95f, 0, 17);
+
+        int[] firstTokens = IntStream.range(0, 100).map(i -> first.sampleToken(logits)).toArray();
+        int[] secondTokens = IntStream.range(0, 100).map(i -> second.sampleToken(logits)).toArray();
+
+        assertThat(firstTokens).isEqualTo(secondTokens);
+        // the logits are not modified, so consecutive calls keep sampling from the same distribution
+        assertThat(IntStream.of(firstTokens).distinct().count()).isGreaterThan(1);
+    }
+
+    @Test
+    public void topKOnlySamplesMostLikelyTokens() {
+        FloatTensor logits = randomLogits(7);
+        Set<Integer> top5 = new HashSet<>();
+        IntStream.range(0, VOCABULARY_SIZE).boxed()
+                .sorted((a, b) -> Float.compare(logits.getFloat(b), logits.getFloat(a)))
+                .limit(5)
+                .forEach(top5::add);
+
+        Sampler sampler = Llama3.selectSampler(VOCABULARY_SIZE, 10f, 0.99f, 5, 17);
+        Set<Integer> sampled = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            sampled.add(sampler.sampleToken(logits));
+        }
+
+        assertThat(top5).containsAll(sampled);
+        assertThat(sampled).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    public void topPOnlySamplesNucleus() {
+        float[] values = new float[VOCABULARY_SIZE];
+        // two tokens hold almost all the probability mass
+        values[3] = 20f;
+        values[11] = 20f;
+        FloatTensor logits = new ArrayFloatTensor(values);
+
+        Sampler sampler = Llama3.selectSampler(VOCABULARY_SIZE, 1f, 0.9f, 0, 17);
+        Set<Integer> sampled = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            sampled.add(sampler.sampleToken(logits));
+        }
+
+        assertThat(sampled).containsExactlyInAnyOrder(3, 11);
+    }
+
+    @Test
+    public void topKOfOneIsGreedy() {
+        FloatTensor logits = randomLogits(3);
+        Sampler sampler = Llama3.selectSampler(VOCABULARY_SIZE, 1f, 0.95f, 1, 17);
+
+        assertThat(sampler.sampleToken(logits)).isEqualTo(logits.argmax());
+    }
+
+    private static FloatTensor randomLogits(long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[VOCABULARY_SIZE];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) random.nextGaussian() * 3;
+        }
+        return new ArrayFloatTensor(values);
+    }
+}
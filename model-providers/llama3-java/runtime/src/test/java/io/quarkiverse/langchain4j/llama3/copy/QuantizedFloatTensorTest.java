@@ -0,0 +1,196 @@
+package io.quarkiverse.langchain4j.llama3.copy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the dequantization of the K-quants and half-precision tensors on hand-made blocks, and that their vectorized
+ * dot products match the scalar ones. The vectorized code depends on {@link FloatTensor#F_SPECIES}, which is why the
+ * build runs these tests a second time with 128-bit vectors.
+ */
+public class QuantizedFloatTensorTest {
+
+    private static final int BLOCKS = 4;
+
+    @Test
+    public void q4_KDequantizesKnownValues() {
+        byte[] block = new byte[GGMLType.Q4_K.getTypeSize()];
+        putHalf(block, 0, 1f); // d
+        putHalf(block, 2, 0.5f); // dmin
+        int scales = 4;
+        block[scales] = 2; // scale of the 1st block
+        block[scales + 1] = 1 | (1 << 6); // scale of the 2nd block, the 6th one takes the high bits
+        block[scales + 4] = 3; // minimum of the 1st block
+        block[scales + 9] = 0x23; // low bits of the scale and of the minimum of the 6th block
+        int quants = scales + 12;
+        block[quants] = 0x75; // first values of the 1st and 2nd blocks
+        block[quants + 64] = (byte) 0xA0; // first values of the 5th and 6th blocks
+        FloatTensor tensor = new Q4_KFloatTensor(GGMLType.Q4_K.getBlockSize(), segment(block));
+
+        assertThat(tensor.getFloat(0)).isEqualTo(1f * 2 * 5 - 0.5f * 3);
+        assertThat(tensor.getFloat(32)).isEqualTo(1f * 1 * 7);
+        assertThat(tensor.getFloat(128)).isEqualTo(0f);
+        assertThat(tensor.getFloat(160)).isEqualTo(1f * (16 + 3) * 10 - 0.5f * 2);
+        assertVectorizedValues(tensor);
+    }
+
+    @Test
+    public void q6_KDequantizesKnownValues() {
+        byte[] block = new byte[GGMLType.Q6_K.getTypeSize()];
+        block[0] = 0x3A; // low bits of the 1st and 3rd rows
+        block[32] = 0x10; // low bits of the 2nd and 4th rows
+        block[128] = (byte) 0b11_10_01_10; // high bits of the 4 rows
+        int scales = 128 + 64;
+        block[scales] = -3;
+        block[scales + 2] = 2;
+        block[scales + 4] = 4;
+        block[scales + 6] = 1;
+        putHalf(block, scales + 16, 0.5f); // d
+        FloatTensor tensor = new Q6_KFloatTensor(GGMLType.Q6_K.getBlockSize(), segment(block));
+
+        assertThat(tensor.getFloat(0)).isEqualTo(0.5f * -3 * ((0xA | 2 << 4) - 32));
+        assertThat(tensor.getFloat(32)).isEqualTo(0.5f * 2 * ((0x0 | 1 << 4) - 32));
+        assertThat(tensor.getFloat(64)).isEqualTo(0.5f * 4 * ((0x3 | 2 << 4) - 32));
+        assertThat(tensor.getFloat(96)).isEqualTo(0.5f * 1 * ((0x1 | 3 << 4) - 32));
+        assertVectorizedValues(tensor);
+    }
+
+    @Test
+    public void f16DequantizesKnownValues() {
+        float[] values = { 1f, -2f, 0.5f, 0f, -0f, 65504f, 0x1p-24f, -0x1p-14f, 0x1.ff8p-15f, 3.140625f, -1000f,
+                2048f, -0x1p-10f, 0.1f, 0x1p-20f, -7.5f };
+        FloatTensor tensor = f16(values);
+
+        for (int i = 0; i < values.length; i++) {
+            assertThat(tensor.getFloat(i)).isEqualTo(Float.float16ToFloat(Float.floatToFloat16(values[i])));
+        }
+        assertThat(tensor.getFloat(6)).isEqualTo(0x1p-24f);
+        assertThat(Float.floatToRawIntBits(tensor.getFloat(4))).isEqualTo(Float.floatToRawIntBits(-0f));
+        assertVectorizedValues(tensor);
+
+        // multiplying the other lanes by 0 would turn a single infinity into a NaN
+        float[] ones = new float[values.length];
+        Arrays.fill(ones, 1f);
+        for (float value : new float[] { Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN }) {
+            float[] same = new float[values.length];
+            Arrays.fill(same, value);
+            FloatTensor special = f16(same);
+            assertThat(special.getFloat(0)).isEqualTo(Float.valueOf(value));
+            assertThat(special.dot(0, new ArrayFloatTensor(ones), 0, values.length)).isEqualTo(Float.valueOf(value));
+        }
+    }
+
+    @Test
+    public void q4_KVectorDotMatchesScalarDot() {
+        Random random = new Random(1);
+        byte[] blocks = randomBytes(random, BLOCKS * GGMLType.Q4_K.getTypeSize());
+        for (int block = 0; block < BLOCKS; block++) {
+            int offset = block * GGMLType.Q4_K.getTypeSize();
+            putHalf(blocks, offset, random.nextFloat() * 0.01f);
+            putHalf(blocks, offset + 2, random.nextFloat() * 0.01f);
+        }
+        assertVectorDotMatchesScalarDot(new Q4_KFloatTensor(BLOCKS * GGMLType.Q4_K.getBlockSize(), segment(blocks)),
+                random);
+    }
+
+    @Test
+    public void q6_KVectorDotMatchesScalarDot() {
+        Random random = new Random(2);
+        byte[] blocks = randomBytes(random, BLOCKS * GGMLType.Q6_K.getTypeSize());
+        for (int block = 0; block < BLOCKS; block++) {
+            putHalf(blocks, (block + 1) * GGMLType.Q6_K.getTypeSize() - Float16.BYTES, random.nextFloat() * 0.01f);
+        }
+        assertVectorDotMatchesScalarDot(new Q6_KFloatTensor(BLOCKS * GGMLType.Q6_K.getBlockSize(), segment(blocks)),
+                random);
+    }
+
+    @Test
+    public void f16VectorDotMatchesScalarDot() {
+        Random random = new Random(3);
+        int size = BLOCKS * 256;
+        byte[] bytes = new byte[size * Float16.BYTES];
+        for (int i = 0; i < size; i++) {
+            // includes subnormal numbers
+            float value = i % 17 == 0 ? random.nextInt(1024) * 0x1p-24f : (float) random.nextGaussian();
+            putHalf(bytes, i * Float16.BYTES, random.nextBoolean() ? value : -value);
+        }
+        assertVectorDotMatchesScalarDot(new F16FloatTensor(size, segment(bytes)), random);
+    }
+
+    /**
+     * Covers the blocks that are entirely vectorized as well as the unaligned beginnings and ends that are not.
+     */
+    private static void assertVectorDotMatchesScalarDot(FloatTensor tensor, Random random) {
+        ArrayFloatTensor that = randomVector(random, tensor.size());
+        int[][] ranges = { { 0, tensor.size() }, { 256, 512 }, { 3, 700 }, { 250, 13 }, { 512, 300 } };
+        for (int[] range : ranges) {
+            int offset = range[0];
+            int size = range[1];
+            float expected = FloatTensor.scalarDot(tensor, offset, that, offset, size);
+            float actual = tensor.dot(offset, that, offset, size);
+            assertThat(actual).as("offset %d, size %d", offset, size)
+                    .isCloseTo(expected, within(1e-4f * Math.max(1f, Math.abs(expected))));
+        }
+        // the offsets of the vector do not have to match the ones of the tensor
+        ArrayFloatTensor longer = randomVector(random, tensor.size() + 5);
+        assertThat(tensor.dot(256, longer, 5, 512)).isCloseTo(FloatTensor.scalarDot(tensor, 256, longer, 5, 512),
+                within(1e-4f * Math.max(1f, Math.abs(FloatTensor.scalarDot(tensor, 256, longer, 5, 512)))));
+    }
+
+    /**
+     * The dot product with a one-hot vector goes through the vectorized dequantization and must find the value back.
+     */
+    private static void assertVectorizedValues(FloatTensor tensor) {
+        for (int i = 0; i < tensor.size(); i++) {
+            float[] oneHot = new float[tensor.size()];
+            oneHot[i] = 1f;
+            // exactly, but adding the zeros of the other lanes turns -0 into 0
+            assertThat(tensor.dot(0, new ArrayFloatTensor(oneHot), 0, tensor.size())).as("index %d", i)
+                    .isCloseTo(tensor.getFloat(i), within(0f));
+        }
+    }
+
+    private static ArrayFloatTensor randomVector(Random random, int size) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return new ArrayFloatTensor(values);
+    }
+
+    private static FloatTensor f16(float... values) {
+        byte[] bytes = new byte[values.length * Float16.BYTES];
+        for (int i = 0; i < values.length; i++) {
+            putHalf(bytes, i * Float16.BYTES, values[i]);
+        }
+        return new F16FloatTensor(values.length, segment(bytes));
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void putHalf(byte[] bytes, int offset, float value) {
+        short half = Float.floatToFloat16(value);
+        bytes[offset] = (byte) half;
+        bytes[offset + 1] = (byte) (half >>> 8);
+    }
+
+    /**
+     * The tensors read their memory at its native address, which heap segments do not have.
+     */
+    private static MemorySegment segment(byte[] bytes) {
+        MemorySegment segment = Arena.ofAuto().allocate(bytes.length);
+        MemorySegment.copy(MemorySegment.ofArray(bytes), 0, segment, 0, bytes.length);
+        return segment;
+    }
+}
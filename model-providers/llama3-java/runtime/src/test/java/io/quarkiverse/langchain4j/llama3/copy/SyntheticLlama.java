@@ -0,0 +1,197 @@
+package io.quarkiverse.langchain4j.llama3.copy;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * A tiny model with random weights, whose vocabulary is made of the 256 bytes followed by the special tokens, which is
+ * enough to check that the different ways of running the model produce the same results.
+ * <p>
+ * The weight matrices can be quantized, their rows are long enough to be made of whole blocks.
+ */
+public final class SyntheticLlama {
+
+    public static final int BEGIN_OF_TEXT = 256;
+    public static final int EOT = 259;
+    // the bytes and the special tokens
+    private static final int VOCABULARY_SIZE = 256 + 5;
+
+    private SyntheticLlama() {
+    }
+
+    public static Llama create(int contextLength) {
+        return create(contextLength, 42);
+    }
+
+    public static Llama create(int contextLength, long seed) {
+        return create(contextLength, seed, GGMLType.F32);
+    }
+
+    /**
+     * @param weightType {@link GGMLType#F32}, {@link GGMLType#Q4_0} or {@link GGMLType#Q8_0}
+     */
+    static Llama create(int contextLength, long seed, GGMLType weightType) {
+        Tokenizer tokenizer = createTokenizer();
+        Llama.Configuration config = new Llama.Configuration(32, 64, 2, 4, 2, VOCABULARY_SIZE, contextLength, 1e-5f,
+                10000f);
+        int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+        int layers = config.numberOfLayers;
+        Random random = new Random(seed);
+        Pair<float[], float[]> ropeFreqs = RoPE.precomputeFreqsCis(config.contextLength, config.headSize,
+                config.ropeTheta, false, 0, 0, 0, 0);
+        Llama.Weights weights = new Llama.Weights(
+                tensor(random, VOCABULARY_SIZE * config.dim, weightType),
+                buffers(layers, () -> norm(random, config.dim)),
+                tensors(layers, () -> tensor(random, config.dim * config.dim, weightType)),
+                tensors(layers, () -> tensor(random, kvDim * config.dim, weightType)),
+                tensors(layers, () -> tensor(random, kvDim * config.dim, weightType)),
+                tensors(layers, () -> tensor(random, config.dim * config.dim, weightType)),
+                buffers(layers, () -> norm(random, config.dim)),
+                tensors(layers, () -> tensor(random, config.hiddenDim * config.dim, weightType)),
+                tensors(layers, () -> tensor(random, config.dim * config.hiddenDim, weightType)),
+                tensors(layers, () -> tensor(random, config.hiddenDim * config.dim, weightType)),
+                norm(random, config.dim),
+                FloatBuffer.wrap(ropeFreqs.first()),
+                FloatBuffer.wrap(ropeFreqs.second()),
+                tensor(random, VOCABULARY_SIZE * config.dim, weightType));
+        return new Llama(config, tokenizer, weights);
+    }
+
+    /**
+     * {@link Sampler#ARGMAX} running the given action first each time a token is sampled, on the thread that runs the
+     * model (the tests outside of this package can not implement {@link Sampler} themselves).
+     */
+    public static Sampler argmaxAfter(Runnable action) {
+        return logits -> {
+            action.run();
+            return Sampler.ARGMAX.sampleToken(logits);
+        };
+    }
+
+    private static Tokenizer createTokenizer() {
+        List<String> tokens = new ArrayList<>();
+        for (int b = 0; b < 256; b++) {
+            tokens.add(String.valueOf((char) Tokenizer.BYTE_ENCODER.get(b).intValue()));
+        }
+        Map<String, Integer> specialTokens = new HashMap<>();
+        for (String specialToken : List.of("<|begin_of_text|>", "<|start_header_id|>", "<|end_header_id|>",
+                "<|eot_id|>", "<|end_of_text|>")) {
+            specialTokens.put(specialToken, tokens.size());
+            tokens.add(specialToken);
+        }
+        Vocabulary vocabulary = new Vocabulary(tokens.toArray(new String[0]), null);
+        return new Tokenizer(vocabulary, List.of(), null, specialTokens);
+    }
+
+    private static FloatTensor tensor(Random random, int size, GGMLType type) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (random.nextFloat() - 0.5f) * 0.5f;
+        }
+        return switch (type) {
+            case F32 -> new ArrayFloatTensor(values);
+            case Q4_0 -> q4_0(values);
+            case Q8_0 -> q8_0(values);
+            default -> throw new IllegalArgumentException(type.toString());
+        };
+    }
+
+    /**
+     * Blocks of a {@code fp16} scale followed by 16 bytes, whose low nibbles hold the first 16 values of the block and
+     * whose high nibbles hold the last 16 ones, offset by 8.
+     */
+    static Q4_0FloatTensor q4_0(float[] values) {
+        int blockSize = GGMLType.Q4_0.getBlockSize();
+        byte[] bytes = new byte[values.length / blockSize * GGMLType.Q4_0.getTypeSize()];
+        for (int block = 0; block < values.length / blockSize; block++) {
+            int offset = block * GGMLType.Q4_0.getTypeSize();
+            float max = 0f;
+            for (int i = 0; i < blockSize; i++) {
+                float value = values[block * blockSize + i];
+                if (Math.abs(value) > Math.abs(max)) {
+                    max = value;
+                }
+            }
+            float scale = max / -8;
+            putHalf(bytes, offset, scale);
+            for (int i = 0; i < blockSize / 2; i++) {
+                int lo = quantize(values[block * blockSize + i], scale);
+                int hi = quantize(values[block * blockSize + i + blockSize / 2], scale);
+                bytes[offset + Float16.BYTES + i] = (byte) (lo | (hi << 4));
+            }
+        }
+        return new Q4_0FloatTensor(values.length, segment(bytes));
+    }
+
+    private static int quantize(float value, float scale) {
+        return scale == 0f ? 8 : Math.min(15, (int) (value / scale + 8.5f));
+    }
+
+    /**
+     * Blocks of a {@code fp16} scale followed by the 32 signed bytes of the values.
+     */
+    static Q8_0FloatTensor q8_0(float[] values) {
+        int blockSize = GGMLType.Q8_0.getBlockSize();
+        byte[] bytes = new byte[values.length / blockSize * GGMLType.Q8_0.getTypeSize()];
+        for (int block = 0; block < values.length / blockSize; block++) {
+            int offset = block * GGMLType.Q8_0.getTypeSize();
+            float max = 0f;
+            for (int i = 0; i < blockSize; i++) {
+                max = Math.max(max, Math.abs(values[block * blockSize + i]));
+            }
+            float scale = max / 127;
+            putHalf(bytes, offset, scale);
+            for (int i = 0; i < blockSize; i++) {
+                bytes[offset + Float16.BYTES + i] = (byte) (scale == 0f ? 0
+                        : Math.round(values[block * blockSize + i] / scale));
+            }
+        }
+        return new Q8_0FloatTensor(values.length, segment(bytes));
+    }
+
+    private static void putHalf(byte[] bytes, int offset, float value) {
+        short half = Float.floatToFloat16(value);
+        bytes[offset] = (byte) half;
+        bytes[offset + 1] = (byte) (half >>> 8);
+    }
+
+    /**
+     * The tensors read their memory at its native address, which heap segments do not have.
+     */
+    private static MemorySegment segment(byte[] bytes) {
+        MemorySegment segment = Arena.ofAuto().allocate(bytes.length);
+        MemorySegment.copy(MemorySegment.ofArray(bytes), 0, segment, 0, bytes.length);
+        return segment;
+    }
+
+    private static FloatBuffer norm(Random random, int size) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 0.5f + random.nextFloat();
+        }
+        return FloatBuffer.wrap(values);
+    }
+
+    private static FloatTensor[] tensors(int count, Supplier<FloatTensor> supplier) {
+        FloatTensor[] tensors = new FloatTensor[count];
+        for (int i = 0; i < count; i++) {
+            tensors[i] = supplier.get();
+        }
+        return tensors;
+    }
+
+    private static FloatBuffer[] buffers(int count, Supplier<FloatBuffer> supplier) {
+        FloatBuffer[] buffers = new FloatBuffer[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = supplier.get();
+        }
+        return buffers;
+    }
+}
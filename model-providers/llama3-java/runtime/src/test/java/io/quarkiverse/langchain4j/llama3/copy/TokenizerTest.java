@@ -0,0 +1,129 @@
+package io.quarkiverse.langchain4j.llama3.copy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the token ids produced with a small vocabulary, where the first 256 tokens are the bytes, so that the
+ * expected ids can be worked out by hand by applying the merges by increasing index.
+ */
+public class TokenizerTest {
+
+    private static final String LLAMA_3_PATTERN = "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+
+    private static final int BEGIN_OF_TEXT = 270;
+    private static final int START_HEADER = 271;
+    private static final int END_HEADER = 272;
+    private static final int EOT = 273;
+    private static final int END_OF_TEXT = 274;
+
+    private final Tokenizer tokenizer = createTokenizer();
+
+    @Test
+    public void asciiText() {
+        // "hello": he (256), ll (257), hell (258), hello (259)
+        // " world": Ġw (260), or (261), ld (263), Ġwor (262), Ġworld (264)
+        assertThat(tokenizer.encode("hello world")).containsExactly(259, 264);
+        // no merge for "x", and "!" is in a chunk of its own
+        assertThat(tokenizer.encode("hellox!")).containsExactly(259, 120, 33);
+        // the leftmost pair is merged first when the merge indexes are equal
+        assertThat(tokenizer.encode("lll")).containsExactly(257, 108);
+        assertThat(tokenizer.encode("hell")).containsExactly(258);
+        assertThat(tokenizer.encode("")).isEmpty();
+    }
+
+    @Test
+    public void multibyteText() {
+        // à is encoded as the bytes 0xC3 0xA0, merged into 265, then voilà (269)
+        assertThat(tokenizer.encode("voilà")).containsExactly(269);
+        assertThat(tokenizer.encode("à")).containsExactly(265);
+        // the second byte of é (0xA9) is not a letter once encoded, so it ends up in a chunk of its own
+        assertThat(tokenizer.encode("é")).containsExactly(0xC3, 0xA9);
+        // no merge for the 4 bytes of the emoji
+        assertThat(tokenizer.encode("😀")).containsExactly(0xF0, 0x9F, 0x98, 0x80);
+        assertThat(tokenizer.decode(tokenizer.encodeAsList("voilà café 😀 hello world"))).isEqualTo("voilà café 😀 hello world");
+    }
+
+    @Test
+    public void specialTokens() {
+        ChatFormat chatFormat = new ChatFormat(tokenizer);
+        List<Integer> prompt = chatFormat.encodeDialogPrompt(true,
+                List.of(new ChatFormat.Message(ChatFormat.Role.USER, " hello world ")));
+        assertThat(prompt).containsExactly(
+                BEGIN_OF_TEXT,
+                START_HEADER, 117, 115, 101, 114, END_HEADER, 10,
+                259, 264, EOT,
+                START_HEADER, 97, 115, 115, 105, 115, 116, 97, 110, 116, END_HEADER, 10);
+        // the text of the special tokens is encoded like any other text
+        assertThat(tokenizer.encode("<|eot_id|>")).doesNotContain(EOT).hasSize(10);
+        assertThat(tokenizer.isSpecialToken(EOT)).isTrue();
+        assertThat(tokenizer.isSpecialToken(259)).isFalse();
+        assertThat(chatFormat.getStopTokens()).containsExactlyInAnyOrder(EOT, END_OF_TEXT);
+    }
+
+    @Test
+    public void cachedChunks() {
+        // the chunks encoded by the first call are served from the cache by the following ones
+        int[] first = tokenizer.encode("hello world hello world voilà");
+        int[] second = tokenizer.encode("hello world hello world voilà");
+        assertThat(first).containsExactly(259, 264, 32, 259, 264, 32, 269);
+        assertThat(second).isEqualTo(first);
+        // a cached chunk does not leak into the tokens of the other chunks
+        assertThat(tokenizer.encode("hello")).containsExactly(259);
+        assertThat(tokenizer.encode("hellohello")).containsExactly(259, 259);
+    }
+
+    private static Tokenizer createTokenizer() {
+        List<String> tokens = new ArrayList<>();
+        for (int b = 0; b < 256; b++) {
+            tokens.add(String.valueOf((char) Tokenizer.BYTE_ENCODER.get(b).intValue()));
+        }
+        List<Pair<Integer, Integer>> merges = new ArrayList<>();
+        merge(tokens, merges, "h", "e"); // 256
+        merge(tokens, merges, "l", "l"); // 257
+        merge(tokens, merges, "he", "ll"); // 258
+        merge(tokens, merges, "hell", "o"); // 259
+        merge(tokens, merges, "Ġ", "w"); // 260
+        merge(tokens, merges, "o", "r"); // 261
+        merge(tokens, merges, "Ġw", "or"); // 262
+        merge(tokens, merges, "l", "d"); // 263
+        merge(tokens, merges, "Ġwor", "ld"); // 264
+        String a = bytes("à");
+        merge(tokens, merges, a.substring(0, 1), a.substring(1)); // 265
+        merge(tokens, merges, "v", "o"); // 266
+        merge(tokens, merges, "vo", "i"); // 267
+        merge(tokens, merges, "voi", "l"); // 268
+        merge(tokens, merges, "voil", a); // 269
+        Map<String, Integer> specialTokens = new HashMap<>();
+        for (String specialToken : List.of("<|begin_of_text|>", "<|start_header_id|>", "<|end_header_id|>",
+                "<|eot_id|>", "<|end_of_text|>")) {
+            specialTokens.put(specialToken, tokens.size());
+            tokens.add(specialToken);
+        }
+        Vocabulary vocabulary = new Vocabulary(tokens.toArray(new String[0]), null);
+        return new Tokenizer(vocabulary, merges, LLAMA_3_PATTERN, specialTokens);
+    }
+
+    /**
+     * @return the text as encoded in the vocabulary, one character per UTF-8 byte
+     */
+    private static String bytes(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            sb.appendCodePoint(Tokenizer.BYTE_ENCODER.get(Byte.toUnsignedInt(b)));
+        }
+        return sb.toString();
+    }
+
+    private static void merge(List<String> tokens, List<Pair<Integer, Integer>> merges, String first, String second) {
+        merges.add(new Pair<>(tokens.indexOf(first), tokens.indexOf(second)));
+        tokens.add(first + second);
+    }
+}
@@ -0,0 +1,77 @@
+package io.quarkiverse.langchain4j.ollama.deployment;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.quarkiverse.langchain4j.ollama.OllamaEmbeddingModel;
+import io.quarkiverse.langchain4j.testing.internal.WiremockAware;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class OllamaEmbeddingModelBatchTest extends WiremockAware {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class))
+            .overrideConfigKey("quarkus.langchain4j.ollama.base-url", WiremockAware.wiremockUrlForConfig())
+            .overrideConfigKey("quarkus.langchain4j.devservices.enabled", "false")
+            .overrideRuntimeConfigKey("quarkus.langchain4j.ollama.embedding-model.use-embed-endpoint", "true")
+            .overrideRuntimeConfigKey("quarkus.langchain4j.ollama.embedding-model.batch-size", "2")
+            .overrideRuntimeConfigKey("quarkus.langchain4j.ollama.embedding-model.max-concurrent-batches", "2");
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    @Test
+    void segmentsAreEmbeddedInBatches() {
+        assertThat(ClientProxy.unwrap(embeddingModel)).isInstanceOf(OllamaEmbeddingModel.class);
+
+        wiremock().register(
+                post(urlEqualTo("/api/embed"))
+                        .withRequestBody(matchingJsonPath("$.input", equalToJson("[\"one\", \"two\"]")))
+                        .willReturn(aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBody("""
+                                        {
+                                          "model": "nomic-embed-text",
+                                          "embeddings": [[0.1, 0.2], [0.3, 0.4]]
+                                        }
+                                        """)));
+        wiremock().register(
+                post(urlEqualTo("/api/embed"))
+                        .withRequestBody(matchingJsonPath("$.input[0]", equalTo("three")))
+                        .willReturn(aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBody("""
+                                        {
+                                          "model": "nomic-embed-text",
+                                          "embeddings": [[0.5, 0.6]]
+                                        }
+                                        """)));
+
+        List<Embedding> embeddings = embeddingModel
+                .embedAll(List.of(TextSegment.from("one"), TextSegment.from("two"), TextSegment.from("three")))
+                .content();
+
+        assertThat(embeddings).extracting(Embedding::vector)
+                .containsExactly(new float[] { 0.1f, 0.2f }, new float[] { 0.3f, 0.4f }, new float[] { 0.5f, 0.6f });
+        assertThat(wiremock().getServeEvents()).hasSize(2);
+    }
+}
@@ -0,0 +1,59 @@
+package io.quarkiverse.langchain4j.ollama.deployment;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.quarkiverse.langchain4j.testing.internal.WiremockAware;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class OllamaEmbeddingModelEmbeddingsEndpointTest extends WiremockAware {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class))
+            .overrideConfigKey("quarkus.langchain4j.ollama.base-url", WiremockAware.wiremockUrlForConfig())
+            .overrideConfigKey("quarkus.langchain4j.devservices.enabled", "false");
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    @Test
+    void segmentsAreEmbeddedOneByOneByDefault() {
+        for (String text : List.of("one", "two")) {
+            wiremock().register(
+                    post(urlEqualTo("/api/embeddings"))
+                            .withRequestBody(matchingJsonPath("$.prompt", equalTo(text)))
+                            .willReturn(aResponse()
+                                    .withHeader("Content-Type", "application/json")
+                                    .withBody("""
+                                            {
+                                              "embedding": [%s, 0.5]
+                                            }
+                                            """.formatted(text.equals("one") ? "0.1" : "0.2"))));
+        }
+
+        List<Embedding> embeddings = embeddingModel
+                .embedAll(List.of(TextSegment.from("one"), TextSegment.from("two")))
+                .content();
+
+        assertThat(embeddings).extracting(Embedding::vector)
+                .containsExactly(new float[] { 0.1f, 0.5f }, new float[] { 0.2f, 0.5f });
+        assertThat(wiremock().getServeEvents()).hasSize(2);
+    }
+}
@@ -0,0 +1,51 @@
+package io.quarkiverse.langchain4j.ollama;
+
+import java.util.List;
+
+/**
+ * Request of the {@code /api/embed} endpoint, which (unlike {@code /api/embeddings}) accepts multiple inputs at once
+ */
+public class EmbedRequest {
+
+    private final String model;
+    private final List<String> input;
+
+    private EmbedRequest(Builder builder) {
+        model = builder.model;
+        input = builder.input;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public List<String> getInput() {
+        return input;
+    }
+
+    public static final class Builder {
+        private String model = "llama2";
+        private List<String> input;
+
+        private Builder() {
+        }
+
+        public Builder model(String val) {
+            model = val;
+            return this;
+        }
+
+        public Builder input(List<String> val) {
+            input = val;
+            return this;
+        }
+
+        public EmbedRequest build() {
+            return new EmbedRequest(this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.quarkiverse.langchain4j.ollama;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+
+@JsonDeserialize(builder = EmbedResponse.Builder.class)
+public class EmbedResponse {
+
+    private final float[][] embeddings;
+
+    private EmbedResponse(Builder builder) {
+        embeddings = builder.embeddings;
+    }
+
+    public float[][] getEmbeddings() {
+        return embeddings;
+    }
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class Builder {
+        private float[][] embeddings;
+
+        private Builder() {
+        }
+
+        public Builder embeddings(float[][] val) {
+            embeddings = val;
+            return this;
+        }
+
+        public EmbedResponse build() {
+            return new EmbedResponse(this);
+        }
+    }
+
+}
@@ -61,4 +61,8 @@ public class OllamaClient {
     public EmbeddingResponse embedding(EmbeddingRequest request) {
         return restApi.embeddings(request);
     }
+
+    public EmbedResponse embed(EmbedRequest request) {
+        return restApi.embed(request);
+    }
 }
@@ -1,23 +1,46 @@
 package io.quarkiverse.langchain4j.ollama;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
-
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
+/**
+ * Embeds text segments with the {@code /api/embeddings} endpoint of Ollama, one segment per request, or with the
+ * {@code /api/embed} endpoint, which accepts multiple inputs at once, when {@link Builder#useEmbedEndpoint(boolean)}
+ * is enabled.
+ * <p>
+ * Older versions of Ollama do not provide the {@code /api/embed} endpoint and answer with a {@code 404} status.
+ * Unlike {@code /api/embeddings}, it returns L2-normalized vectors, so the embeddings computed with one endpoint can
+ * not be mixed with the ones computed with the other.
+ */
 public class OllamaEmbeddingModel implements EmbeddingModel {
 
     private final OllamaClient client;
     private final String model;
+    private final int batchSize;
+    private final int maxConcurrentBatches;
+    private final boolean useEmbedEndpoint;
 
     private OllamaEmbeddingModel(Builder builder) {
         client = new OllamaClient(builder.baseUrl, builder.timeout, builder.logRequests, builder.logResponses,
                 builder.configName, builder.tlsConfigurationName);
         model = builder.model;
+        batchSize = Math.max(1, builder.batchSize);
+        maxConcurrentBatches = Math.max(1, builder.maxConcurrentBatches);
+        useEmbedEndpoint = builder.useEmbedEndpoint;
     }
 
     public static Builder builder() {
@@ -26,22 +49,97 @@ public class OllamaEmbeddingModel implements EmbeddingModel {
 
     @Override
     public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
-        List<Embedding> embeddings = new ArrayList<>();
-
-        textSegments.forEach(textSegment -> {
-            EmbeddingRequest request = EmbeddingRequest.builder()
-                    .model(model)
-                    .prompt(textSegment.text())
-                    .build();
+        if (textSegments.isEmpty()) {
+            return Response.from(Collections.emptyList());
+        }
 
-            EmbeddingResponse response = client.embedding(request);
+        List<List<String>> batches = new ArrayList<>((textSegments.size() + batchSize - 1) / batchSize);
+        for (int i = 0; i < textSegments.size(); i += batchSize) {
+            List<TextSegment> segments = textSegments.subList(i, Math.min(i + batchSize, textSegments.size()));
+            List<String> input = new ArrayList<>(segments.size());
+            for (TextSegment segment : segments) {
+                input.add(segment.text());
+            }
+            batches.add(input);
+        }
 
-            embeddings.add(Embedding.from(response.getEmbedding()));
-        });
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        if ((batches.size() == 1) || (maxConcurrentBatches == 1)) {
+            for (List<String> batch : batches) {
+                embeddings.addAll(embed(batch));
+            }
+            return Response.from(embeddings);
+        }
 
+        // at most maxConcurrentBatches requests are in flight, the results are collected in the order of the batches
+        ExecutorService executor = Infrastructure.getDefaultWorkerPool();
+        Deque<Future<List<Embedding>>> inFlight = new ArrayDeque<>(maxConcurrentBatches);
+        try {
+            for (List<String> batch : batches) {
+                if (inFlight.size() == maxConcurrentBatches) {
+                    embeddings.addAll(await(inFlight.removeFirst()));
+                }
+                inFlight.addLast(executor.submit(new Callable<>() {
+                    @Override
+                    public List<Embedding> call() {
+                        return embed(batch);
+                    }
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                embeddings.addAll(await(inFlight.removeFirst()));
+            }
+        } finally {
+            for (Future<List<Embedding>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
         return Response.from(embeddings);
     }
 
+    private List<Embedding> embed(List<String> input) {
+        if (!useEmbedEndpoint) {
+            List<Embedding> result = new ArrayList<>(input.size());
+            for (String text : input) {
+                EmbeddingResponse response = client.embedding(EmbeddingRequest.builder()
+                        .model(model)
+                        .prompt(text)
+                        .build());
+                result.add(Embedding.from(response.getEmbedding()));
+            }
+            return result;
+        }
+
+        EmbedResponse response = client.embed(EmbedRequest.builder()
+                .model(model)
+                .input(input)
+                .build());
+        float[][] vectors = response.getEmbeddings();
+        if ((vectors == null) || (vectors.length != input.size())) {
+            throw new IllegalStateException("Expected " + input.size() + " embeddings from Ollama but got "
+                    + (vectors == null ? 0 : vectors.length));
+        }
+        List<Embedding> result = new ArrayList<>(vectors.length);
+        for (float[] vector : vectors) {
+            result.add(Embedding.from(vector));
+        }
+        return result;
+    }
+
+    private static List<Embedding> await(Future<List<Embedding>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     public static final class Builder {
         private String baseUrl = "http://localhost:11434";
         private String tlsConfigurationName;
@@ -51,6 +149,9 @@ public class OllamaEmbeddingModel implements EmbeddingModel {
         private boolean logRequests = false;
         private boolean logResponses = false;
         private String configName;
+        private int batchSize = 32;
+        private int maxConcurrentBatches = 1;
+        private boolean useEmbedEndpoint = false;
 
         private Builder() {
         }
@@ -90,6 +191,21 @@ public class OllamaEmbeddingModel implements EmbeddingModel {
             return this;
         }
 
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder maxConcurrentBatches(int maxConcurrentBatches) {
+            this.maxConcurrentBatches = maxConcurrentBatches;
+            return this;
+        }
+
+        public Builder useEmbedEndpoint(boolean useEmbedEndpoint) {
+            this.useEmbedEndpoint = useEmbedEndpoint;
+            return this;
+        }
+
         public OllamaEmbeddingModel build() {
             return new OllamaEmbeddingModel(this);
         }
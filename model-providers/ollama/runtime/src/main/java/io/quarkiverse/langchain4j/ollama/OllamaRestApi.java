@@ -69,6 +69,10 @@ public interface OllamaRestApi {
     @POST
     EmbeddingResponse embeddings(EmbeddingRequest request);
 
+    @Path("/api/embed")
+    @POST
+    EmbedResponse embed(EmbedRequest request);
+
     @ClientObjectMapper
     static ObjectMapper objectMapper(ObjectMapper defaultObjectMapper) {
         return QuarkusJsonCodecFactory.SnakeCaseObjectMapperHolder.MAPPER;
@@ -113,6 +113,9 @@ public class OllamaRecorder {
                     .tlsConfigurationName(ollamaConfig.tlsConfigurationName().orElse(null))
                     .timeout(ollamaConfig.timeout().orElse(Duration.ofSeconds(10)))
                     .model(ollamaFixedConfig.embeddingModel().modelId())
+                    .batchSize(embeddingModelConfig.batchSize())
+                    .maxConcurrentBatches(embeddingModelConfig.maxConcurrentBatches())
+                    .useEmbedEndpoint(embeddingModelConfig.useEmbedEndpoint())
                     .logRequests(firstOrDefault(false, embeddingModelConfig.logRequests(), ollamaConfig.logRequests()))
                     .logResponses(firstOrDefault(false, embeddingModelConfig.logResponses(), ollamaConfig.logResponses()))
                     .configName(NamedConfigUtil.isDefault(configName) ? null : configName);
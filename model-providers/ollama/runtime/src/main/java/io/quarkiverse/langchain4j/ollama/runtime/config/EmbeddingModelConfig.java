@@ -42,6 +42,32 @@ public interface EmbeddingModelConfig {
     @WithDefault("40")
     Integer topK();
 
+    /**
+     * Whether the text segments are embedded with the {@code /api/embed} endpoint, which accepts multiple segments in a
+     * single request, instead of the {@code /api/embeddings} endpoint, which accepts one segment per request.
+     * <p>
+     * The {@code /api/embed} endpoint is not available in versions of Ollama older than 0.3.0, and it returns
+     * L2-normalized vectors: the documents of an embedding store that were embedded with one endpoint need to be
+     * embedded again when switching to the other.
+     */
+    @WithDefault("false")
+    Boolean useEmbedEndpoint();
+
+    /**
+     * The maximum number of text segments sent to Ollama in a single embedding request, when
+     * {@code use-embed-endpoint} is enabled. Otherwise, the segments of a batch are sent one after the other.
+     */
+    @WithDefault("32")
+    Integer batchSize();
+
+    /**
+     * The maximum number of embedding requests that are in flight at the same time when embedding many text segments.
+     * Values greater than 1 only help if the Ollama server is configured to handle requests in parallel
+     * (see {@code OLLAMA_NUM_PARALLEL}).
+     */
+    @WithDefault("1")
+    Integer maxConcurrentBatches();
+
     /**
      * Whether embedding model requests should be logged
      */
@@ -0,0 +1,290 @@
+package io.quarkiverse.langchain4j.test;
+
+import static java.util.Comparator.reverseOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.quarkiverse.langchain4j.easyrag.EasyRagManualIngestion;
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Checks what an incremental ingestion does to the store when the documents changed since the previous ingestion,
+ * using a store that records the segments that are added to it and removed from it.
+ */
+class EasyRagIncrementalIngestionChangesTest {
+
+    // Didn't use @TempDir because it didn't work well with @RegisterExtension
+    private static final Path TEMP_DIR = Path.of("target", "test-generated-data",
+            EasyRagIncrementalIngestionChangesTest.class.getSimpleName());
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(RecordingEmbeddingStore.class)
+                    .addAsResource(new StringAsset("""
+                            quarkus.langchain4j.easy-rag.path=%s
+                            quarkus.langchain4j.easy-rag.ingestion-strategy=MANUAL
+                            quarkus.langchain4j.easy-rag.max-segment-size=20
+                            quarkus.langchain4j.easy-rag.max-overlap-size=0
+                            quarkus.langchain4j.easy-rag.ingestion.parse-parallelism=1
+                            quarkus.langchain4j.easy-rag.ingestion.embedding-parallelism=1
+                            quarkus.langchain4j.easy-rag.ingestion.embedding-batch-size=1
+                            quarkus.langchain4j.easy-rag.ingestion.store-batch-size=1
+                            quarkus.langchain4j.easy-rag.ingestion.incremental.enabled=true
+                            quarkus.langchain4j.easy-rag.ingestion.incremental.manifest-file=%s
+                            """.formatted(documentsDirectory(), manifestFile())),
+                            "application.properties"));
+
+    @Inject
+    EasyRagManualIngestion trigger;
+
+    @Inject
+    RecordingEmbeddingStore store;
+
+    private static Path documentsDirectory() {
+        return TEMP_DIR.resolve("documents").toAbsolutePath();
+    }
+
+    private static Path manifestFile() {
+        return TEMP_DIR.resolve("manifest.properties").toAbsolutePath();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        if (Files.exists(TEMP_DIR)) {
+            deleteRecursively(TEMP_DIR);
+        }
+        Files.createDirectories(documentsDirectory());
+        store.reset();
+    }
+
+    @AfterAll
+    static void cleanup() throws IOException {
+        deleteRecursively(TEMP_DIR.getParent());
+    }
+
+    @Test
+    public void segmentsOfAChangedFileAreRemovedOnceItsNewSegmentsAreStored() throws IOException {
+        write("alpha.txt", "Alpha is the first letter.");
+        write("beta.txt", "Beta is the second letter.");
+        trigger.ingest();
+        List<String> oldAlphaIds = store.idsOf("Alpha is the first letter.");
+        assertThat(oldAlphaIds).hasSize(1);
+        assertThat(store.texts()).containsExactlyInAnyOrder("Alpha is the first letter.", "Beta is the second letter.");
+
+        store.clearEvents();
+        write("alpha.txt", "Alpha comes before beta.");
+        trigger.ingest();
+
+        assertThat(store.texts()).containsExactlyInAnyOrder("Alpha comes before beta.", "Beta is the second letter.");
+        List<String> newAlphaIds = store.idsOf("Alpha comes before beta.");
+        // the unchanged file is left alone, and the file is never missing from the store
+        assertThat(store.events()).containsExactly("add " + newAlphaIds.get(0), "remove " + oldAlphaIds.get(0));
+    }
+
+    @Test
+    public void segmentsOfADeletedFileAreRemoved() throws IOException {
+        write("alpha.txt", "Alpha is the first letter.");
+        write("beta.txt", "Beta is the second letter.");
+        trigger.ingest();
+        List<String> betaIds = store.idsOf("Beta is the second letter.");
+
+        store.clearEvents();
+        Files.delete(documentsDirectory().resolve("beta.txt"));
+        trigger.ingest();
+
+        assertThat(store.events()).containsExactly("remove " + betaIds.get(0));
+        assertThat(store.texts()).containsExactly("Alpha is the first letter.");
+        assertThat(readManifest().stringPropertyNames()).contains("file.alpha.txt").doesNotContain("file.beta.txt");
+    }
+
+    @Test
+    public void segmentsOfAPartiallyIngestedFileAreRemovedWhenTheIngestionFails() throws IOException {
+        write("alpha.txt", "Alpha is the first letter.");
+        trigger.ingest();
+        Properties manifest = readManifest();
+
+        // split into several segments, the second one of which can not be stored
+        write("long.txt", """
+                The first paragraph of the long document is about the weather.
+
+                The second paragraph of the long document is about the sea.
+
+                The third paragraph of the long document is about the mountains.
+                """);
+        store.clearEvents();
+        store.failOnAdd(2);
+        assertThatThrownBy(trigger::ingest).hasMessageContaining("Unable to store");
+
+        List<String> events = store.events();
+        assertThat(events).hasSize(2);
+        String addedId = events.get(0).substring("add ".length());
+        assertThat(events).containsExactly("add " + addedId, "remove " + addedId);
+        assertThat(store.texts()).containsExactly("Alpha is the first letter.");
+        // the manifest still describes what the store contains
+        assertThat(readManifest()).isEqualTo(manifest);
+
+        // the next ingestion ingests the file that failed
+        store.failOnAdd(0);
+        trigger.ingest();
+        assertThat(store.texts()).hasSizeGreaterThan(2).contains("Alpha is the first letter.");
+        assertThat(readManifest().stringPropertyNames()).contains("file.alpha.txt", "file.long.txt");
+    }
+
+    private static void write(String file, String content) throws IOException {
+        Files.writeString(documentsDirectory().resolve(file), content);
+    }
+
+    private static Properties readManifest() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifestFile())) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        Files.walk(path)
+                .sorted(reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Singleton
+    public static class RecordingEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+        private final InMemoryEmbeddingStore<TextSegment> delegate = new InMemoryEmbeddingStore<>();
+        private final Map<String, String> texts = new ConcurrentHashMap<>();
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final AtomicInteger adds = new AtomicInteger();
+        private volatile int failingAdd;
+
+        void reset() {
+            delegate.removeAll();
+            texts.clear();
+            clearEvents();
+            failOnAdd(0);
+        }
+
+        void clearEvents() {
+            events.clear();
+        }
+
+        /**
+         * @param add the number of the call to {@link #addAll(List, List)} (counting from the next one) that fails,
+         *        {@code 0} for none
+         */
+        void failOnAdd(int add) {
+            adds.set(0);
+            failingAdd = add;
+        }
+
+        List<String> events() {
+            return List.copyOf(events);
+        }
+
+        List<String> texts() {
+            return List.copyOf(texts.values());
+        }
+
+        List<String> idsOf(String text) {
+            List<String> ids = new ArrayList<>();
+            for (Map.Entry<String, String> entry : texts.entrySet()) {
+                if (entry.getValue().equals(text)) {
+                    ids.add(entry.getKey());
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        public String add(Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(String id, Embedding embedding) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String add(Embedding embedding, TextSegment embedded) {
+            return addAll(List.of(embedding), List.of(embedded)).get(0);
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+            if (adds.incrementAndGet() == failingAdd) {
+                throw new IllegalStateException("Unable to store the segments");
+            }
+            List<String> ids = delegate.addAll(embeddings, embedded);
+            for (int i = 0; i < ids.size(); i++) {
+                texts.put(ids.get(i), embedded.get(i).text());
+                events.add("add " + ids.get(i));
+            }
+            return ids;
+        }
+
+        @Override
+        public void removeAll(Collection<String> ids) {
+            delegate.removeAll(ids);
+            for (String id : ids) {
+                texts.remove(id);
+                events.add("remove " + id);
+            }
+        }
+
+        @Override
+        public void removeAll(Filter filter) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeAll() {
+            delegate.removeAll();
+            texts.clear();
+        }
+
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            return delegate.search(request);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.quarkiverse.langchain4j.test;
+
+import static java.util.Comparator.reverseOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.quarkiverse.langchain4j.easyrag.EasyRagManualIngestion;
+import io.quarkus.test.QuarkusUnitTest;
+
+class EasyRagIncrementalIngestionTest {
+
+    // Didn't use @TempDir because it didn't work well with @RegisterExtension
+    private static final Path TEMP_DIR = Path.of("target", "test-generated-data",
+            EasyRagIncrementalIngestionTest.class.getSimpleName());
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addAsResource(new StringAsset("""
+                            quarkus.langchain4j.easy-rag.path=src/test/resources/ragdocuments
+                            quarkus.langchain4j.easy-rag.ingestion-strategy=MANUAL
+                            quarkus.langchain4j.easy-rag.reuse-embeddings.enabled=true
+                            quarkus.langchain4j.easy-rag.reuse-embeddings.file=%s
+                            quarkus.langchain4j.easy-rag.ingestion.incremental.enabled=true
+                            quarkus.langchain4j.easy-rag.ingestion.incremental.manifest-file=%s
+                            """.formatted(embeddingsFile(), manifestFile())),
+                            "application.properties"))
+            .setLogRecordPredicate(record -> true)
+            .assertLogRecords(EasyRagIncrementalIngestionTest::verifyLogRecords);
+
+    @Inject
+    EasyRagManualIngestion trigger;
+
+    @Inject
+    EmbeddingStore<TextSegment> embeddingStore;
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    private static Path embeddingsFile() {
+        return TEMP_DIR.resolve("embeddings.json").toAbsolutePath();
+    }
+
+    private static Path manifestFile() {
+        return TEMP_DIR.resolve("manifest.properties").toAbsolutePath();
+    }
+
+    private static void verifyLogRecords(List<LogRecord> logRecords) {
+        assertThat(logRecords.stream().map(LogRecord::getMessage))
+                .contains("Ingested 2 files as 2 documents")
+                .contains("Ingested 0 files as 0 documents");
+    }
+
+    @AfterAll
+    static void cleanup() throws IOException {
+        // Clean up the temp directory
+        Files.walk(TEMP_DIR.getParent())
+                .sorted(reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Test
+    public void verifyThatUnchangedDocumentsAreNotIngestedAgain() {
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddingModel.embed("When was Charlie born?").content())
+                .maxResults(10)
+                .build();
+
+        trigger.ingest();
+        assertThat(embeddingsFile()).isNotEmptyFile();
+        assertThat(manifestFile()).isNotEmptyFile();
+        assertThat(embeddingStore.search(request).matches()).hasSize(2);
+
+        trigger.ingest();
+        assertThat(embeddingStore.search(request).matches()).hasSize(2);
+    }
+}
@@ -0,0 +1,90 @@
+package io.quarkiverse.langchain4j.test;
+
+import static java.util.Comparator.reverseOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+import jakarta.enterprise.inject.spi.CDI;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.quarkiverse.langchain4j.easyrag.runtime.EmbeddingsSnapshot;
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Starts the application with the snapshot of the embeddings written by a previous run
+ */
+class EasyRagReuseEmbeddingsBinaryFormatAlreadyExistTest {
+    private static final String EMBEDDING_FILE_NAME = "embeddings.bin";
+
+    // Didn't use @TempDir because it didn't work well with @RegisterExtension
+    private static final Path TEMP_DIR = Path.of("target", "test-generated-data",
+            EasyRagReuseEmbeddingsBinaryFormatAlreadyExistTest.class.getSimpleName());
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> {
+                EmbeddingsSnapshot.convertFromJson(Path.of("src", "test", "resources", "embeddings", "embeddings.json"),
+                        embeddingsFile());
+                return ShrinkWrap.create(JavaArchive.class)
+                        .addAsResource(new StringAsset("""
+                                quarkus.langchain4j.easy-rag.path=src/test/resources/ragdocuments
+                                quarkus.langchain4j.easy-rag.reuse-embeddings.enabled=true
+                                quarkus.langchain4j.easy-rag.reuse-embeddings.file=%s
+                                quarkus.langchain4j.easy-rag.reuse-embeddings.format=binary
+                                """.formatted(embeddingsFile())),
+                                "application.properties");
+            })
+            .setLogRecordPredicate(record -> true)
+            .assertLogRecords(EasyRagReuseEmbeddingsBinaryFormatAlreadyExistTest::verifyLogRecords);
+
+    private static Path embeddingsFile() {
+        return TEMP_DIR.resolve(EMBEDDING_FILE_NAME).toAbsolutePath();
+    }
+
+    private static void verifyLogRecords(List<LogRecord> logRecords) {
+        assertThat(logRecords.stream().map(LogRecord::getMessage))
+                .doesNotContain(
+                        "Ingesting documents from path: src/test/resources/ragdocuments, path matcher = glob:**, recursive = true")
+                .contains("Reading embeddings from %s")
+                .doesNotContain("Writing embeddings to %s");
+    }
+
+    @AfterAll
+    static void cleanup() throws IOException {
+        Files.walk(TEMP_DIR.getParent())
+                .sorted(reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Test
+    public void verifyThatEmbeddingsAreReadFromTheSnapshot() {
+        EmbeddingModel embeddingModel = CDI.current().select(EmbeddingModel.class).get();
+        EmbeddingStore<TextSegment> embeddingStore = CDI.current().select(EmbeddingStore.class).get();
+        Embedding question = embeddingModel.embed("When was Charlie born?").content();
+        List<EmbeddingMatch<TextSegment>> matches = embeddingStore.findRelevant(question, 1);
+        assertTrue(matches.get(0).embedded().text().contains("2005"));
+
+        question = embeddingModel.embed("When was David born?").content();
+        matches = embeddingStore.findRelevant(question, 1);
+        assertTrue(matches.get(0).embedded().text().contains("2003"));
+    }
+}
@@ -0,0 +1,68 @@
+package io.quarkiverse.langchain4j.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.quarkiverse.langchain4j.easyrag.runtime.VectorIndexEmbeddingStore;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class EasyRagVectorIndexTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addAsResource(new StringAsset("""
+                            quarkus.langchain4j.easy-rag.path=src/test/resources/ragdocuments
+                            quarkus.langchain4j.easy-rag.in-memory-store.type=vector-index
+                            """),
+                            "application.properties"));
+
+    @Inject
+    EmbeddingStore<TextSegment> embeddingStore;
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    @Test
+    public void verifyThatEmbeddingStoreIsVectorIndex() {
+        // the store is application scoped, the injected client proxy only extends InMemoryEmbeddingStore
+        VectorIndexEmbeddingStore store = assertInstanceOf(VectorIndexEmbeddingStore.class,
+                ClientProxy.unwrap(embeddingStore));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void verifyThatDocumentsAreIngested() {
+        Embedding question = embeddingModel.embed("When was Charlie born?").content();
+        List<EmbeddingMatch<TextSegment>> matches = embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(question)
+                .maxResults(1)
+                .build()).matches();
+        assertTrue(matches.get(0).embedded().text().contains("2005"));
+
+        question = embeddingModel.embed("When was David born?").content();
+        matches = embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(question)
+                .maxResults(1)
+                .build()).matches();
+        assertTrue(matches.get(0).embedded().text().contains("2003"));
+    }
+}
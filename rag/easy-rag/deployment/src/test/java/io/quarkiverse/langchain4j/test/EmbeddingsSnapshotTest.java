@@ -0,0 +1,189 @@
+package io.quarkiverse.langchain4j.test;
+
+import static java.util.Comparator.reverseOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.quarkiverse.langchain4j.easyrag.runtime.EmbeddingsSnapshot;
+import io.quarkiverse.langchain4j.easyrag.runtime.VectorIndexEmbeddingStore;
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Runs in an application, since the JSON of an {@link InMemoryEmbeddingStore} is serialized by the codec of the
+ * extension
+ */
+class EmbeddingsSnapshotTest {
+
+    // Didn't use @TempDir because it didn't work well with @RegisterExtension
+    private static final Path TEMP_DIR = Path.of("target", "test-generated-data",
+            EmbeddingsSnapshotTest.class.getSimpleName()).toAbsolutePath();
+
+    @RegisterExtension
+    static final QuarkusUnitTest unitTest = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addAsResource(new StringAsset("""
+                            quarkus.langchain4j.easy-rag.path=src/test/resources/ragdocuments
+                            quarkus.langchain4j.easy-rag.ingestion-strategy=off
+                            """),
+                            "application.properties"));
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        Files.createDirectories(TEMP_DIR);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        if (Files.exists(TEMP_DIR)) {
+            Files.walk(TEMP_DIR)
+                    .sorted(reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void snapshotContainsAllTheEntries() {
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        store.add("typed", Embedding.from(new float[] { 0.1f, 0.2f, 0.3f }), TextSegment.from("Charlie was born in 2005.",
+                Metadata.from(Map.of(
+                        "file", "charlie.txt",
+                        "index", 1,
+                        "size", 5_000_000_000L,
+                        "score", 0.5f,
+                        "ratio", 0.25d,
+                        "uuid", UUID.fromString("d1612780-24d5-48e8-a31c-b46dbc1ad471")))));
+        // the similarity with a zero vector cannot be computed
+        store.add("zero", Embedding.from(new float[] { 0, 0, 0 }), TextSegment.from("empty"));
+        store.add("no-segment", Embedding.from(new float[] { -1, 0, 1 }));
+
+        Path file = TEMP_DIR.resolve("embeddings.bin");
+        EmbeddingsSnapshot.write(store, file);
+
+        assertThat(EmbeddingsSnapshot.isSnapshot(file)).isTrue();
+        InMemoryEmbeddingStore<TextSegment> read = EmbeddingsSnapshot.read(file);
+        assertThat(read.serializeToJson()).isEqualTo(store.serializeToJson());
+        assertThat(read.serializeToJson()).contains("\"zero\"", "\"no-segment\"");
+        // the JSON the snapshot is converted from is only written next to it while it is written
+        assertThat(TEMP_DIR.resolve("embeddings.bin.json.tmp")).doesNotExist();
+    }
+
+    @Test
+    void snapshotOfAVectorIndexContainsAllTheEntries() {
+        // several partitions, so that the entries are read one partition at a time
+        VectorIndexEmbeddingStore store = new VectorIndexEmbeddingStore(false, 2, Integer.MAX_VALUE);
+        store.add("typed", Embedding.from(new float[] { 0.1f, 0.2f, 0.3f }), TextSegment.from("Charlie was born in 2005.",
+                Metadata.from(Map.of(
+                        "file", "charlie.txt",
+                        "index", 1,
+                        "size", 5_000_000_000L,
+                        "ratio", 0.25d))));
+        store.add("zero", Embedding.from(new float[] { 0, 0, 0 }), TextSegment.from("empty"));
+        store.add("no-segment", Embedding.from(new float[] { -1, 0, 1 }));
+        store.add("removed", Embedding.from(new float[] { 1, 1, 1 }));
+        store.remove("removed");
+
+        Path file = TEMP_DIR.resolve("embeddings.bin");
+        EmbeddingsSnapshot.write(store, file);
+
+        // the JSON of the vector index is the one of an InMemoryEmbeddingStore holding the same entries
+        InMemoryEmbeddingStore<TextSegment> expected = InMemoryEmbeddingStore.fromJson(store.serializeToJson());
+        InMemoryEmbeddingStore<TextSegment> read = EmbeddingsSnapshot.read(file);
+        assertThat(read.serializeToJson()).isEqualTo(expected.serializeToJson());
+        assertThat(read.serializeToJson()).contains("\"typed\"", "\"zero\"", "\"no-segment\"")
+                .doesNotContain("\"removed\"");
+    }
+
+    @Test
+    void vectorIndexIsSerializedToAFileReadByInMemoryEmbeddingStore() {
+        VectorIndexEmbeddingStore store = new VectorIndexEmbeddingStore(false, 2, Integer.MAX_VALUE);
+        store.add("first", Embedding.from(new float[] { 0.1f, 0.2f }), TextSegment.from("first",
+                Metadata.from(Map.of("file", "first.txt", "index", 1))));
+        store.add("second", Embedding.from(new float[] { 0, 1 }), TextSegment.from("second"));
+        store.add("third", Embedding.from(new float[] { 1, 0 }));
+
+        Path json = TEMP_DIR.resolve("embeddings.json");
+        store.serializeToFile(json);
+
+        assertThat(InMemoryEmbeddingStore.fromFile(json).serializeToJson())
+                .isEqualTo(InMemoryEmbeddingStore.fromJson(store.serializeToJson()).serializeToJson());
+        VectorIndexEmbeddingStore read = new VectorIndexEmbeddingStore();
+        EmbeddingsSnapshot.readInto(json, read);
+        assertThat(read.serializeToJson()).isEqualTo(store.serializeToJson());
+    }
+
+    @Test
+    void emptyStore() {
+        Path file = TEMP_DIR.resolve("embeddings.bin");
+        EmbeddingsSnapshot.write(new InMemoryEmbeddingStore<>(), file);
+
+        assertThat(EmbeddingsSnapshot.isSnapshot(file)).isTrue();
+        assertThat(EmbeddingsSnapshot.read(file).serializeToJson())
+                .isEqualTo(new InMemoryEmbeddingStore<TextSegment>().serializeToJson());
+    }
+
+    @Test
+    void snapshotIsReplaced() {
+        Path file = TEMP_DIR.resolve("embeddings.bin");
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        store.add("first", Embedding.from(new float[] { 1, 0 }), TextSegment.from("first"));
+        EmbeddingsSnapshot.write(store, file);
+
+        store.add("second", Embedding.from(new float[] { 0, 1 }), TextSegment.from("second"));
+        EmbeddingsSnapshot.write(store, file);
+
+        assertThat(EmbeddingsSnapshot.read(file).serializeToJson()).isEqualTo(store.serializeToJson());
+        assertThat(TEMP_DIR.resolve("embeddings.bin.tmp")).doesNotExist();
+    }
+
+    @Test
+    void convertedJsonMatchesTheStoreReadFromIt() {
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        store.add("first", Embedding.from(new float[] { 0.1f, 0.2f }), TextSegment.from("Charlie was born in 2005.",
+                Metadata.from(Map.of("file", "charlie.txt", "index", 1, "size", 5_000_000_000L))));
+        store.add("second", Embedding.from(new float[] { 0, 0 }), TextSegment.from("David was born in 2003."));
+        Path json = TEMP_DIR.resolve("embeddings.json");
+        store.serializeToFile(json);
+
+        Path file = TEMP_DIR.resolve("embeddings.bin");
+        EmbeddingsSnapshot.convertFromJson(json, file);
+
+        InMemoryEmbeddingStore<TextSegment> read = EmbeddingsSnapshot.read(file);
+        assertThat(read.serializeToJson()).isEqualTo(InMemoryEmbeddingStore.fromFile(json).serializeToJson());
+        // the integers of the JSON are read as the types the metadata accepts
+        Metadata metadata = read.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[] { 0.1f, 0.2f }))
+                .maxResults(1)
+                .build()).matches().get(0).embedded().metadata();
+        assertThat(metadata.toMap().get("index")).isEqualTo(1);
+        assertThat(metadata.toMap().get("size")).isEqualTo(5_000_000_000L);
+        assertThat(metadata.getString("file")).isEqualTo("charlie.txt");
+    }
+
+    @Test
+    void jsonIsNotASnapshot() {
+        Path json = TEMP_DIR.resolve("embeddings.json");
+        new InMemoryEmbeddingStore<TextSegment>().serializeToFile(json);
+
+        assertThat(EmbeddingsSnapshot.isSnapshot(json)).isFalse();
+    }
+}
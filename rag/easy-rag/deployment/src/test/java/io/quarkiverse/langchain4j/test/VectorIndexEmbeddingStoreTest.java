@@ -0,0 +1,231 @@
+package io.quarkiverse.langchain4j.test;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.quarkiverse.langchain4j.easyrag.runtime.VectorIndexEmbeddingStore;
+
+/**
+ * Checks the {@link VectorIndexEmbeddingStore} against the {@link InMemoryEmbeddingStore}, with partitions small enough
+ * for the removals to move rows from one partition to another.
+ */
+public class VectorIndexEmbeddingStoreTest {
+
+    private static final int DIMENSION = 16;
+    private static final int PARTITION_SIZE = 3;
+
+    @Test
+    public void searchReturnsTheScoresOfTheInMemoryStore() {
+        Random random = new Random(1);
+        VectorIndexEmbeddingStore store = new VectorIndexEmbeddingStore(false, PARTITION_SIZE, Integer.MAX_VALUE);
+        InMemoryEmbeddingStore<TextSegment> expected = new InMemoryEmbeddingStore<>();
+        addAll(random, 20, store, expected);
+
+        for (int i = 0; i < 5; i++) {
+            Embedding query = randomEmbedding(random);
+            assertSameMatches(store, expected, request(query, 20, 0, null));
+            assertSameMatches(store, expected, request(query, 4, 0.5, null));
+            assertSameMatches(store, expected, request(query, 5, 0, metadataKey("group").isEqualTo("b")));
+        }
+    }
+
+    @Test
+    public void removalsMoveTheLastRowIntoTheGap() {
+        Random random = new Random(2);
+        VectorIndexEmbeddingStore store = new VectorIndexEmbeddingStore(false, PARTITION_SIZE, Integer.MAX_VALUE);
+        InMemoryEmbeddingStore<TextSegment> expected = new InMemoryEmbeddingStore<>();
+        addAll(random, 10, store, expected);
+
+        // a row of the first partition, filled with the only row of the last partition, which is then dropped
+        store.remove("id1");
+        expected.remove("id1");
+        assertSameContent(store, expected, random, 9);
+
+        // the last row and a row that the last row moves into
+        store.removeAll(List.of("id8", "id3"));
+        expected.removeAll(List.of("id8", "id3"));
+        assertSameContent(store, expected, random, 7);
+
+        Filter filter = metadataKey("group").isEqualTo("a");
+        store.removeAll(filter);
+        expected.removeAll(filter);
+        assertSameContent(store, expected, random, 4);
+
+        // the store keeps on working once the partitions were emptied and filled again
+        store.removeAll(List.of("id2", "id4", "id5", "id7"));
+        expected.removeAll(List.of("id2", "id4", "id5", "id7"));
+        assertThat(store.size()).isZero();
+        assertThat(store.entries().hasNext()).isFalse();
+        addAll(random, 4, store, expected);
+        assertSameContent(store, expected, random, 4);
+    }
+
+    @Test
+    public void addingAnExistingIdReplacesTheEmbedding() {
+        Random random = new Random(3);
+        VectorIndexEmbeddingStore store = new VectorIndexEmbeddingStore(false, PARTITION_SIZE, Integer.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            store.add("id" + i, randomEmbedding(random), TextSegment.from("segment " + i));
+        }
+        Embedding replacement = randomEmbedding(random);
+        store.add("id1", replacement, TextSegment.from("replacement"));
+
+        assertThat(store.size()).isEqualTo(5);
+        List<EmbeddingMatch<TextSegment>> matches = store.search(request(replacement, 1, 0, null)).matches();
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).embeddingId()).isEqualTo("id1");
+        assertThat(matches.get(0).embedded().text()).isEqualTo("replacement");
+        assertThat(matches.get(0).embedding().vector()).containsExactly(replacement.vector());
+        assertThat(matches.get(0).score()).isCloseTo(1, within(1e-6));
+
+        // removing the id removes the replacement, and nothing else
+        store.remove("id1");
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(store.search(request(replacement, 5, 0, null)).matches())
+                .extracting(EmbeddingMatch::embeddingId)
+                .containsExactlyInAnyOrder("id0", "id2", "id3", "id4");
+    }
+
+    @Test
+    public void quantizedStoreApproximatesTheScores() {
+        Random random = new Random(4);
+        VectorIndexEmbeddingStore store = new VectorIndexEmbeddingStore(true, PARTITION_SIZE, Integer.MAX_VALUE);
+        InMemoryEmbeddingStore<TextSegment> expected = new InMemoryEmbeddingStore<>();
+        addAll(random, 20, store, expected);
+        store.remove("id4");
+        expected.remove("id4");
+
+        for (int i = 0; i < 5; i++) {
+            Embedding query = randomEmbedding(random);
+            List<EmbeddingMatch<TextSegment>> actualMatches = store.search(request(query, 19, 0, null)).matches();
+            List<EmbeddingMatch<TextSegment>> expectedMatches = expected.search(request(query, 19, 0, null)).matches();
+            assertThat(actualMatches).hasSameSizeAs(expectedMatches);
+            for (EmbeddingMatch<TextSegment> actual : actualMatches) {
+                EmbeddingMatch<TextSegment> match = find(expectedMatches, actual.embeddingId());
+                assertThat(actual.score()).isCloseTo(match.score(), within(0.01));
+                assertThat(actual.embedded()).isEqualTo(match.embedded());
+                // each component is rounded to the nearest multiple of the largest component divided by 127
+                float[] vector = match.embedding().vector();
+                float step = maxAbs(vector) / 127;
+                for (int j = 0; j < vector.length; j++) {
+                    assertThat(actual.embedding().vector()[j]).isCloseTo(vector[j], within(step / 2 + 1e-6f));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelSearchReturnsTheSequentialMatches() {
+        Random random = new Random(5);
+        VectorIndexEmbeddingStore parallel = new VectorIndexEmbeddingStore(false, 4, 0);
+        VectorIndexEmbeddingStore sequential = new VectorIndexEmbeddingStore(false, 4, Integer.MAX_VALUE);
+        InMemoryEmbeddingStore<TextSegment> expected = new InMemoryEmbeddingStore<>();
+        for (int i = 0; i < 200; i++) {
+            Embedding embedding = randomEmbedding(random);
+            TextSegment segment = segment(i);
+            parallel.add("id" + i, embedding, segment);
+            sequential.add("id" + i, embedding, segment);
+            expected.add("id" + i, embedding, segment);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            Embedding query = randomEmbedding(random);
+            for (int maxResults : new int[] { 1, 7, 200 }) {
+                EmbeddingSearchRequest request = request(query, maxResults, 0, null);
+                assertSameMatches(parallel, expected, request);
+                assertThat(parallel.search(request).matches())
+                        .containsExactlyElementsOf(sequential.search(request).matches());
+            }
+        }
+    }
+
+    private static void addAll(Random random, int count, VectorIndexEmbeddingStore store,
+            InMemoryEmbeddingStore<TextSegment> expected) {
+        for (int i = 0; i < count; i++) {
+            Embedding embedding = randomEmbedding(random);
+            store.add("id" + i, embedding, segment(i));
+            expected.add("id" + i, embedding, segment(i));
+        }
+    }
+
+    private static void assertSameContent(VectorIndexEmbeddingStore store, InMemoryEmbeddingStore<TextSegment> expected,
+            Random random, int size) {
+        assertThat(store.size()).isEqualTo(size);
+        List<String> ids = new ArrayList<>();
+        for (Iterator<VectorIndexEmbeddingStore.Entry> entries = store.entries(); entries.hasNext();) {
+            VectorIndexEmbeddingStore.Entry entry = entries.next();
+            ids.add(entry.id());
+            // the moved rows keep their embedding and their segment
+            EmbeddingMatch<TextSegment> match = find(
+                    expected.search(request(Embedding.from(entry.vector()), size, 0, null)).matches(), entry.id());
+            assertThat(entry.vector()).containsExactly(match.embedding().vector());
+            assertThat(entry.segment()).isEqualTo(match.embedded());
+        }
+        assertThat(ids).hasSize(size).doesNotHaveDuplicates();
+        for (int i = 0; i < 3; i++) {
+            assertSameMatches(store, expected, request(randomEmbedding(random), size + 1, 0, null));
+        }
+    }
+
+    private static void assertSameMatches(EmbeddingStore<TextSegment> store, EmbeddingStore<TextSegment> expected,
+            EmbeddingSearchRequest request) {
+        List<EmbeddingMatch<TextSegment>> actualMatches = store.search(request).matches();
+        List<EmbeddingMatch<TextSegment>> expectedMatches = expected.search(request).matches();
+        assertThat(actualMatches).extracting(EmbeddingMatch::embeddingId)
+                .containsExactlyElementsOf(expectedMatches.stream().map(EmbeddingMatch::embeddingId).toList());
+        for (int i = 0; i < actualMatches.size(); i++) {
+            assertThat(actualMatches.get(i).score()).isCloseTo(expectedMatches.get(i).score(), within(1e-6));
+            assertThat(actualMatches.get(i).embedding()).isEqualTo(expectedMatches.get(i).embedding());
+            assertThat(actualMatches.get(i).embedded()).isEqualTo(expectedMatches.get(i).embedded());
+        }
+    }
+
+    private static EmbeddingMatch<TextSegment> find(List<EmbeddingMatch<TextSegment>> matches, String id) {
+        return matches.stream().filter(match -> match.embeddingId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query, int maxResults, double minScore, Filter filter) {
+        return EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .filter(filter)
+                .build();
+    }
+
+    private static TextSegment segment(int i) {
+        return TextSegment.from("segment " + i, Metadata.from("group", i % 3 == 0 ? "a" : "b"));
+    }
+
+    private static Embedding randomEmbedding(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return Embedding.from(vector);
+    }
+
+    private static float maxAbs(float[] vector) {
+        float max = 0;
+        for (float component : vector) {
+            max = Math.max(max, Math.abs(component));
+        }
+        return max;
+    }
+}
@@ -2,7 +2,9 @@ package io.quarkiverse.langchain4j.easyrag.runtime;
 
 import static io.quarkus.runtime.annotations.ConfigPhase.RUN_TIME;
 
+import java.time.Duration;
 import java.util.OptionalDouble;
+import java.util.OptionalInt;
 
 import io.quarkus.runtime.annotations.ConfigGroup;
 import io.quarkus.runtime.annotations.ConfigRoot;
@@ -70,6 +72,11 @@ public interface EasyRagConfig {
     @WithDefault("ON")
     IngestionStrategy ingestionStrategy();
 
+    /**
+     * Configuration related to the ingestion pipeline.
+     */
+    IngestionConfig ingestion();
+
     /**
      * Configuration related to the reusing of embeddings.
      * <p>
@@ -78,6 +85,12 @@ public interface EasyRagConfig {
      */
     ReuseEmbeddingsConfig reuseEmbeddings();
 
+    /**
+     * Configuration of the in-memory embedding store that is created when the application does not provide any other
+     * embedding store.
+     */
+    InMemoryStoreConfig inMemoryStore();
+
     @ConfigGroup
     interface ReuseEmbeddingsConfig {
         /**
@@ -95,5 +108,130 @@ public interface EasyRagConfig {
          */
         @WithDefault("easy-rag-embeddings.json")
         String file();
+
+        /**
+         * The format the embeddings are written in. The binary format is much more compact and much faster to read
+         * than JSON, which matters for large stores.
+         * <p>
+         * The format of an existing file is detected when it is read, whatever this is set to. An existing JSON file
+         * can be converted to the binary format with
+         * {@code io.quarkiverse.langchain4j.easyrag.runtime.EmbeddingsSnapshot#convertFromJson(Path, Path)}.
+         * </p>
+         */
+        @WithDefault("json")
+        EmbeddingsFileFormat format();
+    }
+
+    @ConfigGroup
+    interface IngestionConfig {
+        /**
+         * Number of threads reading and splitting documents.
+         * <p>
+         * Defaults to the number of available processors.
+         * </p>
+         */
+        OptionalInt parseParallelism();
+
+        /**
+         * Number of threads computing embeddings, each of them sending one batch of segments at a time to the embedding
+         * model.
+         */
+        @WithDefault("2")
+        int embeddingParallelism();
+
+        /**
+         * Maximum number of segments sent to the embedding model at once.
+         */
+        @WithDefault("32")
+        int embeddingBatchSize();
+
+        /**
+         * Number of threads adding embeddings to the embedding store.
+         */
+        @WithDefault("1")
+        int storeParallelism();
+
+        /**
+         * Maximum number of embeddings added to the embedding store at once.
+         */
+        @WithDefault("256")
+        int storeBatchSize();
+
+        /**
+         * Maximum number of items waiting between two stages of the pipeline, which bounds the amount of memory
+         * used by the ingestion: the stages that are ahead wait for the ones that are behind when it is reached.
+         */
+        @WithDefault("1024")
+        int queueCapacity();
+
+        /**
+         * How often the progress of the ingestion is logged.
+         */
+        @WithDefault("10s")
+        Duration progressLogInterval();
+
+        /**
+         * Configuration related to incremental ingestion.
+         */
+        IncrementalIngestionConfig incremental();
+    }
+
+    @ConfigGroup
+    interface IncrementalIngestionConfig {
+        /**
+         * Whether to only ingest the documents that were added or changed since the previous ingestion, and to remove
+         * from the embedding store the segments of the documents that were changed or removed since then.
+         * <p>
+         * What was ingested is recorded in a manifest, which needs to be kept along with the content of the embedding
+         * store. When using an in-memory embedding store, this requires reusing embeddings.
+         * </p>
+         */
+        @WithDefault("false")
+        boolean enabled();
+
+        /**
+         * The file path of the manifest of the documents that were ingested.
+         * <p>
+         * Defaults to {@code easy-rag-manifest.properties} in the current directory.
+         * </p>
+         */
+        @WithDefault("easy-rag-manifest.properties")
+        String manifestFile();
+    }
+
+    @ConfigGroup
+    interface InMemoryStoreConfig {
+        /**
+         * The implementation of the in-memory embedding store.
+         * <p>
+         * {@code default} is the {@code InMemoryEmbeddingStore} of LangChain4j, which compares the query with one
+         * embedding after the other. {@code vector-index} keeps the embeddings in contiguous partitions, whose
+         * embeddings are all compared with the query at once, using SIMD instructions, which makes searches much faster
+         * for large numbers of embeddings.
+         * </p>
+         */
+        @WithDefault("default")
+        InMemoryStoreType type();
+
+        /**
+         * Whether the vector index keeps the components of the embeddings as bytes instead of floats. This divides the
+         * memory used by the embeddings by 4 and speeds up searches, at the cost of less precise scores, the
+         * embeddings returned by searches, and written when reusing embeddings, being approximations of the ones that
+         * were computed.
+         */
+        @WithDefault("false")
+        boolean quantized();
+
+        /**
+         * Number of embeddings of each partition of the vector index.
+         */
+        @WithDefault("4096")
+        int partitionSize();
+
+        /**
+         * Number of embeddings from which the partitions of the vector index are searched in parallel.
+         */
+        @WithDefault("32768")
+        int parallelSearchThreshold();
     }
 }
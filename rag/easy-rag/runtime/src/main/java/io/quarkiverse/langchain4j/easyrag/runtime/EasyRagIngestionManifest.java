@@ -0,0 +1,161 @@
+package io.quarkiverse.langchain4j.easyrag.runtime;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.jboss.logging.Logger;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+/**
+ * What was ingested from each file of the directory the last time it was ingested: the hash of the content of the file
+ * and the ids the embedding store gave to its segments, which is what allows an ingestion to only embed the files that
+ * were added or changed since then, and to remove the segments of the files that were changed or removed.
+ * <p>
+ * The manifest also records the settings the segments were obtained with, the segments obtained with other settings
+ * not being reused.
+ */
+final class EasyRagIngestionManifest {
+
+    private static final Logger LOGGER = Logger.getLogger(EasyRagIngestionManifest.class);
+
+    private static final String SETTINGS = "settings";
+    private static final String FILE_PREFIX = "file.";
+    private static final Pattern EMBEDDING_MODEL_NAME = Pattern
+            .compile("quarkus\\.langchain4j\\.[^.]+\\.embedding-model\\.model-(name|id)");
+
+    private final String settings;
+    private final Map<String, Entry> files;
+
+    EasyRagIngestionManifest(String settings) {
+        this(settings, new ConcurrentHashMap<>());
+    }
+
+    private EasyRagIngestionManifest(String settings, Map<String, Entry> files) {
+        this.settings = settings;
+        this.files = files;
+    }
+
+    /**
+     * @return what determines the segments, and their embeddings, that are obtained from the content of a file
+     */
+    static String settings(EasyRagConfig config, EmbeddingModel embeddingModel) {
+        // the class of the embedding model only tells its provider apart, while the same provider can serve different
+        // models
+        return config.maxSegmentSize() + "," + config.maxOverlapSize() + "," + embeddingModel.getClass().getName() + ","
+                + embeddingModel.dimension() + "," + configuredModelNames();
+    }
+
+    /**
+     * @return the model names (or ids) configured for the default embedding model of the providers, as they are not
+     *         exposed by the embedding models themselves
+     */
+    private static String configuredModelNames() {
+        Config config = ConfigProvider.getConfig();
+        Map<String, String> names = new TreeMap<>();
+        for (String name : config.getPropertyNames()) {
+            if (EMBEDDING_MODEL_NAME.matcher(name).matches()) {
+                config.getOptionalValue(name, String.class).ifPresent(value -> names.put(name, value));
+            }
+        }
+        return String.join(",", names.values());
+    }
+
+    String settings() {
+        return settings;
+    }
+
+    /**
+     * @param file the path of the file, relative to the directory that is ingested
+     * @return what was ingested from the file, {@code null} if nothing was
+     */
+    Entry get(String file) {
+        return files.get(file);
+    }
+
+    void put(String file, Entry entry) {
+        files.put(file, entry);
+    }
+
+    void putIfAbsent(String file, Entry entry) {
+        files.putIfAbsent(file, entry);
+    }
+
+    Set<String> files() {
+        return files.keySet();
+    }
+
+    void write(Path path) {
+        Properties properties = new Properties();
+        properties.setProperty(SETTINGS, settings);
+        for (Map.Entry<String, Entry> file : files.entrySet()) {
+            Entry entry = file.getValue();
+            properties.setProperty(FILE_PREFIX + file.getKey(),
+                    entry.segmentIds().isEmpty() ? entry.hash()
+                            : entry.hash() + " " + String.join(",", entry.segmentIds()));
+        }
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            // the manifest is replaced atomically, so that it is never found half written
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp)) {
+                properties.store(writer, null);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the ingestion manifest " + path, e);
+        }
+    }
+
+    /**
+     * @return the manifest, {@code null} if there is none or if it cannot be read
+     */
+    static EasyRagIngestionManifest read(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warnf(e, "Ignoring the unreadable ingestion manifest %s", path);
+            return null;
+        }
+        Map<String, Entry> files = new ConcurrentHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(FILE_PREFIX)) {
+                continue;
+            }
+            String value = properties.getProperty(key);
+            int separator = value.indexOf(' ');
+            files.put(key.substring(FILE_PREFIX.length()), separator < 0
+                    ? new Entry(value, List.of())
+                    : new Entry(value.substring(0, separator),
+                            Arrays.asList(value.substring(separator + 1).split(","))));
+        }
+        return new EasyRagIngestionManifest(properties.getProperty(SETTINGS, ""), files);
+    }
+
+    /**
+     * @param hash the SHA-256 of the content of the file
+     * @param segmentIds the ids of the segments of the file in the embedding store
+     */
+    record Entry(String hash, List<String> segmentIds) {
+    }
+}
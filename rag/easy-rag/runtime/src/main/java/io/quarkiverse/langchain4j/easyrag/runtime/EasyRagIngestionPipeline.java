@@ -0,0 +1,502 @@
+package io.quarkiverse.langchain4j.easyrag.runtime;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.jboss.logging.Logger;
+
+import dev.langchain4j.data.document.BlankDocumentException;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenizer;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+/**
+ * Ingests the documents of a directory as a pipeline whose stages run concurrently: the directory is walked, the files
+ * that are found are read and split into segments, the segments are embedded in batches, and the embeddings are added
+ * to the store in batches.
+ * <p>
+ * The stages are connected by bounded queues, so a stage that is ahead of the next one waits for it instead of
+ * piling up documents or segments in memory, which means the memory used by the ingestion does not depend on the
+ * amount of documents that are ingested (as long as the embedding store does not keep the embeddings in memory).
+ * <p>
+ * A file that cannot be read is skipped, while a failure of the embedding model or of the embedding store stops the
+ * ingestion.
+ * <p>
+ * When the ingestion is incremental, the files whose content is the same as the last time they were ingested
+ * (according to the manifest of that ingestion) are not ingested again, and the segments of the files that were changed
+ * or removed since then are removed from the store. The segments of a changed file are only removed once all its new
+ * segments are stored, so that the file is never missing from the store.
+ */
+final class EasyRagIngestionPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(EasyRagIngestionPipeline.class);
+
+    // the end of the items of a queue, one is sent to each one of the threads taking items from the queue
+    private static final Path END_OF_FILES = Path.of("");
+    private static final FileSegment END_OF_SEGMENTS = new FileSegment(null, TextSegment.from("end of segments"));
+    private static final EmbeddedSegments END_OF_EMBEDDINGS = new EmbeddedSegments(List.of(), List.of());
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EasyRagConfig config;
+    private final int parseParallelism;
+    private final int embeddingParallelism;
+    private final int storeParallelism;
+    private final Path directory;
+    // what the last ingestion ingested, null if it is not known
+    private final EasyRagIngestionManifest previous;
+    // what this ingestion ingests, null if the ingestion is not incremental
+    private final EasyRagIngestionManifest current;
+    // whether the segments recorded in the previous manifest can be kept for the files that did not change
+    private final boolean reusable;
+    private final Set<String> walkedFiles = new HashSet<>();
+    private final Set<SourceFile> inProgress = ConcurrentHashMap.newKeySet();
+
+    private final BlockingQueue<Path> files;
+    private final BlockingQueue<FileSegment> segments;
+    private final BlockingQueue<EmbeddedSegments> embeddings;
+    private final AtomicInteger runningParsers = new AtomicInteger();
+    private final AtomicInteger runningEmbedders = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private ExecutorService executor;
+
+    private final AtomicLong foundFiles = new AtomicLong();
+    private final AtomicLong parsedFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong unchangedFiles = new AtomicLong();
+    private final AtomicLong removedFiles = new AtomicLong();
+    private volatile boolean storeChanged;
+    private final AtomicLong createdSegments = new AtomicLong();
+    private final AtomicLong embeddedSegments = new AtomicLong();
+    private final AtomicLong storedSegments = new AtomicLong();
+
+    EasyRagIngestionPipeline(EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore,
+            EasyRagConfig config) {
+        this(embeddingModel, embeddingStore, config, false, null);
+    }
+
+    /**
+     * @param incremental whether the ingestion only ingests what changed since the previous ingestion, in which case a
+     *        manifest of what is ingested is built
+     * @param previous the manifest of the previous ingestion, {@code null} if the store does not contain anything that
+     *        was ingested before
+     */
+    EasyRagIngestionPipeline(EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore,
+            EasyRagConfig config, boolean incremental, EasyRagIngestionManifest previous) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.config = config;
+        this.directory = Path.of(config.path());
+        String settings = EasyRagIngestionManifest.settings(config, embeddingModel);
+        this.previous = incremental ? previous : null;
+        this.current = incremental ? new EasyRagIngestionManifest(settings) : null;
+        this.reusable = (this.previous != null) && this.previous.settings().equals(settings);
+        if ((this.previous != null) && !reusable) {
+            LOGGER.info("The segment size, the overlap size or the embedding model changed since the documents were "
+                    + "last ingested, all the documents are ingested again");
+        }
+        EasyRagConfig.IngestionConfig ingestion = config.ingestion();
+        this.parseParallelism = Math.max(1,
+                ingestion.parseParallelism().orElse(Runtime.getRuntime().availableProcessors()));
+        this.embeddingParallelism = Math.max(1, ingestion.embeddingParallelism());
+        this.storeParallelism = Math.max(1, ingestion.storeParallelism());
+        int queueCapacity = Math.max(1, ingestion.queueCapacity());
+        this.files = new ArrayBlockingQueue<>(queueCapacity);
+        this.segments = new ArrayBlockingQueue<>(queueCapacity);
+        // the items of this queue are batches of segments
+        this.embeddings = new ArrayBlockingQueue<>(
+                Math.max(1, queueCapacity / Math.max(1, ingestion.embeddingBatchSize())));
+    }
+
+    /**
+     * Runs the ingestion and waits for it to complete
+     */
+    Result run() {
+        PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher(config.pathMatcher());
+        executor = Executors.newFixedThreadPool(1 + parseParallelism + embeddingParallelism + storeParallelism,
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "easy-rag-ingestion-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        runningParsers.set(parseParallelism);
+        runningEmbedders.set(embeddingParallelism);
+        try {
+            submit(() -> walk(directory, pathMatcher));
+            for (int i = 0; i < parseParallelism; i++) {
+                submit(this::parse);
+            }
+            for (int i = 0; i < embeddingParallelism; i++) {
+                submit(this::embed);
+            }
+            for (int i = 0; i < storeParallelism; i++) {
+                submit(this::store);
+            }
+            executor.shutdown();
+            long interval = Math.max(1, config.ingestion().progressLogInterval().toMillis());
+            while (!executor.awaitTermination(interval, TimeUnit.MILLISECONDS)) {
+                logProgress();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Throwable t = failure.get();
+        if (current != null) {
+            completeManifest(t == null);
+        }
+        if (t instanceof RuntimeException re) {
+            throw re;
+        }
+        if (t instanceof Error error) {
+            throw error;
+        }
+        if (t != null) {
+            throw new RuntimeException("Failed to ingest documents from " + directory, t);
+        }
+        return new Result(parsedFiles.get(), storedSegments.get(), unchangedFiles.get(), removedFiles.get(),
+                storeChanged);
+    }
+
+    /**
+     * @return what was ingested, {@code null} if the ingestion is not incremental
+     */
+    EasyRagIngestionManifest manifest() {
+        return current;
+    }
+
+    /**
+     * Completes the manifest with what the previous ingestion ingested, for the files that were not ingested again.
+     * Once the ingestion has succeeded, the segments of the files that no longer exist are removed, while when it has
+     * failed, the segments of the files whose ingestion did not complete are removed, so that they are ingested again
+     * next time.
+     */
+    private void completeManifest(boolean succeeded) {
+        if (!succeeded) {
+            for (SourceFile file : inProgress) {
+                List<String> ids = file.segmentIds();
+                if (!ids.isEmpty()) {
+                    try {
+                        embeddingStore.removeAll(ids);
+                    } catch (RuntimeException e) {
+                        LOGGER.warnf(e, "Unable to remove the segments of the partially ingested file '%s'", file.path);
+                    }
+                }
+            }
+        }
+        if (previous == null) {
+            return;
+        }
+        List<String> removedIds = new ArrayList<>();
+        for (String path : previous.files()) {
+            EasyRagIngestionManifest.Entry entry = previous.get(path);
+            if (succeeded && !walkedFiles.contains(path)) {
+                removedIds.addAll(entry.segmentIds());
+                removedFiles.incrementAndGet();
+            } else {
+                // either the file could not be read, or the ingestion did not reach it
+                current.putIfAbsent(path, entry);
+            }
+        }
+        if (!removedIds.isEmpty()) {
+            storeChanged = true;
+            embeddingStore.removeAll(removedIds);
+        }
+    }
+
+    private void walk(Path directory, PathMatcher pathMatcher) throws Exception {
+        try (Stream<Path> paths = config.recursive() ? Files.walk(directory) : Files.list(directory)) {
+            // the path matcher is applied to the path relative to the directory, like FileSystemDocumentLoader does
+            Iterator<Path> it = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> pathMatcher.matches(directory.relativize(path)))
+                    .iterator();
+            while (it.hasNext()) {
+                Path file = it.next();
+                if (current != null) {
+                    walkedFiles.add(directory.relativize(file).toString());
+                }
+                files.put(file);
+                foundFiles.incrementAndGet();
+            }
+        }
+        for (int i = 0; i < parseParallelism; i++) {
+            files.put(END_OF_FILES);
+        }
+    }
+
+    private void parse() throws Exception {
+        // each thread has its own splitter, as the tokenizer is not meant to be shared
+        DocumentSplitter splitter = DocumentSplitters.recursive(config.maxSegmentSize(), config.maxOverlapSize(),
+                new HuggingFaceTokenizer());
+        Path file;
+        while ((file = files.take()) != END_OF_FILES) {
+            String path = directory.relativize(file).toString();
+            EasyRagIngestionManifest.Entry previousEntry = previous == null ? null : previous.get(path);
+            String hash = null;
+            List<TextSegment> split;
+            try {
+                if (current != null) {
+                    hash = sha256(file);
+                    if (reusable && (previousEntry != null) && previousEntry.hash().equals(hash)) {
+                        current.put(path, previousEntry);
+                        unchangedFiles.incrementAndGet();
+                        continue;
+                    }
+                }
+                Document document = FileSystemDocumentLoader.loadDocument(file);
+                split = splitter.split(document);
+            } catch (BlankDocumentException e) {
+                if (current != null) {
+                    new SourceFile(path, hash, previousEntry, 0).complete();
+                }
+                continue;
+            } catch (Exception e) {
+                failedFiles.incrementAndGet();
+                LOGGER.warnf("Failed to load '%s': %s", file, e.getCause() != null ? e.getCause().getMessage()
+                        : e.getMessage());
+                continue;
+            }
+            parsedFiles.incrementAndGet();
+            SourceFile source = null;
+            if (current != null) {
+                source = new SourceFile(path, hash, previousEntry, split.size());
+                if (split.isEmpty()) {
+                    source.complete();
+                } else {
+                    inProgress.add(source);
+                }
+            }
+            for (TextSegment segment : split) {
+                // the metadata of the document is not kept in the store
+                segments.put(new FileSegment(source, TextSegment.from(segment.text())));
+                createdSegments.incrementAndGet();
+            }
+        }
+        if (runningParsers.decrementAndGet() == 0) {
+            for (int i = 0; i < embeddingParallelism; i++) {
+                segments.put(END_OF_SEGMENTS);
+            }
+        }
+    }
+
+    private void embed() throws Exception {
+        int batchSize = Math.max(1, config.ingestion().embeddingBatchSize());
+        List<FileSegment> batch = new ArrayList<>(batchSize);
+        FileSegment segment;
+        while ((segment = segments.take()) != END_OF_SEGMENTS) {
+            batch.add(segment);
+            if (batch.size() == batchSize) {
+                embeddings.put(embed(batch));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            embeddings.put(embed(batch));
+        }
+        if (runningEmbedders.decrementAndGet() == 0) {
+            for (int i = 0; i < storeParallelism; i++) {
+                embeddings.put(END_OF_EMBEDDINGS);
+            }
+        }
+    }
+
+    private EmbeddedSegments embed(List<FileSegment> batch) {
+        List<TextSegment> textSegments = new ArrayList<>(batch.size());
+        for (FileSegment segment : batch) {
+            textSegments.add(segment.segment());
+        }
+        List<Embedding> result = embeddingModel.embedAll(textSegments).content();
+        if (result.size() != batch.size()) {
+            throw new IllegalStateException("The embedding model returned " + result.size() + " embeddings for "
+                    + batch.size() + " segments");
+        }
+        embeddedSegments.addAndGet(batch.size());
+        return new EmbeddedSegments(result, batch);
+    }
+
+    private void store() throws Exception {
+        int batchSize = Math.max(1, config.ingestion().storeBatchSize());
+        List<Embedding> pendingEmbeddings = new ArrayList<>(batchSize);
+        List<FileSegment> pendingSegments = new ArrayList<>(batchSize);
+        EmbeddedSegments embedded;
+        while ((embedded = embeddings.take()) != END_OF_EMBEDDINGS) {
+            pendingEmbeddings.addAll(embedded.embeddings());
+            pendingSegments.addAll(embedded.segments());
+            if (pendingSegments.size() >= batchSize) {
+                store(pendingEmbeddings, pendingSegments);
+                pendingEmbeddings = new ArrayList<>(batchSize);
+                pendingSegments = new ArrayList<>(batchSize);
+            }
+        }
+        if (!pendingSegments.isEmpty()) {
+            store(pendingEmbeddings, pendingSegments);
+        }
+    }
+
+    private void store(List<Embedding> embeddings, List<FileSegment> segments) {
+        List<TextSegment> textSegments = new ArrayList<>(segments.size());
+        for (FileSegment segment : segments) {
+            textSegments.add(segment.segment());
+        }
+        storeChanged = true;
+        List<String> ids = embeddingStore.addAll(embeddings, textSegments);
+        storedSegments.addAndGet(segments.size());
+        if (current != null) {
+            if ((ids == null) || (ids.size() != segments.size())) {
+                throw new IllegalStateException("The embedding store did not return the ids of the stored segments, "
+                        + "which incremental ingestion requires");
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                segments.get(i).file().stored(ids.get(i));
+            }
+        }
+    }
+
+    private static String sha256(Path file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void submit(Stage stage) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    stage.run();
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops all the stages, only the first failure is reported since the other stages fail because they are stopped
+     */
+    private void fail(Throwable t) {
+        if (failure.compareAndSet(null, t)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void logProgress() {
+        LOGGER.infof("Ingestion in progress: %d files found, %d files read (%d failed, %d unchanged), "
+                + "%d segments created, %d segments embedded, %d segments stored "
+                + "(queued: %d files, %d segments, %d embedding batches)",
+                foundFiles.get(), parsedFiles.get(), failedFiles.get(), unchangedFiles.get(), createdSegments.get(),
+                embeddedSegments.get(), storedSegments.get(), files.size(), segments.size(), embeddings.size());
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * @param file the file the segment comes from, {@code null} if the ingestion is not incremental
+     */
+    private record FileSegment(SourceFile file, TextSegment segment) {
+    }
+
+    private record EmbeddedSegments(List<Embedding> embeddings, List<FileSegment> segments) {
+    }
+
+    /**
+     * A file that is ingested by an incremental ingestion, which keeps track of the segments of the file that are
+     * stored
+     */
+    private final class SourceFile {
+
+        final String path;
+        final String hash;
+        final EasyRagIngestionManifest.Entry previousEntry;
+        final int segmentCount;
+        private final List<String> segmentIds = new ArrayList<>();
+
+        SourceFile(String path, String hash, EasyRagIngestionManifest.Entry previousEntry, int segmentCount) {
+            this.path = path;
+            this.hash = hash;
+            this.previousEntry = previousEntry;
+            this.segmentCount = segmentCount;
+        }
+
+        synchronized List<String> segmentIds() {
+            return List.copyOf(segmentIds);
+        }
+
+        void stored(String id) {
+            boolean completed;
+            synchronized (this) {
+                segmentIds.add(id);
+                completed = segmentIds.size() == segmentCount;
+            }
+            if (completed) {
+                complete();
+            }
+        }
+
+        /**
+         * Replaces what was previously ingested from the file with its new segments, once all of them are stored
+         */
+        void complete() {
+            if ((previousEntry != null) && !previousEntry.segmentIds().isEmpty()) {
+                storeChanged = true;
+                embeddingStore.removeAll(previousEntry.segmentIds());
+            }
+            current.put(path, new EasyRagIngestionManifest.Entry(hash, segmentIds()));
+            inProgress.remove(this);
+        }
+    }
+
+    /**
+     * @param files the number of files that were ingested
+     * @param segments the number of segments the files were split into
+     * @param unchangedFiles the number of files that were not ingested because they did not change since the previous
+     *        ingestion
+     * @param removedFiles the number of files whose segments were removed because they no longer exist
+     * @param storeChanged whether segments were added to or removed from the store
+     */
+    record Result(long files, long segments, long unchangedFiles, long removedFiles, boolean storeChanged) {
+    }
+}
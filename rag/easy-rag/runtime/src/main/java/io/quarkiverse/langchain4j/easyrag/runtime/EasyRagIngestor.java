@@ -1,23 +1,14 @@
 package io.quarkiverse.langchain4j.easyrag.runtime;
 
 import java.io.IOException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.util.List;
 
 import org.jboss.logging.Logger;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenizer;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 
 public class EasyRagIngestor {
@@ -37,7 +28,8 @@ public class EasyRagIngestor {
     }
 
     public void ingest() {
-        if (config.reuseEmbeddings().enabled() && (embeddingStore instanceof InMemoryEmbeddingStore<TextSegment>)) {
+        boolean inMemory = embeddingStore instanceof InMemoryEmbeddingStore<TextSegment>;
+        if (config.reuseEmbeddings().enabled() && inMemory) {
             Path embeddingsFile = Path.of(config.reuseEmbeddings().file()).toAbsolutePath();
 
             // If the embeddings file already exists it would have been ingested
@@ -51,9 +43,14 @@ public class EasyRagIngestor {
                     throw new RuntimeException(ex);
                 }
 
-                ingestDocumentsFromFilesystem(config, embeddingStore, embeddingModel);
-                LOGGER.infof("Writing embeddings to %s", embeddingsFile);
-                ((InMemoryEmbeddingStore<TextSegment>) embeddingStore).serializeToFile(embeddingsFile);
+                ingestDocumentsFromFilesystem(config, embeddingStore, embeddingModel, false);
+                writeEmbeddings(embeddingsFile);
+            } else if (config.ingestion().incremental().enabled()) {
+                // the store contains the embeddings that were read from the file, only what changed since they were
+                // written needs to be ingested
+                if (ingestDocumentsFromFilesystem(config, embeddingStore, embeddingModel, true)) {
+                    writeEmbeddings(embeddingsFile);
+                }
             } else {
                 // This is here because in the case where the file exists, the EmbeddingStore will be
                 // lazily initialized upon first use. We want it eagerly initialized.
@@ -62,36 +59,61 @@ public class EasyRagIngestor {
                 embeddingStore.toString();
             }
         } else {
-            ingestDocumentsFromFilesystem(config, embeddingStore, embeddingModel);
+            // an in-memory store starts empty, while any other store contains what was previously ingested
+            ingestDocumentsFromFilesystem(config, embeddingStore, embeddingModel, !inMemory);
         }
 
     }
 
-    private void ingestDocumentsFromFilesystem(EasyRagConfig config, EmbeddingStore<TextSegment> embeddingStore,
-            EmbeddingModel embeddingModel) {
-        PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher(config.pathMatcher());
+    private void writeEmbeddings(Path embeddingsFile) {
+        LOGGER.infof("Writing embeddings to %s", embeddingsFile);
+        InMemoryEmbeddingStore<TextSegment> store = (InMemoryEmbeddingStore<TextSegment>) embeddingStore;
+        if (config.reuseEmbeddings().format() == EmbeddingsFileFormat.BINARY) {
+            EmbeddingsSnapshot.write(store, embeddingsFile);
+        } else {
+            store.serializeToFile(embeddingsFile);
+        }
+    }
+
+    /**
+     * @param populated whether the store contains what was previously ingested
+     * @return whether the content of the store changed
+     */
+    private boolean ingestDocumentsFromFilesystem(EasyRagConfig config, EmbeddingStore<TextSegment> embeddingStore,
+            EmbeddingModel embeddingModel, boolean populated) {
         LOGGER.info("Ingesting documents from path: " + config.path() +
                 ", path matcher = " + config.pathMatcher() + ", recursive = " + config.recursive());
 
-        List<Document> documents = config.recursive()
-                ? FileSystemDocumentLoader.loadDocumentsRecursively(config.path(), pathMatcher)
-                : FileSystemDocumentLoader.loadDocuments(config.path(), pathMatcher);
-
-        DocumentSplitter documentSplitter = DocumentSplitters.recursive(config.maxSegmentSize(),
-                config.maxOverlapSize(), new HuggingFaceTokenizer());
-
-        List<Document> splitDocuments = documentSplitter
-                .splitAll(documents)
-                .stream()
-                .map(split -> new Document(split.text()))
-                .toList();
-
-        EmbeddingStoreIngestor.builder()
-                .embeddingModel(embeddingModel)
-                .embeddingStore(embeddingStore)
-                .build()
-                .ingest(splitDocuments);
+        if (!config.ingestion().incremental().enabled()) {
+            EasyRagIngestionPipeline.Result result = new EasyRagIngestionPipeline(embeddingModel, embeddingStore,
+                    config).run();
+            LOGGER.info("Ingested " + result.files() + " files as " + result.segments() + " documents");
+            return true;
+        }
 
-        LOGGER.info("Ingested " + documents.size() + " files as " + splitDocuments.size() + " documents");
+        Path manifestFile = Path.of(config.ingestion().incremental().manifestFile()).toAbsolutePath();
+        EasyRagIngestionManifest previous = populated ? EasyRagIngestionManifest.read(manifestFile) : null;
+        if (populated && (previous == null) && (embeddingStore instanceof InMemoryEmbeddingStore<TextSegment>)) {
+            // there is no telling which documents the embeddings that were read from the file belong to
+            LOGGER.infof("No ingestion manifest found at %s, all the documents are ingested again", manifestFile);
+            embeddingStore.removeAll();
+        }
+        EasyRagIngestionPipeline pipeline = new EasyRagIngestionPipeline(embeddingModel, embeddingStore, config, true,
+                previous);
+        EasyRagIngestionPipeline.Result result;
+        try {
+            result = pipeline.run();
+        } catch (RuntimeException e) {
+            // the content of an in-memory store is lost anyway
+            if (!(embeddingStore instanceof InMemoryEmbeddingStore<TextSegment>)) {
+                pipeline.manifest().write(manifestFile);
+            }
+            throw e;
+        }
+        pipeline.manifest().write(manifestFile);
+        LOGGER.info("Ingested " + result.files() + " files as " + result.segments() + " documents");
+        LOGGER.infof("%d files did not change since the previous ingestion, %d files were removed since then",
+                result.unchangedFiles(), result.removedFiles());
+        return result.storeChanged() || (previous == null);
     }
 }
@@ -46,6 +46,11 @@ public class EasyRagRecorder {
         return new Supplier<>() {
             @Override
             public InMemoryEmbeddingStore<TextSegment> get() {
+                EasyRagConfig.InMemoryStoreConfig storeConfig = config.inMemoryStore();
+                VectorIndexEmbeddingStore vectorIndex = storeConfig.type() == InMemoryStoreType.VECTOR_INDEX
+                        ? new VectorIndexEmbeddingStore(storeConfig.quantized(), storeConfig.partitionSize(),
+                                storeConfig.parallelSearchThreshold())
+                        : null;
                 if ((config.ingestionStrategy() == IngestionStrategy.ON) && config.reuseEmbeddings().enabled()) {
                     // Want to reuse existing embeddings
                     Path embeddingsFile = Path.of(config.reuseEmbeddings().file()).toAbsolutePath();
@@ -53,12 +58,19 @@ public class EasyRagRecorder {
                     // If the file exists then read it and populate
                     if (Files.isRegularFile(embeddingsFile)) {
                         LOGGER.infof("Reading embeddings from %s", embeddingsFile);
+                        if (vectorIndex != null) {
+                            EmbeddingsSnapshot.readInto(embeddingsFile, vectorIndex);
+                            return vectorIndex;
+                        }
+                        if (EmbeddingsSnapshot.isSnapshot(embeddingsFile)) {
+                            return EmbeddingsSnapshot.read(embeddingsFile);
+                        }
                         return InMemoryEmbeddingStore.fromFile(embeddingsFile);
                     }
                 }
 
                 // Otherwise just return an empty store
-                return new InMemoryEmbeddingStore<>();
+                return vectorIndex != null ? vectorIndex : new InMemoryEmbeddingStore<>();
             }
         };
 
@@ -0,0 +1,15 @@
+package io.quarkiverse.langchain4j.easyrag.runtime;
+
+public enum EmbeddingsFileFormat {
+
+    /**
+     * The JSON written by {@link dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore#serializeToFile}
+     */
+    JSON,
+
+    /**
+     * The binary format of {@link EmbeddingsSnapshot}
+     */
+    BINARY
+
+}
@@ -0,0 +1,537 @@
+package io.quarkiverse.langchain4j.easyrag.runtime;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.quarkus.arc.ClientProxy;
+
+/**
+ * Binary snapshot of an {@link InMemoryEmbeddingStore}, which is much smaller than the JSON produced by
+ * {@link InMemoryEmbeddingStore#serializeToFile(Path)} and does not need to be parsed in order to be read.
+ * <p>
+ * All the numbers are little-endian. The file starts with a header made of the {@link #MAGIC} bytes, the version of the
+ * format, the dimension of the embeddings and the number of entries. Each entry is then made of its length in bytes
+ * (excluding the length itself), the id of the embedding, the floats of the embedding, a byte telling whether there
+ * is a segment and, if there is one, the text of the segment and its metadata. Strings are encoded as their length in
+ * bytes followed by their UTF-8 bytes, and metadata as the number of entries followed by the key, the type and the
+ * value of each entry.
+ * <p>
+ * The file is memory-mapped when it is read, one window at a time, so that reading it does not involve any copy
+ * besides the one into the store.
+ */
+public final class EmbeddingsSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(EmbeddingsSnapshot.class);
+
+    static final byte[] MAGIC = "QL4JEMBS".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte UUID_VALUE = 6;
+
+    // serializes the fields of an InMemoryEmbeddingStore, which is what its own JSON codec serializes
+    private static final ObjectMapper STORE_MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    // the entries are added to the store in chunks that are then merged, since adding an entry copies all the others
+    private static final int CHUNK_SIZE = 256;
+
+    private EmbeddingsSnapshot() {
+    }
+
+    /**
+     * @return whether the file is a snapshot, as opposed to the JSON written by
+     *         {@link InMemoryEmbeddingStore#serializeToFile(Path)}
+     */
+    public static boolean isSnapshot(Path file) {
+        byte[] magic = new byte[MAGIC.length];
+        try (InputStream in = Files.newInputStream(file)) {
+            return (in.readNBytes(magic, 0, magic.length) == magic.length) && Arrays.equals(magic, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static InMemoryEmbeddingStore<TextSegment> read(Path file) {
+        List<InMemoryEmbeddingStore<TextSegment>> chunks = new ArrayList<>();
+        read(file, new EntryConsumer() {
+            private InMemoryEmbeddingStore<TextSegment> chunk;
+            private int chunkSize;
+
+            @Override
+            public void accept(String id, float[] vector, TextSegment segment) {
+                if ((chunk == null) || (chunkSize == CHUNK_SIZE)) {
+                    chunk = new InMemoryEmbeddingStore<>();
+                    chunks.add(chunk);
+                    chunkSize = 0;
+                }
+                chunk.add(id, Embedding.from(vector), segment);
+                chunkSize++;
+            }
+        });
+        return chunks.isEmpty() ? new InMemoryEmbeddingStore<>() : InMemoryEmbeddingStore.merge(chunks);
+    }
+
+    /**
+     * Adds the embeddings of a file, either a snapshot or the JSON written by
+     * {@link InMemoryEmbeddingStore#serializeToFile(Path)}, to a vector index
+     */
+    public static void readInto(Path file, VectorIndexEmbeddingStore store) {
+        EntryConsumer consumer = new EntryConsumer() {
+            @Override
+            public void accept(String id, float[] vector, TextSegment segment) {
+                store.add(id, Embedding.from(vector), segment);
+            }
+        };
+        if (isSnapshot(file)) {
+            read(file, consumer);
+        } else {
+            try {
+                readJson(file, consumer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read the embeddings " + file, e);
+            }
+        }
+    }
+
+    private static void read(Path file, EntryConsumer consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = map(channel, 0, Math.min(size, HEADER_SIZE));
+            if ((header.remaining() < HEADER_SIZE) || !Arrays.equals(readBytes(header, MAGIC.length), MAGIC)) {
+                throw new IllegalArgumentException(file + " is not an embeddings snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(
+                        "Unsupported version " + version + " of the embeddings snapshot " + file);
+            }
+            int dimension = header.getInt();
+            long count = header.getLong();
+
+            long position = HEADER_SIZE;
+            ByteBuffer window = null;
+            long windowStart = 0;
+            for (long i = 0; i < count; i++) {
+                if ((window == null) || (window.remaining() < Integer.BYTES)
+                        || (window.remaining() < Integer.BYTES + window.getInt(window.position()))) {
+                    // the entry does not fit in what is left of the window, the next window starts with it
+                    ByteBuffer length = map(channel, position, Integer.BYTES);
+                    long entrySize = Integer.BYTES + (long) length.getInt();
+                    windowStart = position;
+                    window = map(channel, position, Math.min(size - position, Math.max(WINDOW_SIZE, entrySize)));
+                }
+                window.getInt();
+                String id = readString(window);
+                float[] vector = new float[dimension];
+                window.asFloatBuffer().get(vector);
+                window.position(window.position() + dimension * Float.BYTES);
+                TextSegment segment = window.get() == 0 ? null
+                        : TextSegment.from(readString(window), readMetadata(window));
+                position = windowStart + window.position();
+                consumer.accept(id, vector, segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the embeddings snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Writes the embeddings of a store to a snapshot, without holding more than a partition of a
+     * {@link VectorIndexEmbeddingStore} or the JSON of an entry of any other store in memory
+     */
+    public static void write(InMemoryEmbeddingStore<TextSegment> store, Path file) {
+        InMemoryEmbeddingStore<TextSegment> instance = ClientProxy.unwrap(store);
+        if (instance instanceof VectorIndexEmbeddingStore vectorIndex) {
+            try (Writer writer = new Writer(file)) {
+                Iterator<VectorIndexEmbeddingStore.Entry> entries = vectorIndex.entries();
+                while (entries.hasNext()) {
+                    VectorIndexEmbeddingStore.Entry entry = entries.next();
+                    writer.write(entry.id(), entry.vector(), entry.segment());
+                }
+                writer.commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write the embeddings snapshot " + file, e);
+            }
+            return;
+        }
+
+        // the store does not expose its entries, its JSON serialization is the only way to list all of them (a search
+        // skips the embeddings whose similarity cannot be computed, such as the zero vectors), so the JSON is streamed
+        // to a temporary file that is then converted, since serializeToJson() would not fit in a String for large
+        // stores
+        Path json = file.resolveSibling(file.getFileName() + ".json.tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(json)) {
+                STORE_MAPPER.writeValue(out, instance);
+            }
+            convertFromJson(json, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the embeddings snapshot " + file, e);
+        } finally {
+            try {
+                Files.deleteIfExists(json);
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Unable to delete %s", json);
+            }
+        }
+    }
+
+    /**
+     * Converts the JSON written by {@link InMemoryEmbeddingStore#serializeToFile(Path)} to a snapshot, without reading
+     * the whole JSON in memory
+     */
+    public static void convertFromJson(Path json, Path snapshot) {
+        try (Writer writer = new Writer(snapshot)) {
+            readJson(json, writer::write);
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to convert " + json + " to an embeddings snapshot", e);
+        }
+    }
+
+    private static void readJson(Path json, EntryConsumer consumer) throws IOException {
+        try (JsonParser parser = new JsonFactory().createParser(json.toFile())) {
+            readJson(parser, consumer);
+        }
+    }
+
+    private static void readJson(JsonParser parser, EntryConsumer consumer) throws IOException {
+        expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (!"entries".equals(parser.currentName())) {
+                parser.nextToken();
+                parser.skipChildren();
+                continue;
+            }
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                readEntry(parser, consumer);
+            }
+        }
+    }
+
+    private static void readEntry(JsonParser parser, EntryConsumer consumer) throws IOException {
+        String id = null;
+        float[] vector = null;
+        TextSegment segment = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("id".equals(name)) {
+                id = parser.getText();
+            } else if ("embedding".equals(name) && token == JsonToken.START_OBJECT) {
+                vector = readEmbedding(parser);
+            } else if ("embedded".equals(name) && token == JsonToken.START_OBJECT) {
+                segment = readSegment(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if ((id == null) || (vector == null)) {
+            throw new IOException("Entry without id or embedding at " + parser.currentLocation());
+        }
+        consumer.accept(id, vector, segment);
+    }
+
+    private static float[] readEmbedding(JsonParser parser) throws IOException {
+        float[] vector = new float[0];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("vector".equals(name) && token == JsonToken.START_ARRAY) {
+                float[] values = new float[1024];
+                int length = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (length == values.length) {
+                        values = Arrays.copyOf(values, length * 2);
+                    }
+                    values[length++] = parser.getFloatValue();
+                }
+                vector = Arrays.copyOf(values, length);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return vector;
+    }
+
+    private static TextSegment readSegment(JsonParser parser) throws IOException {
+        String text = null;
+        Map<String, Object> metadata = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("text".equals(name)) {
+                text = parser.getText();
+            } else if ("metadata".equals(name) && token == JsonToken.START_OBJECT) {
+                // the metadata is serialized as an object holding the map of the metadata
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    token = parser.nextToken();
+                    if ("metadata".equals(parser.currentName()) && token == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String key = parser.currentName();
+                            token = parser.nextToken();
+                            switch (token) {
+                                case VALUE_STRING -> metadata.put(key, parser.getText());
+                                case VALUE_NUMBER_INT -> metadata.put(key, readInteger(parser));
+                                case VALUE_NUMBER_FLOAT -> metadata.put(key, parser.getDoubleValue());
+                                default -> parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return text == null ? null : TextSegment.from(text, Metadata.from(metadata));
+    }
+
+    /**
+     * @return an {@link Integer} or a {@link Long}, the only integer types {@link Metadata} accepts
+     */
+    private static Object readInteger(JsonParser parser) throws IOException {
+        return switch (parser.getNumberType()) {
+            case INT -> parser.getIntValue();
+            case LONG -> parser.getLongValue();
+            default -> throw new IOException(
+                    "Unsupported metadata value " + parser.getText() + " at " + parser.currentLocation());
+        };
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer, buffer.getInt()), StandardCharsets.UTF_8);
+    }
+
+    private static Metadata readMetadata(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Map<String, Object> metadata = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = readString(buffer);
+            byte type = buffer.get();
+            Object value = switch (type) {
+                case STRING -> readString(buffer);
+                case INTEGER -> buffer.getInt();
+                case LONG -> buffer.getLong();
+                case FLOAT -> buffer.getFloat();
+                case DOUBLE -> buffer.getDouble();
+                case UUID_VALUE -> new UUID(buffer.getLong(), buffer.getLong());
+                default -> throw new IllegalArgumentException("Unknown metadata type " + type);
+            };
+            metadata.put(key, value);
+        }
+        return Metadata.from(metadata);
+    }
+
+    private interface EntryConsumer {
+
+        void accept(String id, float[] vector, TextSegment segment) throws IOException;
+    }
+
+    /**
+     * Writes a snapshot to a temporary file that replaces the snapshot once all the entries are written, so that the
+     * snapshot is never found half written
+     */
+    private static final class Writer implements Closeable {
+
+        private final Path file;
+        private final Path tmp;
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private int dimension = -1;
+        private long count;
+
+        Writer(Path file) throws IOException {
+            this.file = file;
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            // the header is written once the dimension and the number of entries are known
+            channel.position(HEADER_SIZE);
+        }
+
+        void write(String id, float[] vector, TextSegment segment) throws IOException {
+            if (dimension < 0) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("The embedding " + id + " has " + vector.length
+                        + " dimensions while the previous ones have " + dimension);
+            }
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            byte[] textBytes = segment == null ? null : segment.text().getBytes(StandardCharsets.UTF_8);
+            List<byte[]> keys = new ArrayList<>();
+            List<Object> values = new ArrayList<>();
+            int size = Integer.BYTES + idBytes.length + vector.length * Float.BYTES + 1;
+            if (segment != null) {
+                size += Integer.BYTES + textBytes.length + Integer.BYTES;
+                for (Map.Entry<String, Object> entry : segment.metadata().toMap().entrySet()) {
+                    byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    Object value = entry.getValue();
+                    if (value instanceof String string) {
+                        // the bytes are written instead of the string
+                        value = string.getBytes(StandardCharsets.UTF_8);
+                    }
+                    keys.add(key);
+                    values.add(value);
+                    size += Integer.BYTES + key.length + 1 + valueSize(value);
+                }
+            }
+
+            ensureCapacity(Integer.BYTES + size);
+            buffer.putInt(size);
+            buffer.putInt(idBytes.length).put(idBytes);
+            buffer.asFloatBuffer().put(vector);
+            buffer.position(buffer.position() + vector.length * Float.BYTES);
+            if (segment == null) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) 1);
+                buffer.putInt(textBytes.length).put(textBytes);
+                buffer.putInt(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    buffer.putInt(keys.get(i).length).put(keys.get(i));
+                    writeValue(values.get(i));
+                }
+            }
+            count++;
+        }
+
+        private static int valueSize(Object value) {
+            if (value instanceof byte[] bytes) {
+                return Integer.BYTES + bytes.length;
+            } else if (value instanceof Integer) {
+                return Integer.BYTES;
+            } else if (value instanceof Long) {
+                return Long.BYTES;
+            } else if (value instanceof Float) {
+                return Float.BYTES;
+            } else if (value instanceof Double) {
+                return Double.BYTES;
+            } else if (value instanceof UUID) {
+                return 2 * Long.BYTES;
+            }
+            throw new IllegalArgumentException("Unsupported metadata type " + value.getClass().getName());
+        }
+
+        private void writeValue(Object value) {
+            if (value instanceof byte[] bytes) {
+                buffer.put(STRING).putInt(bytes.length).put(bytes);
+            } else if (value instanceof Integer v) {
+                buffer.put(INTEGER).putInt(v);
+            } else if (value instanceof Long v) {
+                buffer.put(LONG).putLong(v);
+            } else if (value instanceof Float v) {
+                buffer.put(FLOAT).putFloat(v);
+            } else if (value instanceof Double v) {
+                buffer.put(DOUBLE).putDouble(v);
+            } else if (value instanceof UUID v) {
+                buffer.put(UUID_VALUE).putLong(v.getMostSignificantBits()).putLong(v.getLeastSignificantBits());
+            }
+        }
+
+        private void ensureCapacity(int size) throws IOException {
+            if (buffer.remaining() >= size) {
+                return;
+            }
+            flush();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Replaces the snapshot with what was written
+         */
+        void commit() throws IOException {
+            try (channel) {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(MAGIC).putInt(VERSION).putInt(Math.max(0, dimension)).putLong(count).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(false);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debugf("Wrote %d embeddings to %s", count, file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the temporary file only exists at this point if the snapshot was not committed
+            try (channel) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package io.quarkiverse.langchain4j.easyrag.runtime;
+
+public enum InMemoryStoreType {
+
+    /**
+     * The {@link dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore} of LangChain4j
+     */
+    DEFAULT,
+
+    /**
+     * {@link VectorIndexEmbeddingStore}
+     */
+    VECTOR_INDEX
+
+}
@@ -0,0 +1,522 @@
+package io.quarkiverse.langchain4j.easyrag.runtime;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * In-memory embedding store meant for large numbers of embeddings, which can be used wherever an
+ * {@link InMemoryEmbeddingStore} is expected.
+ * <p>
+ * Instead of keeping an object per embedding, the embeddings are kept in partitions of a fixed number of embeddings,
+ * each partition holding the components of its embeddings in a single array, one column of components after the
+ * other. A search computes the scores of all the embeddings of a partition at once, one component of the query at a
+ * time, which the JIT compiles to SIMD instructions, and searches the partitions in parallel when the store is large.
+ * <p>
+ * The embeddings can also be quantized, in which case each one of their components is kept as a byte, scaled by a
+ * factor of the embedding. This divides the memory used by the embeddings by 4, at the cost of less precise scores,
+ * and of the embeddings returned by searches being approximations of the ones that were added.
+ */
+public class VectorIndexEmbeddingStore extends InMemoryEmbeddingStore<TextSegment> {
+
+    static final int DEFAULT_PARTITION_SIZE = 4096;
+    static final int DEFAULT_PARALLEL_SEARCH_THRESHOLD = 32768;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Comparator<Candidate> BY_SCORE = Comparator.comparingDouble(Candidate::score);
+
+    private final boolean quantized;
+    private final int partitionSize;
+    private final int parallelSearchThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Partition> partitions = new ArrayList<>();
+    // the partition and the row of each embedding, as partition * partitionSize + row
+    private final Map<String, Integer> locations = new HashMap<>();
+    private int dimension = -1;
+
+    public VectorIndexEmbeddingStore() {
+        this(false, DEFAULT_PARTITION_SIZE, DEFAULT_PARALLEL_SEARCH_THRESHOLD);
+    }
+
+    /**
+     * @param quantized whether the components of the embeddings are kept as bytes instead of floats
+     * @param partitionSize the number of embeddings of each partition
+     * @param parallelSearchThreshold the number of embeddings above which the partitions are searched in parallel
+     */
+    public VectorIndexEmbeddingStore(boolean quantized, int partitionSize, int parallelSearchThreshold) {
+        this.quantized = quantized;
+        this.partitionSize = Math.max(1, partitionSize);
+        this.parallelSearchThreshold = parallelSearchThreshold;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return locations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding, null);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        add(id, embedding, null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment embedded) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding, embedded);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding, TextSegment embedded) {
+        lock.writeLock().lock();
+        try {
+            put(id, embedding.vector(), embedded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return addAll(embeddings, null);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        if ((embedded != null) && (embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("The list of embeddings and embedded must have the same size");
+        }
+        List<String> ids = new ArrayList<>(embeddings.size());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < embeddings.size(); i++) {
+                String id = UUID.randomUUID().toString();
+                put(id, embeddings.get(i).vector(), embedded == null ? null : embedded.get(i));
+                ids.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer location = locations.remove(id);
+                if (location != null) {
+                    removeRow(location);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            List<String> ids = new ArrayList<>();
+            for (Partition partition : partitions) {
+                for (int row = 0; row < partition.size; row++) {
+                    TextSegment segment = partition.segments[row];
+                    if ((segment != null) && filter.test(segment.metadata())) {
+                        ids.add(partition.ids[row]);
+                    }
+                }
+            }
+            for (String id : ids) {
+                removeRow(locations.remove(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            partitions.clear();
+            locations.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        lock.readLock().lock();
+        try {
+            if (partitions.isEmpty()) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Length of vector a (" + query.length
+                        + ") must be equal to the length of vector b (" + dimension + ")");
+            }
+            // the scores are computed with the normalized query, so that they only need to be divided by the norms of
+            // the embeddings in order to obtain the cosine similarities
+            float[] normalizedQuery = query.clone();
+            float inverseNorm = inverseNorm(query);
+            for (int i = 0; i < normalizedQuery.length; i++) {
+                normalizedQuery[i] *= inverseNorm;
+            }
+            int maxResults = request.maxResults();
+            Stream<Partition> stream = (partitions.size() > 1) && (locations.size() >= parallelSearchThreshold)
+                    ? partitions.parallelStream()
+                    : partitions.stream();
+            PriorityQueue<Candidate> best = stream
+                    .map(partition -> partition.search(normalizedQuery, maxResults, request.minScore(),
+                            request.filter()))
+                    .reduce(new PriorityQueue<>(BY_SCORE), (first, second) -> {
+                        PriorityQueue<Candidate> merged = new PriorityQueue<>(BY_SCORE);
+                        merged.addAll(first);
+                        for (Candidate candidate : second) {
+                            offer(merged, candidate, maxResults);
+                        }
+                        return merged;
+                    });
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(best.size());
+            for (Candidate candidate : best) {
+                Partition partition = candidate.partition();
+                int row = candidate.row();
+                matches.add(new EmbeddingMatch<>(candidate.score(), partition.ids[row],
+                        Embedding.from(partition.vector(row)), partition.segments[row]));
+            }
+            matches.sort(Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed());
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Iterates over the embeddings of the store, copying the embeddings of one partition at a time when the iteration
+     * reaches it, so that the whole store is never copied at once. The embeddings added or removed during the
+     * iteration may or may not be returned.
+     */
+    public Iterator<Entry> entries() {
+        return new Iterator<>() {
+            private int partition;
+            private List<Entry> entries = List.of();
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (index == entries.size()) {
+                    lock.readLock().lock();
+                    try {
+                        if (partition >= partitions.size()) {
+                            return false;
+                        }
+                        Partition current = partitions.get(partition++);
+                        entries = new ArrayList<>(current.size);
+                        for (int row = 0; row < current.size; row++) {
+                            entries.add(new Entry(current.ids[row], current.vector(row), current.segments[row]));
+                        }
+                        index = 0;
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return entries.get(index++);
+            }
+        };
+    }
+
+    /**
+     * @return the same JSON as {@link InMemoryEmbeddingStore#serializeToJson()}
+     */
+    @Override
+    public String serializeToJson() {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            writeJson(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Writes the JSON of {@link #serializeToJson()} one embedding at a time, without holding it in memory
+     */
+    @Override
+    public void serializeToFile(Path filePath) {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(filePath.toFile(), JsonEncoding.UTF8)) {
+            writeJson(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void serializeToFile(String filePath) {
+        serializeToFile(Path.of(filePath));
+    }
+
+    private void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("entries");
+        Iterator<Entry> entries = entries();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            generator.writeStartObject();
+            generator.writeStringField("id", entry.id());
+            generator.writeObjectFieldStart("embedding");
+            generator.writeArrayFieldStart("vector");
+            for (float component : entry.vector()) {
+                generator.writeNumber(component);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            if (entry.segment() != null) {
+                generator.writeObjectFieldStart("embedded");
+                generator.writeStringField("text", entry.segment().text());
+                // the metadata is serialized as an object holding the map of the metadata
+                generator.writeObjectFieldStart("metadata");
+                generator.writeObjectFieldStart("metadata");
+                for (Map.Entry<String, Object> metadata : entry.segment().metadata().toMap().entrySet()) {
+                    generator.writeFieldName(metadata.getKey());
+                    Object value = metadata.getValue();
+                    if (value instanceof Integer v) {
+                        generator.writeNumber(v);
+                    } else if (value instanceof Long v) {
+                        generator.writeNumber(v);
+                    } else if (value instanceof Float v) {
+                        generator.writeNumber(v);
+                    } else if (value instanceof Double v) {
+                        generator.writeNumber(v);
+                    } else {
+                        generator.writeString(value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void put(String id, float[] vector, TextSegment embedded) {
+        if (dimension < 0 || locations.isEmpty()) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("The embedding " + id + " has " + vector.length
+                    + " dimensions while the store holds embeddings of " + dimension + " dimensions");
+        }
+        Integer location = locations.get(id);
+        if (location != null) {
+            // the embedding replaces the one that has the same id
+            partitions.get(location / partitionSize).set(location % partitionSize, id, vector, embedded);
+            return;
+        }
+        Partition last = partitions.isEmpty() ? null : partitions.get(partitions.size() - 1);
+        if ((last == null) || (last.size == partitionSize)) {
+            last = new Partition();
+            partitions.add(last);
+        }
+        int row = last.size++;
+        last.set(row, id, vector, embedded);
+        locations.put(id, (partitions.size() - 1) * partitionSize + row);
+    }
+
+    /**
+     * Removes a row by moving the last row of the store in its place, so that the rows of the partitions stay
+     * contiguous
+     */
+    private void removeRow(int location) {
+        Partition partition = partitions.get(location / partitionSize);
+        int row = location % partitionSize;
+        Partition last = partitions.get(partitions.size() - 1);
+        int lastRow = last.size - 1;
+        if ((partition != last) || (row != lastRow)) {
+            String movedId = last.ids[lastRow];
+            partition.set(row, movedId, last.vector(lastRow), last.segments[lastRow]);
+            locations.put(movedId, location);
+        }
+        last.ids[lastRow] = null;
+        last.segments[lastRow] = null;
+        if (--last.size == 0) {
+            partitions.remove(partitions.size() - 1);
+        }
+    }
+
+    private static void offer(PriorityQueue<Candidate> best, Candidate candidate, int maxResults) {
+        if (best.size() < maxResults) {
+            best.add(candidate);
+        } else if (best.peek().score() < candidate.score()) {
+            best.poll();
+            best.add(candidate);
+        }
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double norm = 0;
+        for (float component : vector) {
+            norm += component * component;
+        }
+        // same as CosineSimilarity, which avoids dividing by zero
+        return (float) (1 / Math.max(Math.sqrt(norm), CosineSimilarity.EPSILON));
+    }
+
+    private final class Partition {
+
+        // the components of the embeddings, column after column, only one of them being used
+        private final float[] components;
+        private final byte[] quantizedComponents;
+        // for each row, the factor that turns the dot product of the row with the normalized query into the cosine
+        // similarity
+        private final float[] scoreFactors;
+        // for each row, the factor that turns the quantized components back into floats
+        private final float[] quantizationFactors;
+        private final String[] ids = new String[partitionSize];
+        private final TextSegment[] segments = new TextSegment[partitionSize];
+        private int size;
+
+        Partition() {
+            this.components = quantized ? null : new float[partitionSize * dimension];
+            this.quantizedComponents = quantized ? new byte[partitionSize * dimension] : null;
+            this.scoreFactors = new float[partitionSize];
+            this.quantizationFactors = quantized ? new float[partitionSize] : null;
+        }
+
+        void set(int row, String id, float[] vector, TextSegment segment) {
+            ids[row] = id;
+            segments[row] = segment;
+            float inverseNorm = inverseNorm(vector);
+            if (quantized) {
+                float max = 0;
+                for (float component : vector) {
+                    max = Math.max(max, Math.abs(component));
+                }
+                float factor = max / Byte.MAX_VALUE;
+                float inverseFactor = factor == 0 ? 0 : 1 / factor;
+                for (int i = 0; i < dimension; i++) {
+                    quantizedComponents[i * partitionSize + row] = (byte) Math.round(vector[i] * inverseFactor);
+                }
+                quantizationFactors[row] = factor;
+                scoreFactors[row] = factor * inverseNorm;
+            } else {
+                for (int i = 0; i < dimension; i++) {
+                    components[i * partitionSize + row] = vector[i];
+                }
+                scoreFactors[row] = inverseNorm;
+            }
+        }
+
+        float[] vector(int row) {
+            float[] vector = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = quantized ? quantizedComponents[i * partitionSize + row] * quantizationFactors[row]
+                        : components[i * partitionSize + row];
+            }
+            return vector;
+        }
+
+        PriorityQueue<Candidate> search(float[] query, int maxResults, double minScore, Filter filter) {
+            float[] scores = new float[size];
+            // the loops go over the rows, which the JIT vectorizes since there is no dependency between them
+            if (quantized) {
+                for (int i = 0; i < dimension; i++) {
+                    float component = query[i];
+                    int offset = i * partitionSize;
+                    for (int row = 0; row < scores.length; row++) {
+                        scores[row] += component * quantizedComponents[offset + row];
+                    }
+                }
+            } else {
+                for (int i = 0; i < dimension; i++) {
+                    float component = query[i];
+                    int offset = i * partitionSize;
+                    for (int row = 0; row < scores.length; row++) {
+                        scores[row] += component * components[offset + row];
+                    }
+                }
+            }
+
+            PriorityQueue<Candidate> best = new PriorityQueue<>(BY_SCORE);
+            for (int row = 0; row < scores.length; row++) {
+                double score = RelevanceScore.fromCosineSimilarity(scores[row] * scoreFactors[row]);
+                if ((score < minScore) || ((best.size() == maxResults) && (best.peek().score() >= score))) {
+                    continue;
+                }
+                if ((filter != null) && ((segments[row] == null) || !filter.test(segments[row].metadata()))) {
+                    continue;
+                }
+                offer(best, new Candidate(this, row, score), maxResults);
+            }
+            return best;
+        }
+    }
+
+    private record Candidate(Partition partition, int row, double score) {
+    }
+
+    /**
+     * An embedding of the store, as returned by {@link #entries()}
+     */
+    public record Entry(String id, float[] vector, TextSegment segment) {
+    }
+}